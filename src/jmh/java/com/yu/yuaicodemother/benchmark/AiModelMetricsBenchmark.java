@@ -0,0 +1,91 @@
+package com.yu.yuaicodemother.benchmark;
+
+import com.yu.yuaicodemother.monitor.AiModelMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AiModelMetricsCollector} 指标查找与记录基准测试
+ * <p>
+ * 每次模型调用记录一组指标（开始、成功、三类 Token、耗时），失败时另记一次异常；
+ * 三个模型名交替出现，对应对话、流式、推理模型共用一个收集器的情况。
+ * concurrent 以 8 个线程记录，观察指标查找在竞争下的表现。
+ * 指标在首次出现时创建，之后每组记录的分配量见 -prof gc 的 gc.alloc.rate.norm。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiModelMetricsBenchmark {
+
+    private static final String[] MODEL_NAMES = {"qwen-plus", "qwen-max", "deepseek-r1"};
+
+    private static final Duration RESPONSE_TIME = Duration.ofMillis(1850);
+
+    private final AiModelMetricsCollector collector = new AiModelMetricsCollector();
+
+    private final Throwable[] errors = {new SocketTimeoutException("timeout"), new IOException("reset")};
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(collector, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public void requestLifecycle(ModelCursor cursor) {
+        record(cursor.nextModel());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void requestLifecycleConcurrent(ModelCursor cursor) {
+        record(cursor.nextModel());
+    }
+
+    @Benchmark
+    public void error(ModelCursor cursor) {
+        collector.recordError(cursor.nextModel(), errors[cursor.index & 1]);
+    }
+
+    private void record(String modelName) {
+        collector.recordRequest(modelName, AiModelMetricsCollector.Status.STARTED);
+        collector.recordRequest(modelName, AiModelMetricsCollector.Status.SUCCESS);
+        collector.recordTokenUsage(modelName, AiModelMetricsCollector.TokenType.INPUT, 3200);
+        collector.recordTokenUsage(modelName, AiModelMetricsCollector.TokenType.OUTPUT, 1450);
+        collector.recordTokenUsage(modelName, AiModelMetricsCollector.TokenType.TOTAL, 4650);
+        collector.recordResponseTime(modelName, RESPONSE_TIME);
+    }
+
+    /**
+     * 每个线程依次取模型名
+     */
+    @State(Scope.Thread)
+    public static class ModelCursor {
+
+        private int index;
+
+        private String nextModel() {
+            index = index + 1 == MODEL_NAMES.length ? 0 : index + 1;
+            return MODEL_NAMES[index];
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.yu.yuaicodemother.benchmark;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试输入
+ * <p>
+ * 模型输出复用本地模拟服务的录制脚本（src/test/resources/fake-openai），
+ * 与端到端压测回放的是同一份内容，按相同的 4 字符切分为 token。
+ * </p>
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * 每个 token 的字符数，与模拟服务一致
+     */
+    public static final int CHARS_PER_TOKEN = 4;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 录制脚本
+     *
+     * @param name 脚本名称（html / multi_file / vue_project）
+     */
+    public static JSONObject script(String name) {
+        return JSONUtil.parseObj(ResourceUtil.readUtf8Str("fake-openai/" + name + ".json"));
+    }
+
+    /**
+     * 录制脚本中某一轮的正文
+     */
+    public static String content(String name, int round) {
+        return script(name).getJSONArray("rounds").getJSONObject(round).getStr("content");
+    }
+
+    /**
+     * 按 token 切分
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + CHARS_PER_TOKEN);
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end++;
+            }
+            tokens.add(text.substring(start, end));
+            start = end;
+        }
+        return tokens;
+    }
+}
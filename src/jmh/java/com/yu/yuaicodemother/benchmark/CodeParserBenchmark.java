@@ -0,0 +1,104 @@
+package com.yu.yuaicodemother.benchmark;
+
+import com.yu.yuaicodemother.ai.model.HtmlCodeResult;
+import com.yu.yuaicodemother.ai.model.MultiFileCodeResult;
+import com.yu.yuaicodemother.core.parser.HtmlCodeParser;
+import com.yu.yuaicodemother.core.parser.MultiFileCodeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 代码解析基准测试：单次扫描的 {@link MultiFileCodeParser} / {@link HtmlCodeParser} 对比原正则实现
+ * <p>
+ * realistic：约 60KB 的正常多文件输出；
+ * unterminated：约 100KB 输出，html 代码块未闭合且正文中有大量反引号和空白；
+ * noFence：约 100KB 没有代码块的纯文本（HTML 解析走兜底逻辑）；
+ * recorded：模拟服务录制的多文件模式完整输出（{@link BenchmarkFixtures}）。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeParserBenchmark {
+
+    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+
+    @Param({"realistic", "unterminated", "noFence", "recorded"})
+    private String input;
+
+    private String content;
+
+    private final MultiFileCodeParser multiFileCodeParser = new MultiFileCodeParser();
+
+    private final HtmlCodeParser htmlCodeParser = new HtmlCodeParser();
+
+    @Setup
+    public void setUp() {
+        content = switch (input) {
+            case "realistic" -> "下面是完整的页面代码，包含 HTML、CSS 和 JavaScript。\n\n```html\n"
+                    + "<section class=\"card\"><h2>标题</h2><p>这是一段介绍文字</p></section>\n".repeat(400)
+                    + "```\n\n```css\n"
+                    + ".card { padding: 16px; border-radius: 8px; box-shadow: 0 2px 4px rgba(0,0,0,.1); }\n".repeat(200)
+                    + "```\n\n```javascript\n"
+                    + "document.querySelectorAll('.card').forEach(el => el.addEventListener('click', () => console.log(`${el.id}`)));\n".repeat(150)
+                    + "```\n\n以上代码可以直接在浏览器中运行。\n";
+            case "unterminated" -> "```css\np { color: red; }\n```\n```html\n"
+                    + "<div>`code` `` \t   </div>\n".repeat(4_000);
+            case "recorded" -> BenchmarkFixtures.content("multi_file", 0);
+            default -> "<html><body>" + "<p>纯文本内容 `x` ``y``</p>\n".repeat(4_000) + "</body></html>";
+        };
+    }
+
+    @Benchmark
+    public MultiFileCodeResult multiFileScanner() {
+        return multiFileCodeParser.parseCode(content);
+    }
+
+    @Benchmark
+    public MultiFileCodeResult multiFileRegex() {
+        MultiFileCodeResult result = new MultiFileCodeResult();
+        result.setHtmlCode(extract(content, HTML_CODE_PATTERN));
+        result.setCssCode(extract(content, CSS_CODE_PATTERN));
+        result.setJsCode(extract(content, JS_CODE_PATTERN));
+        return result;
+    }
+
+    @Benchmark
+    public HtmlCodeResult htmlScanner() {
+        return htmlCodeParser.parseCode(content);
+    }
+
+    @Benchmark
+    public HtmlCodeResult htmlRegex() {
+        HtmlCodeResult result = new HtmlCodeResult();
+        String htmlCode = extract(content, HTML_CODE_PATTERN);
+        result.setHtmlCode(htmlCode != null ? htmlCode : content.trim());
+        return result;
+    }
+
+    private static String extract(String content, Pattern pattern) {
+        Matcher matcher = pattern.matcher(content);
+        if (matcher.find() && !matcher.group(1).trim().isEmpty()) {
+            return matcher.group(1).trim();
+        }
+        return null;
+    }
+}
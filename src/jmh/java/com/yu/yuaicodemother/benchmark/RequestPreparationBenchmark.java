@@ -0,0 +1,158 @@
+package com.yu.yuaicodemother.benchmark;
+
+import com.yu.yuaicodemother.ai.MultiModalMessageBuilder;
+import com.yu.yuaicodemother.ai.guardrail.PromptSafetyInputGuardrail;
+import com.yu.yuaicodemother.core.file.processor.DocumentTextNormalizer;
+import com.yu.yuaicodemother.model.dto.app.AppQueryRequest;
+import com.yu.yuaicodemother.model.enums.FileTypeEnum;
+import com.yu.yuaicodemother.model.enums.ProcessStatusEnum;
+import com.yu.yuaicodemother.model.vo.file.FileProcessResult;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.utils.CacheKeyUtils;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.guardrail.InputGuardrailResult;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次请求执行一次的 CPU 路径基准测试：附件文本规范化、多模态消息组装、输入护轨、缓存 key
+ * <p>
+ * 输入按线上常见规模构造：PDF / Word 提取出约 60K 字符的原始文本（含 \r\n、不间断空格、控制字符与大段空行），
+ * 按 30000 字符截断；多模态消息包含一个文档、一张图片 URL 与三页 PDF 渲染图（每页约 150KB Base64）；
+ * 护轨输入分别为普通需求与接近 2000 字上限的长需求。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestPreparationBenchmark {
+
+    /**
+     * 与 PdfFileProcessor / WordFileProcessor 的截断上限一致
+     */
+    private static final int MAX_CHARS = 30000;
+
+    private static final String TRUNCATION_NOTE = "[System Note: PDF content truncated due to length limit.]";
+
+    private static final String PROMPT = "帮我做一个个人作品集网站，首页展示头像、简介和技能标签，"
+            + "作品区用卡片网格展示项目截图、名称和简介，点击卡片弹出详情；页面底部放联系方式和社交链接，"
+            + "整体风格简洁，主色调用蓝色，适配手机端。";
+
+    private final MultiModalMessageBuilder multiModalMessageBuilder = new MultiModalMessageBuilder();
+
+    private PromptSafetyInputGuardrail guardrail;
+
+    private String rawDocumentText;
+
+    private List<FileProcessResult> files;
+
+    private UserMessage shortPrompt;
+
+    private UserMessage longPrompt;
+
+    private AppQueryRequest appQueryRequest;
+
+    @Setup
+    public void setUp() {
+        GenerationTracer generationTracer = new GenerationTracer();
+        ReflectionTestUtils.setField(generationTracer, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(generationTracer, "maxSize", 1000);
+        ReflectionTestUtils.setField(generationTracer, "retentionMinutes", 60L);
+        generationTracer.init();
+        guardrail = new PromptSafetyInputGuardrail(generationTracer);
+
+        StringBuilder raw = new StringBuilder();
+        for (int page = 1; raw.length() < 60_000; page++) {
+            raw.append("第 ").append(page).append(" 页\r\n\r\n\r\n\r\n")
+                    .append("项目背景： 本系统面向中小企业，提供在线展示、订单管理与客户跟进功能。\r\n")
+                    .append("功能需求：\t1. 首页轮播图\t2. 产品列表分页\t3. 联系表单校验\u0007\r\n")
+                    .append("Non-functional requirements: response time under 200ms, support 1000 concurrent users.\u000C\r\n")
+                    .append("\n\n\n\n\n");
+        }
+        rawDocumentText = raw.toString();
+
+        String documentText = DocumentTextNormalizer.normalizeAndLimit(rawDocumentText, MAX_CHARS, TRUNCATION_NOTE).text();
+        byte[] pageImage = new byte[110 * 1024];
+        new Random(42).nextBytes(pageImage);
+        String pageBase64 = "data:image/png;base64," + Base64.getEncoder().encodeToString(pageImage);
+        files = new ArrayList<>();
+        files.add(FileProcessResult.builder()
+                .fileType(FileTypeEnum.DOCUMENT.getValue())
+                .fileName("需求说明.docx")
+                .content(documentText)
+                .status(ProcessStatusEnum.SUCCESS.getValue())
+                .metadata(Map.of("parseMethod", "poi", "truncated", true))
+                .build());
+        files.add(FileProcessResult.builder()
+                .fileType(FileTypeEnum.IMAGE.getValue())
+                .fileName("参考设计.png")
+                .url("https://example-bucket.cos.ap-shanghai.myqcloud.com/upload/2025/reference.png")
+                .status(ProcessStatusEnum.SUCCESS.getValue())
+                .build());
+        files.add(FileProcessResult.builder()
+                .fileType(FileTypeEnum.DOCUMENT.getValue())
+                .fileName("原型图.pdf")
+                .imageBase64s(List.of(pageBase64, pageBase64, pageBase64))
+                .status(ProcessStatusEnum.SUCCESS.getValue())
+                .build());
+
+        shortPrompt = UserMessage.from(multiModalMessageBuilder.buildMessage(PROMPT, List.of(files.get(1))));
+        longPrompt = UserMessage.from(PROMPT.repeat(1900 / PROMPT.length()));
+
+        appQueryRequest = new AppQueryRequest();
+        appQueryRequest.setAppName("作品集");
+        appQueryRequest.setCodeGenType("vue_project");
+        appQueryRequest.setPageNum(3);
+        appQueryRequest.setPageSize(12);
+        appQueryRequest.setSortField("createTime");
+    }
+
+    @Benchmark
+    public DocumentTextNormalizer.NormalizeResult normalizeAndLimit() {
+        return DocumentTextNormalizer.normalizeAndLimit(rawDocumentText, MAX_CHARS, TRUNCATION_NOTE);
+    }
+
+    @Benchmark
+    public List<Content> buildMultiModalMessage() {
+        return multiModalMessageBuilder.buildMessage(PROMPT, files);
+    }
+
+    @Benchmark
+    public InputGuardrailResult guardrailShortPrompt() {
+        return guardrail.validate(shortPrompt);
+    }
+
+    @Benchmark
+    public InputGuardrailResult guardrailLongPrompt() {
+        return guardrail.validate(longPrompt);
+    }
+
+    /**
+     * 精选应用列表的缓存 key（查询条件 + 角色）
+     */
+    @Benchmark
+    public String cacheKey() {
+        return CacheKeyUtils.generateKey(appQueryRequest, "user");
+    }
+}
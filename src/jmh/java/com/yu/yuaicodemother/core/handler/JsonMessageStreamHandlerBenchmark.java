@@ -0,0 +1,186 @@
+package com.yu.yuaicodemother.core.handler;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONObject;
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.BeforeToolExecuted;
+import com.yu.yuaicodemother.ai.model.message.DeepThinkMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.ai.model.message.ToolExecutedMessage;
+import com.yu.yuaicodemother.ai.tools.BaseTool;
+import com.yu.yuaicodemother.ai.tools.FileModifyTool;
+import com.yu.yuaicodemother.ai.tools.FileWriteTool;
+import com.yu.yuaicodemother.ai.tools.ToolManager;
+import com.yu.yuaicodemother.benchmark.BenchmarkFixtures;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Vue 工程模式流式消息转换基准测试（每个 token 调用一次 {@link JsonMessageStreamHandler#handleJsonMessageChunk}）
+ * <p>
+ * 消息来自 vue_project 录制脚本：思考与正文按 token 切分，工具调用参数每个分片产生一条工具请求消息，
+ * 每次工具调用结束产生一条执行结果消息。
+ * 单类消息的基准每次调用处理一条消息，配合 -prof gc 的 gc.alloc.rate.norm 即每个 token 产生的垃圾；
+ * fullResponse 处理一次完整的模型响应（全部轮次）。
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMessageStreamHandlerBenchmark {
+
+    /**
+     * 对话历史超过该长度时清空，避免无限增长
+     */
+    private static final int MAX_HISTORY_CHARS = 1 << 20;
+
+    private final JsonMessageStreamHandler handler = new JsonMessageStreamHandler();
+
+    private StreamMessage[] responseTokens;
+
+    private StreamMessage[] thinkingTokens;
+
+    private StreamMessage[] toolRequestChunks;
+
+    private StreamMessage[] toolExecutions;
+
+    private StreamMessage[] fullResponse;
+
+    private final StringBuilder history = new StringBuilder();
+
+    private final Set<String> seenToolIds = new HashSet<>();
+
+    private final AtomicBoolean thinking = new AtomicBoolean();
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        ToolManager toolManager = new ToolManager();
+        ReflectionTestUtils.setField(toolManager, "tools", new BaseTool[]{new FileWriteTool(), new FileModifyTool()});
+        toolManager.initTools();
+        ReflectionTestUtils.setField(handler, "toolManager", toolManager);
+
+        List<StreamMessage> responses = new ArrayList<>();
+        List<StreamMessage> thoughts = new ArrayList<>();
+        List<StreamMessage> toolRequests = new ArrayList<>();
+        List<StreamMessage> executions = new ArrayList<>();
+        List<StreamMessage> all = new ArrayList<>();
+        for (JSONObject round : BenchmarkFixtures.script("vue_project").getJSONArray("rounds").jsonIter()) {
+            // 每轮依次输出思考、正文、工具调用
+            for (String token : BenchmarkFixtures.tokens(round.getStr("reasoning"))) {
+                DeepThinkMessage message = new DeepThinkMessage(token);
+                thoughts.add(message);
+                all.add(message);
+            }
+            for (String token : BenchmarkFixtures.tokens(round.getStr("content"))) {
+                AiResponseMessage message = new AiResponseMessage(token);
+                responses.add(message);
+                all.add(message);
+            }
+            if (!round.containsKey("toolCalls")) {
+                continue;
+            }
+            for (JSONObject toolCall : round.getJSONArray("toolCalls").jsonIter()) {
+                ToolExecutionRequest request = ToolExecutionRequest.builder()
+                        .id("call_" + IdUtil.fastSimpleUUID())
+                        .name(toolCall.getStr("name"))
+                        .arguments(toolCall.getJSONObject("arguments").toString())
+                        .build();
+                for (String ignored : BenchmarkFixtures.tokens(request.arguments())) {
+                    BeforeToolExecuted chunk = new BeforeToolExecuted(request);
+                    toolRequests.add(chunk);
+                    all.add(chunk);
+                }
+                ToolExecutedMessage executed = new ToolExecutedMessage(ToolExecution.builder()
+                        .request(request)
+                        .result("ok")
+                        .build());
+                executions.add(executed);
+                all.add(executed);
+            }
+        }
+        responseTokens = responses.toArray(StreamMessage[]::new);
+        thinkingTokens = thoughts.toArray(StreamMessage[]::new);
+        toolRequestChunks = toolRequests.toArray(StreamMessage[]::new);
+        toolExecutions = executions.toArray(StreamMessage[]::new);
+        fullResponse = all.toArray(StreamMessage[]::new);
+    }
+
+    @Benchmark
+    public String responseToken() {
+        return handle(responseTokens[next(responseTokens.length)]);
+    }
+
+    @Benchmark
+    public String thinkingToken() {
+        return handle(thinkingTokens[next(thinkingTokens.length)]);
+    }
+
+    /**
+     * 工具参数分片（同一工具 ID 只有第一条输出内容）
+     */
+    @Benchmark
+    public String toolRequestChunk() {
+        int i = next(toolRequestChunks.length);
+        if (i == 0) {
+            seenToolIds.clear();
+        }
+        return handle(toolRequestChunks[i]);
+    }
+
+    /**
+     * 工具执行结果（解析完整参数 JSON 并生成展示内容）
+     */
+    @Benchmark
+    public String toolExecuted() {
+        return handle(toolExecutions[next(toolExecutions.length)]);
+    }
+
+    @Benchmark
+    public void fullResponse(Blackhole blackhole) {
+        StringBuilder chatHistory = new StringBuilder();
+        Set<String> toolIds = new HashSet<>();
+        AtomicBoolean inThinking = new AtomicBoolean();
+        for (StreamMessage message : fullResponse) {
+            blackhole.consume(handler.handleJsonMessageChunk(message, chatHistory, toolIds, inThinking));
+        }
+        blackhole.consume(chatHistory);
+    }
+
+    private String handle(StreamMessage message) {
+        if (history.length() > MAX_HISTORY_CHARS) {
+            history.setLength(0);
+        }
+        return handler.handleJsonMessageChunk(message, history, seenToolIds, thinking);
+    }
+
+    private int next(int length) {
+        if (++index >= length) {
+            index = 0;
+        }
+        return index;
+    }
+}
@@ -6,7 +6,7 @@ import dev.langchain4j.data.message.Content;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.TokenStream;
-import reactor.core.publisher.Flux;
+import dev.langchain4j.service.V;
 
 import java.util.List;
 
@@ -62,7 +62,7 @@ public interface AiCodeGeneratorService {
      * @return AI输出结果
      * */
     @SystemMessage(fromResource = "prompt/codegen-html-system-prompt.txt")
-    Flux<String> generateHTMLCodeStream(@dev.langchain4j.service.UserMessage List<Content> contents);
+    TokenStream generateHTMLCodeStream(@dev.langchain4j.service.UserMessage List<Content> contents);
 
     /**
      *  生成多文件代码
@@ -71,6 +71,16 @@ public interface AiCodeGeneratorService {
      * @return AI输出结果
      * */
     @SystemMessage(fromResource = "prompt/codegen-multi-file-system-prompt.txt")
-    Flux<String> generateMultiFileCodeStream(@dev.langchain4j.service.UserMessage List<Content> contents);
+    TokenStream generateMultiFileCodeStream(@dev.langchain4j.service.UserMessage List<Content> contents);
+
+    /**
+     *  修改已有的 HTML / 多文件代码（只输出修改块）
+     *
+     * @param currentFiles 当前代码文件（放入系统提示词，不占用户消息长度）
+     * @param userMessage 用户提示词
+     * @return AI输出结果
+     * */
+    @SystemMessage(fromResource = "prompt/codegen-patch-system-prompt.txt")
+    TokenStream generateCodePatchStream(@V("currentFiles") String currentFiles, @dev.langchain4j.service.UserMessage List<Content> contents);
 
 }
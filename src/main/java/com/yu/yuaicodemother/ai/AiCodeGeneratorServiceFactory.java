@@ -7,6 +7,7 @@ import com.yu.yuaicodemother.ai.tools.ToolManager;
 import com.yu.yuaicodemother.exception.BusinessException;
 import com.yu.yuaicodemother.exception.ErrorCode;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
 import com.yu.yuaicodemother.service.ChatHistoryService;
 import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
@@ -43,6 +44,9 @@ public class AiCodeGeneratorServiceFactory {
     @Resource
     private ToolManager toolManager;
 
+    @Resource
+    private GenerationTracer generationTracer;
+
 
 
     /**
@@ -82,7 +86,8 @@ public class AiCodeGeneratorServiceFactory {
                 .maxMessages(100)
                 .build();
         // 从数据库加载历史对话到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
+        generationTracer.observe(generationTracer.current(), "load_chat_history",
+                () -> chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20));
         // 根据代码生成类型选择不同的模型配置
         return switch (codeGenType) {
             // Vue 项目生成使用推理模型
@@ -90,7 +95,7 @@ public class AiCodeGeneratorServiceFactory {
                     .streamingChatModel(reasoningStreamingChatModel)
                     .chatMemoryProvider(memoryId -> chatMemory)
                     .tools(toolManager.getAllTools())
-                    .inputGuardrails(new PromptSafetyInputGuardrail())
+                    .inputGuardrails(new PromptSafetyInputGuardrail(generationTracer))
                     .maxSequentialToolsInvocations(20) //最多连续调用20次工具 TODO 具体为多少得根据不同模型进行测试
 //                    .outputGuardrails(new RetryOutputGuardrail())   可能会导致流式输出的响应不及时
                     .hallucinatedToolNameStrategy(toolExecutionRequest -> ToolExecutionResultMessage.from(
@@ -103,7 +108,7 @@ public class AiCodeGeneratorServiceFactory {
                     .chatModel(chatModel)
                     .streamingChatModel(openAiStreamingChatModel)
                     .chatMemory(chatMemory)
-                    .inputGuardrails(new PromptSafetyInputGuardrail())
+                    .inputGuardrails(new PromptSafetyInputGuardrail(generationTracer))
 //                  .outputGuardrails(new RetryOutputGuardrail())  可能会导致流式输出的响应不及时
                     .build();
             default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR,
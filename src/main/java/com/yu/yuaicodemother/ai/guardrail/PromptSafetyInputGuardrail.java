@@ -1,5 +1,6 @@
 package com.yu.yuaicodemother.ai.guardrail;
 
+import com.yu.yuaicodemother.monitor.GenerationTracer;
 import dev.langchain4j.data.message.TextContent;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.guardrail.InputGuardrail;
@@ -27,8 +28,19 @@ public class PromptSafetyInputGuardrail implements InputGuardrail {
             Pattern.compile("(?i)new\\s+(?:instructions?|commands?|prompts?)\\s*:")
     );
 
+    private final GenerationTracer generationTracer;
+
+    public PromptSafetyInputGuardrail(GenerationTracer generationTracer) {
+        this.generationTracer = generationTracer;
+    }
+
     @Override
     public InputGuardrailResult validate(UserMessage userMessage) {
+        // 护轨在发起生成的线程上同步执行，耗时计入当前生成
+        return generationTracer.observe(generationTracer.current(), "guardrail", () -> doValidate(userMessage));
+    }
+
+    private InputGuardrailResult doValidate(UserMessage userMessage) {
         // 兼容多模态：仅提取 text 内容做安全校验，忽略 image 等非文本内容
         String input = extractTextContent(userMessage);
 
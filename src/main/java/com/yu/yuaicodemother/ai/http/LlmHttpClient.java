@@ -0,0 +1,199 @@
+package com.yu.yuaicodemother.ai.http;
+
+import com.yu.yuaicodemother.monitor.MonitorContextHolder;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.http.client.FormDataFile;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static dev.langchain4j.http.client.sse.ServerSentEventListenerUtils.ignoringExceptions;
+
+/**
+ * 基于共享 Apache HttpClient 连接池的 langchain4j HTTP 客户端
+ * <p>
+ * 每个模型各自持有一个该对象（仅保存读超时），实际连接都来自 {@link LlmHttpClientFactory} 的共享连接池。
+ * 流式响应在虚拟线程上读取；下游取消生成时关闭响应流会直接中断连接，而不是读完剩余内容再归还连接。
+ * </p>
+ */
+public class LlmHttpClient implements HttpClient {
+
+    private final CloseableHttpClient httpClient;
+
+    private final Executor streamingExecutor;
+
+    private final RequestConfig requestConfig;
+
+    LlmHttpClient(CloseableHttpClient httpClient, Executor streamingExecutor, Duration readTimeout) {
+        this.httpClient = httpClient;
+        this.streamingExecutor = streamingExecutor;
+        this.requestConfig = readTimeout == null ? null
+                : RequestConfig.custom().setResponseTimeout(Timeout.of(readTimeout)).build();
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) {
+        try {
+            return httpClient.execute(toHttpRequest(request), response -> {
+                String body = response.getEntity() == null ? null
+                        : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                if (!isSuccessful(response)) {
+                    throw new HttpException(response.getCode(), body);
+                }
+                return SuccessfulHttpResponse.builder()
+                        .statusCode(response.getCode())
+                        .headers(toHeaders(response))
+                        .body(body)
+                        .build();
+            });
+        } catch (SocketTimeoutException e) {
+            throw new TimeoutException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        // 带上调用线程的监控上下文，工具调用后的下一轮请求在流式线程上发起时仍能关联到本次生成
+        streamingExecutor.execute(MonitorContextHolder.wrap(() -> stream(request, parser, listener)));
+    }
+
+    private void stream(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        HttpUriRequestBase httpRequest = toHttpRequest(request);
+        try (CloseableHttpResponse response = httpClient.execute(httpRequest)) {
+            if (!isSuccessful(response)) {
+                String body = response.getEntity() == null ? null
+                        : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                HttpException error = new HttpException(response.getCode(), body);
+                ignoringExceptions(() -> listener.onError(error));
+                return;
+            }
+            SuccessfulHttpResponse successfulResponse = SuccessfulHttpResponse.builder()
+                    .statusCode(response.getCode())
+                    .headers(toHeaders(response))
+                    .build();
+            ignoringExceptions(() -> listener.onOpen(successfulResponse));
+            try (InputStream body = new AbortOnCloseInputStream(response.getEntity().getContent(), httpRequest)) {
+                parser.parse(body, listener);
+            }
+            ignoringExceptions(listener::onClose);
+        } catch (SocketTimeoutException e) {
+            ignoringExceptions(() -> listener.onError(new TimeoutException(e)));
+        } catch (Exception e) {
+            ignoringExceptions(() -> listener.onError(e));
+        }
+    }
+
+    private HttpUriRequestBase toHttpRequest(HttpRequest request) {
+        HttpUriRequestBase httpRequest = new HttpUriRequestBase(request.method().name(), URI.create(request.url()));
+        request.headers().forEach((name, values) -> values.forEach(value -> httpRequest.addHeader(name, value)));
+        if (requestConfig != null) {
+            httpRequest.setConfig(requestConfig);
+        }
+        if (!request.formDataFields().isEmpty() || !request.formDataFiles().isEmpty()) {
+            // multipart 请求的 Content-Type 需要带 boundary，由实体生成
+            httpRequest.removeHeaders("Content-Type");
+            httpRequest.setEntity(toMultipartEntity(request));
+        } else if (request.body() != null) {
+            httpRequest.setEntity(new StringEntity(request.body(), StandardCharsets.UTF_8));
+        }
+        return httpRequest;
+    }
+
+    private static HttpEntity toMultipartEntity(HttpRequest request) {
+        MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+        request.formDataFields().forEach((name, value) ->
+                builder.addTextBody(name, value, ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8)));
+        for (Map.Entry<String, FormDataFile> entry : request.formDataFiles().entrySet()) {
+            FormDataFile file = entry.getValue();
+            builder.addBinaryBody(entry.getKey(), file.content(), ContentType.parse(file.contentType()), file.fileName());
+        }
+        return builder.build();
+    }
+
+    private static boolean isSuccessful(ClassicHttpResponse response) {
+        return response.getCode() >= 200 && response.getCode() < 300;
+    }
+
+    private static Map<String, List<String>> toHeaders(ClassicHttpResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (Header header : response.getHeaders()) {
+            headers.computeIfAbsent(header.getName(), key -> new ArrayList<>()).add(header.getValue());
+        }
+        return headers;
+    }
+
+    /**
+     * 未读到结尾就被关闭时中断请求（丢弃连接），避免 HttpClient 为复用连接而读完整个生成结果
+     */
+    private static final class AbortOnCloseInputStream extends FilterInputStream {
+
+        private final HttpUriRequestBase request;
+
+        private volatile boolean eof;
+
+        private AbortOnCloseInputStream(InputStream in, HttpUriRequestBase request) {
+            super(in);
+            this.request = request;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            eof |= b < 0;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            eof |= n < 0;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!eof) {
+                request.cancel();
+            }
+            try {
+                super.close();
+            } catch (IOException e) {
+                if (eof) {
+                    throw e;
+                }
+                // 连接已被中断，关闭时的读写错误可以忽略
+            }
+        }
+    }
+}
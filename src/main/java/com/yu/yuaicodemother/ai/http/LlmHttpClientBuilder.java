@@ -0,0 +1,57 @@
+package com.yu.yuaicodemother.ai.http;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * 交给模型 builder 的 HTTP 客户端构建器，构建出的客户端共享同一个连接池
+ * <p>
+ * 读超时按模型生效；连接超时由连接池统一配置（llm.http.connect-timeout-seconds），这里设置的值只用于回显。
+ * </p>
+ */
+public class LlmHttpClientBuilder implements HttpClientBuilder {
+
+    private final CloseableHttpClient httpClient;
+
+    private final Executor streamingExecutor;
+
+    private Duration connectTimeout;
+
+    private Duration readTimeout;
+
+    LlmHttpClientBuilder(CloseableHttpClient httpClient, Executor streamingExecutor) {
+        this.httpClient = httpClient;
+        this.streamingExecutor = streamingExecutor;
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public LlmHttpClientBuilder connectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public LlmHttpClientBuilder readTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return new LlmHttpClient(httpClient, streamingExecutor, readTimeout);
+    }
+}
@@ -0,0 +1,141 @@
+package com.yu.yuaicodemother.ai.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * 大模型调用共享的 HTTP 连接池
+ * <p>
+ * 所有模型（包括 langchain4j 自动配置的模型）通过 {@link #builder()} 取得 HTTP 客户端，
+ * 同一个服务商的请求复用同一组长连接，避免每个模型各自建连接池、重复 TLS 握手。
+ * 连接池状态（使用中、空闲、等待连接）与 TLS 握手耗时通过 Micrometer 暴露。
+ * </p>
+ */
+@Slf4j
+@Component
+public class LlmHttpClientFactory {
+
+    /**
+     * 连接池最大连接数
+     */
+    @Value("${llm.http.max-connections:200}")
+    private int maxConnections;
+
+    /**
+     * 每个服务商地址的最大连接数（一个流式生成占用一个连接）
+     */
+    @Value("${llm.http.max-connections-per-route:100}")
+    private int maxConnectionsPerRoute;
+
+    /**
+     * 建立连接的超时时间（秒）
+     */
+    @Value("${llm.http.connect-timeout-seconds:15}")
+    private long connectTimeoutSeconds;
+
+    /**
+     * 空闲连接保留时间（秒），超过后关闭
+     */
+    @Value("${llm.http.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 流式响应在虚拟线程上阻塞读取，不再为每个模型各建一个线程池
+     */
+    private final ExecutorService streamingExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llm-http-", 0).factory());
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        Timer handshakeTimer = Timer.builder("llm_http_tls_handshake_seconds")
+                .description("大模型连接池新建连接的 TLS 握手耗时")
+                .register(meterRegistry);
+        TlsSocketStrategy tlsStrategy = timed(DefaultClientTlsStrategy.createSystemDefault(), handshakeTimer);
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setTlsSocketStrategy(tlsStrategy)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(connectTimeoutSeconds))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutSeconds))
+                .disableAutomaticRetries()
+                .build();
+        registerPoolGauge("llm_http_pool_connections", "大模型连接池中使用中的连接数", "leased", PoolStats::getLeased);
+        registerPoolGauge("llm_http_pool_connections", "大模型连接池中空闲的连接数", "available", PoolStats::getAvailable);
+        Gauge.builder("llm_http_pool_pending", connectionManager, m -> m.getTotalStats().getPending())
+                .description("等待大模型连接池分配连接的请求数")
+                .register(meterRegistry);
+        Gauge.builder("llm_http_pool_max", connectionManager, m -> m.getTotalStats().getMax())
+                .description("大模型连接池最大连接数")
+                .register(meterRegistry);
+        log.info("大模型共享 HTTP 连接池已创建: maxConnections={}, maxConnectionsPerRoute={}",
+                maxConnections, maxConnectionsPerRoute);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        httpClient.close(CloseMode.GRACEFUL);
+        streamingExecutor.shutdownNow();
+    }
+
+    /**
+     * 新的 HTTP 客户端构建器，传给模型 builder 的 httpClientBuilder
+     */
+    public LlmHttpClientBuilder builder() {
+        return new LlmHttpClientBuilder(httpClient, streamingExecutor);
+    }
+
+    private void registerPoolGauge(String name, String description, String state, ToIntFunction<PoolStats> value) {
+        Gauge.builder(name, connectionManager, m -> value.applyAsInt(m.getTotalStats()))
+                .description(description)
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+
+    private static TlsSocketStrategy timed(TlsSocketStrategy delegate, Timer timer) {
+        return (socket, target, port, attachment, context) -> {
+            long start = System.nanoTime();
+            try {
+                return delegate.upgrade(socket, target, port, attachment, context);
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+}
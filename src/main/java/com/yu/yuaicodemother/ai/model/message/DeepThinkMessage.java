@@ -43,5 +43,17 @@ public class DeepThinkMessage extends StreamMessage{
         this.id = id;
         this.sessionId = sessionId;
         this.userQuery = userQuery;
+        this.content = content;
+        this.reasoningContent = reasoningContent;
+    }
+
+    /**
+     * 流式输出中的思考片段
+     *
+     * @param reasoningContent 思考内容
+     */
+    public DeepThinkMessage(String reasoningContent) {
+        super(StreamMessageTypeEnum.Deep_THINK.getValue());
+        this.reasoningContent = reasoningContent;
     }
 }
@@ -0,0 +1,124 @@
+package com.yu.yuaicodemother.ai.pool;
+
+import java.util.Arrays;
+
+/**
+ * 单个模型端点的滚动统计：最近 N 次的首 token 耗时与调用结果
+ * <p>
+ * 连续失败达到阈值，或样本足够时错误率超过阈值，端点熔断一段时间，期间不参与选择。
+ * </p>
+ */
+public class EndpointStats {
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    /**
+     * 评分时错误率的惩罚系数：错误率 25% 的端点评分为首 token 耗时的 2 倍
+     */
+    private static final double ERROR_PENALTY = 4.0;
+
+    private final long[] ttftNanos;
+
+    private final boolean[] failures;
+
+    private final int minSamples;
+
+    private final double errorRateThreshold;
+
+    private final long cooldownNanos;
+
+    private int ttftCount;
+
+    private int ttftIndex;
+
+    private int outcomeCount;
+
+    private int outcomeIndex;
+
+    private int failureCount;
+
+    private int consecutiveFailures;
+
+    private long openUntilNanos;
+
+    public EndpointStats(int windowSize, int minSamples, double errorRateThreshold, long cooldownNanos) {
+        this.ttftNanos = new long[windowSize];
+        this.failures = new boolean[windowSize];
+        this.minSamples = minSamples;
+        this.errorRateThreshold = errorRateThreshold;
+        this.cooldownNanos = cooldownNanos;
+    }
+
+    public synchronized void recordFirstToken(long nanos) {
+        ttftNanos[ttftIndex] = nanos;
+        ttftIndex = (ttftIndex + 1) % ttftNanos.length;
+        ttftCount = Math.min(ttftCount + 1, ttftNanos.length);
+    }
+
+    public synchronized void recordSuccess() {
+        recordOutcome(false);
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure(long now) {
+        recordOutcome(true);
+        consecutiveFailures++;
+        if (consecutiveFailures >= MAX_CONSECUTIVE_FAILURES
+                || (outcomeCount >= minSamples && errorRate() > errorRateThreshold)) {
+            openUntilNanos = now + cooldownNanos;
+        }
+    }
+
+    /**
+     * 是否可用（未熔断）
+     */
+    public synchronized boolean isHealthy(long now) {
+        return now - openUntilNanos >= 0;
+    }
+
+    /**
+     * 首 token 耗时的分位数
+     *
+     * @return 纳秒，样本不足 minSamples 时返回 -1
+     */
+    public synchronized long ttftPercentile(double percentile) {
+        if (ttftCount < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(ttftNanos, ttftCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * ttftCount) - 1;
+        return sorted[Math.max(0, Math.min(index, ttftCount - 1))];
+    }
+
+    public synchronized double errorRate() {
+        return outcomeCount == 0 ? 0 : (double) failureCount / outcomeCount;
+    }
+
+    /**
+     * 选择评分，越小越好：首 token 耗时中位数按错误率加权；没有样本的端点评分为 0，优先尝试以获得样本
+     */
+    public synchronized double score() {
+        if (ttftCount == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(ttftNanos, ttftCount);
+        Arrays.sort(sorted);
+        return sorted[ttftCount / 2] * (1 + errorRate() * ERROR_PENALTY);
+    }
+
+    private void recordOutcome(boolean failure) {
+        if (outcomeCount == failures.length && failures[outcomeIndex]) {
+            failureCount--;
+        }
+        failures[outcomeIndex] = failure;
+        if (failure) {
+            failureCount++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % failures.length;
+        outcomeCount = Math.min(outcomeCount + 1, failures.length);
+    }
+}
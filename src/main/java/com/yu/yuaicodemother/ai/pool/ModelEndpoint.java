@@ -0,0 +1,11 @@
+package com.yu.yuaicodemother.ai.pool;
+
+/**
+ * 模型池中的一个端点
+ *
+ * @param name  端点名称（用于日志与指标）
+ * @param model 该端点的模型实例
+ * @param stats 滚动统计（同名端点的多个模型实例共享）
+ */
+public record ModelEndpoint<M>(String name, M model, EndpointStats stats) {
+}
@@ -0,0 +1,66 @@
+package com.yu.yuaicodemother.ai.pool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 模型端点池：按滚动首 token 耗时与错误率选择最快的可用端点
+ */
+public class ModelPool<M> {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final List<ModelEndpoint<M>> endpoints;
+
+    private final MeterRegistry meterRegistry;
+
+    public ModelPool(String name, List<ModelEndpoint<M>> endpoints, MeterRegistry meterRegistry) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("模型池至少需要一个端点: " + name);
+        }
+        this.name = name;
+        this.endpoints = List.copyOf(endpoints);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 选择端点：优先选择未熔断、评分最低的端点；全部熔断时选择评分最低的端点兜底
+     *
+     * @param excluded 本次调用已尝试过的端点
+     * @return 端点，全部已尝试时返回 null
+     */
+    public ModelEndpoint<M> select(Set<ModelEndpoint<M>> excluded) {
+        long now = System.nanoTime();
+        List<ModelEndpoint<M>> candidates = new ArrayList<>(endpoints.size());
+        for (ModelEndpoint<M> endpoint : endpoints) {
+            if (!excluded.contains(endpoint)) {
+                candidates.add(endpoint);
+            }
+        }
+        return candidates.stream()
+                .min(Comparator.<ModelEndpoint<M>, Boolean>comparing(endpoint -> !endpoint.stats().isHealthy(now))
+                        .thenComparingDouble(endpoint -> endpoint.stats().score()))
+                .orElse(null);
+    }
+
+    public ModelEndpoint<M> primary() {
+        return endpoints.get(0);
+    }
+
+    void count(String metric, String description, String result) {
+        Counter.builder(metric)
+                .description(description)
+                .tag("pool", name)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,127 @@
+package com.yu.yuaicodemother.ai.pool;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模型池工厂：把同一模型配置的多个 OpenAI 兼容端点组合成一个模型
+ * <p>
+ * 只有一个端点时直接返回该端点的模型，行为与不使用模型池一致。
+ * 端点统计按“池名称 + 端点名称”共享，原型作用域的模型每次创建也能复用历史统计。
+ * </p>
+ */
+@Slf4j
+@Component
+public class ModelPoolFactory {
+
+    /**
+     * 每个端点保留的最近样本数
+     */
+    @Value("${model-pool.window-size:100}")
+    private int windowSize;
+
+    /**
+     * 计算分位数与错误率所需的最少样本数
+     */
+    @Value("${model-pool.min-samples:20}")
+    private int minSamples;
+
+    /**
+     * 错误率超过该值时熔断端点
+     */
+    @Value("${model-pool.error-rate-threshold:0.5}")
+    private double errorRateThreshold;
+
+    /**
+     * 熔断时长（秒）
+     */
+    @Value("${model-pool.cooldown-seconds:30}")
+    private long cooldownSeconds;
+
+    /**
+     * 首 token 超过该分位数耗时仍未到达时发起对冲请求
+     */
+    @Value("${model-pool.hedge.percentile:0.9}")
+    private double hedgePercentile;
+
+    /**
+     * 对冲等待的最短时间（毫秒），避免首 token 很快的端点频繁对冲
+     */
+    @Value("${model-pool.hedge.min-delay-millis:500}")
+    private long hedgeMinDelayMillis;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, EndpointStats> statsMap = new ConcurrentHashMap<>();
+
+    /**
+     * 组合流式模型
+     *
+     * @param poolName 池名称
+     * @param models   端点名称 -> 模型（第一个为主端点）
+     * @param hedge    是否开启首 token 对冲
+     */
+    public StreamingChatModel streaming(String poolName, Map<String, StreamingChatModel> models, boolean hedge) {
+        if (models.size() == 1) {
+            return models.values().iterator().next();
+        }
+        log.info("流式模型池已创建: pool={}, endpoints={}, hedge={}", poolName, models.keySet(), hedge);
+        return new PooledStreamingChatModel(new ModelPool<>(poolName, toEndpoints(poolName, models), meterRegistry),
+                hedge, hedgePercentile, TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMillis));
+    }
+
+    /**
+     * 组合同步模型
+     *
+     * @param poolName 池名称
+     * @param models   端点名称 -> 模型（第一个为主端点）
+     */
+    public ChatModel chat(String poolName, Map<String, ChatModel> models) {
+        if (models.size() == 1) {
+            return models.values().iterator().next();
+        }
+        return new PooledChatModel(new ModelPool<>(poolName, toEndpoints(poolName, models), meterRegistry));
+    }
+
+    private <M> List<ModelEndpoint<M>> toEndpoints(String poolName, Map<String, M> models) {
+        List<ModelEndpoint<M>> endpoints = new ArrayList<>(models.size());
+        models.forEach((name, model) -> endpoints.add(new ModelEndpoint<>(name, model, stats(poolName, name))));
+        return endpoints;
+    }
+
+    private EndpointStats stats(String poolName, String endpointName) {
+        return statsMap.computeIfAbsent(poolName + "/" + endpointName, key -> {
+            EndpointStats stats = new EndpointStats(windowSize, minSamples, errorRateThreshold,
+                    TimeUnit.SECONDS.toNanos(cooldownSeconds));
+            Gauge.builder("llm_endpoint_ttft_p90_seconds", stats, s -> Math.max(0, s.ttftPercentile(0.9)) / 1e9)
+                    .description("端点最近首 token 耗时的 p90（样本不足时为 0）")
+                    .tag("pool", poolName)
+                    .tag("endpoint", endpointName)
+                    .register(meterRegistry);
+            Gauge.builder("llm_endpoint_error_rate", stats, EndpointStats::errorRate)
+                    .description("端点最近调用的错误率")
+                    .tag("pool", poolName)
+                    .tag("endpoint", endpointName)
+                    .register(meterRegistry);
+            Gauge.builder("llm_endpoint_healthy", stats, s -> s.isHealthy(System.nanoTime()) ? 1 : 0)
+                    .description("端点是否可用（1 可用，0 熔断中）")
+                    .tag("pool", poolName)
+                    .tag("endpoint", endpointName)
+                    .register(meterRegistry);
+            return stats;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.yu.yuaicodemother.ai.pool;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 多端点同步模型：选择响应最快的可用端点，失败时切换到其他端点重试一次
+ * <p>
+ * 同步调用没有首 token，统计的是完整响应耗时。
+ * </p>
+ */
+@Slf4j
+public class PooledChatModel implements ChatModel {
+
+    /**
+     * 每次调用最多使用的端点数
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final ModelPool<ChatModel> pool;
+
+    public PooledChatModel(ModelPool<ChatModel> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        Set<ModelEndpoint<ChatModel>> tried = new HashSet<>();
+        RuntimeException lastError = null;
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            ModelEndpoint<ChatModel> endpoint = pool.select(tried);
+            if (endpoint == null) {
+                break;
+            }
+            tried.add(endpoint);
+            if (lastError != null) {
+                pool.count("llm_endpoint_failover_total", "首 token 前失败后切换端点的次数", "switched");
+            }
+            long start = System.nanoTime();
+            try {
+                ChatResponse response = endpoint.model().chat(chatRequest);
+                endpoint.stats().recordFirstToken(System.nanoTime() - start);
+                endpoint.stats().recordSuccess();
+                return response;
+            } catch (RuntimeException e) {
+                endpoint.stats().recordFailure(System.nanoTime());
+                log.warn("模型端点请求失败: pool={}, endpoint={}, 错误信息: {}", pool.getName(), endpoint.name(), e.getMessage());
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        return chat(chatRequest);
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return pool.primary().model().defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return pool.primary().model().provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return pool.primary().model().supportedCapabilities();
+    }
+}
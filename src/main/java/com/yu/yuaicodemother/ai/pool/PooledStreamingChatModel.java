@@ -0,0 +1,354 @@
+package com.yu.yuaicodemother.ai.pool;
+
+import com.yu.yuaicodemother.monitor.MonitorContextHolder;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.CompleteToolCall;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialThinkingContext;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.PartialToolCallContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 多端点流式模型
+ * <p>
+ * 每次调用选择首 token 最快的可用端点：
+ * 1. 开启对冲时，首 token 超过该端点 p90 耗时仍未到达，向次优端点再发一次请求，先出首 token 的胜出，另一个被关闭；
+ * 2. 首 token 到达前失败的调用切换到其他端点重试（已输出内容后失败则直接返回错误，避免内容重复）；
+ * 3. 只有胜出的调用会回调下游，下游拿到的 StreamingHandle 也是胜出调用的句柄，取消生成仍能关闭底层连接。
+ * </p>
+ */
+@Slf4j
+public class PooledStreamingChatModel implements StreamingChatModel {
+
+    /**
+     * 每次调用最多使用的端点数（包括对冲与失败切换）
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final ModelPool<StreamingChatModel> pool;
+
+    private final boolean hedgeEnabled;
+
+    private final double hedgePercentile;
+
+    private final long hedgeMinDelayNanos;
+
+    public PooledStreamingChatModel(ModelPool<StreamingChatModel> pool, boolean hedgeEnabled,
+                                    double hedgePercentile, long hedgeMinDelayNanos) {
+        this.pool = pool;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelayNanos = hedgeMinDelayNanos;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        new HedgedCall(chatRequest, handler).start();
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        chat(chatRequest, handler);
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return pool.primary().model().defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return pool.primary().model().provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return pool.primary().model().supportedCapabilities();
+    }
+
+    /**
+     * 一次调用：包含主请求，以及可能的对冲请求或失败切换请求
+     */
+    private final class HedgedCall {
+
+        private final ChatRequest chatRequest;
+
+        private final StreamingChatResponseHandler handler;
+
+        private final List<Attempt> attempts = new ArrayList<>(MAX_ATTEMPTS);
+
+        private final Set<ModelEndpoint<StreamingChatModel>> tried = new HashSet<>();
+
+        private Attempt winner;
+
+        private boolean failed;
+
+        private HedgedCall(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+        }
+
+        private void start() {
+            Attempt primary = launch(false);
+            if (primary == null || !hedgeEnabled || pool.getEndpoints().size() < 2) {
+                return;
+            }
+            long ttft = primary.endpoint.stats().ttftPercentile(hedgePercentile);
+            if (ttft < 0) {
+                // 样本不足时无法判断是否“慢”，不对冲
+                return;
+            }
+            // 对冲请求在定时线程发起，带上调用线程的监控上下文
+            Schedulers.parallel().schedule(MonitorContextHolder.wrap(this::hedge),
+                    Math.max(ttft, hedgeMinDelayNanos), TimeUnit.NANOSECONDS);
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (winner != null || failed) {
+                    return;
+                }
+            }
+            launch(true);
+        }
+
+        /**
+         * 向下一个端点发起请求
+         *
+         * @return 请求，没有可用端点或已达到最大尝试次数时返回 null
+         */
+        private Attempt launch(boolean hedge) {
+            Attempt attempt;
+            synchronized (this) {
+                if (attempts.size() >= MAX_ATTEMPTS) {
+                    return null;
+                }
+                ModelEndpoint<StreamingChatModel> endpoint = pool.select(tried);
+                if (endpoint == null) {
+                    return null;
+                }
+                tried.add(endpoint);
+                attempt = new Attempt(endpoint, hedge);
+                attempts.add(attempt);
+            }
+            if (hedge) {
+                // 在发起前计数，对冲请求胜出（计入 won）时 fired 一定已计入
+                pool.count("llm_hedge_total", "对冲请求数", "fired");
+            }
+            try {
+                attempt.endpoint.model().chat(chatRequest, attempt);
+            } catch (Exception e) {
+                attempt.onError(e);
+            }
+            return attempt;
+        }
+
+        /**
+         * 请求输出了第一个片段：第一个到达的请求胜出，其余请求被关闭
+         *
+         * @return 该请求是否为胜出的请求
+         */
+        private boolean claim(Attempt attempt) {
+            List<Attempt> losers = new ArrayList<>();
+            synchronized (this) {
+                if (winner != null) {
+                    return winner == attempt;
+                }
+                if (failed) {
+                    return false;
+                }
+                winner = attempt;
+                for (Attempt other : attempts) {
+                    if (other != attempt) {
+                        losers.add(other);
+                    }
+                }
+            }
+            attempt.endpoint.stats().recordFirstToken(System.nanoTime() - attempt.startNanos);
+            if (attempt.hedge) {
+                pool.count("llm_hedge_total", "对冲请求数", "won");
+            }
+            for (Attempt loser : losers) {
+                loser.cancel();
+            }
+            return true;
+        }
+
+        /**
+         * 首 token 到达前的失败：还有其他请求在进行则等待，否则切换端点，无可用端点时返回错误
+         */
+        private void onAttemptFailed(Attempt attempt, Throwable error) {
+            synchronized (this) {
+                if (winner != null || failed) {
+                    return;
+                }
+                for (Attempt other : attempts) {
+                    if (other != attempt && !other.finished) {
+                        return;
+                    }
+                }
+            }
+            log.warn("模型端点请求失败，尝试切换端点: pool={}, endpoint={}, 错误信息: {}",
+                    pool.getName(), attempt.endpoint.name(), error.getMessage());
+            if (launch(false) != null) {
+                pool.count("llm_endpoint_failover_total", "首 token 前失败后切换端点的次数", "switched");
+                return;
+            }
+            synchronized (this) {
+                if (winner != null || failed) {
+                    return;
+                }
+                failed = true;
+            }
+            handler.onError(error);
+        }
+
+        /**
+         * 单个端点上的请求，只在胜出后把回调转发给下游
+         */
+        private final class Attempt implements StreamingChatResponseHandler {
+
+            private final ModelEndpoint<StreamingChatModel> endpoint;
+
+            private final boolean hedge;
+
+            private final long startNanos = System.nanoTime();
+
+            private final AtomicReference<StreamingHandle> handle = new AtomicReference<>();
+
+            private volatile boolean cancelled;
+
+            private volatile boolean finished;
+
+            private Attempt(ModelEndpoint<StreamingChatModel> endpoint, boolean hedge) {
+                this.endpoint = endpoint;
+                this.hedge = hedge;
+            }
+
+            /**
+             * 记录句柄并判断是否转发；落败的请求在拿到句柄时关闭
+             */
+            private boolean accept(StreamingHandle streamingHandle) {
+                if (streamingHandle != null) {
+                    handle.set(streamingHandle);
+                }
+                if (!cancelled && claim(this)) {
+                    return true;
+                }
+                cancel();
+                return false;
+            }
+
+            private void cancel() {
+                cancelled = true;
+                StreamingHandle current = handle.get();
+                if (current != null && !current.isCancelled()) {
+                    current.cancel();
+                }
+            }
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (accept(null)) {
+                    handler.onPartialResponse(partialResponse);
+                }
+            }
+
+            @Override
+            public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+                if (accept(context.streamingHandle())) {
+                    handler.onPartialResponse(partialResponse, context);
+                }
+            }
+
+            @Override
+            public void onPartialThinking(PartialThinking partialThinking) {
+                if (accept(null)) {
+                    handler.onPartialThinking(partialThinking);
+                }
+            }
+
+            @Override
+            public void onPartialThinking(PartialThinking partialThinking, PartialThinkingContext context) {
+                if (accept(context.streamingHandle())) {
+                    handler.onPartialThinking(partialThinking, context);
+                }
+            }
+
+            @Override
+            public void onPartialToolCall(PartialToolCall partialToolCall) {
+                if (accept(null)) {
+                    handler.onPartialToolCall(partialToolCall);
+                }
+            }
+
+            @Override
+            public void onPartialToolCall(PartialToolCall partialToolCall, PartialToolCallContext context) {
+                if (accept(context.streamingHandle())) {
+                    handler.onPartialToolCall(partialToolCall, context);
+                }
+            }
+
+            @Override
+            public void onCompleteToolCall(CompleteToolCall completeToolCall) {
+                if (accept(null)) {
+                    handler.onCompleteToolCall(completeToolCall);
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                finished = true;
+                if (cancelled) {
+                    return;
+                }
+                // 没有任何片段直接完成的响应，在完成时参与胜出判断
+                if (claim(this)) {
+                    endpoint.stats().recordSuccess();
+                    handler.onCompleteResponse(completeResponse);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                finished = true;
+                if (cancelled) {
+                    // 落败被关闭的请求不计入错误率
+                    return;
+                }
+                StreamingHandle current = handle.get();
+                if (current == null || !current.isCancelled()) {
+                    // 下游取消生成导致的中断不计入端点错误率
+                    endpoint.stats().recordFailure(System.nanoTime());
+                }
+                boolean isWinner;
+                synchronized (HedgedCall.this) {
+                    isWinner = winner == this;
+                }
+                if (isWinner) {
+                    handler.onError(error);
+                } else {
+                    onAttemptFailed(this, error);
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.yu.yuaicodemother.ai.tools;
 
 import cn.hutool.json.JSONObject;
+import com.yu.yuaicodemother.core.builder.VueBuildDaemonManager;
+import com.yu.yuaicodemother.utils.SpringContextUtil;
 
 /**
  * 工具基类
@@ -38,4 +40,16 @@ public abstract class BaseTool {
      * @return 格式化的工具执行结果
      */
     public abstract String generateToolExecutedResult(JSONObject arguments);
+
+    /**
+     * 通知项目文件已变化（刷新该应用 Vite 常驻构建进程的活跃时间）
+     *
+     * @param appId 应用 ID
+     */
+    protected void notifyProjectFileChanged(Long appId) {
+        VueBuildDaemonManager daemonManager = SpringContextUtil.getBeanIfAvailable(VueBuildDaemonManager.class);
+        if (daemonManager != null) {
+            daemonManager.touch(appId);
+        }
+    }
 }
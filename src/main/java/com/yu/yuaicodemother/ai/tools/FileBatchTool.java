@@ -0,0 +1,251 @@
+package com.yu.yuaicodemother.ai.tools;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.yu.yuaicodemother.constant.AppConstant;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.model.output.structured.Description;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量文件操作工具
+ * 一次调用完成多个文件的写入、修改、删除，减少模型与工具之间的往返次数。
+ * 所有操作先在内存中依次校验并计算结果（后面的操作能看到前面操作的结果），
+ * 任何一项失败则不修改任何文件；全部通过后再统一落盘，落盘中途出错时恢复已改动的文件。
+ */
+@Slf4j
+@Component
+public class FileBatchTool extends BaseTool {
+
+    /**
+     * 单次调用的最大操作数
+     */
+    private static final int MAX_OPERATIONS = 50;
+
+    /**
+     * 操作类型
+     */
+    public enum OperationType {
+        WRITE, MODIFY, DELETE
+    }
+
+    /**
+     * 单个文件操作
+     */
+    @Data
+    @Description("单个文件操作")
+    public static class FileOperation {
+
+        @Description("操作类型：WRITE 写入（新建或覆盖）、MODIFY 替换部分内容、DELETE 删除")
+        private OperationType type;
+
+        @Description("文件的相对路径")
+        private String relativeFilePath;
+
+        @Description("WRITE 时要写入文件的完整内容")
+        private String content;
+
+        @Description("MODIFY 时要替换的旧内容")
+        private String oldContent;
+
+        @Description("MODIFY 时替换后的新内容")
+        private String newContent;
+    }
+
+    @Tool("批量写入、修改、删除多个文件，一次调用完成，所有操作全部成功或全部不生效。创建或修改多个文件时优先使用此工具")
+    public String batchFileOperation(
+            @P("按顺序执行的文件操作列表")
+            List<FileOperation> operations,
+            @ToolMemoryId Long appId
+    ) {
+        if (CollUtil.isEmpty(operations)) {
+            return "错误：操作列表为空";
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            return "错误：单次最多 " + MAX_OPERATIONS + " 个操作，请分批调用";
+        }
+        Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, "vue_project_" + appId)
+                .toAbsolutePath().normalize();
+        // 路径 -> 操作后的内容（null 表示删除），保持首次出现的顺序
+        Map<Path, String> pending = new LinkedHashMap<>();
+        List<String> summaries = new ArrayList<>();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                FileOperation operation = operations.get(i);
+                String error = stage(operation, projectRoot, pending, summaries);
+                if (error != null) {
+                    String path = operation == null ? "" : StrUtil.nullToEmpty(operation.getRelativeFilePath());
+                    return String.format("批量操作失败，未修改任何文件：第 %d 项 %s - %s", i + 1, path, error);
+                }
+            }
+            commit(pending);
+        } catch (IOException e) {
+            String errorMessage = "批量操作失败，未修改任何文件: " + e.getMessage();
+            log.error(errorMessage, e);
+            return errorMessage;
+        }
+        log.info("批量文件操作成功: appId={}, 操作数={}, 文件数={}", appId, operations.size(), pending.size());
+        notifyProjectFileChanged(appId);
+        return "批量操作成功：\n" + String.join("\n", summaries);
+    }
+
+    /**
+     * 校验单个操作并在内存中计算结果
+     *
+     * @return 错误原因，成功时返回 null
+     */
+    private String stage(FileOperation operation, Path projectRoot, Map<Path, String> pending,
+                         List<String> summaries) throws IOException {
+        if (operation == null || operation.getType() == null || StrUtil.isBlank(operation.getRelativeFilePath())) {
+            return "缺少操作类型或文件路径";
+        }
+        String relativeFilePath = operation.getRelativeFilePath();
+        Path path = projectRoot.resolve(relativeFilePath).normalize();
+        if (!path.startsWith(projectRoot) || path.equals(projectRoot)) {
+            return "路径不在项目目录内";
+        }
+        if (Files.isDirectory(path)) {
+            return "指定路径是目录";
+        }
+        // 同一文件可以出现多次，以前面操作的结果为准
+        boolean staged = pending.containsKey(path);
+        String current = staged ? pending.get(path)
+                : Files.isRegularFile(path) ? Files.readString(path, StandardCharsets.UTF_8) : null;
+        switch (operation.getType()) {
+            case WRITE -> {
+                if (operation.getContent() == null) {
+                    return "缺少写入内容";
+                }
+                pending.put(path, operation.getContent());
+                summaries.add("写入 " + relativeFilePath);
+            }
+            case MODIFY -> {
+                if (current == null) {
+                    return "文件不存在";
+                }
+                if (StrUtil.isEmpty(operation.getOldContent()) || operation.getNewContent() == null) {
+                    return "缺少要替换的旧内容或新内容";
+                }
+                if (!current.contains(operation.getOldContent())) {
+                    return "文件中未找到要替换的内容";
+                }
+                pending.put(path, current.replace(operation.getOldContent(), operation.getNewContent()));
+                summaries.add("修改 " + relativeFilePath);
+            }
+            case DELETE -> {
+                if (current == null) {
+                    return "文件不存在";
+                }
+                if (FileDeleteTool.isImportantFile(path.getFileName().toString())) {
+                    return "不允许删除重要文件";
+                }
+                pending.put(path, null);
+                summaries.add("删除 " + relativeFilePath);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 统一落盘：写入先写临时文件再重命名；中途出错时按原内容恢复已处理的文件
+     */
+    private void commit(Map<Path, String> pending) throws IOException {
+        // 原内容（null 表示原本不存在）
+        Map<Path, byte[]> backups = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, String> entry : pending.entrySet()) {
+                Path path = entry.getKey();
+                backups.put(path, Files.isRegularFile(path) ? Files.readAllBytes(path) : null);
+                if (entry.getValue() == null) {
+                    Files.deleteIfExists(path);
+                } else {
+                    writeAtomically(path, entry.getValue().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            rollback(backups);
+            throw e;
+        }
+    }
+
+    private void rollback(Map<Path, byte[]> backups) {
+        backups.forEach((path, original) -> {
+            try {
+                if (original == null) {
+                    Files.deleteIfExists(path);
+                } else {
+                    writeAtomically(path, original);
+                }
+            } catch (IOException e) {
+                log.error("恢复文件失败: {}", path, e);
+            }
+        });
+    }
+
+    private static void writeAtomically(Path path, byte[] content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tempFile = path.resolveSibling("." + path.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.write(tempFile, content);
+            Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public String getToolName() {
+        return "batchFileOperation";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "批量文件操作";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        // 只列出每个文件的操作与行数，不展开文件内容
+        JSONArray operations = arguments.getJSONArray("operations");
+        if (operations == null) {
+            return String.format("[工具调用] %s", getDisplayName());
+        }
+        StringBuilder result = new StringBuilder(String.format("[工具调用] %s（%d 项）", getDisplayName(), operations.size()));
+        for (JSONObject operation : operations.jsonIter()) {
+            String relativeFilePath = operation.getStr("relativeFilePath");
+            String type = StrUtil.nullToEmpty(operation.getStr("type"));
+            result.append("\n- ");
+            switch (type.toUpperCase()) {
+                case "WRITE" -> result.append(String.format("写入 %s（%d 行）", relativeFilePath,
+                        lineCount(operation.getStr("content"))));
+                case "MODIFY" -> result.append(String.format("修改 %s（-%d / +%d 行）", relativeFilePath,
+                        lineCount(operation.getStr("oldContent")), lineCount(operation.getStr("newContent"))));
+                case "DELETE" -> result.append("删除 ").append(relativeFilePath);
+                default -> result.append(type).append(' ').append(relativeFilePath);
+            }
+        }
+        return result.toString();
+    }
+
+    private static int lineCount(String text) {
+        return StrUtil.isEmpty(text) ? 0 : StrUtil.count(text, '\n') + 1;
+    }
+}
@@ -47,6 +47,7 @@ public class FileDeleteTool extends BaseTool{
             }
             Files.delete(path);
             log.info("成功删除文件: {}", path.toAbsolutePath());
+            notifyProjectFileChanged(appId);
             return "文件删除成功: " + relativeFilePath;
         } catch (IOException e) {
             String errorMessage = "删除文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
@@ -58,7 +59,7 @@ public class FileDeleteTool extends BaseTool{
     /**
      * 判断是否是重要文件，不允许删除
      */
-    private boolean isImportantFile(String fileName) {
+    static boolean isImportantFile(String fileName) {
         String[] importantFiles = {
                 "package.json", "package-lock.json", "yarn.lock", "pnpm-lock.yaml",
                 "vite.config.js", "vite.config.ts", "vue.config.js",
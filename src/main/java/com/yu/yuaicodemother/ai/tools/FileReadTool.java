@@ -1,5 +1,7 @@
 package com.yu.yuaicodemother.ai.tools;
 
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
 import com.yu.yuaicodemother.constant.AppConstant;
 import dev.langchain4j.agent.tool.P;
@@ -7,36 +9,106 @@ import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 文件读取工具
  * 支持 AI 通过工具调用的方式读取文件内容
+ * <p>
+ * 读取结果会留在对话记忆中参与之后的每次模型调用，因此：
+ * 1. 可以按行范围读取，单次最多返回 {@link #MAX_LINES} 行、{@link #MAX_CHARS} 个字符，超出时提示下一次读取的起始行；
+ * 2. 大纲模式只返回 .vue 文件的 template / script / style 区块与顶层声明（其他文件为顶层代码行）及行号；
+ * 3. 拒绝读取锁文件和构建产物。
+ * </p>
  */
 @Slf4j
 @Component
-public class FileReadTool extends BaseTool{
+public class FileReadTool extends BaseTool {
+
+    /**
+     * 单次读取的最大行数
+     */
+    static final int MAX_LINES = 300;
+
+    /**
+     * 单次读取的最大字符数
+     */
+    static final int MAX_CHARS = 20000;
+
+    /**
+     * 大纲最多列出的条目数
+     */
+    private static final int MAX_OUTLINE_ENTRIES = 200;
+
+    /**
+     * 不允许读取的锁文件
+     */
+    private static final Set<String> LOCK_FILES = Set.of(
+            "package-lock.json", "yarn.lock", "pnpm-lock.yaml", "npm-shrinkwrap.json", "bun.lockb"
+    );
 
-    @Tool("读取指定路径的文件内容")
+    /**
+     * 构建产物与依赖目录
+     */
+    private static final Set<String> ARTIFACT_DIRS = Set.of(
+            "node_modules", "dist", "build", ".vite", ".cache", "coverage", ".git"
+    );
+
+    /**
+     * 构建产物后缀
+     */
+    private static final List<String> ARTIFACT_SUFFIXES = List.of(".map", ".min.js", ".min.css", ".lock");
+
+    /**
+     * .vue 文件的区块开始标签
+     */
+    private static final Pattern VUE_SECTION_START = Pattern.compile("^<(template|script|style)(\\s[^>]*)?>");
+
+    @Tool("读取指定路径的文件内容。单次最多返回 " + MAX_LINES + " 行，文件较长时按提示指定起始行继续读取；"
+            + "只需了解文件结构时使用大纲模式")
     public String readFile(
             @P("文件的相对路径")
             String relativeFilePath,
+            @P(value = "起始行号（从 1 开始），不填则从第一行开始", required = false)
+            Integer startLine,
+            @P(value = "结束行号（包含），不填则读到单次上限为止", required = false)
+            Integer endLine,
+            @P(value = "是否只返回大纲（.vue 的 template/script/style 区块与顶层声明及行号）", required = false)
+            Boolean outline,
             @ToolMemoryId Long appId
     ) {
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
+            Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, "vue_project_" + appId)
+                    .toAbsolutePath().normalize();
+            Path path = projectRoot.resolve(relativeFilePath).normalize();
+            if (!path.startsWith(projectRoot)) {
+                return "错误：路径不在项目目录内 - " + relativeFilePath;
             }
             if (!Files.exists(path) || !Files.isRegularFile(path)) {
                 return "错误：文件不存在或不是文件 - " + relativeFilePath;
             }
-            return Files.readString(path);
+            if (isLockFileOrArtifact(projectRoot.relativize(path))) {
+                return "错误：不允许读取锁文件或构建产物，请读取源码文件 - " + relativeFilePath;
+            }
+            if (Boolean.TRUE.equals(outline)) {
+                return outline(path, relativeFilePath);
+            }
+            int start = startLine == null || startLine < 1 ? 1 : startLine;
+            if (endLine != null && endLine < start) {
+                return "错误：结束行号不能小于起始行号";
+            }
+            return readWindow(path, relativeFilePath, start, endLine);
         } catch (IOException e) {
             String errorMessage = "读取文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
@@ -44,6 +116,128 @@ public class FileReadTool extends BaseTool{
         }
     }
 
+    /**
+     * 是否为锁文件或构建产物
+     *
+     * @param relativePath 相对项目根目录的路径
+     */
+    static boolean isLockFileOrArtifact(Path relativePath) {
+        String fileName = relativePath.getFileName().toString().toLowerCase();
+        if (LOCK_FILES.contains(fileName) || ARTIFACT_SUFFIXES.stream().anyMatch(fileName::endsWith)) {
+            return true;
+        }
+        for (Path segment : relativePath) {
+            if (ARTIFACT_DIRS.contains(segment.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取行范围，受行数与字符数上限约束；未读完时在末尾提示下一次的起始行
+     */
+    private String readWindow(Path path, String relativeFilePath, int start, Integer end) throws IOException {
+        int lastLine = end == null ? start + MAX_LINES - 1 : Math.min(end, start + MAX_LINES - 1);
+        StringBuilder content = new StringBuilder();
+        int lineNumber = 0;
+        // 实际返回的最后一行
+        int returnedLine = start - 1;
+        boolean truncated = false;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber < start || truncated) {
+                    continue;
+                }
+                if (lineNumber > lastLine) {
+                    truncated = end == null || lineNumber <= end;
+                    continue;
+                }
+                if (content.length() + line.length() + 1 > MAX_CHARS) {
+                    if (returnedLine < start) {
+                        // 单行超过上限（如压缩后的代码），只返回开头部分
+                        content.append(line, 0, MAX_CHARS).append("…（该行过长，已截断）\n");
+                        returnedLine = lineNumber;
+                    }
+                    truncated = true;
+                    continue;
+                }
+                content.append(line).append('\n');
+                returnedLine = lineNumber;
+            }
+        }
+        int totalLines = lineNumber;
+        if (totalLines == 0) {
+            return "";
+        }
+        if (start > totalLines) {
+            return String.format("错误：起始行 %d 超出文件总行数 %d - %s", start, totalLines, relativeFilePath);
+        }
+        boolean wholeFile = start == 1 && returnedLine == totalLines && !truncated;
+        if (wholeFile) {
+            // 整个文件在上限内，保持原样返回
+            return StrUtil.removeSuffix(content, "\n");
+        }
+        content.append(String.format("\n[已显示第 %d-%d 行，共 %d 行", start, returnedLine, totalLines));
+        if (truncated) {
+            content.append(String.format("。继续读取请调用 readFile 并指定 startLine=%d", returnedLine + 1));
+        }
+        return content.append(']').toString();
+    }
+
+    /**
+     * 文件大纲：.vue 文件列出各区块的行范围与 script 中的顶层声明，其他文件列出顶层代码行
+     */
+    private String outline(Path path, String relativeFilePath) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        boolean vue = "vue".equalsIgnoreCase(FileUtil.getSuffix(relativeFilePath));
+        List<String> entries = new ArrayList<>();
+        // 当前所在的 .vue 区块，顶层代码行只在 script 中列出
+        String section = vue ? null : "script";
+        int sectionStart = 0;
+        // 连续 import 的起始行与条数，合并为一条
+        int firstImport = 0;
+        int imports = 0;
+        for (int i = 0; i < lines.size() && entries.size() < MAX_OUTLINE_ENTRIES; i++) {
+            String line = lines.get(i);
+            int lineNumber = i + 1;
+            String trimmed = line.trim();
+            boolean topLevel = "script".equals(section) && !line.isBlank() && !Character.isWhitespace(line.charAt(0));
+            if (topLevel && trimmed.startsWith("import ")) {
+                firstImport = imports++ == 0 ? lineNumber : firstImport;
+                continue;
+            }
+            if (imports > 0 && (topLevel || line.startsWith("</"))) {
+                entries.add(String.format("  %d: import 语句 %d 条", firstImport, imports));
+                imports = 0;
+            }
+            if (vue && section == null) {
+                Matcher matcher = VUE_SECTION_START.matcher(line);
+                if (matcher.find()) {
+                    section = matcher.group(1);
+                    sectionStart = lineNumber;
+                    entries.add(String.format("%s（第 %d 行起）", trimmed, lineNumber));
+                }
+            } else if (vue && line.startsWith("</" + section + ">")) {
+                entries.add(String.format("</%s>（第 %d-%d 行）", section, sectionStart, lineNumber));
+                section = null;
+            } else if (topLevel && !StrUtil.startWithAny(trimmed, "}", ")", "]", "//", "/*", "*")) {
+                entries.add(String.format("  %d: %s", lineNumber, StrUtil.maxLength(trimmed, 120)));
+            }
+        }
+        if (imports > 0) {
+            entries.add(String.format("  %d: import 语句 %d 条", firstImport, imports));
+        }
+        StringBuilder result = new StringBuilder(String.format("%s 大纲（共 %d 行）：", relativeFilePath, lines.size()));
+        entries.forEach(entry -> result.append('\n').append(entry));
+        if (entries.size() >= MAX_OUTLINE_ENTRIES) {
+            result.append("\n[大纲条目过多，已截断，请按行范围读取]");
+        }
+        return result.toString();
+    }
+
     @Override
     public String getToolName() {
         return "readFile";
@@ -57,6 +251,18 @@ public class FileReadTool extends BaseTool{
     @Override
     public String generateToolExecutedResult(JSONObject arguments) {
         String relativeFilePath = arguments.getStr("relativeFilePath");
-        return String.format("[工具调用] %s %s", getDisplayName(), relativeFilePath);
+        if (arguments.getBool("outline", false)) {
+            return String.format("[工具调用] %s %s（大纲）", getDisplayName(), relativeFilePath);
+        }
+        Integer startLine = arguments.getInt("startLine");
+        Integer endLine = arguments.getInt("endLine");
+        if (startLine == null && endLine == null) {
+            return String.format("[工具调用] %s %s", getDisplayName(), relativeFilePath);
+        }
+        if (endLine == null) {
+            return String.format("[工具调用] %s %s 第 %d 行起", getDisplayName(), relativeFilePath, startLine);
+        }
+        return String.format("[工具调用] %s %s 第 %d-%d 行", getDisplayName(), relativeFilePath,
+                startLine == null ? 1 : startLine, endLine);
     }
 }
@@ -51,6 +51,7 @@ public class FileWriteTool extends BaseTool{
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
             log.info("成功写入文件: {}", path.toAbsolutePath());
+            notifyProjectFileChanged(appId);
             /*
             * . StandardOpenOption.CREATE (关键选项 1)
                 含义：不存在则创建。
@@ -0,0 +1,30 @@
+package com.yu.yuaicodemother.config;
+
+import com.yu.yuaicodemother.ai.http.LlmHttpClientFactory;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import jakarta.annotation.Resource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 让 langchain4j 自动配置的 OpenAI 模型（openAiChatModel 等）也使用共享的 HTTP 连接池
+ * <p>
+ * 自动配置在不存在同名 Bean 时才会自行创建 HTTP 客户端构建器。
+ * </p>
+ */
+@Configuration
+public class LlmHttpClientConfig {
+
+    @Resource
+    private LlmHttpClientFactory llmHttpClientFactory;
+
+    @Bean("openAiChatModelHttpClientBuilder")
+    public HttpClientBuilder openAiChatModelHttpClientBuilder() {
+        return llmHttpClientFactory.builder();
+    }
+
+    @Bean("openAiStreamingChatModelHttpClientBuilder")
+    public HttpClientBuilder openAiStreamingChatModelHttpClientBuilder() {
+        return llmHttpClientFactory.builder();
+    }
+}
@@ -0,0 +1,27 @@
+package com.yu.yuaicodemother.config;
+
+import lombok.Data;
+
+/**
+ * 额外的 OpenAI 兼容模型端点（与主端点组成模型池）
+ */
+@Data
+public class ModelEndpointProperties {
+
+    /**
+     * 端点名称（用于日志与指标），为空时按序号命名
+     */
+    private String name;
+
+    private String baseUrl;
+
+    /**
+     * 为空时使用主端点的 apiKey
+     */
+    private String apiKey;
+
+    /**
+     * 为空时使用主端点的模型名称
+     */
+    private String modelName;
+}
@@ -1,5 +1,8 @@
 package com.yu.yuaicodemother.config;
 
+import cn.hutool.core.util.StrUtil;
+import com.yu.yuaicodemother.ai.http.LlmHttpClientFactory;
+import com.yu.yuaicodemother.ai.pool.ModelPoolFactory;
 import com.yu.yuaicodemother.monitor.AiModelMonitorListener;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
@@ -9,7 +12,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @ConfigurationProperties(prefix = "langchain4j.open-ai.reasoning-chat-model")
@@ -28,15 +34,44 @@ public class ReasoningStreamingChatModelConfig {
 
     private boolean logResponses;
 
+    /**
+     * 额外的 OpenAI 兼容端点，与主端点组成模型池，按首 token 耗时与错误率选择
+     */
+    private List<ModelEndpointProperties> endpoints = new ArrayList<>();
+
+    /**
+     * 首 token 超过 p90 耗时仍未到达时向次优端点发起对冲请求
+     */
+    private boolean hedge;
+
     @Resource
     private AiModelMonitorListener aiModelMonitorListener;
 
+    @Resource
+    private ModelPoolFactory modelPoolFactory;
+
+    @Resource
+    private LlmHttpClientFactory llmHttpClientFactory;
+
     /**
      * 推理流式模型（用于 Vue 项目生成，带工具调用）
      */
     @Bean
     public StreamingChatModel reasoningStreamingChatModel() {
+        Map<String, StreamingChatModel> models = new LinkedHashMap<>();
+        models.put("primary", buildModel(baseUrl, apiKey, modelName));
+        for (int i = 0; i < endpoints.size(); i++) {
+            ModelEndpointProperties endpoint = endpoints.get(i);
+            models.put(StrUtil.blankToDefault(endpoint.getName(), "endpoint-" + (i + 1)),
+                    buildModel(endpoint.getBaseUrl(), StrUtil.blankToDefault(endpoint.getApiKey(), apiKey),
+                            StrUtil.blankToDefault(endpoint.getModelName(), modelName)));
+        }
+        return modelPoolFactory.streaming("reasoning", models, hedge);
+    }
+
+    private StreamingChatModel buildModel(String baseUrl, String apiKey, String modelName) {
         return OpenAiStreamingChatModel.builder()
+                .httpClientBuilder(llmHttpClientFactory.builder())
                 .apiKey(apiKey)
                 .baseUrl(baseUrl)
                 .modelName(modelName)
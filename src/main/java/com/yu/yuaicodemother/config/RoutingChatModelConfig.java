@@ -1,13 +1,22 @@
 package com.yu.yuaicodemother.config;
 
+import cn.hutool.core.util.StrUtil;
+import com.yu.yuaicodemother.ai.http.LlmHttpClientFactory;
+import com.yu.yuaicodemother.ai.pool.ModelPoolFactory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import jakarta.annotation.Resource;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "routing-chat-model")
 @Data
@@ -25,10 +34,34 @@ public class RoutingChatModelConfig {
 
     private boolean logResponses;
 
+    /**
+     * 额外的 OpenAI 兼容端点，与主端点组成模型池，按响应耗时与错误率选择
+     */
+    private List<ModelEndpointProperties> endpoints = new ArrayList<>();
+
+    @Resource
+    private ModelPoolFactory modelPoolFactory;
+
+    @Resource
+    private LlmHttpClientFactory llmHttpClientFactory;
+
     @Bean
     @Scope("prototype")
     public ChatModel routingChatModelPrototype() {
+        Map<String, ChatModel> models = new LinkedHashMap<>();
+        models.put("primary", buildModel(baseUrl, apiKey, modelName));
+        for (int i = 0; i < endpoints.size(); i++) {
+            ModelEndpointProperties endpoint = endpoints.get(i);
+            models.put(StrUtil.blankToDefault(endpoint.getName(), "endpoint-" + (i + 1)),
+                    buildModel(endpoint.getBaseUrl(), StrUtil.blankToDefault(endpoint.getApiKey(), apiKey),
+                            StrUtil.blankToDefault(endpoint.getModelName(), modelName)));
+        }
+        return modelPoolFactory.chat("routing", models);
+    }
+
+    private ChatModel buildModel(String baseUrl, String apiKey, String modelName) {
         return OpenAiChatModel.builder()
+                .httpClientBuilder(llmHttpClientFactory.builder())
                 .apiKey(apiKey)
                 .baseUrl(baseUrl)
                 .modelName(modelName)
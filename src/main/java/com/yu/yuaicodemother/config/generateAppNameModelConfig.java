@@ -1,7 +1,9 @@
 package com.yu.yuaicodemother.config;
 
+import com.yu.yuaicodemother.ai.http.LlmHttpClientFactory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import jakarta.annotation.Resource;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -25,9 +27,13 @@ public class generateAppNameModelConfig {
 
     private boolean logResponses;
 
+    @Resource
+    private LlmHttpClientFactory llmHttpClientFactory;
+
     @Bean
     public ChatModel generateAppNameChatModel(){
         return OpenAiChatModel.builder()
+                .httpClientBuilder(llmHttpClientFactory.builder())
                 .modelName(modelName)
                 .apiKey(apiKey)
                 .baseUrl(baseUrl)
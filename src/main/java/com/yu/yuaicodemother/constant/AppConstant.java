@@ -19,6 +19,13 @@ public final class AppConstant {
                         + "code_deploy"
                         + File.separator;
 
+        /**
+         * Vue 项目共享依赖仓库（按依赖集合哈希存放 node_modules）
+         */
+        public static final String NODE_MODULES_STORE_ROOT_DIR = USER_DIR + File.separator + "tmp" + File.separator
+                        + "node_modules_store"
+                        + File.separator;
+
         public static final String CODE_DEPLOY_HOST = "http://localhost";
 
         private AppConstant() {
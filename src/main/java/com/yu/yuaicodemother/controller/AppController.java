@@ -1,8 +1,12 @@
 package com.yu.yuaicodemother.controller;
 
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.yu.yuaicodemother.annotation.AuthCheck;
@@ -11,6 +15,12 @@ import com.yu.yuaicodemother.common.DeleteRequest;
 import com.yu.yuaicodemother.common.ResultUtils;
 import com.yu.yuaicodemother.constant.AppConstant;
 import com.yu.yuaicodemother.constant.UserConstant;
+import com.yu.yuaicodemother.core.generation.GenerationDetachedException;
+import com.yu.yuaicodemother.core.generation.GenerationEvent;
+import com.yu.yuaicodemother.core.generation.GenerationJob;
+import com.yu.yuaicodemother.core.generation.GenerationJobEngine;
+import com.yu.yuaicodemother.core.generation.GenerationSessionManager;
+import com.yu.yuaicodemother.core.generation.GenerationStatusMessage;
 import com.yu.yuaicodemother.exception.BusinessException;
 import com.yu.yuaicodemother.exception.ErrorCode;
 import com.yu.yuaicodemother.exception.ThrowUtils;
@@ -18,7 +28,9 @@ import com.yu.yuaicodemother.model.dto.app.*;
 import com.yu.yuaicodemother.model.entity.App;
 import com.yu.yuaicodemother.model.entity.User;
 import com.yu.yuaicodemother.model.enums.AppDeployStatusEnum;
+import com.yu.yuaicodemother.model.enums.AppGenStatusEnum;
 import com.yu.yuaicodemother.model.enums.AppFeaturedStatusEnum;
+import com.yu.yuaicodemother.model.enums.GenerationJobStatusEnum;
 import com.yu.yuaicodemother.model.vo.app.AppVO;
 import com.yu.yuaicodemother.ratelimit.annotation.RateLimit;
 import com.yu.yuaicodemother.ratelimit.enums.RateLimitType;
@@ -29,15 +41,19 @@ import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import java.io.File;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +68,13 @@ import java.util.Map;
 @Slf4j
 public class AppController {
 
+    /**
+     * SSE 数据写出器：预先构建并绑定 Map 类型，每个片段只序列化这一次
+     */
+    private static final ObjectWriter SSE_DATA_WRITER = new ObjectMapper()
+            .writerFor(new TypeReference<Map<String, Object>>() {
+            });
+
     @Resource
     private AppService appService;
 
@@ -61,6 +84,18 @@ public class AppController {
     @Resource
     private ProjectDownloadService projectDownloadService;
 
+    @Resource
+    private GenerationSessionManager generationSessionManager;
+
+    @Resource
+    private GenerationJobEngine generationJobEngine;
+
+    /**
+     * 生成状态订阅的心跳间隔（秒）
+     */
+    @Value("${generation.status-stream.heartbeat-seconds:15}")
+    private long statusHeartbeatSeconds;
+
 
     @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试")
     @PostMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
@@ -76,25 +111,115 @@ public class AppController {
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
-        // 调用服务生成代码（流式）
-        Flux<String> contentFlux = appService.chatToGenCode(appChatRequest, loginUser);
-        // 转换为 ServerSentEvent 格式
-        return contentFlux
-                .map(chunk -> {
-                    // 将内容包装成JSON对象
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
-                .concatWith(Mono.just(
-                        // 发送结束事件
-                        ServerSentEvent.<String>builder()
-                                .event("done")
-                                .data("")
-                                .build()
-                ));
+        // 提交后台生成任务，连接只是任务的订阅者，断开后生成继续，客户端可续传
+        GenerationJob job = generationJobEngine.submit(appChatRequest, loginUser);
+        Flux<GenerationEvent> events = generationSessionManager.resume(job.getGenerationId(), 0, loginUser.getId());
+        return toEventStream(job.getGenerationId(), events);
+    }
+
+    /**
+     * 续传生成中的 SSE 流（连接断开后重连）
+     *
+     * @param generationId      生成 ID（首个 generation 事件返回）
+     * @param lastEventId       已收到的最后一个事件 ID
+     * @param lastEventIdHeader EventSource 自动重连时携带的 Last-Event-ID 请求头
+     * @param request           请求
+     * @return 最后事件之后的内容及后续实时内容
+     */
+    @GetMapping(value = "/chat/gen/resume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> resumeGenCode(@RequestParam String generationId,
+                                                       @RequestParam(required = false) Long lastEventId,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+                                                       HttpServletRequest request) {
+        ThrowUtils.throwIf(StrUtil.isBlank(generationId), ErrorCode.PARAMS_ERROR, "生成ID不能为空");
+        User loginUser = userService.getLoginUser(request);
+        long resumeFrom = lastEventId != null ? lastEventId : (lastEventIdHeader != null ? lastEventIdHeader : 0L);
+        ThrowUtils.throwIf(resumeFrom < 0, ErrorCode.PARAMS_ERROR, "事件ID无效");
+        Flux<GenerationEvent> events = generationSessionManager.resume(generationId, resumeFrom, loginUser.getId());
+        return toEventStream(generationId, events);
+    }
+
+    /**
+     * 停止生成
+     *
+     * @param appGenStopRequest 停止请求
+     * @param request           请求
+     * @return 是否停止了进行中的生成
+     */
+    @PostMapping("/chat/gen/stop")
+    public BaseResponse<Boolean> stopGenCode(@RequestBody AppGenStopRequest appGenStopRequest,
+                                             HttpServletRequest request) {
+        ThrowUtils.throwIf(appGenStopRequest == null || StrUtil.isBlank(appGenStopRequest.getGenerationId()),
+                ErrorCode.PARAMS_ERROR, "生成ID不能为空");
+        User loginUser = userService.getLoginUser(request);
+        boolean result = generationJobEngine.stop(appGenStopRequest.getGenerationId(), loginUser.getId());
+        return ResultUtils.success(result);
+    }
+
+    /**
+     * 将生成事件转换为 SSE 流：先发送 generation 事件告知生成 ID，等待模型许可期间发送 queue 事件，结束时发送 done 事件
+     */
+    private Flux<ServerSentEvent<String>> toEventStream(String generationId, Flux<GenerationEvent> events) {
+        ServerSentEvent<String> generationEvent = ServerSentEvent.<String>builder()
+                .event("generation")
+                .data(toJson(Map.of("generationId", generationId)))
+                .build();
+        ServerSentEvent<String> doneEvent = ServerSentEvent.<String>builder()
+                .event("done")
+                .data("")
+                .build();
+        Flux<ServerSentEvent<String>> body = events.map(this::toServerSentEvent)
+                // 发送结束事件
+                .concatWith(Mono.just(doneEvent))
+                .onErrorResume(error -> error instanceof GenerationDetachedException detached
+                        // 连接过慢被断开：不发送结束事件，前端收到 detached 后立即续传
+                        ? Mono.just(toDetachedEvent(detached))
+                        // 生成失败时以 business-error 事件通知前端，与全局异常处理的格式一致
+                        : Flux.just(toErrorEvent(error), doneEvent));
+        Flux<ServerSentEvent<String>> queueEvents = generationJobEngine.queuePositionStream(generationId)
+                .map(position -> ServerSentEvent.<String>builder()
+                        .event("queue")
+                        .data(toJson(Map.of("position", position)))
+                        .build());
+        // 排队位置流不会结束，以 done 或 detached 事件作为整个 SSE 流的结束
+        return Flux.concat(Mono.just(generationEvent), Flux.merge(body, queueEvents)
+                .takeUntil(event -> "done".equals(event.event()) || "detached".equals(event.event())));
+    }
+
+    private ServerSentEvent<String> toDetachedEvent(GenerationDetachedException detached) {
+        return ServerSentEvent.<String>builder()
+                .event("detached")
+                .data(toJson(Map.of("lastEventId", detached.getLastEventId())))
+                .build();
+    }
+
+    /**
+     * 将内容片段包装为 {"d": chunk} 格式的 SSE 事件，事件 ID 用于断线续传
+     */
+    private ServerSentEvent<String> toServerSentEvent(GenerationEvent event) {
+        return ServerSentEvent.<String>builder()
+                .id(String.valueOf(event.id()))
+                .data(toJson(Map.of("d", event.data())))
+                .build();
+    }
+
+    private ServerSentEvent<String> toErrorEvent(Throwable error) {
+        int code = error instanceof BusinessException businessException
+                ? businessException.getCode() : ErrorCode.SYSTEM_ERROR.getCode();
+        String message = error instanceof BusinessException
+                ? String.valueOf(error.getMessage()) : "AI回复失败: " + error.getMessage();
+        return ServerSentEvent.<String>builder()
+                .event("business-error")
+                .data(toJson(Map.of("error", true, "code", code, "message", message)))
+                .build();
+    }
+
+    private String toJson(Map<String, ?> data) {
+        try {
+            return SSE_DATA_WRITER.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "消息序列化失败");
+        }
     }
 
 
@@ -197,10 +322,71 @@ public class AppController {
     @GetMapping("/gen-status/{appId}")
     public BaseResponse<Integer> getGenStatus(@PathVariable Long appId) {
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        // 优先读取任务引擎写入 Redis 的状态，没有记录时查询数据库
+        Integer genStatus = generationJobEngine.getAppGenStatus(appId);
+        if (genStatus != null) {
+            return ResultUtils.success(genStatus);
+        }
         App app = appService.getById(appId);
         ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
-        Integer genStatus = app.getGenStatus();
-        return ResultUtils.success(genStatus);
+        return ResultUtils.success(app.getGenStatus());
+    }
+
+    /**
+     * 订阅应用生成状态变更（SSE），状态由任务引擎经 Redis 发布订阅推送，无需轮询
+     * 先订阅变更再读取当前状态，读取期间的变更不会丢失；不在生成中时发送当前状态后结束，
+     * 生成中时定期发送心跳，任务结束（成功、失败、取消）后结束
+     *
+     * @param appId 应用ID
+     * @return 当前状态及后续状态变更
+     */
+    @GetMapping(value = "/gen-status/stream/{appId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamGenStatus(@PathVariable Long appId) {
+        return Flux.defer(() -> {
+            // 读取当前状态期间到达的变更先缓存，发送当前状态后依次发送
+            Sinks.Many<GenerationStatusMessage> buffered = Sinks.many().unicast().onBackpressureBuffer();
+            Disposable subscription = generationJobEngine.statusStream(appId)
+                    .subscribe(buffered::tryEmitNext, buffered::tryEmitError);
+            Integer current;
+            try {
+                current = ObjUtil.defaultIfNull(getGenStatus(appId).getData(), AppGenStatusEnum.NOT_STARTED.getValue());
+            } catch (RuntimeException e) {
+                subscription.dispose();
+                throw e;
+            }
+            Mono<ServerSentEvent<String>> currentEvent = Mono.just(toStatusEvent(Map.of("appId", appId, "genStatus", current)));
+            if (current != AppGenStatusEnum.GENERATING.getValue()) {
+                subscription.dispose();
+                return currentEvent;
+            }
+            Sinks.Empty<Void> finished = Sinks.empty();
+            Flux<ServerSentEvent<String>> changes = buffered.asFlux()
+                    .takeUntil(message -> isFinishedStatus(message.getStatus()))
+                    .map(message -> toStatusEvent(Map.of(
+                            "appId", appId,
+                            "generationId", message.getGenerationId(),
+                            "status", message.getStatus(),
+                            "genStatus", message.getGenStatus())))
+                    .doFinally(signal -> finished.tryEmitEmpty());
+            // 心跳流不会自行结束，随状态变更流一起结束
+            Flux<ServerSentEvent<String>> heartbeats = Flux.interval(Duration.ofSeconds(statusHeartbeatSeconds))
+                    .map(tick -> ServerSentEvent.<String>builder().comment("heartbeat").build())
+                    .takeUntilOther(finished.asMono());
+            return Flux.concat(currentEvent, Flux.merge(changes, heartbeats))
+                    .doFinally(signal -> subscription.dispose());
+        });
+    }
+
+    private boolean isFinishedStatus(String status) {
+        GenerationJobStatusEnum statusEnum = GenerationJobStatusEnum.getEnumByValue(status);
+        return statusEnum != null && statusEnum.isFinished();
+    }
+
+    private ServerSentEvent<String> toStatusEvent(Map<String, ?> data) {
+        return ServerSentEvent.<String>builder()
+                .event("status")
+                .data(toJson(data))
+                .build();
     }
 
     /**
@@ -0,0 +1,81 @@
+package com.yu.yuaicodemother.controller;
+
+import com.yu.yuaicodemother.annotation.AuthCheck;
+import com.yu.yuaicodemother.common.BaseResponse;
+import com.yu.yuaicodemother.common.ResultUtils;
+import com.yu.yuaicodemother.constant.UserConstant;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import com.yu.yuaicodemother.exception.ThrowUtils;
+import com.yu.yuaicodemother.model.vo.monitor.GenerationTraceVO;
+import com.yu.yuaicodemother.model.vo.monitor.TokenSpendVO;
+import com.yu.yuaicodemother.monitor.GenerationTrace;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.monitor.TokenSpendAccounting;
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 监控 控制层。
+ *
+ * @author 鱼🐟
+ */
+@RestController
+@RequestMapping("/monitor")
+public class MonitorController {
+
+    @Resource
+    private TokenSpendAccounting tokenSpendAccounting;
+
+    @Resource
+    private GenerationTracer generationTracer;
+
+    /**
+     * 管理员查询当前统计窗口内 token 消耗最多的用户与应用
+     *
+     * @param limit 返回条数
+     * @return token 消耗排行
+     */
+    @GetMapping("/admin/token/top")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<TokenSpendVO> getTokenSpendTop(@RequestParam(defaultValue = "20") int limit) {
+        ThrowUtils.throwIf(limit <= 0 || limit > 100, ErrorCode.PARAMS_ERROR, "limit 取值范围为 1-100");
+        return ResultUtils.success(tokenSpendAccounting.snapshot(limit));
+    }
+
+    /**
+     * 管理员查询一次生成（或部署）的阶段耗时明细
+     *
+     * @param generationId 生成 ID
+     * @return 阶段耗时明细
+     */
+    @GetMapping("/admin/generation/trace")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<GenerationTraceVO> getGenerationTrace(@RequestParam String generationId) {
+        GenerationTrace trace = generationTracer.get(generationId);
+        ThrowUtils.throwIf(trace == null, ErrorCode.NOT_FOUND_ERROR, "生成记录不存在或已过期");
+        return ResultUtils.success(generationTracer.toVO(trace));
+    }
+
+    /**
+     * 管理员查询最近的生成（或部署）阶段耗时明细
+     *
+     * @param appId 应用 ID（不传时查询全部应用）
+     * @param limit 返回条数
+     * @return 阶段耗时明细列表，按开始时间倒序
+     */
+    @GetMapping("/admin/generation/trace/list")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<GenerationTraceVO>> listGenerationTrace(@RequestParam(required = false) Long appId,
+                                                                     @RequestParam(defaultValue = "20") int limit) {
+        ThrowUtils.throwIf(limit <= 0 || limit > 100, ErrorCode.PARAMS_ERROR, "limit 取值范围为 1-100");
+        List<GenerationTraceVO> result = generationTracer.listRecent(appId, limit).stream()
+                .map(generationTracer::toVO)
+                .toList();
+        return ResultUtils.success(result);
+    }
+}
@@ -1,6 +1,5 @@
 package com.yu.yuaicodemother.core;
 
-import cn.hutool.json.JSONUtil;
 import com.yu.yuaicodemother.ai.AiCodeGeneratorService;
 import com.yu.yuaicodemother.ai.AiCodeGeneratorServiceFactory;
 import com.yu.yuaicodemother.ai.MultiModalMessageBuilder;
@@ -8,29 +7,57 @@ import com.yu.yuaicodemother.ai.model.HtmlCodeResult;
 import com.yu.yuaicodemother.ai.model.MultiFileCodeResult;
 import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
 import com.yu.yuaicodemother.ai.model.message.BeforeToolExecuted;
+import com.yu.yuaicodemother.ai.model.message.DeepThinkMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
 import com.yu.yuaicodemother.ai.model.message.ToolExecutedMessage;
 import com.yu.yuaicodemother.constant.AppConstant;
-import com.yu.yuaicodemother.core.builder.VueProjectBuilder;
+import com.yu.yuaicodemother.core.admission.LlmAdmissionController;
+import com.yu.yuaicodemother.core.builder.VueProjectBuildScheduler;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
+import com.yu.yuaicodemother.core.generation.StreamingCallCanceller;
 import com.yu.yuaicodemother.core.saver.CodeFileSaverExecutor;
+import com.yu.yuaicodemother.core.saver.StreamingCodeFileSaver;
+import com.yu.yuaicodemother.core.saver.StreamingPatchApplier;
 import com.yu.yuaicodemother.exception.BusinessException;
 import com.yu.yuaicodemother.exception.ErrorCode;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import com.yu.yuaicodemother.model.enums.LlmModelTypeEnum;
 import com.yu.yuaicodemother.model.vo.file.FileProcessResult;
+import com.yu.yuaicodemother.monitor.GenerationTrace;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.monitor.MonitorContext;
+import com.yu.yuaicodemother.monitor.MonitorContextHolder;
+import com.yu.yuaicodemother.monitor.StreamingMetricsTracker;
+import com.yu.yuaicodemother.monitor.StreamingModelMetrics;
 import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
 import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialThinkingContext;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.PartialToolCallContext;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.tool.BeforeToolExecution;
 import dev.langchain4j.service.tool.ToolExecution;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AI 代码生成外观类，组合生成和保存功能
@@ -43,11 +70,60 @@ public class AiCodeGeneratorFacade {
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueProjectBuildScheduler vueProjectBuildScheduler;
+
+    @Resource
+    private AppSideEffectExecutor appSideEffectExecutor;
 
     @Resource
     private MultiModalMessageBuilder multiModalMessageBuilder;
 
+    @Resource
+    private LlmAdmissionController llmAdmissionController;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private StreamingModelMetrics streamingModelMetrics;
+
+    @Resource
+    private GenerationTracer generationTracer;
+
+    /**
+     * 普通流式模型的最大输出 token 数（HTML、MULTI_FILE）
+     */
+    @Value("${langchain4j.open-ai.streaming-chat-model.max-tokens:8192}")
+    private int streamingMaxTokens;
+
+    /**
+     * 推理流式模型的最大输出 token 数（VUE_PROJECT）
+     */
+    @Value("${langchain4j.open-ai.reasoning-chat-model.max-tokens:32768}")
+    private int reasoningMaxTokens;
+
+    /**
+     * 是否开启补丁模式（HTML、MULTI_FILE 已有代码时只输出修改块）
+     */
+    @Value("${generation.patch.enabled:true}")
+    private boolean patchEnabled;
+
+    /**
+     * 补丁模式的当前代码字符数上限，超出时完整重新生成
+     */
+    @Value("${generation.patch.max-source-chars:60000}")
+    private int patchMaxSourceChars;
+
+    /**
+     * 补丁无法应用、转为完整重新生成时推送给前端的提示
+     */
+    private static final String PATCH_FALLBACK_NOTICE = "\n\n[修改无法直接应用，重新生成完整代码]\n\n";
+
+    /**
+     * 完整重新生成时附在用户消息前的当前代码说明
+     */
+    private static final String PATCH_FALLBACK_CONTEXT = "以下是应用当前的完整代码，请在此基础上按我的要求修改，并输出修改后的完整代码：\n\n";
+
     /**
      * 统一入口：根据类型生成并保存代码（使用 appId）
      *
@@ -94,15 +170,17 @@ public class AiCodeGeneratorFacade {
      * @param userMessage     用户提示词
      * @param codeGenTypeEnum 生成类型
      * @param appId           应用 ID
+     * @return 类型化的流式消息（只在 SSE 出口序列化一次）
      */
-    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
         return generateAndSaveCodeStream(userMessage, new ArrayList<>(), codeGenTypeEnum, appId);
     }
 
     /**
      * 统一入口：根据类型生成并保存代码（流式，支持多模态）
+     * 模型调用经准入控制，并发已满时在订阅后排队，获得许可才发起请求
      */
-    public Flux<String> generateAndSaveCodeStream(String userMessage, List<FileProcessResult> files, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, List<FileProcessResult> files, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
@@ -112,14 +190,23 @@ public class AiCodeGeneratorFacade {
 
         List<Content> multimodalContents = multiModalMessageBuilder.buildMessage(userMessage, files);
 
-        return switch (codeGenTypeEnum) {
+        // 已有代码时只让模型输出修改块
+        Map<String, String> currentFiles = readPatchableFiles(codeGenTypeEnum, appId);
+        if (currentFiles != null) {
+            Flux<StreamMessage> patchStream = processPatchStream(aiCodeGeneratorService, currentFiles,
+                    multimodalContents, codeGenTypeEnum, appId);
+            return llmAdmissionController.admit(LlmModelTypeEnum.ofCodeGenType(codeGenTypeEnum), patchStream);
+        }
+
+        Flux<StreamMessage> codeStream = switch (codeGenTypeEnum) {
             case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHTMLCodeStream(multimodalContents);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                TokenStream tokenStream = aiCodeGeneratorService.generateHTMLCodeStream(multimodalContents);
+                yield processCodeStream(toCodeStream(tokenStream, CodeGenTypeEnum.HTML, appId), CodeGenTypeEnum.HTML, appId);
             }
             case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(multimodalContents);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                TokenStream tokenStream = aiCodeGeneratorService.generateMultiFileCodeStream(multimodalContents);
+                yield processCodeStream(toCodeStream(tokenStream, CodeGenTypeEnum.MULTI_FILE, appId),
+                        CodeGenTypeEnum.MULTI_FILE, appId);
             }
             case VUE_PROJECT -> {
                 TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCode(appId, multimodalContents);
@@ -130,71 +217,195 @@ public class AiCodeGeneratorFacade {
                 throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
             }
         };
+        return llmAdmissionController.admit(LlmModelTypeEnum.ofCodeGenType(codeGenTypeEnum), codeStream);
     }
 
     /**
-     * 将 TokenStream 转换为 Flux<String>，并传递工具调用信息
+     * 将 TokenStream 转换为 Flux<StreamMessage>，并传递工具调用信息
+     * 消息以对象形式向下游传递，不做中间序列化；下游取消时直接关闭底层模型调用
      *
      * @param tokenStream TokenStream 对象
-     * @return Flux<String> 流式响应
+     * @return Flux<StreamMessage> 流式响应
      */
-    private Flux<String> processTokenStream(TokenStream tokenStream, Long appId) {
+    private Flux<StreamMessage> processTokenStream(TokenStream tokenStream, Long appId) {
         return Flux.create(sink -> {
-            AtomicBoolean cancelled = new AtomicBoolean(false);
+            StreamingCallCanceller canceller = newCanceller(CodeGenTypeEnum.VUE_PROJECT, appId);
+            StreamingMetricsTracker metrics = streamingModelMetrics.newTracker(CodeGenTypeEnum.VUE_PROJECT);
+            GenerationTrace trace = generationTracer.current(sink.contextView());
+            GenerationTracer.Stage llmStage = generationTracer.stage(trace, "llm_stream");
+            // 工具按顺序执行，同一时间最多一个进行中的工具阶段
+            GenerationTracer.Stage[] toolStage = new GenerationTracer.Stage[1];
 
             sink.onCancel(() -> {
-                cancelled.set(true);
                 log.info("用户取消了生成任务: appId={}", appId);
+                canceller.cancel();
+                llmStage.stop(new CancellationException());
             });
 
-            tokenStream.onPartialResponse((String partialResponse) -> {
-                if (cancelled.get()) {
-                    throw new RuntimeException("CANCELLED_BY_USER");
+            tokenStream.onPartialResponseWithContext((PartialResponse partialResponse, PartialResponseContext context) -> {
+                if (canceller.onChunk(context.streamingHandle())) {
+                    return;
                 }
-                AiResponseMessage aiResponseMessage = new AiResponseMessage(partialResponse);
-                sink.next(JSONUtil.toJsonStr(aiResponseMessage));
-                // 操作：将这段文本封装进 AiResponseMessage 对象，转为 JSON，通过 sink.next 推送给前端。
+                metrics.onChunk(StreamingMetricsTracker.Phase.TEXT);
+                // 将这段文本封装进 AiResponseMessage 对象，通过 sink.next 推送给下游
+                sink.next(new AiResponseMessage(partialResponse.text()));
             })
-                    .onPartialThinking((PartialThinking partialThinking) -> {
-                        if (cancelled.get()) {
-                            throw new RuntimeException("CANCELLED_BY_USER");
+                    .onPartialThinkingWithContext((PartialThinking partialThinking, PartialThinkingContext context) -> {
+                        if (canceller.onChunk(context.streamingHandle())) {
+                            return;
                         }
-                        String text = partialThinking.text();
-                        sink.next(JSONUtil.toJsonStr(text));
+                        metrics.onChunk(StreamingMetricsTracker.Phase.THINKING);
+                        sink.next(new DeepThinkMessage(partialThinking.text()));
                     })
-                    .beforeToolExecution((BeforeToolExecution beforeToolExecution) -> {
-                        if (cancelled.get()) {
-                            throw new RuntimeException("CANCELLED_BY_USER");
+                    .onPartialToolCallWithContext((PartialToolCall partialToolCall, PartialToolCallContext context) -> {
+                        // 工具参数的流式片段只用于计时和及时关闭调用，不推送给前端
+                        if (!canceller.onChunk(context.streamingHandle())) {
+                            metrics.onChunk(StreamingMetricsTracker.Phase.TOOL_CALL);
                         }
-                        BeforeToolExecuted toolRequestMessage = new BeforeToolExecuted(beforeToolExecution.request());
-                        sink.next(JSONUtil.toJsonStr(toolRequestMessage));
+                    })
+                    .beforeToolExecution((BeforeToolExecution beforeToolExecution) -> {
+                        // 工具回调没有句柄，抛出异常终止工具调用循环，不再发起下一轮请求
+                        canceller.checkCancelled();
+                        metrics.beforeToolExecution();
+                        toolStage[0] = generationTracer.stage(trace, "tool_execution",
+                                beforeToolExecution.request().name());
+                        sink.next(new BeforeToolExecuted(beforeToolExecution.request()));
                     })
                     .onToolExecuted((ToolExecution toolExecution) -> {
-                        if (cancelled.get()) {
-                            throw new RuntimeException("CANCELLED_BY_USER");
+                        if (toolStage[0] != null) {
+                            toolStage[0].stop();
                         }
-                        ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
-                        sink.next(JSONUtil.toJsonStr(toolExecutedMessage));
+                        canceller.checkCancelled();
+                        metrics.afterToolExecution();
+                        sink.next(new ToolExecutedMessage(toolExecution));
                     })
                     .onCompleteResponse((ChatResponse response) -> {
-                        if (cancelled.get()) {
+                        if (canceller.isCancelled()) {
                             return;
                         }
-                        // 执行 Vue 项目构建（同步执行，确保预览时项目已就绪）
+                        metrics.onComplete(response);
+                        llmStage.stop();
+                        // Vue 项目构建交给应用级副作用执行器，排在对话历史与生成状态更新之前，
+                        // 不再阻塞模型回调线程（重复请求由调度器合并）
                         String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + "vue_project_" + appId;
-                        vueProjectBuilder.buildProject(projectPath);
+                        appSideEffectExecutor.execute(appId, "vue_build",
+                                () -> vueProjectBuildScheduler.buildAndWait(appId, projectPath));
                         sink.complete();
                     })
 
                     .onError((Throwable error) -> {
-                        if (cancelled.get() || "CANCELLED_BY_USER".equals(error.getMessage())) {
+                        if (canceller.isCancellation(error)) {
                             sink.complete(); // 用户取消不视为错误
                             return;
                         }
-                        error.printStackTrace();
+                        log.error("AI 生成异常: appId={}", appId, error);
+                        llmStage.stop(error);
                         sink.error(error); // 告诉前端：出错了
+                    });
+            // 必须调用 start()，TokenStream 才会真正开始请求 AI 模型并产生数据。
+            start(tokenStream, sink.contextView().getOrDefault(MonitorContext.class, null));
+        });
+    }
+
+    /**
+     * 将纯文本的 TokenStream 转换为 Flux<String>，下游取消时直接关闭底层模型调用
+     *
+     * @param tokenStream TokenStream 对象
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
+     * @return 文本片段流
+     */
+    private Flux<String> toCodeStream(TokenStream tokenStream, CodeGenTypeEnum codeGenType, Long appId) {
+        return toCodeStream(tokenStream, codeGenType, appId, () -> false);
+    }
+
+    /**
+     * 将纯文本的 TokenStream 转换为 Flux<String>，下游取消时直接关闭底层模型调用
+     *
+     * @param internalStop 关闭调用时判断是否为内部主动停止（如补丁无法应用），内部停止不计入取消指标
+     */
+    private Flux<String> toCodeStream(TokenStream tokenStream, CodeGenTypeEnum codeGenType, Long appId,
+                                      BooleanSupplier internalStop) {
+        return Flux.create(sink -> {
+            StreamingCallCanceller canceller = newCanceller(codeGenType, appId, internalStop);
+            StreamingMetricsTracker metrics = streamingModelMetrics.newTracker(codeGenType);
+            GenerationTracer.Stage llmStage = generationTracer.stage(generationTracer.current(sink.contextView()),
+                    "llm_stream");
+            sink.onCancel(() -> {
+                canceller.cancel();
+                llmStage.stop(new CancellationException());
+            });
+            tokenStream.onPartialResponseWithContext((PartialResponse partialResponse, PartialResponseContext context) -> {
+                        if (!canceller.onChunk(context.streamingHandle())) {
+                            metrics.onChunk(StreamingMetricsTracker.Phase.TEXT);
+                            sink.next(partialResponse.text());
+                        }
+                    })
+                    .onCompleteResponse((ChatResponse response) -> {
+                        metrics.onComplete(response);
+                        llmStage.stop();
+                        sink.complete();
                     })
-                    .start(); // 必须调用 start()，TokenStream 才会真正开始请求 AI 模型并产生数据。
+                    .onError((Throwable error) -> {
+                        if (canceller.isCancellation(error)) {
+                            sink.complete();
+                            return;
+                        }
+                        llmStage.stop(error);
+                        sink.error(error);
+                    });
+            start(tokenStream, sink.contextView().getOrDefault(MonitorContext.class, null));
+        });
+    }
+
+    /**
+     * 发起模型调用：订阅可能发生在准入队列放行的线程上，调用期间在当前线程设置监控上下文，
+     * 模型监听器与后续轮次（经 HTTP 客户端的流式线程传递）据此关联到本次生成
+     */
+    private static void start(TokenStream tokenStream, MonitorContext monitorContext) {
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.scope(monitorContext)) {
+            tokenStream.start();
+        }
+    }
+
+    /**
+     * 创建取消器：关闭底层调用时记录取消次数、释放耗时，以及按 max-tokens 估算的节省输出 token 数
+     */
+    private StreamingCallCanceller newCanceller(CodeGenTypeEnum codeGenType, Long appId) {
+        return newCanceller(codeGenType, appId, () -> false);
+    }
+
+    /**
+     * 创建取消器，内部主动停止时只关闭底层调用，不记录取消指标
+     */
+    private StreamingCallCanceller newCanceller(CodeGenTypeEnum codeGenType, Long appId, BooleanSupplier internalStop) {
+        int maxTokens = codeGenType == CodeGenTypeEnum.VUE_PROJECT ? reasoningMaxTokens : streamingMaxTokens;
+        return new StreamingCallCanceller((outputChunks, releaseNanos) -> {
+            if (internalStop.getAsBoolean()) {
+                log.info("已停止模型流式调用: appId={}, 已输出片段={}", appId, outputChunks);
+                return;
+            }
+            // 每个片段约为一个 token，剩余额度即为最多节省的输出 token 数
+            long savedTokens = Math.max(0, maxTokens - outputChunks);
+            String type = codeGenType.getValue();
+            Counter.builder("generation_cancelled_total")
+                    .description("关闭底层模型调用的取消次数")
+                    .tag("code_gen_type", type)
+                    .register(meterRegistry)
+                    .increment();
+            DistributionSummary.builder("generation_cancel_saved_output_tokens")
+                    .description("取消生成节省的输出 token 数（按 max-tokens 估算的上限）")
+                    .baseUnit("tokens")
+                    .tag("code_gen_type", type)
+                    .register(meterRegistry)
+                    .record(savedTokens);
+            Timer.builder("generation_cancel_release_seconds")
+                    .description("从请求取消到关闭底层模型调用的耗时")
+                    .tag("code_gen_type", type)
+                    .register(meterRegistry)
+                    .record(releaseNanos, TimeUnit.NANOSECONDS);
+            log.info("已关闭模型流式调用: appId={}, 已输出片段={}, 预计节省输出 token={}, 释放耗时={}ms",
+                    appId, outputChunks, savedTokens, TimeUnit.NANOSECONDS.toMillis(releaseNanos));
         });
     }
 
@@ -204,25 +415,88 @@ public class AiCodeGeneratorFacade {
      * @param codeStream  代码流
      * @param codeGenType 代码生成类型
      * @param appId       应用 ID
-     * @return 流式响应
-     */
-    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-        StringBuilder codeBuilder = new StringBuilder();
-        return codeStream.doOnNext(chunk -> {
-            // 实时收集代码片段
-            codeBuilder.append(chunk);
-        }).doOnComplete(() -> {
-            // 流式返回完成后保存代码
-            try {
-                String completeCode = codeBuilder.toString();
-                // 使用执行器解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-                // 使用执行器保存代码
-                File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
+     * @return 流式响应（每个片段包装为 AiResponseMessage）
+     */
+    private Flux<StreamMessage> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
+        // 边接收边解析，代码块闭合后立即写入文件
+        return Flux.deferContextual(contextView -> {
+            StreamingCodeFileSaver codeFileSaver = new StreamingCodeFileSaver(codeGenType, appId);
+            GenerationTrace trace = generationTracer.current(contextView);
+            return codeStream.doOnNext(codeFileSaver::append).doOnComplete(() -> {
+                // 收尾：解析未闭合的代码块并写入剩余文件
+                File savedDir = generationTracer.observe(trace, "code_save", codeFileSaver::complete);
                 log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
-            } catch (Exception e) {
-                log.error("保存失败: {}", e.getMessage());
-            }
+            }).map(AiResponseMessage::new);
+        });
+    }
+
+    /**
+     * 读取可按补丁修改的当前代码
+     *
+     * @return 文件名 -> 内容；未开启补丁模式、尚未生成过代码或代码过长时返回 null
+     */
+    private Map<String, String> readPatchableFiles(CodeGenTypeEnum codeGenType, Long appId) {
+        if (!patchEnabled || (codeGenType != CodeGenTypeEnum.HTML && codeGenType != CodeGenTypeEnum.MULTI_FILE)) {
+            return null;
+        }
+        Map<String, String> currentFiles = StreamingPatchApplier.readCurrentFiles(codeGenType, appId);
+        if (!currentFiles.containsKey(CodeFileSaverExecutor.resolveFileName("html", codeGenType))) {
+            return null;
+        }
+        int sourceChars = currentFiles.values().stream().mapToInt(String::length).sum();
+        if (sourceChars > patchMaxSourceChars) {
+            log.info("当前代码过长，完整重新生成: appId={}, 字符数={}", appId, sourceChars);
+            return null;
+        }
+        return currentFiles;
+    }
+
+    /**
+     * 补丁模式流式处理：边接收边校验修改块，任一块无法应用时停止输出并关闭模型调用，
+     * 结束后一次写入修改过的文件；无法应用时不修改文件，转为完整重新生成
+     *
+     * @param aiCodeGeneratorService AI 服务
+     * @param currentFiles           当前代码
+     * @param contents               用户消息（多模态）
+     * @param codeGenType            代码生成类型
+     * @param appId                  应用 ID
+     * @return 流式响应（每个片段包装为 AiResponseMessage）
+     */
+    private Flux<StreamMessage> processPatchStream(AiCodeGeneratorService aiCodeGeneratorService,
+                                                   Map<String, String> currentFiles, List<Content> contents,
+                                                   CodeGenTypeEnum codeGenType, Long appId) {
+        return Flux.deferContextual(contextView -> {
+            StreamingPatchApplier patchApplier = new StreamingPatchApplier(codeGenType, appId, currentFiles);
+            GenerationTrace trace = generationTracer.current(contextView);
+            TokenStream tokenStream = aiCodeGeneratorService.generateCodePatchStream(
+                    StreamingPatchApplier.formatFiles(currentFiles), contents);
+            // 补丁无法应用时由 takeUntil 停止调用，不属于用户取消
+            Flux<StreamMessage> patchStream = toCodeStream(tokenStream, codeGenType, appId, patchApplier::isFailed)
+                    .doOnNext(patchApplier::append)
+                    .takeUntil(chunk -> patchApplier.isFailed())
+                    .map(AiResponseMessage::new);
+            return patchStream.concatWith(Flux.defer(() -> {
+                boolean applied = generationTracer.observe(trace, "patch_apply", patchApplier::complete);
+                Counter.builder("generation_patch_total")
+                        .description("补丁模式生成次数（applied 已应用，fallback 转为完整重新生成）")
+                        .tag("code_gen_type", codeGenType.getValue())
+                        .tag("result", applied ? "applied" : "fallback")
+                        .register(meterRegistry)
+                        .increment();
+                if (applied) {
+                    return Flux.empty();
+                }
+                log.info("补丁无法应用，完整重新生成: appId={}, 原因={}", appId, patchApplier.getFailureReason());
+                // 完整生成的提示词不含当前代码，放在用户消息开头，让模型在现有代码基础上修改
+                List<Content> fullContents = new ArrayList<>();
+                fullContents.add(TextContent.from(PATCH_FALLBACK_CONTEXT + StreamingPatchApplier.formatFiles(currentFiles)));
+                fullContents.addAll(contents);
+                TokenStream fullStream = codeGenType == CodeGenTypeEnum.HTML
+                        ? aiCodeGeneratorService.generateHTMLCodeStream(fullContents)
+                        : aiCodeGeneratorService.generateMultiFileCodeStream(fullContents);
+                return Flux.<StreamMessage>just(new AiResponseMessage(PATCH_FALLBACK_NOTICE))
+                        .concatWith(processCodeStream(toCodeStream(fullStream, codeGenType, appId), codeGenType, appId));
+            }));
         });
     }
 
@@ -0,0 +1,13 @@
+package com.yu.yuaicodemother.core.admission;
+
+import java.util.function.IntConsumer;
+
+/**
+ * 准入上下文：由发起生成的一方通过 Reactor Context 传入（key 为 AdmissionContext.class）
+ *
+ * @param userId           用户 ID，公平队列按用户轮转
+ * @param weight           用户权重，每轮最多连续放行的请求数
+ * @param positionListener 排队位置变化回调（1 表示下一个放行，0 表示已放行）
+ */
+public record AdmissionContext(Long userId, int weight, IntConsumer positionListener) {
+}
@@ -0,0 +1,284 @@
+package com.yu.yuaicodemother.core.admission;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * 单个模型的准入通道：并发许可 + 按用户加权轮转的公平队列
+ * <p>
+ * 每个用户一个子队列，有请求排队的用户按顺序轮转，每轮最多连续放行 weight 个请求，
+ * 单个用户提交大量请求不会让其他用户一直等待。许可归还或定时调度时按轮转顺序放行。
+ * </p>
+ */
+@Slf4j
+class AdmissionLane {
+
+    private final int maxQueueSize;
+
+    private final AdmissionPermitPool permitPool;
+
+    private final Map<Long, UserQueue> users = new HashMap<>();
+
+    /**
+     * 有请求排队的用户，队首为下一个放行的用户
+     */
+    private final ArrayDeque<UserQueue> rotation = new ArrayDeque<>();
+
+    /**
+     * 已放行、尚未归还许可的请求
+     */
+    private final Set<Ticket> inFlight = ConcurrentHashMap.newKeySet();
+
+    private int queued;
+
+    AdmissionLane(int maxQueueSize, AdmissionPermitPool permitPool) {
+        this.maxQueueSize = maxQueueSize;
+        this.permitPool = permitPool;
+    }
+
+    /**
+     * 排队等待许可
+     *
+     * @return 排队凭证，队列已满时返回 null
+     */
+    Ticket enqueue(Long userId, int weight, IntConsumer positionListener) {
+        Ticket ticket = new Ticket(userId, positionListener);
+        synchronized (this) {
+            if (queued >= maxQueueSize) {
+                return null;
+            }
+            UserQueue userQueue = users.computeIfAbsent(userId, UserQueue::new);
+            userQueue.weight = Math.max(1, weight);
+            if (userQueue.tickets.isEmpty()) {
+                userQueue.credits = userQueue.weight;
+                rotation.addLast(userQueue);
+            }
+            userQueue.tickets.addLast(ticket);
+            queued++;
+        }
+        dispatch();
+        return ticket;
+    }
+
+    /**
+     * 归还许可或取消排队（可重复调用）
+     */
+    void release(Ticket ticket) {
+        String permitId = null;
+        synchronized (this) {
+            switch (ticket.state) {
+                case WAITING -> {
+                    UserQueue userQueue = users.get(ticket.userId);
+                    userQueue.tickets.remove(ticket);
+                    if (userQueue.tickets.isEmpty()) {
+                        users.remove(ticket.userId);
+                        rotation.remove(userQueue);
+                    }
+                    queued--;
+                }
+                case GRANTED -> {
+                    inFlight.remove(ticket);
+                    permitId = ticket.permitId;
+                }
+                default -> {
+                    return;
+                }
+            }
+            ticket.state = TicketState.RELEASED;
+        }
+        if (permitId != null) {
+            permitPool.release(permitId);
+        }
+        dispatch();
+    }
+
+    /**
+     * 按轮转顺序放行排队的请求，直到没有空闲许可，并通知排队位置变化
+     * <p>
+     * 许可在锁外获取（Redis 模式下是一次网络往返，不能阻塞入队和取消），拿到后再在锁内交给队首的请求；
+     * 期间排队的请求已被取消或被其他线程放行时归还多拿的许可。
+     * </p>
+     */
+    void dispatch() {
+        List<Ticket> granted = new ArrayList<>();
+        List<Ticket> moved = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        while (getQueued() > 0) {
+            String permitId = permitPool.tryAcquire();
+            if (permitId == null) {
+                break;
+            }
+            Ticket ticket = null;
+            synchronized (this) {
+                if (queued > 0) {
+                    ticket = pollNext();
+                    queued--;
+                    ticket.permitId = permitId;
+                    ticket.state = TicketState.GRANTED;
+                    ticket.position = 0;
+                    inFlight.add(ticket);
+                }
+            }
+            if (ticket == null) {
+                permitPool.release(permitId);
+                break;
+            }
+            granted.add(ticket);
+        }
+        synchronized (this) {
+            int position = 0;
+            for (Ticket ticket : dispatchOrder()) {
+                position++;
+                if (ticket.position != position) {
+                    ticket.position = position;
+                    moved.add(ticket);
+                    positions.add(position);
+                }
+            }
+        }
+        for (int i = 0; i < moved.size(); i++) {
+            notifyPosition(moved.get(i), positions.get(i));
+        }
+        for (Ticket ticket : granted) {
+            notifyPosition(ticket, 0);
+            ticket.future.complete(ticket);
+        }
+    }
+
+    /**
+     * 为已放行请求的许可续期
+     */
+    void renew() {
+        for (Ticket ticket : inFlight) {
+            permitPool.renew(ticket.permitId);
+        }
+    }
+
+    synchronized int getQueued() {
+        return queued;
+    }
+
+    int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * 取出下一个放行的请求：当前用户的额度用完或队列为空时轮到下一个用户
+     */
+    private Ticket pollNext() {
+        UserQueue userQueue = rotation.peekFirst();
+        Ticket ticket = userQueue.tickets.pollFirst();
+        userQueue.credits--;
+        if (userQueue.tickets.isEmpty()) {
+            rotation.pollFirst();
+            users.remove(userQueue.userId);
+        } else if (userQueue.credits <= 0) {
+            userQueue.credits = userQueue.weight;
+            rotation.addLast(rotation.pollFirst());
+        }
+        return ticket;
+    }
+
+    /**
+     * 按 pollNext 的规则模拟出所有排队请求的放行顺序，用于计算排队位置
+     */
+    private List<Ticket> dispatchOrder() {
+        List<Ticket> order = new ArrayList<>(queued);
+        ArrayDeque<Cursor> cursors = new ArrayDeque<>(rotation.size());
+        for (UserQueue userQueue : rotation) {
+            cursors.addLast(new Cursor(userQueue.tickets.iterator(), userQueue.credits, userQueue.weight));
+        }
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.peekFirst();
+            order.add(cursor.tickets.next());
+            cursor.credits--;
+            if (!cursor.tickets.hasNext()) {
+                cursors.pollFirst();
+            } else if (cursor.credits <= 0) {
+                cursor.credits = cursor.weight;
+                cursors.addLast(cursors.pollFirst());
+            }
+        }
+        return order;
+    }
+
+    private void notifyPosition(Ticket ticket, int position) {
+        if (ticket.positionListener == null) {
+            return;
+        }
+        try {
+            ticket.positionListener.accept(position);
+        } catch (Exception e) {
+            log.warn("排队位置通知失败: userId={}, 错误信息: {}", ticket.userId, e.getMessage());
+        }
+    }
+
+    enum TicketState {
+        WAITING, GRANTED, RELEASED
+    }
+
+    /**
+     * 排队凭证，放行后持有许可直到 release
+     */
+    static final class Ticket {
+
+        private final Long userId;
+
+        private final IntConsumer positionListener;
+
+        final CompletableFuture<Ticket> future = new CompletableFuture<>();
+
+        final long enqueueNanos = System.nanoTime();
+
+        private TicketState state = TicketState.WAITING;
+
+        private String permitId;
+
+        private int position = -1;
+
+        private Ticket(Long userId, IntConsumer positionListener) {
+            this.userId = userId;
+            this.positionListener = positionListener;
+        }
+    }
+
+    private static final class UserQueue {
+
+        private final Long userId;
+
+        private final ArrayDeque<Ticket> tickets = new ArrayDeque<>();
+
+        private int weight = 1;
+
+        private int credits;
+
+        private UserQueue(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Cursor {
+
+        private final Iterator<Ticket> tickets;
+
+        private final int weight;
+
+        private int credits;
+
+        private Cursor(Iterator<Ticket> tickets, int credits, int weight) {
+            this.tickets = tickets;
+            this.credits = credits;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.yu.yuaicodemother.core.admission;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RPermitExpirableSemaphore;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模型并发许可池
+ */
+interface AdmissionPermitPool {
+
+    /**
+     * 尝试获取许可，不等待
+     *
+     * @return 许可 ID，没有空闲许可时返回 null
+     */
+    String tryAcquire();
+
+    void release(String permitId);
+
+    /**
+     * 续期（仅带租期的许可需要）
+     */
+    void renew(String permitId);
+
+    /**
+     * 本节点内的许可池
+     */
+    final class Local implements AdmissionPermitPool {
+
+        private static final String PERMIT_ID = "local";
+
+        private final int maxConcurrency;
+
+        private final AtomicInteger acquired = new AtomicInteger();
+
+        Local(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public String tryAcquire() {
+            int current;
+            do {
+                current = acquired.get();
+                if (current >= maxConcurrency) {
+                    return null;
+                }
+            } while (!acquired.compareAndSet(current, current + 1));
+            return PERMIT_ID;
+        }
+
+        @Override
+        public void release(String permitId) {
+            acquired.decrementAndGet();
+        }
+
+        @Override
+        public void renew(String permitId) {
+        }
+    }
+
+    /**
+     * 集群共享的许可池：许可带租期，持有节点宕机后到期自动归还
+     */
+    @Slf4j
+    final class Redis implements AdmissionPermitPool {
+
+        private final RPermitExpirableSemaphore semaphore;
+
+        private final long leaseSeconds;
+
+        Redis(RPermitExpirableSemaphore semaphore, int maxConcurrency, long leaseSeconds) {
+            this.semaphore = semaphore;
+            this.leaseSeconds = leaseSeconds;
+            semaphore.setPermits(maxConcurrency);
+        }
+
+        @Override
+        public String tryAcquire() {
+            try {
+                return semaphore.tryAcquire(0, leaseSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (Exception e) {
+                // Redis 不可用时继续排队，等待下次调度重试
+                log.warn("获取模型并发许可失败: {}", e.getMessage());
+                return null;
+            }
+        }
+
+        @Override
+        public void release(String permitId) {
+            try {
+                semaphore.tryRelease(permitId);
+            } catch (Exception e) {
+                log.warn("归还模型并发许可失败，等待租期到期: permitId={}, 错误信息: {}", permitId, e.getMessage());
+            }
+        }
+
+        @Override
+        public void renew(String permitId) {
+            try {
+                semaphore.updateLeaseTime(permitId, leaseSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("模型并发许可续期失败: permitId={}, 错误信息: {}", permitId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.yu.yuaicodemother.core.admission;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import com.yu.yuaicodemother.model.entity.User;
+import com.yu.yuaicodemother.model.enums.LlmModelTypeEnum;
+import com.yu.yuaicodemother.model.enums.UserRoleEnum;
+import com.yu.yuaicodemother.monitor.MonitorContext;
+import com.yu.yuaicodemother.monitor.MonitorContextHolder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 大模型调用准入控制
+ * <p>
+ * 接口限流只限制请求频率，长时间运行的生成仍可能同时压到模型服务商触发 429。
+ * 这里按模型（推理、流式、路由）分别限制同时进行的调用数，超出的调用进入按用户加权轮转的公平队列：
+ * 1. 同一用户的请求按提交顺序放行，不同用户之间轮转，管理员每轮可连续放行 admin-weight 个请求；
+ * 2. 排队位置变化通过 {@link AdmissionContext#positionListener()} 通知调用方（生成任务推送到 SSE）；
+ * 3. 开启 redis 后并发预算在集群内共享，许可带租期，节点宕机后自动归还；
+ * 4. 排队超过 max-queue-size 或等待超过 max-wait-seconds 时返回请求过于频繁。
+ * </p>
+ */
+@Slf4j
+@Component
+public class LlmAdmissionController {
+
+    private static final String PERMITS_KEY_PREFIX = "llm:admission:";
+
+    /**
+     * 定时调度间隔（毫秒），集群模式下其他节点归还的许可靠定时调度发现
+     */
+    private static final long DISPATCH_INTERVAL_MILLIS = 200;
+
+    @Value("${llm.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${llm.admission.reasoning.max-concurrency:16}")
+    private int reasoningMaxConcurrency;
+
+    @Value("${llm.admission.streaming.max-concurrency:32}")
+    private int streamingMaxConcurrency;
+
+    @Value("${llm.admission.routing.max-concurrency:32}")
+    private int routingMaxConcurrency;
+
+    /**
+     * 每个模型最多排队的调用数
+     */
+    @Value("${llm.admission.max-queue-size:1000}")
+    private int maxQueueSize;
+
+    /**
+     * 最长排队时间（秒）
+     */
+    @Value("${llm.admission.max-wait-seconds:300}")
+    private long maxWaitSeconds;
+
+    /**
+     * 管理员的轮转权重（普通用户为 1）
+     */
+    @Value("${llm.admission.admin-weight:2}")
+    private int adminWeight;
+
+    /**
+     * 是否在集群内共享并发预算
+     */
+    @Value("${llm.admission.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    /**
+     * 集群许可租期（秒），调用进行期间每 1/3 租期续期一次
+     */
+    @Value("${llm.admission.redis.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<LlmModelTypeEnum, AdmissionLane> lanes = new EnumMap<>(LlmModelTypeEnum.class);
+
+    private Disposable dispatcher;
+
+    private Disposable renewer;
+
+    @PostConstruct
+    public void init() {
+        for (LlmModelTypeEnum model : LlmModelTypeEnum.values()) {
+            int maxConcurrency = maxConcurrency(model);
+            AdmissionPermitPool permitPool = redisEnabled
+                    ? new AdmissionPermitPool.Redis(redissonClient.getPermitExpirableSemaphore(PERMITS_KEY_PREFIX + model.getValue()),
+                    maxConcurrency, leaseSeconds)
+                    : new AdmissionPermitPool.Local(maxConcurrency);
+            AdmissionLane lane = new AdmissionLane(maxQueueSize, permitPool);
+            lanes.put(model, lane);
+            Gauge.builder("llm_admission_in_flight", lane, AdmissionLane::getInFlight)
+                    .description("本节点已放行、进行中的模型调用数")
+                    .tag("model", model.getValue())
+                    .register(meterRegistry);
+            Gauge.builder("llm_admission_queued", lane, AdmissionLane::getQueued)
+                    .description("本节点排队等待的模型调用数")
+                    .tag("model", model.getValue())
+                    .register(meterRegistry);
+        }
+        if (redisEnabled) {
+            dispatcher = Schedulers.parallel().schedulePeriodically(this::dispatchAll,
+                    DISPATCH_INTERVAL_MILLIS, DISPATCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            long renewInterval = Math.max(1, leaseSeconds / 3);
+            renewer = Schedulers.parallel().schedulePeriodically(() -> lanes.values().forEach(AdmissionLane::renew),
+                    renewInterval, renewInterval, TimeUnit.SECONDS);
+        }
+        log.info("模型准入控制已启动: enabled={}, redis={}, reasoning={}, streaming={}, routing={}",
+                enabled, redisEnabled, reasoningMaxConcurrency, streamingMaxConcurrency, routingMaxConcurrency);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (dispatcher != null) {
+            dispatcher.dispose();
+        }
+        if (renewer != null) {
+            renewer.dispose();
+        }
+    }
+
+    /**
+     * 用户的轮转权重
+     */
+    public int weightOf(User user) {
+        return UserRoleEnum.ADMIN.getValue().equals(user.getUserRole()) ? adminWeight : 1;
+    }
+
+    /**
+     * 包装流式模型调用：订阅时排队，获得许可后才订阅 call，结束或取消时归还许可
+     * <p>
+     * 用户与排队位置回调从 Reactor Context 的 {@link AdmissionContext} 读取，
+     * 没有时使用调用线程上的监控上下文中的用户。
+     * </p>
+     *
+     * @param model 模型类型
+     * @param call  模型调用（必须是惰性的，订阅时才发起请求）
+     * @return 准入控制后的调用
+     */
+    public <T> Flux<T> admit(LlmModelTypeEnum model, Flux<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        Long fallbackUserId = currentUserId();
+        return Flux.deferContextual(contextView -> {
+            AdmissionContext context = contextView.getOrDefault(AdmissionContext.class,
+                    new AdmissionContext(fallbackUserId, 1, null));
+            AdmissionLane lane = lanes.get(model);
+            return Flux.usingWhen(
+                    acquire(model, lane, context),
+                    ticket -> call,
+                    ticket -> Mono.fromRunnable(() -> lane.release(ticket)));
+        });
+    }
+
+    /**
+     * 包装阻塞的模型调用（路由等非流式调用）
+     *
+     * @param model  模型类型
+     * @param user   当前用户
+     * @param call   模型调用
+     * @return 调用结果
+     */
+    public <T> T call(LlmModelTypeEnum model, User user, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        AdmissionLane lane = lanes.get(model);
+        AdmissionLane.Ticket ticket = enqueue(model, lane, user.getId(), weightOf(user), null);
+        try {
+            ticket.future.get(maxWaitSeconds, TimeUnit.SECONDS);
+            recordWait(model, ticket);
+            return call.get();
+        } catch (TimeoutException e) {
+            throw timeout(model);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "请求已中断");
+        } catch (ExecutionException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "模型调用排队失败");
+        } finally {
+            lane.release(ticket);
+        }
+    }
+
+    private Mono<AdmissionLane.Ticket> acquire(LlmModelTypeEnum model, AdmissionLane lane, AdmissionContext context) {
+        return Mono.defer(() -> {
+            AdmissionLane.Ticket ticket = enqueue(model, lane, context.userId(), context.weight(), context.positionListener());
+            return Mono.fromFuture(ticket.future)
+                    // 排队期间取消或超时时退出队列，与放行同时发生时归还许可
+                    .doOnCancel(() -> lane.release(ticket))
+                    .doOnNext(granted -> recordWait(model, granted))
+                    .timeout(Duration.ofSeconds(maxWaitSeconds), Mono.error(() -> timeout(model)));
+        });
+    }
+
+    private AdmissionLane.Ticket enqueue(LlmModelTypeEnum model, AdmissionLane lane, Long userId, int weight,
+                                        IntConsumer positionListener) {
+        AdmissionLane.Ticket ticket = lane.enqueue(userId, weight, positionListener);
+        if (ticket == null) {
+            countRejected(model, "queue_full");
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前使用人数较多，请稍后再试");
+        }
+        return ticket;
+    }
+
+    private BusinessException timeout(LlmModelTypeEnum model) {
+        countRejected(model, "timeout");
+        return new BusinessException(ErrorCode.TOO_MANY_REQUEST, "排队等待超时，请稍后再试");
+    }
+
+    private void recordWait(LlmModelTypeEnum model, AdmissionLane.Ticket ticket) {
+        Timer.builder("llm_admission_wait_seconds")
+                .description("模型调用排队等待的时间")
+                .tag("model", model.getValue())
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - ticket.enqueueNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void countRejected(LlmModelTypeEnum model, String reason) {
+        Counter.builder("llm_admission_rejected_total")
+                .description("排队已满或等待超时被拒绝的模型调用数")
+                .tag("model", model.getValue())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void dispatchAll() {
+        for (AdmissionLane lane : lanes.values()) {
+            if (lane.getQueued() > 0) {
+                lane.dispatch();
+            }
+        }
+    }
+
+    private int maxConcurrency(LlmModelTypeEnum model) {
+        return switch (model) {
+            case REASONING -> reasoningMaxConcurrency;
+            case STREAMING -> streamingMaxConcurrency;
+            case ROUTING -> routingMaxConcurrency;
+        };
+    }
+
+    private Long currentUserId() {
+        MonitorContext monitorContext = MonitorContextHolder.getContext();
+        if (monitorContext == null || monitorContext.getUserId() == null) {
+            return 0L;
+        }
+        return Long.valueOf(monitorContext.getUserId());
+    }
+}
@@ -0,0 +1,180 @@
+package com.yu.yuaicodemother.core.builder;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个应用的 Vite 常驻构建进程
+ * <p>
+ * 进程以 watch 模式运行 vite build，源码变化后由 Rollup 增量重新构建；
+ * Java 端通过 stdin / stdout 按行收发 JSON（协议见 vue-build-daemon/daemon.mjs）。
+ * </p>
+ */
+@Slf4j
+class VueBuildDaemon implements AutoCloseable {
+
+    private final Long appId;
+
+    private final Process process;
+
+    private final Writer stdin;
+
+    private final CompletableFuture<BuildResult> ready = new CompletableFuture<>();
+
+    private final ConcurrentMap<Long, CompletableFuture<BuildResult>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /**
+     * 启动时的配置签名（package.json + vite 配置），变化后需要重启进程
+     */
+    @Getter
+    private final String configSignature;
+
+    private VueBuildDaemon(Long appId, Process process, String configSignature) {
+        this.appId = appId;
+        this.process = process;
+        this.configSignature = configSignature;
+        this.stdin = process.outputWriter(StandardCharsets.UTF_8);
+        Thread.ofVirtual().name("vue-build-daemon-" + appId).start(this::readOutput);
+    }
+
+    /**
+     * 启动常驻构建进程
+     *
+     * @param appId           应用 ID
+     * @param projectDir      项目根目录（依赖需已就绪）
+     * @param script          daemon 脚本路径
+     * @param configSignature 配置签名
+     * @return 构建进程
+     */
+    static VueBuildDaemon start(Long appId, File projectDir, Path script, String configSignature) throws IOException {
+        String node = System.getProperty("os.name").toLowerCase().contains("windows") ? "node.exe" : "node";
+        ProcessBuilder processBuilder = new ProcessBuilder(node, script.toAbsolutePath().toString())
+                .directory(projectDir)
+                .redirectErrorStream(true);
+        // Vite 与插件缓存写入项目私有目录
+        processBuilder.environment().putAll(VueProjectBuilder.cacheEnvironment(projectDir));
+        Process process = processBuilder.start();
+        log.info("Vite 常驻构建进程已启动: appId={}, pid={}", appId, process.pid());
+        return new VueBuildDaemon(appId, process, configSignature);
+    }
+
+    /**
+     * 等待首次构建完成（产物随之发布到 dist）
+     */
+    BuildResult awaitReady(Duration timeout) throws IOException, TimeoutException {
+        return await(ready, timeout);
+    }
+
+    /**
+     * 等待包含最新源码改动的构建完成，并由进程将产物发布到 dist
+     */
+    BuildResult rebuild(Duration timeout) throws IOException, TimeoutException {
+        long id = requestIds.incrementAndGet();
+        CompletableFuture<BuildResult> future = new CompletableFuture<>();
+        pending.put(id, future);
+        try {
+            synchronized (stdin) {
+                stdin.write(JSONUtil.createObj().set("cmd", "build").set("id", id) + "\n");
+                stdin.flush();
+            }
+            return await(future, timeout);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        try {
+            synchronized (stdin) {
+                stdin.write(JSONUtil.createObj().set("cmd", "close") + "\n");
+                stdin.flush();
+            }
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        log.info("Vite 常驻构建进程已关闭: appId={}", appId);
+    }
+
+    private BuildResult await(CompletableFuture<BuildResult> future, Duration timeout)
+            throws IOException, TimeoutException {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待构建结果被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void readOutput() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!JSONUtil.isTypeJSONObject(line)) {
+                    log.debug("[vite:{}] {}", appId, line);
+                    continue;
+                }
+                JSONObject message = JSONUtil.parseObj(line);
+                BuildResult result = new BuildResult(message.getBool("ok", false),
+                        message.getLong("duration", 0L), message.getStr("error"));
+                if ("ready".equals(message.getStr("event"))) {
+                    ready.complete(result);
+                } else if (message.containsKey("id")) {
+                    CompletableFuture<BuildResult> future = pending.get(message.getLong("id"));
+                    if (future != null) {
+                        future.complete(result);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.debug("读取 Vite 构建进程输出结束: appId={}, {}", appId, e.getMessage());
+        }
+        // 进程退出：唤醒所有等待方
+        IOException exited = new IOException("Vite 常驻构建进程已退出");
+        ready.completeExceptionally(exited);
+        pending.values().forEach(future -> future.completeExceptionally(exited));
+    }
+
+    /**
+     * 构建结果
+     *
+     * @param success  是否成功
+     * @param duration Vite 报告的构建耗时（毫秒）
+     * @param error    错误信息
+     */
+    record BuildResult(boolean success, long duration, String error) {
+    }
+}
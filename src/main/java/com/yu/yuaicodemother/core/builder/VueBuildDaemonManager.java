@@ -0,0 +1,210 @@
+package com.yu.yuaicodemother.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Vite 常驻构建进程管理器（可选模式，vue-build.daemon.enabled 开启）
+ * <p>
+ * 为最近活跃的应用保留一个 watch 模式的 Vite 构建进程，后续轮次只做增量构建：
+ * 1. 进程数按 LRU 限制，空闲超时自动关闭；
+ * 2. 文件工具写入 / 修改 / 删除文件时刷新进程的活跃时间，Rollup watcher 随即开始增量构建；
+ * 3. watcher 的产物写入项目私有的暂存目录，只有 {@link #build} 请求时才发布到 dist，
+ * 而 {@link #build} 只在构建调度器同一应用的串行队列内调用，后台的增量构建不会在部署复制 dist 时改写它；
+ * 4. package.json 或 vite 配置变化、进程异常时关闭进程，回退为完整的 npm run build。
+ * </p>
+ */
+@Slf4j
+@Component
+public class VueBuildDaemonManager {
+
+    /**
+     * 参与配置签名的文件（变化后增量构建结果不可信，需要重启进程）
+     */
+    private static final List<String> CONFIG_FILES = List.of(
+            "package.json", "package-lock.json", "vite.config.js", "vite.config.ts", "vite.config.mjs"
+    );
+
+    @Getter
+    @Value("${vue-build.daemon.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 最多同时保留的常驻进程数
+     */
+    @Value("${vue-build.daemon.max-workers:4}")
+    private int maxWorkers;
+
+    /**
+     * 空闲多久后关闭进程（分钟）
+     */
+    @Value("${vue-build.daemon.idle-timeout-minutes:10}")
+    private long idleTimeoutMinutes;
+
+    /**
+     * 单次构建等待超时（秒）
+     */
+    @Value("${vue-build.daemon.build-timeout-seconds:180}")
+    private long buildTimeoutSeconds;
+
+    @Resource
+    private VueProjectBuilder vueProjectBuilder;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Cache<Long, VueBuildDaemon> daemons;
+
+    private Path script;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        daemons = Caffeine.newBuilder()
+                .maximumSize(maxWorkers)
+                .expireAfterAccess(Duration.ofMinutes(idleTimeoutMinutes))
+                // 定时清理，保证空闲进程按时关闭而不是等到下次访问缓存
+                .scheduler(Scheduler.systemScheduler())
+                // 仅处理 LRU 淘汰和空闲过期，主动移除由 stop 同步关闭
+                .evictionListener((Long appId, VueBuildDaemon daemon, RemovalCause cause) -> {
+                    if (daemon != null) {
+                        log.info("关闭 Vite 常驻构建进程: appId={}, 原因: {}", appId, cause);
+                        daemon.close();
+                    }
+                })
+                .build();
+        File scriptFile = new File(System.getProperty("java.io.tmpdir"), "yu-vue-build-daemon.mjs");
+        FileUtil.writeUtf8String(ResourceUtil.readUtf8Str("vue-build-daemon/daemon.mjs"), scriptFile);
+        script = scriptFile.toPath();
+        Gauge.builder("vue_build_daemon_active_count", daemons, Cache::estimatedSize)
+                .description("Vite常驻构建进程数")
+                .register(meterRegistry);
+        log.info("Vite 常驻构建模式已开启: 最大进程数={}, 空闲超时={}分钟", maxWorkers, idleTimeoutMinutes);
+    }
+
+    /**
+     * 使用常驻进程构建项目：已有进程时等待增量构建，否则启动新进程并等待首次构建，完成后发布到 dist
+     * <p>
+     * 只能在同一应用的构建队列内调用（见 {@link VueProjectBuildScheduler}）。
+     * </p>
+     *
+     * @param appId      应用 ID
+     * @param projectDir 项目根目录
+     * @return 是否构建成功
+     */
+    public boolean build(Long appId, File projectDir) {
+        String signature = computeConfigSignature(projectDir);
+        VueBuildDaemon daemon = daemons.getIfPresent(appId);
+        if (daemon != null && (!daemon.isAlive() || !daemon.getConfigSignature().equals(signature))) {
+            log.info("项目配置变化或进程已退出，重启 Vite 常驻构建进程: appId={}", appId);
+            stop(appId);
+            daemon = null;
+        }
+        Duration timeout = Duration.ofSeconds(buildTimeoutSeconds);
+        long start = System.nanoTime();
+        String mode = daemon == null ? "cold" : "incremental";
+        try {
+            VueBuildDaemon.BuildResult result;
+            if (daemon == null) {
+                if (!vueProjectBuilder.prepareDependencies(projectDir)) {
+                    return false;
+                }
+                daemon = VueBuildDaemon.start(appId, projectDir, script, signature);
+                daemons.put(appId, daemon);
+                result = daemon.awaitReady(timeout);
+            } else {
+                result = daemon.rebuild(timeout);
+            }
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("vue_build_daemon_build_duration_seconds")
+                    .description("Vite常驻进程构建耗时")
+                    .tag("mode", mode)
+                    .tag("status", result.success() ? "success" : "failed")
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Vite 常驻进程构建结束: appId={}, mode={}, success={}, vite耗时={}ms, 总耗时={}ms",
+                    appId, mode, result.success(), result.duration(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+            if (!result.success()) {
+                log.error("Vite 构建失败: appId={}, 错误信息: {}", appId, result.error());
+                return false;
+            }
+            return new File(projectDir, "dist").isDirectory();
+        } catch (IOException | TimeoutException e) {
+            // 进程异常：关闭进程，回退为完整构建
+            log.warn("Vite 常驻构建进程异常，回退为完整构建: appId={}, 错误信息: {}", appId, e.getMessage());
+            stop(appId);
+            return vueProjectBuilder.buildProject(projectDir.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 项目文件发生变化时刷新常驻进程的活跃时间
+     *
+     * @param appId 应用 ID
+     */
+    public void touch(Long appId) {
+        if (enabled && appId != null) {
+            daemons.getIfPresent(appId);
+        }
+    }
+
+    /**
+     * 关闭指定应用的常驻进程（同步等待进程退出，避免与后续构建同时写 dist）
+     *
+     * @param appId 应用 ID
+     */
+    public void stop(Long appId) {
+        if (!enabled || appId == null) {
+            return;
+        }
+        VueBuildDaemon daemon = daemons.asMap().remove(appId);
+        if (daemon != null) {
+            daemon.close();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (daemons != null) {
+            daemons.asMap().keySet().forEach(this::stop);
+        }
+    }
+
+    private String computeConfigSignature(File projectDir) {
+        StringBuilder content = new StringBuilder();
+        for (String name : CONFIG_FILES) {
+            File file = new File(projectDir, name);
+            content.append(name).append('\0');
+            if (file.isFile()) {
+                content.append(FileUtil.readUtf8String(file));
+            }
+            content.append('\0');
+        }
+        return DigestUtil.sha256Hex(content.toString());
+    }
+}
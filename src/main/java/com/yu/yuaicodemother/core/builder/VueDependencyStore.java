@@ -0,0 +1,401 @@
+package com.yu.yuaicodemother.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.yu.yuaicodemother.constant.AppConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Vue 项目共享依赖仓库
+ * <p>
+ * 以依赖集合的哈希作为 key，在本地仓库中为每种依赖组合只安装一次 node_modules，
+ * 各项目通过符号链接复用：
+ * 1. 有 package-lock.json 时按锁文件内容计算 key，否则按 package.json 的 dependencies + devDependencies 计算；
+ * 2. 命中仓库时不执行 npm install，可完全离线构建；
+ * 3. 未命中时在临时目录中安装后原子移入仓库，再链接到项目；
+ * 4. 可预热标准 Vite + Vue 模板的依赖；
+ * 5. 条目目录的修改时间记录最近使用时间，新条目入库后异步清理：未被任何项目链接且闲置超过
+ * max-idle-days 的条目删除，条目数超过 max-entries 时按最近使用时间淘汰（被淘汰的项目下次构建时重新链接）。
+ * </p>
+ */
+@Slf4j
+@Component
+public class VueDependencyStore {
+
+    private static final String NODE_MODULES = "node_modules";
+
+    private static final String PACKAGE_JSON = "package.json";
+
+    private static final String PACKAGE_LOCK_JSON = "package-lock.json";
+
+    /**
+     * 预热模板（标准 Vite + Vue 技术栈）
+     */
+    private static final String TEMPLATE_PACKAGE_JSON = "vue-template/package.json";
+
+    @Value("${vue-build.dependency-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vue-build.dependency-store.prewarm:false}")
+    private boolean prewarm;
+
+    /**
+     * 未被项目链接的条目闲置多久后删除（天）
+     */
+    @Value("${vue-build.dependency-store.max-idle-days:7}")
+    private long maxIdleDays;
+
+    /**
+     * 最多保留的条目数
+     */
+    @Value("${vue-build.dependency-store.max-entries:50}")
+    private int maxEntries;
+
+    /**
+     * 最近使用过的条目不参与清理（可能仍有构建或常驻构建进程在使用）
+     */
+    private static final Duration MIN_RETAIN = Duration.ofHours(1);
+
+    /**
+     * 仓库根目录
+     */
+    private Path storeRoot = Path.of(AppConstant.NODE_MODULES_STORE_ROOT_DIR);
+
+    /**
+     * 项目根目录，用于统计仍被链接的条目
+     */
+    private Path projectRoot = Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR);
+
+    /**
+     * 每个依赖 key 一把锁，链接、安装与清理同一条目时互斥
+     */
+    private final ConcurrentMap<String, Object> installLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 是否有清理任务正在运行
+     */
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * 预热模板的 key，不参与清理
+     */
+    private volatile String templateKey;
+
+    /**
+     * 为项目准备 node_modules
+     *
+     * @param projectDir 项目根目录
+     * @param installer  npm install 执行器（参数为执行目录）
+     * @return 是否准备成功
+     */
+    public boolean prepareDependencies(File projectDir, Predicate<File> installer) {
+        if (!enabled) {
+            return installer.test(projectDir);
+        }
+        String key = computeDependencyKey(projectDir);
+        if (key == null) {
+            return installer.test(projectDir);
+        }
+        Path storedModules = storeRoot.resolve(key).resolve(NODE_MODULES);
+        Path projectModules = projectDir.toPath().resolve(NODE_MODULES);
+        boolean populated = false;
+        try {
+            // 与清理互斥，避免链接到正在删除的条目
+            synchronized (lockFor(key)) {
+                if (isLinkedTo(projectModules, storedModules)) {
+                    log.info("依赖未变化，复用共享依赖: key={}", key);
+                    touch(key);
+                    return true;
+                }
+                if (!Files.isDirectory(storedModules)) {
+                    if (!populate(key, projectDir, installer)) {
+                        // npm install 本身失败，在项目内重试也不会成功
+                        return false;
+                    }
+                    populated = true;
+                }
+                touch(key);
+                FileUtil.del(projectModules);
+                Files.createSymbolicLink(projectModules, storedModules.toAbsolutePath());
+                log.info("已链接共享依赖: {} -> {}", projectModules, storedModules);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // 仓库目录不可写，或 Windows 未开启开发者模式时无法创建符号链接
+            log.warn("使用共享依赖失败，回退为项目内安装: key={}, 错误信息: {}", key, e.getMessage());
+            return installer.test(projectDir);
+        }
+        if (populated) {
+            sweepAsync();
+        }
+        return true;
+    }
+
+    /**
+     * 预热标准模板的依赖，生成的项目使用默认依赖时可直接命中
+     *
+     * @param installer npm install 执行器（参数为执行目录）
+     */
+    public void prewarmTemplate(Predicate<File> installer) {
+        if (!enabled || !prewarm) {
+            return;
+        }
+        File templateDir = FileUtil.mkdir(storeRoot.resolve(".template").toFile());
+        FileUtil.writeUtf8String(ResourceUtil.readUtf8Str(TEMPLATE_PACKAGE_JSON), new File(templateDir, PACKAGE_JSON));
+        String key = computeDependencyKey(templateDir);
+        templateKey = key;
+        if (key == null) {
+            return;
+        }
+        try {
+            synchronized (lockFor(key)) {
+                if (!Files.isDirectory(storeRoot.resolve(key).resolve(NODE_MODULES))) {
+                    log.info("开始预热 Vue 模板依赖: key={}", key);
+                    populate(key, templateDir, installer);
+                }
+                touch(key);
+            }
+        } catch (IOException e) {
+            log.error("预热 Vue 模板依赖失败: {}", e.getMessage());
+        }
+        // 启动时清理一次上次运行遗留的闲置条目
+        sweepAsync();
+    }
+
+    /**
+     * 在后台清理仓库，同一时间只运行一个清理任务
+     */
+    private void sweepAsync() {
+        if (sweeping.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("vue-deps-sweep").start(() -> {
+                try {
+                    sweep();
+                } catch (Exception e) {
+                    log.error("清理共享依赖仓库失败: {}", e.getMessage(), e);
+                } finally {
+                    sweeping.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 清理仓库：
+     * 1. 删除异常退出遗留的临时安装目录；
+     * 2. 删除未被任何项目链接且闲置超过 max-idle-days 的条目；
+     * 3. 剩余条目数仍超过 max-entries 时，按最近使用时间从旧到新淘汰。
+     * 预热模板与最近一小时内使用过的条目不会被删除。
+     * 清理互斥执行：并发的两次清理会同时删除对方刚移出的条目（保留原修改时间，看起来已过期）。
+     */
+    synchronized void sweep() throws IOException {
+        if (!Files.isDirectory(storeRoot)) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant retainAfter = now.minus(MIN_RETAIN);
+        Instant idleBefore = now.minus(Duration.ofDays(maxIdleDays));
+        Set<String> linkedKeys = collectLinkedKeys();
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> children = Files.list(storeRoot)) {
+            for (Path child : children.toList()) {
+                String name = child.getFileName().toString();
+                if (name.startsWith(".staging-")) {
+                    if (lastUsed(child).isBefore(retainAfter)) {
+                        FileUtil.del(child);
+                    }
+                } else if (!name.startsWith(".") && !name.equals(templateKey) && Files.isDirectory(child)) {
+                    entries.add(child);
+                }
+            }
+        }
+        entries.sort(Comparator.comparing(this::lastUsed));
+        // 预热模板也计入条目数
+        int remaining = entries.size() + (templateKey != null && Files.isDirectory(storeRoot.resolve(templateKey)) ? 1 : 0);
+        int removed = 0;
+        for (Path entry : entries) {
+            String key = entry.getFileName().toString();
+            boolean idle = !linkedKeys.contains(key) && lastUsed(entry).isBefore(idleBefore);
+            if (!idle && remaining <= maxEntries) {
+                continue;
+            }
+            if (removeIfUnusedSince(key, retainAfter)) {
+                remaining--;
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("共享依赖仓库清理完成: 删除 {} 个条目, 剩余 {} 个", removed, remaining);
+        }
+    }
+
+    /**
+     * 在条目锁内删除条目（再次确认期间未被使用）
+     */
+    private boolean removeIfUnusedSince(String key, Instant retainAfter) {
+        synchronized (lockFor(key)) {
+            Path entry = storeRoot.resolve(key);
+            if (!Files.isDirectory(entry) || !lastUsed(entry).isBefore(retainAfter)) {
+                return false;
+            }
+            // 先移出仓库再删除，删除中途失败也不会留下不完整的条目
+            Path trash = storeRoot.resolve(".staging-gc-" + key + "-" + UUID.randomUUID());
+            try {
+                Files.move(entry, trash, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("删除共享依赖失败: key={}, 错误信息: {}", key, e.getMessage());
+                return false;
+            }
+            FileUtil.del(trash);
+            log.info("已删除闲置的共享依赖: key={}", key);
+            return true;
+        }
+    }
+
+    /**
+     * 统计项目 node_modules 链接指向的条目
+     */
+    private Set<String> collectLinkedKeys() throws IOException {
+        Set<String> keys = new HashSet<>();
+        if (!Files.isDirectory(projectRoot)) {
+            return keys;
+        }
+        Path store = storeRoot.toAbsolutePath().normalize();
+        try (Stream<Path> projects = Files.list(projectRoot)) {
+            for (Path project : projects.toList()) {
+                Path modules = project.resolve(NODE_MODULES);
+                if (!Files.isSymbolicLink(modules)) {
+                    continue;
+                }
+                try {
+                    Path target = Files.readSymbolicLink(modules).toAbsolutePath().normalize();
+                    if (target.startsWith(store) && target.getNameCount() > store.getNameCount()) {
+                        keys.add(target.getName(store.getNameCount()).toString());
+                    }
+                } catch (IOException e) {
+                    log.debug("读取依赖链接失败: {}, 错误信息: {}", modules, e.getMessage());
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 记录条目的最近使用时间
+     */
+    private void touch(String key) throws IOException {
+        Files.setLastModifiedTime(storeRoot.resolve(key), FileTime.from(Instant.now()));
+    }
+
+    private Instant lastUsed(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant();
+        } catch (IOException e) {
+            return Instant.EPOCH;
+        }
+    }
+
+    private Object lockFor(String key) {
+        return installLocks.computeIfAbsent(key, k -> new Object());
+    }
+
+    /**
+     * 计算依赖 key
+     *
+     * @param projectDir 项目根目录
+     * @return 依赖 key，无法解析时返回 null
+     */
+    String computeDependencyKey(File projectDir) {
+        File lockFile = new File(projectDir, PACKAGE_LOCK_JSON);
+        if (lockFile.isFile()) {
+            return "lock-" + DigestUtil.sha256Hex(lockFile);
+        }
+        File packageJson = new File(projectDir, PACKAGE_JSON);
+        if (!packageJson.isFile()) {
+            return null;
+        }
+        try {
+            JSONObject pkg = JSONUtil.parseObj(FileUtil.readUtf8String(packageJson));
+            // 排序后序列化，保证依赖声明顺序不同也得到相同的 key
+            Map<String, Object> dependencies = new TreeMap<>();
+            dependencies.put("dependencies", sortedSection(pkg, "dependencies"));
+            dependencies.put("devDependencies", sortedSection(pkg, "devDependencies"));
+            return "pkg-" + DigestUtil.sha256Hex(JSONUtil.toJsonStr(dependencies), StandardCharsets.UTF_8.name());
+        } catch (Exception e) {
+            log.error("解析 package.json 失败: {}, 错误信息: {}", packageJson.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, Object> sortedSection(JSONObject pkg, String name) {
+        JSONObject section = pkg.getJSONObject(name);
+        return section == null ? new TreeMap<>() : new TreeMap<>(section);
+    }
+
+    /**
+     * 在临时目录中安装依赖后移入仓库（调用方需持有该 key 的锁）
+     *
+     * @return npm install 是否成功
+     * @throws IOException 写入仓库失败
+     */
+    private boolean populate(String key, File projectDir, Predicate<File> installer) throws IOException {
+        Path entry = storeRoot.resolve(key);
+        if (Files.isDirectory(entry.resolve(NODE_MODULES))) {
+            return true;
+        }
+        File stagingDir = storeRoot.resolve(".staging-" + key + "-" + UUID.randomUUID()).toFile();
+        try {
+            FileUtil.mkdir(stagingDir);
+            // 只复制依赖描述文件，仓库中的安装结果与项目源码无关
+            FileUtil.copy(new File(projectDir, PACKAGE_JSON), new File(stagingDir, PACKAGE_JSON), true);
+            File lockFile = new File(projectDir, PACKAGE_LOCK_JSON);
+            if (lockFile.isFile()) {
+                FileUtil.copy(lockFile, new File(stagingDir, PACKAGE_LOCK_JSON), true);
+            }
+            if (!installer.test(stagingDir) || !new File(stagingDir, NODE_MODULES).isDirectory()) {
+                log.error("共享依赖安装失败: key={}", key);
+                return false;
+            }
+            Files.move(stagingDir.toPath(), entry, StandardCopyOption.ATOMIC_MOVE);
+            log.info("共享依赖已入库: key={}", key);
+            return true;
+        } finally {
+            FileUtil.del(stagingDir);
+        }
+    }
+
+    private boolean isLinkedTo(Path link, Path target) {
+        try {
+            return Files.isSymbolicLink(link) && Files.isDirectory(target)
+                    && Files.isSameFile(link, target);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.yu.yuaicodemother.core.builder;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import com.yu.yuaicodemother.model.enums.VueBuildPriorityEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Vue 项目构建执行器
+ * <p>
+ * 限制同时运行的 npm 构建数量，超出部分进入有界优先级队列：
+ * 1. 部署构建优先于生成后的预览构建；
+ * 2. 队列已满时，部署请求会挤掉队尾的预览任务，预览请求则直接拒绝；
+ * 3. 部署请求等待的预览任务可提升为部署优先级，不会再被挤出；
+ * 4. 关闭时尚未执行的任务以异常结束，调用方不会一直等待；
+ * 5. 通过 Micrometer 上报队列长度、运行数、排队耗时和拒绝次数。
+ * </p>
+ */
+@Slf4j
+@Component
+public class VueProjectBuildExecutor {
+
+    /**
+     * 同时执行的构建数量（每个构建会 fork npm 进程，受 CPU / 内存限制）
+     */
+    @Value("${vue-build.max-parallel:2}")
+    private int maxParallel;
+
+    /**
+     * 排队中的最大任务数
+     */
+    @Value("${vue-build.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 排队队列（元素均为 {@link BuildTask}，按优先级 + 提交顺序出队）
+     */
+    private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<VueBuildPriorityEnum, Timer> waitTimers = new EnumMap<>(VueBuildPriorityEnum.class);
+
+    private final Map<VueBuildPriorityEnum, Counter> rejectedCounters = new EnumMap<>(VueBuildPriorityEnum.class);
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(maxParallel, maxParallel, 0L, TimeUnit.MILLISECONDS, queue,
+                Thread.ofVirtual().name("vue-builder-", 0).factory());
+        Gauge.builder("vue_build_queue_size", queue, PriorityBlockingQueue::size)
+                .description("Vue构建排队任务数")
+                .register(meterRegistry);
+        Gauge.builder("vue_build_active_count", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Vue构建执行中任务数")
+                .register(meterRegistry);
+        for (VueBuildPriorityEnum priority : VueBuildPriorityEnum.values()) {
+            String tag = priority.name().toLowerCase();
+            waitTimers.put(priority, Timer.builder("vue_build_queue_wait_duration_seconds")
+                    .description("Vue构建排队等待时间")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+            rejectedCounters.put(priority, Counter.builder("vue_build_rejected_total")
+                    .description("Vue构建因队列已满被拒绝或挤出的次数")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+        }
+        log.info("Vue 构建执行器初始化完成: 并行数={}, 队列容量={}", maxParallel, queueCapacity);
+    }
+
+    /**
+     * 提交构建任务
+     *
+     * @param priority 优先级
+     * @param build    构建逻辑
+     * @return 构建结果；队列已满时以 {@link BusinessException}（TOO_MANY_REQUEST）异常结束
+     */
+    public <T> CompletableFuture<T> submit(VueBuildPriorityEnum priority, Supplier<T> build) {
+        BuildTask<T> task = new BuildTask<>(priority, sequence.incrementAndGet(), build);
+        synchronized (queue) {
+            if (queue.size() >= queueCapacity && !evictPreviewFor(priority)) {
+                rejectedCounters.get(priority).increment();
+                log.warn("Vue 构建队列已满，拒绝构建任务: priority={}, 队列长度={}", priority, queue.size());
+                task.future.completeExceptionally(
+                        new BusinessException(ErrorCode.TOO_MANY_REQUEST, "项目构建繁忙，请稍后再试"));
+                return task.future;
+            }
+            executor.execute(task);
+        }
+        return task.future;
+    }
+
+    /**
+     * 提升排队中任务的优先级（按新优先级重新入队），任务已开始执行或优先级不低于目标时不处理
+     *
+     * @param future   {@link #submit} 返回的构建结果
+     * @param priority 目标优先级
+     * @return 是否已提升
+     */
+    public boolean promote(CompletableFuture<?> future, VueBuildPriorityEnum priority) {
+        synchronized (queue) {
+            for (Runnable runnable : queue) {
+                BuildTask<?> task = (BuildTask<?>) runnable;
+                if (task.future != future) {
+                    continue;
+                }
+                // 先移出再修改优先级，保证队列按新优先级排序；移出失败说明已被工作线程取走
+                if (task.priority.getValue() <= priority.getValue() || !queue.remove(task)) {
+                    return false;
+                }
+                task.priority = priority;
+                queue.add(task);
+                log.info("Vue 构建任务优先级已提升: priority={}", priority);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 部署任务遇到队列已满时，挤掉最后入队的预览任务（预览构建可在下次生成或部署时补上）
+     *
+     * @return 是否腾出了位置
+     */
+    private boolean evictPreviewFor(VueBuildPriorityEnum priority) {
+        if (priority != VueBuildPriorityEnum.DEPLOY) {
+            return false;
+        }
+        BuildTask<?> victim = null;
+        for (Runnable runnable : queue) {
+            BuildTask<?> candidate = (BuildTask<?>) runnable;
+            if (candidate.priority == VueBuildPriorityEnum.PREVIEW
+                    && (victim == null || candidate.sequence > victim.sequence)) {
+                victim = candidate;
+            }
+        }
+        if (victim == null || !queue.remove(victim)) {
+            return false;
+        }
+        rejectedCounters.get(victim.priority).increment();
+        log.warn("Vue 构建队列已满，预览构建任务让位于部署任务");
+        victim.future.completeExceptionally(
+                new BusinessException(ErrorCode.TOO_MANY_REQUEST, "项目构建繁忙，预览构建已推迟"));
+        return true;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 未开始执行的任务直接以异常结束，避免调用方一直等待
+        for (Runnable runnable : executor.shutdownNow()) {
+            ((BuildTask<?>) runnable).future.completeExceptionally(
+                    new BusinessException(ErrorCode.SYSTEM_ERROR, "服务正在关闭，构建已取消"));
+        }
+    }
+
+    /**
+     * 可排序的构建任务：先按优先级，再按提交顺序
+     */
+    private final class BuildTask<T> implements Runnable, Comparable<BuildTask<?>> {
+
+        /**
+         * 只在移出队列后修改（见 {@link #promote}）
+         */
+        private VueBuildPriorityEnum priority;
+
+        private final long sequence;
+
+        private final Supplier<T> build;
+
+        private final long enqueueNanos = System.nanoTime();
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private BuildTask(VueBuildPriorityEnum priority, long sequence, Supplier<T> build) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.build = build;
+        }
+
+        @Override
+        public void run() {
+            waitTimers.get(priority).record(System.nanoTime() - enqueueNanos, TimeUnit.NANOSECONDS);
+            try {
+                future.complete(build.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public int compareTo(BuildTask<?> other) {
+            int result = Integer.compare(priority.getValue(), other.priority.getValue());
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.yu.yuaicodemother.core.builder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.model.enums.VueBuildPriorityEnum;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Vue 项目构建调度器
+ * <p>
+ * 以 appId + 源码指纹 作为构建任务的唯一标识：
+ * 1. 相同指纹的重复构建请求合并为同一个进行中的任务，后到的调用方等待同一个结果；
+ * 2. 同一应用指纹变化时，新任务排在旧任务之后执行，避免两个 npm 进程同时写同一个目录；
+ * 3. 指纹未变化且 dist 存在时直接复用上一次成功的构建产物（部署时不再重复构建）；
+ * 4. 部署请求合并到预览任务或排在其后时，把它等待的任务提升为部署优先级。
+ * </p>
+ */
+@Slf4j
+@Component
+public class VueProjectBuildScheduler {
+
+    /**
+     * 计算指纹时忽略的目录 / 文件（构建产物和依赖不属于源码）
+     */
+    private static final Set<String> IGNORED_NAMES = Set.of(
+            "node_modules", "dist", ".git", ".vite", ".cache", ".DS_Store"
+    );
+
+    @Resource
+    private VueProjectBuilder vueProjectBuilder;
+
+    @Resource
+    private VueProjectBuildExecutor vueProjectBuildExecutor;
+
+    @Resource
+    private VueBuildDaemonManager vueBuildDaemonManager;
+
+    /**
+     * 每个应用当前进行中（或排队中）的构建任务
+     */
+    private final ConcurrentMap<Long, BuildJob> inFlightJobs = new ConcurrentHashMap<>();
+
+    /**
+     * 每个应用最近一次构建成功时的源码指纹
+     * 缓存策略：最多 1000 个应用，1 小时未访问过期（过期后仅意味着下次部署需要重新构建）
+     */
+    private final Cache<Long, String> lastSuccessFingerprints = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    /**
+     * 提交预览构建任务（不阻塞）
+     *
+     * @param appId       应用 ID
+     * @param projectPath 项目根目录
+     * @return 构建结果，true 表示 dist 已就绪
+     */
+    public CompletableFuture<Boolean> submitBuild(Long appId, String projectPath) {
+        return submitBuild(appId, projectPath, VueBuildPriorityEnum.PREVIEW);
+    }
+
+    /**
+     * 提交构建任务（不阻塞）
+     *
+     * @param appId       应用 ID
+     * @param projectPath 项目根目录
+     * @param priority    构建优先级
+     * @return 构建结果，true 表示 dist 已就绪；构建队列已满时以 {@link BusinessException} 异常结束
+     */
+    public CompletableFuture<Boolean> submitBuild(Long appId, String projectPath, VueBuildPriorityEnum priority) {
+        File projectDir = new File(projectPath);
+        String fingerprint = computeFingerprint(projectDir);
+        if (fingerprint == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (isUpToDate(appId, projectDir, fingerprint)) {
+            log.info("源码未变化，复用已有构建产物: appId={}, fingerprint={}", appId, shortFingerprint(fingerprint));
+            return CompletableFuture.completedFuture(true);
+        }
+        BuildJob job = inFlightJobs.compute(appId, (key, existing) -> {
+            if (existing != null && existing.fingerprint.equals(fingerprint)) {
+                // 相同源码已在构建，直接合并
+                log.info("合并重复的构建请求: appId={}, fingerprint={}", appId, shortFingerprint(fingerprint));
+                return existing;
+            }
+            // 源码已变化：排在上一个任务之后，保证同一目录串行构建
+            BuildJob created = new BuildJob(fingerprint, priority, existing);
+            CompletableFuture<Void> previous = existing == null
+                    ? CompletableFuture.completedFuture(null)
+                    : existing.future.handle((result, error) -> null);
+            created.future = previous.thenCompose(ignored -> created.submit(vueProjectBuildExecutor,
+                    () -> doBuild(appId, projectDir, fingerprint)));
+            return created;
+        });
+        // 部署等待的任务（合并的任务及其之前排队的任务）提升为部署优先级，不会排在其他预览之后或被挤出队列
+        job.upgrade(vueProjectBuildExecutor, priority);
+        job.future.whenComplete((result, error) -> inFlightJobs.remove(appId, job));
+        return job.future;
+    }
+
+    /**
+     * 提交预览构建任务并等待结果
+     *
+     * @param appId       应用 ID
+     * @param projectPath 项目根目录
+     * @return 是否构建成功
+     */
+    public boolean buildAndWait(Long appId, String projectPath) {
+        return buildAndWait(appId, projectPath, VueBuildPriorityEnum.PREVIEW);
+    }
+
+    /**
+     * 提交构建任务并等待结果
+     *
+     * @param appId       应用 ID
+     * @param projectPath 项目根目录
+     * @param priority    构建优先级
+     * @return 是否构建成功
+     * @throws BusinessException 构建队列已满
+     */
+    public boolean buildAndWait(Long appId, String projectPath, VueBuildPriorityEnum priority) {
+        try {
+            return submitBuild(appId, projectPath, priority).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("等待 Vue 项目构建被中断: appId={}", appId);
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException businessException) {
+                throw businessException;
+            }
+            log.error("Vue 项目构建异常: appId={}, 错误信息: {}", appId, e.getCause().getMessage(), e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * 执行真正的构建，执行前再次检查是否已被前一个任务构建过
+     */
+    private boolean doBuild(Long appId, File projectDir, String fingerprint) {
+        if (isUpToDate(appId, projectDir, fingerprint)) {
+            return true;
+        }
+        long start = System.currentTimeMillis();
+        boolean success = vueBuildDaemonManager.isEnabled()
+                ? vueBuildDaemonManager.build(appId, projectDir)
+                : vueProjectBuilder.buildProject(projectDir.getAbsolutePath());
+        if (success) {
+            lastSuccessFingerprints.put(appId, fingerprint);
+        } else {
+            lastSuccessFingerprints.invalidate(appId);
+        }
+        log.info("Vue 项目构建结束: appId={}, success={}, 耗时={}ms", appId, success, System.currentTimeMillis() - start);
+        return success;
+    }
+
+    private boolean isUpToDate(Long appId, File projectDir, String fingerprint) {
+        return fingerprint.equals(lastSuccessFingerprints.getIfPresent(appId))
+                && new File(projectDir, "dist").isDirectory();
+    }
+
+    /**
+     * 计算源码树指纹（相对路径 + 文件内容的 SHA-256），忽略依赖和构建产物
+     *
+     * @param projectDir 项目根目录
+     * @return 指纹，目录不存在时返回 null
+     */
+    String computeFingerprint(File projectDir) {
+        if (!projectDir.isDirectory()) {
+            log.error("项目目录不存在: {}", projectDir.getAbsolutePath());
+            return null;
+        }
+        Path root = projectDir.toPath();
+        try {
+            // 跳过 node_modules 等目录整棵子树，避免遍历成千上万个依赖文件
+            List<Path> files = new ArrayList<>();
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return !dir.equals(root) && IGNORED_NAMES.contains(dir.getFileName().toString())
+                            ? FileVisitResult.SKIP_SUBTREE
+                            : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !IGNORED_NAMES.contains(file.getFileName().toString())) {
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            Collections.sort(files);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            for (Path file : files) {
+                digest.update(root.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                try (InputStream in = Files.newInputStream(file)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("计算源码指纹失败: {}, 错误信息: {}", projectDir.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    private String shortFingerprint(String fingerprint) {
+        return fingerprint.substring(0, 12);
+    }
+
+    /**
+     * 构建任务：源码指纹 + 构建结果，优先级可被后到的部署请求提升
+     */
+    private static final class BuildJob {
+
+        private final String fingerprint;
+
+        /**
+         * 排在本任务之前的同应用任务，已结束或不存在时为 null
+         */
+        private final BuildJob previous;
+
+        private VueBuildPriorityEnum priority;
+
+        /**
+         * 已提交到执行器的任务结果，前一个任务结束前为 null
+         */
+        private CompletableFuture<Boolean> task;
+
+        private CompletableFuture<Boolean> future;
+
+        private BuildJob(String fingerprint, VueBuildPriorityEnum priority, BuildJob previous) {
+            this.fingerprint = fingerprint;
+            this.priority = priority;
+            this.previous = previous;
+        }
+
+        /**
+         * 按当前优先级提交到执行器
+         */
+        private synchronized CompletableFuture<Boolean> submit(VueProjectBuildExecutor executor,
+                                                               Supplier<Boolean> build) {
+            task = executor.submit(priority, build);
+            return task;
+        }
+
+        /**
+         * 将本任务及之前未结束的任务提升到指定优先级：未提交的在提交时使用新优先级，排队中的重新入队
+         */
+        private void upgrade(VueProjectBuildExecutor executor, VueBuildPriorityEnum target) {
+            for (BuildJob job = this; job != null && !job.future.isDone(); job = job.previous) {
+                synchronized (job) {
+                    if (target.getValue() >= job.priority.getValue()) {
+                        continue;
+                    }
+                    job.priority = target;
+                    if (job.task != null) {
+                        executor.promote(job.task, target);
+                    }
+                }
+            }
+        }
+    }
+}
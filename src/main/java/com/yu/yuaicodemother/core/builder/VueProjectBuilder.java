@@ -1,33 +1,82 @@
 package com.yu.yuaicodemother.core.builder;
 
 
-import cn.hutool.core.util.RuntimeUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 @Slf4j
 @Component
 public class VueProjectBuilder {
 
+    /**
+     * 项目私有的工具缓存目录（node_modules 链接到共享依赖仓库，缓存不能写入 node_modules/.vite 或 node_modules/.cache）
+     */
+    static final String CACHE_DIR = ".cache";
+
+    /**
+     * 与 npm run build 等价、但可指定 Vite 缓存目录的构建脚本
+     */
+    private static final String VITE_BUILD_SCRIPT = "vue-build-daemon/build.mjs";
+
+    private volatile File viteBuildScript;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private VueDependencyStore vueDependencyStore;
+
+    /**
+     * 构建工具的缓存环境变量，指向项目私有的缓存目录
+     * <p>
+     * VUE_BUILD_CACHE_DIR 由构建脚本传给 Vite 的 cacheDir；
+     * CACHE_DIR 被 find-cache-dir 识别，babel、eslint、terser 等插件的缓存随之写入项目目录。
+     * </p>
+     *
+     * @param projectDir 项目根目录
+     * @return 环境变量
+     */
+    static Map<String, String> cacheEnvironment(File projectDir) {
+        File cacheDir = new File(projectDir, CACHE_DIR);
+        return Map.of(
+                "VUE_BUILD_CACHE_DIR", new File(cacheDir, "vite").getAbsolutePath(),
+                "CACHE_DIR", cacheDir.getAbsolutePath()
+        );
+    }
+
     /**
      * 执行命令
      *
      * @param workingDir     工作目录
-     * @param command        命令字符串
+     * @param command        命令及参数
+     * @param environment    追加的环境变量
      * @param timeoutSeconds 超时时间（秒）
      * @return 是否执行成功
      */
-    private boolean executeCommand(File workingDir, String command, int timeoutSeconds) {
+    private boolean executeCommand(File workingDir, List<String> command, Map<String, String> environment,
+                                   int timeoutSeconds) {
         try {
-            log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), command);
-            Process process = RuntimeUtil.exec(
-                    null,
-                    workingDir,
-                    command.split("\\s+") // 命令分割为数组
-            );
+            log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), String.join(" ", command));
+            ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .directory(workingDir)
+                    .redirectErrorStream(true);
+            processBuilder.environment().putAll(environment);
+            Process process = processBuilder.start();
             // 等待进程完成，设置超时
             boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
             if (!finished) {
@@ -55,17 +104,65 @@ public class VueProjectBuilder {
      */
     private boolean executeNpmInstall(File projectDir) {
         log.info("执行 npm install...");
-        String command = String.format("%s install", buildCommand("npm"));
-        return executeCommand(projectDir, command, 300); // 5分钟超时
+        List<String> command = List.of(buildCommand("npm"), "install", "--prefer-offline", "--no-audit", "--no-fund");
+        return timed("vue_build_npm_install_duration_seconds", "npm install 耗时",
+                () -> executeCommand(projectDir, command, Map.of(), 300)); // 5分钟超时
     }
 
     /**
      * 执行 npm run build 命令
+     * <p>
+     * build 脚本就是 vite build 时改用构建脚本直接调用 Vite，以便把 Vite 缓存目录指向项目私有目录；
+     * 其他脚本仍执行 npm run build，只通过环境变量重定向其余工具的缓存。
+     * </p>
      */
     private boolean executeNpmBuild(File projectDir) {
+        List<String> command = isPlainViteBuild(projectDir)
+                ? List.of(isWindows() ? "node.exe" : "node", getViteBuildScript().getAbsolutePath())
+                : List.of(buildCommand("npm"), "run", "build");
         log.info("执行 npm run build...");
-        String command = String.format("%s run build", buildCommand("npm"));
-        return executeCommand(projectDir, command, 180); // 3分钟超时
+        return timed("vue_build_npm_build_duration_seconds", "npm run build 耗时",
+                () -> executeCommand(projectDir, command, cacheEnvironment(projectDir), 180)); // 3分钟超时
+    }
+
+    /**
+     * package.json 的 build 脚本是否就是 vite build
+     */
+    private boolean isPlainViteBuild(File projectDir) {
+        try {
+            JSONObject scripts = JSONUtil.parseObj(FileUtil.readUtf8String(new File(projectDir, "package.json")))
+                    .getJSONObject("scripts");
+            return scripts != null && "vite build".equals(scripts.getStr("build", "").trim());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private File getViteBuildScript() {
+        if (viteBuildScript == null) {
+            synchronized (this) {
+                if (viteBuildScript == null) {
+                    File script = new File(System.getProperty("java.io.tmpdir"), "yu-vue-build.mjs");
+                    FileUtil.writeUtf8String(ResourceUtil.readUtf8Str(VITE_BUILD_SCRIPT), script);
+                    viteBuildScript = script;
+                }
+            }
+        }
+        return viteBuildScript;
+    }
+
+    /**
+     * 执行命令并按结果记录耗时
+     */
+    private boolean timed(String metricName, String description, BooleanSupplier command) {
+        long start = System.nanoTime();
+        boolean success = command.getAsBoolean();
+        Timer.builder(metricName)
+                .description(description)
+                .tag("status", success ? "success" : "failed")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return success;
     }
 
 
@@ -80,6 +177,16 @@ public class VueProjectBuilder {
         return baseCommand;
     }
 
+    /**
+     * 准备项目依赖（优先复用共享依赖仓库）
+     *
+     * @param projectDir 项目根目录
+     * @return 是否准备成功
+     */
+    public boolean prepareDependencies(File projectDir) {
+        return vueDependencyStore.prepareDependencies(projectDir, this::executeNpmInstall);
+    }
+
     /**
      * 构建 Vue 项目
      *
@@ -99,8 +206,8 @@ public class VueProjectBuilder {
             return false;
         }
         log.info("开始构建 Vue 项目: {}", projectPath);
-        // 执行 npm install
-        if (!executeNpmInstall(projectDir)) {
+        // 准备依赖（优先复用共享依赖仓库，未命中时才执行 npm install）
+        if (!prepareDependencies(projectDir)) {
             log.error("npm install 执行失败");
             return false;
         }
@@ -121,26 +228,11 @@ public class VueProjectBuilder {
 
 
     /**
-     * 异步构建项目（不阻塞主流程）
-     *
-     * @param projectPath 项目路径
+     * 应用启动后预热标准模板依赖
      */
-    public void buildProjectAsync(String projectPath) {
-        // 在单独的线程中执行构建，避免阻塞主流程
-        Thread.ofVirtual().name("vue-builder-" + System.currentTimeMillis()).start(() -> {
-            try {
-                buildProject(projectPath);
-            } catch (Exception e) {
-                log.error("异步构建 Vue 项目时发生异常: {}", e.getMessage(), e);
-            }
-        });
-
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmDependencies() {
+        Thread.ofVirtual().name("vue-deps-prewarm").start(
+                () -> vueDependencyStore.prewarmTemplate(this::executeNpmInstall));
     }
-
-
-
-
-
-
-
 }
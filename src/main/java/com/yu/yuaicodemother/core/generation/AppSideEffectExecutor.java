@@ -0,0 +1,225 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.monitor.GenerationTrace;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.monitor.MonitorContextHolder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 应用级副作用执行器
+ * <p>
+ * 生成流结束时的阻塞操作（写对话历史、创建版本、构建项目、更新生成状态）不再在模型回调线程
+ * 或 Reactor 信号线程上同步执行，而是提交到这里异步执行，生成流可以立即结束：
+ * 1. 同一应用的副作用按提交顺序串行执行（例如先写对话历史、再创建版本、最后更新状态）；
+ * 2. 不同应用之间并行执行，总并发受 max-concurrency 限制，运行在虚拟线程上；
+ * 3. 排队数超过 max-pending 时退化为在调用线程上同步执行，避免无限堆积。
+ * 副作用计入应用当前生成的阶段耗时（阶段名即副作用名称），执行时恢复该生成的监控上下文。
+ * </p>
+ */
+@Slf4j
+@Component
+public class AppSideEffectExecutor {
+
+    /**
+     * 关闭时等待排队任务执行完毕的最长时间（秒）
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    @Value("${side-effect.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 同时执行的最大副作用数
+     */
+    @Value("${side-effect.max-concurrency:32}")
+    private int maxConcurrency;
+
+    /**
+     * 最大排队数
+     */
+    @Value("${side-effect.max-pending:10000}")
+    private int maxPending;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private GenerationTracer generationTracer;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("app-side-effect-", 0).factory());
+
+    /**
+     * 每个应用的待执行队列，队列存在即表示该应用有线程正在执行
+     */
+    private final Map<Long, ArrayDeque<SideEffect>> lanes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private Semaphore permits;
+
+    private Timer lagTimer;
+
+    private Counter failedCounter;
+
+    private Counter inlineCounter;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrency);
+        lagTimer = Timer.builder("app_side_effect_lag_seconds")
+                .description("副作用从提交到开始执行的延迟")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        failedCounter = Counter.builder("app_side_effect_failed_total")
+                .description("执行失败的副作用数")
+                .register(meterRegistry);
+        inlineCounter = Counter.builder("app_side_effect_inline_total")
+                .description("因排队已满在调用线程同步执行的副作用数")
+                .register(meterRegistry);
+        Gauge.builder("app_side_effect_pending_count", pending, AtomicInteger::get)
+                .description("排队中的副作用数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("副作用执行器关闭超时，仍有 {} 个副作用未执行", pending.get());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交副作用，同一应用的副作用按提交顺序执行
+     *
+     * @param appId  应用 ID
+     * @param name   副作用名称（用于日志与指标）
+     * @param action 副作用
+     * @return 执行完成的 Future（执行失败时异常完成）
+     */
+    public CompletableFuture<Void> execute(Long appId, String name, Runnable action) {
+        // 同一应用同时只有一个生成，提交时没有监控上下文（例如在模型回调线程上）则按应用查找
+        GenerationTrace trace = generationTracer.current();
+        if (trace == null) {
+            trace = generationTracer.latestOfApp(appId);
+        }
+        SideEffect sideEffect = new SideEffect(appId, name, action, trace, System.nanoTime());
+        if (!enabled || executor.isShutdown()) {
+            run(sideEffect);
+            return sideEffect.future;
+        }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            inlineCounter.increment();
+            log.warn("副作用排队已满，在调用线程同步执行: appId={}, name={}", appId, name);
+            run(sideEffect);
+            return sideEffect.future;
+        }
+        boolean[] idle = new boolean[1];
+        lanes.compute(appId, (id, lane) -> {
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                idle[0] = true;
+            }
+            lane.addLast(sideEffect);
+            return lane;
+        });
+        if (idle[0]) {
+            executor.execute(() -> drain(appId));
+        }
+        return sideEffect.future;
+    }
+
+    /**
+     * 依次执行应用队列中的副作用，队列为空时移除
+     */
+    private void drain(Long appId) {
+        while (true) {
+            SideEffect[] next = new SideEffect[1];
+            lanes.computeIfPresent(appId, (id, lane) -> {
+                next[0] = lane.pollFirst();
+                return next[0] == null ? null : lane;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            pending.decrementAndGet();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // 关闭时被中断，剩余副作用仍需执行，避免丢失对话历史等数据
+                run(next[0]);
+                continue;
+            }
+            try {
+                run(next[0]);
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void run(SideEffect sideEffect) {
+        lagTimer.record(System.nanoTime() - sideEffect.submitNanos, TimeUnit.NANOSECONDS);
+        GenerationTrace trace = sideEffect.trace;
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.scope(trace == null ? null : trace.getMonitorContext())) {
+            generationTracer.observe(trace, sideEffect.name, sideEffect.action);
+            sideEffect.future.complete(null);
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("副作用执行失败: appId={}, name={}, 错误信息: {}",
+                    sideEffect.appId, sideEffect.name, e.getMessage(), e);
+            sideEffect.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class SideEffect {
+
+        private final Long appId;
+
+        private final String name;
+
+        private final Runnable action;
+
+        private final GenerationTrace trace;
+
+        private final long submitNanos;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private SideEffect(Long appId, String name, Runnable action, GenerationTrace trace, long submitNanos) {
+            this.appId = appId;
+            this.name = name;
+            this.action = action;
+            this.trace = trace;
+            this.submitNanos = submitNanos;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.yu.yuaicodemother.core.generation;
+
+import lombok.Getter;
+
+/**
+ * 连接落后过多被断开（生成仍在进行，客户端可从 lastEventId 续传）
+ */
+@Getter
+public class GenerationDetachedException extends RuntimeException {
+
+    /**
+     * 已发送给客户端的最后一个事件 ID
+     */
+    private final long lastEventId;
+
+    public GenerationDetachedException(long lastEventId) {
+        super("连接过慢，请从事件 " + lastEventId + " 之后续传");
+        this.lastEventId = lastEventId;
+    }
+}
@@ -0,0 +1,10 @@
+package com.yu.yuaicodemother.core.generation;
+
+/**
+ * 生成事件（对应一条 SSE 消息）
+ *
+ * @param id   事件 ID，同一次生成内从 1 开始递增，作为 SSE 的 id 供断线续传
+ * @param data 展示给前端的内容片段
+ */
+public record GenerationEvent(long id, String data) {
+}
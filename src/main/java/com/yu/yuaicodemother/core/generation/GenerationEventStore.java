@@ -0,0 +1,212 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RStream;
+import org.redisson.api.RStreamAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamReadArgs;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 生成事件的 Redis Stream 存储（多节点部署时开启 generation.resume.redis.enabled）
+ * <p>
+ * 每次生成对应一个 Stream，消息 ID 为 {事件ID}-0，长度与本地缓冲区一致；
+ * 结束时追加一条终止消息。客户端重连到其他节点时，从 Stream 中重放并轮询后续事件。
+ * </p>
+ */
+@Slf4j
+@Component
+public class GenerationEventStore {
+
+    private static final String EVENTS_KEY_PREFIX = "generation:events:";
+
+    private static final String OWNER_KEY_PREFIX = "generation:owner:";
+
+    private static final String FIELD_TYPE = "t";
+
+    private static final String FIELD_DATA = "d";
+
+    private static final String TYPE_EVENT = "event";
+
+    private static final String TYPE_DONE = "done";
+
+    private static final String TYPE_ERROR = "error";
+
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(2);
+
+    /**
+     * 每次最多读取的事件数
+     */
+    private static final int READ_BATCH = 100;
+
+    /**
+     * 下游没有请求时的等待间隔
+     */
+    private static final long DEMAND_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 每写入多少个事件续期一次
+     */
+    private static final long RENEW_INTERVAL = 100;
+
+    @Getter
+    @Value("${generation.resume.redis.enabled:false}")
+    private boolean enabled;
+
+    @Value("${generation.resume.buffer-size:2048}")
+    private int maxLength;
+
+    @Value("${generation.resume.retention-minutes:5}")
+    private long retentionMinutes;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 记录生成任务的所属用户
+     */
+    public void register(String generationId, Long userId) {
+        redissonClient.<String>getBucket(OWNER_KEY_PREFIX + generationId, StringCodec.INSTANCE)
+                .set(String.valueOf(userId), retention());
+    }
+
+    /**
+     * 查询生成任务的所属用户
+     *
+     * @return 用户 ID，不存在或已过期时返回 null
+     */
+    public Long getOwner(String generationId) {
+        String owner = redissonClient.<String>getBucket(OWNER_KEY_PREFIX + generationId, StringCodec.INSTANCE).get();
+        return owner == null ? null : Long.valueOf(owner);
+    }
+
+    /**
+     * 批量写入事件（一次网络往返），由 {@link GenerationEventWriter} 在会话锁外按顺序调用
+     */
+    void appendBatch(String generationId, List<GenerationEvent> events) {
+        try {
+            RBatch batch = redissonClient.createBatch();
+            RStreamAsync<String, String> stream = batch.getStream(EVENTS_KEY_PREFIX + generationId, StringCodec.INSTANCE);
+            boolean renew = false;
+            for (GenerationEvent event : events) {
+                stream.addAsync(new StreamMessageId(event.id(), 0), StreamAddArgs.<String, String>entries(
+                        FIELD_TYPE, TYPE_EVENT, FIELD_DATA, event.data()).trimNonStrict().maxLen(maxLength).noLimit());
+                renew |= event.id() % RENEW_INTERVAL == 1;
+            }
+            // 生成过程中定期续期，避免长时间生成时 Stream 提前过期
+            if (renew) {
+                stream.expireAsync(retention());
+                batch.getBucket(OWNER_KEY_PREFIX + generationId, StringCodec.INSTANCE).expireAsync(retention());
+            }
+            batch.execute();
+        } catch (Exception e) {
+            log.warn("生成事件写入 Redis 失败: generationId={}, eventId={}-{}, 错误信息: {}", generationId,
+                    events.get(0).id(), events.get(events.size() - 1).id(), e.getMessage());
+        }
+    }
+
+    void finish(String generationId, Throwable error) {
+        try {
+            RStream<String, String> stream = getStream(generationId);
+            StreamAddArgs<String, String> args = error == null
+                    ? StreamAddArgs.entry(FIELD_TYPE, TYPE_DONE)
+                    : StreamAddArgs.entries(FIELD_TYPE, TYPE_ERROR, FIELD_DATA, String.valueOf(error.getMessage()));
+            // 自动生成的 ID 基于当前时间戳，必然大于所有事件 ID
+            stream.add(args);
+            stream.expire(retention());
+            redissonClient.getBucket(OWNER_KEY_PREFIX + generationId, StringCodec.INSTANCE).expire(retention());
+        } catch (Exception e) {
+            log.warn("生成结束标记写入 Redis 失败: generationId={}, 错误信息: {}", generationId, e.getMessage());
+        }
+    }
+
+    /**
+     * 是否还能从指定事件之后续传
+     */
+    public boolean canResumeFrom(String generationId, long lastEventId) {
+        Map<StreamMessageId, Map<String, String>> first = getStream(generationId)
+                .range(1, StreamMessageId.MIN, StreamMessageId.MAX);
+        if (first.isEmpty()) {
+            // 任务还在排队，尚未产生任何事件，只能从头订阅
+            return lastEventId == 0;
+        }
+        StreamMessageId firstId = first.keySet().iterator().next();
+        boolean isEvent = TYPE_EVENT.equals(first.values().iterator().next().get(FIELD_TYPE));
+        return !isEvent || firstId.getId0() <= lastEventId + 1;
+    }
+
+    /**
+     * 从 Redis 重放指定事件之后的内容，并持续轮询直到生成结束
+     *
+     * @param generationId 生成 ID
+     * @param lastEventId  已收到的最后一个事件 ID
+     * @return 事件流
+     */
+    public Flux<GenerationEvent> replay(String generationId, long lastEventId) {
+        return Flux.create(sink -> Thread.ofVirtual().name("generation-replay-" + generationId).start(() -> {
+            RStream<String, String> stream = getStream(generationId);
+            StreamMessageId cursor = new StreamMessageId(lastEventId, 0);
+            try {
+                while (!sink.isCancelled()) {
+                    // 按下游请求量读取，慢连接不会把 Stream 中的内容全部读到内存
+                    long demand = sink.requestedFromDownstream();
+                    if (demand <= 0) {
+                        LockSupport.parkNanos(DEMAND_WAIT_NANOS);
+                        continue;
+                    }
+                    Map<StreamMessageId, Map<String, String>> entries = stream.read(
+                            StreamReadArgs.greaterThan(cursor).count((int) Math.min(demand, READ_BATCH))
+                                    .timeout(READ_TIMEOUT));
+                    if (entries == null || entries.isEmpty()) {
+                        // 任务排队期间 Stream 尚未创建，所属用户记录存在即继续等待
+                        if (!stream.isExists() && getOwner(generationId) == null) {
+                            sink.error(new BusinessException(ErrorCode.NOT_FOUND_ERROR, "生成任务已过期"));
+                            return;
+                        }
+                        continue;
+                    }
+                    for (Map.Entry<StreamMessageId, Map<String, String>> entry : entries.entrySet()) {
+                        cursor = entry.getKey();
+                        Map<String, String> fields = entry.getValue();
+                        String type = fields.get(FIELD_TYPE);
+                        if (TYPE_DONE.equals(type)) {
+                            sink.complete();
+                            return;
+                        }
+                        if (TYPE_ERROR.equals(type)) {
+                            sink.error(new BusinessException(ErrorCode.SYSTEM_ERROR, fields.get(FIELD_DATA)));
+                            return;
+                        }
+                        sink.next(new GenerationEvent(cursor.getId0(), fields.get(FIELD_DATA)));
+                    }
+                }
+            } catch (Exception e) {
+                sink.error(e);
+            }
+        }));
+    }
+
+    private RStream<String, String> getStream(String generationId) {
+        return redissonClient.getStream(EVENTS_KEY_PREFIX + generationId, StringCodec.INSTANCE);
+    }
+
+    private Duration retention() {
+        return Duration.ofMinutes(retentionMinutes);
+    }
+}
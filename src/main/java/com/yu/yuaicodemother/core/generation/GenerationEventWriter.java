@@ -0,0 +1,97 @@
+package com.yu.yuaicodemother.core.generation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个生成会话的事件异步写入器
+ * <p>
+ * 会话在锁内只把事件放入队列，由虚拟线程按顺序批量写入 {@link GenerationEventStore}，
+ * Redis 的网络往返不再占用会话锁，也不阻塞生成流。同一时间最多一个写入线程，保证事件按 ID 顺序写入，
+ * 结束标记在所有事件之后写入。
+ * </p>
+ */
+class GenerationEventWriter {
+
+    /**
+     * 单批最多写入的事件数
+     */
+    static final int MAX_BATCH = 256;
+
+    private final String generationId;
+
+    private final GenerationEventStore eventStore;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 待处理的写入请求数，从 0 变为 1 时启动写入线程
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    GenerationEventWriter(String generationId, GenerationEventStore eventStore) {
+        this.generationId = generationId;
+        this.eventStore = eventStore;
+    }
+
+    /**
+     * 追加事件（不阻塞）
+     */
+    void append(GenerationEvent event) {
+        enqueue(new Pending(event, false, null));
+    }
+
+    /**
+     * 追加结束标记（不阻塞），在此之前的事件全部写入后才写入
+     */
+    void finish(Throwable error) {
+        enqueue(new Pending(null, true, error));
+    }
+
+    private void enqueue(Pending pending) {
+        queue.offer(pending);
+        if (wip.getAndIncrement() == 0) {
+            Thread.ofVirtual().name("generation-event-writer-" + generationId).start(this::drain);
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            flush();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * 写入队列中的全部内容：连续的事件合并为一批，遇到结束标记时先写完之前的事件
+     */
+    private void flush() {
+        List<GenerationEvent> batch = new ArrayList<>();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            if (!pending.finish()) {
+                batch.add(pending.event());
+                if (batch.size() >= MAX_BATCH) {
+                    eventStore.appendBatch(generationId, batch);
+                    batch = new ArrayList<>();
+                }
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                eventStore.appendBatch(generationId, batch);
+                batch = new ArrayList<>();
+            }
+            eventStore.finish(generationId, pending.error());
+        }
+        if (!batch.isEmpty()) {
+            eventStore.appendBatch(generationId, batch);
+        }
+    }
+
+    private record Pending(GenerationEvent event, boolean finish, Throwable error) {
+    }
+}
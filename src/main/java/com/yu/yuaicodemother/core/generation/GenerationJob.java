@@ -0,0 +1,62 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.model.dto.app.AppChatRequest;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 代码生成任务（状态保存在 Redis，任意节点可查询）
+ */
+@Data
+public class GenerationJob implements Serializable {
+
+    /**
+     * 生成 ID
+     */
+    private String generationId;
+
+    /**
+     * 应用 ID
+     */
+    private Long appId;
+
+    /**
+     * 提交任务的用户 ID
+     */
+    private Long userId;
+
+    /**
+     * 对话请求
+     */
+    private AppChatRequest chatRequest;
+
+    /**
+     * 任务状态（GenerationJobStatusEnum 的 value）
+     */
+    private String status;
+
+    /**
+     * 执行任务的节点
+     */
+    private String workerNode;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间（毫秒时间戳）
+     */
+    private Long createTime;
+
+    /**
+     * 更新时间（毫秒时间戳）
+     */
+    private Long updateTime;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,603 @@
+package com.yu.yuaicodemother.core.generation;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RuntimeUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.yu.yuaicodemother.core.admission.AdmissionContext;
+import com.yu.yuaicodemother.core.admission.LlmAdmissionController;
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import com.yu.yuaicodemother.exception.ThrowUtils;
+import com.yu.yuaicodemother.model.dto.app.AppChatRequest;
+import com.yu.yuaicodemother.model.entity.App;
+import com.yu.yuaicodemother.model.entity.User;
+import com.yu.yuaicodemother.model.enums.AppGenStatusEnum;
+import com.yu.yuaicodemother.model.enums.GenerationJobStatusEnum;
+import com.yu.yuaicodemother.monitor.GenerationTrace;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.monitor.MonitorContext;
+import com.yu.yuaicodemother.service.AppService;
+import com.yu.yuaicodemother.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBlockingQueue;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码生成任务引擎
+ * <p>
+ * 生成任务与 HTTP 请求解耦：接口只负责校验并提交任务，生成在后台执行，
+ * SSE 连接通过 {@link GenerationSessionManager} 订阅任务事件（可以没有订阅者，也可以有多个）。
+ * 1. local 模式：任务在本节点的虚拟线程中执行，并发数受 max-concurrency 限制；
+ * 2. redis 模式：任务进入 Redis 队列，由开启了 worker 的节点消费，API 节点与 Worker 节点可以分开部署，
+ *    事件经 Redis Stream 转发（需要开启 generation.resume.redis.enabled）；生成的代码由 Worker 写入
+ *    {@code AppConstant.CODE_OUTPUT_ROOT_DIR}，预览、部署、下载由 API 节点读取，因此所有节点必须挂载同一个共享目录
+ *    （NFS 等），并开启 generation.job.shared-output-dir 确认，否则退回本地执行；
+ * 3. 任务状态保存在 Redis，状态变更（以及等待模型许可时的排队位置）通过 Redis 发布订阅推送，无需轮询数据库；
+ *    任务结束且数据库中的生成状态更新后清除 Redis 中的应用状态，之后以数据库为准；
+ * 4. 同一应用同一时间只有一个任务（{@link GenerationLock}），重复提交相同消息时接入进行中的任务，
+ *    提交不同消息时直接返回冲突。
+ * </p>
+ */
+@Slf4j
+@Component
+public class GenerationJobEngine {
+
+    private static final String JOB_KEY_PREFIX = "generation:job:";
+
+    private static final String APP_STATUS_KEY_PREFIX = "generation:app-status:";
+
+    private static final String QUEUE_KEY = "generation:job:queue";
+
+    private static final String STATUS_TOPIC = "generation:status";
+
+    private static final String CONTROL_TOPIC = "generation:control";
+
+    private static final String DISPATCH_REDIS = "redis";
+
+    /**
+     * Worker 拉取队列的超时时间（秒）
+     */
+    private static final long POLL_TIMEOUT_SECONDS = 2;
+
+    /**
+     * 任务分发方式：local 本节点执行，redis 经 Redis 队列分发到 Worker 节点
+     */
+    @Value("${generation.job.dispatch:local}")
+    private String dispatch;
+
+    /**
+     * 所有节点的代码输出目录是否为同一个共享目录（redis 模式必须开启）
+     */
+    @Value("${generation.job.shared-output-dir:false}")
+    private boolean sharedOutputDir;
+
+    /**
+     * 本节点是否消费 Redis 队列中的任务（仅 redis 模式生效）
+     */
+    @Value("${generation.job.worker.enabled:true}")
+    private boolean workerEnabled;
+
+    /**
+     * 本节点同时执行的最大任务数
+     */
+    @Value("${generation.job.max-concurrency:64}")
+    private int maxConcurrency;
+
+    /**
+     * 任务状态在 Redis 中的保留时间（分钟）
+     */
+    @Value("${generation.job.state-ttl-minutes:60}")
+    private long stateTtlMinutes;
+
+    @Resource
+    private AppService appService;
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private GenerationSessionManager generationSessionManager;
+
+    @Resource
+    private AppSideEffectExecutor appSideEffectExecutor;
+
+    @Resource
+    private GenerationEventStore generationEventStore;
+
+    @Resource
+    private GenerationLock generationLock;
+
+    @Resource
+    private LlmAdmissionController llmAdmissionController;
+
+    @Resource
+    private GenerationTracer generationTracer;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final String node = NetUtil.getLocalHostName() + ":" + RuntimeUtil.getPid();
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("generation-job-", 0).factory());
+
+    /**
+     * 本节点所有订阅者共享的状态变更流
+     */
+    private final Sinks.Many<GenerationStatusMessage> statusSink = Sinks.many().multicast().directBestEffort();
+
+    private Semaphore permits;
+
+    private boolean redisDispatch;
+
+    private volatile boolean running = true;
+
+    private RTopic statusTopic;
+
+    private RTopic controlTopic;
+
+    private RBlockingQueue<String> queue;
+
+    /**
+     * 本节点负责续期的生成锁（generationId -> 任务）
+     */
+    private final Map<String, GenerationJob> heldLocks = new ConcurrentHashMap<>();
+
+    private Disposable lockRenewer;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrency);
+        redisDispatch = DISPATCH_REDIS.equalsIgnoreCase(dispatch);
+        if (redisDispatch && !generationEventStore.isEnabled()) {
+            // 跨节点执行时事件只能经 Redis Stream 转发，未开启时退回本地执行
+            log.warn("generation.job.dispatch=redis 需要开启 generation.resume.redis.enabled，已退回本地执行");
+            redisDispatch = false;
+        }
+        if (redisDispatch && !sharedOutputDir) {
+            // Worker 写入的代码文件需要在 API 节点上可见（预览、部署、下载）
+            log.warn("generation.job.dispatch=redis 需要所有节点共享代码输出目录并开启 generation.job.shared-output-dir，"
+                    + "已退回本地执行");
+            redisDispatch = false;
+        }
+        statusTopic = redissonClient.getTopic(STATUS_TOPIC, StringCodec.INSTANCE);
+        statusTopic.addListener(String.class, (channel, json) -> {
+            GenerationStatusMessage message = JSONUtil.toBean(json, GenerationStatusMessage.class);
+            if (!node.equals(message.getNode())) {
+                emitStatus(message);
+            }
+        });
+        controlTopic = redissonClient.getTopic(CONTROL_TOPIC, StringCodec.INSTANCE);
+        controlTopic.addListener(String.class, (channel, generationId) -> generationSessionManager.stopLocal(generationId));
+        if (redisDispatch) {
+            queue = redissonClient.getBlockingQueue(QUEUE_KEY, StringCodec.INSTANCE);
+            if (workerEnabled) {
+                Thread.ofVirtual().name("generation-job-worker").start(this::pollQueue);
+            }
+        }
+        if (generationLock.isEnabled()) {
+            long renewInterval = Math.max(1, generationLock.getLeaseSeconds() / 3);
+            lockRenewer = Schedulers.parallel().schedulePeriodically(this::renewLocks,
+                    renewInterval, renewInterval, TimeUnit.SECONDS);
+        }
+        Gauge.builder("generation_job_running_count", this, engine -> maxConcurrency - engine.permits.availablePermits())
+                .description("本节点执行中的生成任务数")
+                .register(meterRegistry);
+        log.info("生成任务引擎已启动: dispatch={}, worker={}, maxConcurrency={}, node={}",
+                redisDispatch ? DISPATCH_REDIS : "local", !redisDispatch || workerEnabled, maxConcurrency, node);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (lockRenewer != null) {
+            lockRenewer.dispose();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交生成任务
+     *
+     * @param appChatRequest 对话请求
+     * @param loginUser      登录用户
+     * @return 任务（已排队），同一应用已有相同消息的任务进行中时返回该任务
+     */
+    public GenerationJob submit(AppChatRequest appChatRequest, User loginUser) {
+        Long appId = appChatRequest.getAppId();
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        ThrowUtils.throwIf(StrUtil.isBlank(appChatRequest.getMessage()), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
+        // 提交前同步校验，错误直接返回给请求方而不是变成失败的任务
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
+        }
+        GenerationJob job = new GenerationJob();
+        job.setGenerationId(IdUtil.fastSimpleUUID());
+        job.setAppId(appId);
+        job.setUserId(loginUser.getId());
+        job.setChatRequest(appChatRequest);
+        job.setCreateTime(System.currentTimeMillis());
+        // 加锁在创建会话、写入状态之前，冲突的请求不产生任何副作用
+        String holder = generationLock.tryAcquire(appId, job.getGenerationId());
+        if (holder != null) {
+            return attachOrReject(holder, job);
+        }
+        heldLocks.put(job.getGenerationId(), job);
+        updateJob(job, GenerationJobStatusEnum.QUEUED, null);
+        if (redisDispatch) {
+            // 先登记所属用户，Worker 开始执行前客户端即可订阅
+            generationEventStore.register(job.getGenerationId(), job.getUserId());
+            try {
+                queue.add(JSONUtil.toJsonStr(job));
+            } catch (Exception e) {
+                updateJob(job, GenerationJobStatusEnum.FAILED, e.getMessage());
+                releaseLock(job);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成任务提交失败");
+            }
+        } else {
+            GenerationSession session = createSession(job, true);
+            executor.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    session.stop();
+                    return;
+                }
+                execute(job, loginUser, session);
+            });
+        }
+        log.info("生成任务已提交: generationId={}, appId={}", job.getGenerationId(), appId);
+        return job;
+    }
+
+    /**
+     * 停止生成任务（任务可能在其他节点执行）
+     *
+     * @param generationId 生成 ID
+     * @param userId       当前用户 ID
+     * @return 是否停止了未结束的任务
+     */
+    public boolean stop(String generationId, Long userId) {
+        GenerationSession session = generationSessionManager.getSession(generationId);
+        if (session != null) {
+            return generationSessionManager.stop(generationId, userId);
+        }
+        GenerationJob job = getJob(generationId);
+        if (job == null) {
+            return false;
+        }
+        if (!job.getUserId().equals(userId)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该生成任务");
+        }
+        GenerationJobStatusEnum status = GenerationJobStatusEnum.getEnumByValue(job.getStatus());
+        if (status == null || status.isFinished()) {
+            return false;
+        }
+        if (status == GenerationJobStatusEnum.QUEUED) {
+            // 还在排队的任务直接标记取消，Worker 取出后跳过
+            updateJob(job, GenerationJobStatusEnum.CANCELLED, null);
+            releaseLock(job);
+        }
+        controlTopic.publish(generationId);
+        return true;
+    }
+
+    /**
+     * 查询任务
+     *
+     * @return 任务，不存在或已过期时返回 null
+     */
+    public GenerationJob getJob(String generationId) {
+        String json = jobBucket(generationId).get();
+        return json == null ? null : JSONUtil.toBean(json, GenerationJob.class);
+    }
+
+    /**
+     * 查询 Redis 中记录的应用生成状态
+     *
+     * @return 生成状态，没有记录时返回 null（由调用方查询数据库）
+     */
+    public Integer getAppGenStatus(Long appId) {
+        String value = appStatusBucket(appId).get();
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    /**
+     * 订阅应用的生成状态变更（不会结束，由订阅方在任务结束时取消）
+     *
+     * @param appId 应用 ID
+     * @return 状态变更流
+     */
+    public Flux<GenerationStatusMessage> statusStream(Long appId) {
+        return statusSink.asFlux().filter(message -> appId.equals(message.getAppId()) && message.getQueuePosition() == null);
+    }
+
+    /**
+     * 订阅生成任务等待模型调用许可时的排队位置
+     *
+     * @param generationId 生成 ID
+     * @return 排队位置流（0 表示已放行）
+     */
+    public Flux<Integer> queuePositionStream(String generationId) {
+        return statusSink.asFlux()
+                .filter(message -> generationId.equals(message.getGenerationId()) && message.getQueuePosition() != null)
+                .map(GenerationStatusMessage::getQueuePosition);
+    }
+
+    /**
+     * 应用已有任务持有生成锁：相同用户重复提交相同消息（双击、多标签页、网络重试）时接入该任务，
+     * 否则返回冲突，避免同一应用的两次生成互相覆盖代码文件
+     */
+    private GenerationJob attachOrReject(String holderId, GenerationJob job) {
+        GenerationJob holder = heldLocks.get(holderId);
+        if (holder == null) {
+            holder = getJob(holderId);
+        }
+        GenerationJobStatusEnum status = holder == null ? null : GenerationJobStatusEnum.getEnumByValue(holder.getStatus());
+        // 订阅其他节点的任务需要经 Redis Stream 续传
+        boolean resumable = generationSessionManager.getSession(holderId) != null || generationEventStore.isEnabled();
+        boolean attach = status != null && !status.isFinished() && resumable
+                && holder.getUserId().equals(job.getUserId())
+                && holder.getChatRequest() != null
+                && StrUtil.equals(holder.getChatRequest().getMessage(), job.getChatRequest().getMessage());
+        Counter.builder("generation_lock_conflict_total")
+                .description("应用已有生成任务进行中时的提交数")
+                .tag("result", attach ? "attach" : "reject")
+                .register(meterRegistry)
+                .increment();
+        if (attach) {
+            log.info("接入进行中的生成任务: generationId={}, appId={}", holderId, job.getAppId());
+            return holder;
+        }
+        log.info("应用已有生成任务进行中，拒绝提交: appId={}, holder={}", job.getAppId(), holderId);
+        throw new BusinessException(ErrorCode.CONFLICT_ERROR, "该应用正在生成中，请等待生成结束或先停止生成");
+    }
+
+    /**
+     * 为本节点负责的生成锁续期：
+     * 会话在本节点时，会话未结束即续期；
+     * redis 模式下提交节点负责任务排队期间的续期，Worker 开始执行后由 Worker 接手
+     */
+    void renewLocks() {
+        heldLocks.values().removeIf(job -> {
+            try {
+                GenerationSession session = generationSessionManager.getSession(job.getGenerationId());
+                boolean alive;
+                if (session != null) {
+                    alive = !session.isFinished();
+                } else {
+                    GenerationJob latest = getJob(job.getGenerationId());
+                    alive = latest != null && GenerationJobStatusEnum.QUEUED.getValue().equals(latest.getStatus());
+                }
+                return !alive || !generationLock.renew(job.getAppId(), job.getGenerationId());
+            } catch (Exception e) {
+                log.warn("生成锁续期检查失败: generationId={}, 错误信息: {}", job.getGenerationId(), e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    private void releaseLock(GenerationJob job) {
+        heldLocks.remove(job.getGenerationId());
+        generationLock.release(job.getAppId(), job.getGenerationId());
+    }
+
+    /**
+     * Worker：持有执行许可后才拉取任务，避免本节点满载时仍从队列抢占任务
+     */
+    private void pollQueue() {
+        while (running) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            String json = null;
+            try {
+                json = queue.poll(POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                permits.release();
+                return;
+            } catch (Exception e) {
+                log.warn("拉取生成任务失败: {}", e.getMessage());
+            }
+            if (json == null) {
+                permits.release();
+                continue;
+            }
+            GenerationJob job = JSONUtil.toBean(json, GenerationJob.class);
+            executor.execute(() -> executeQueued(job));
+        }
+    }
+
+    private void executeQueued(GenerationJob job) {
+        // 订阅者在 API 节点，不能按本地订阅情况自动停止
+        GenerationSession session = createSession(job, false);
+        heldLocks.put(job.getGenerationId(), job);
+        GenerationJob latest = getJob(job.getGenerationId());
+        if (latest != null && GenerationJobStatusEnum.CANCELLED.getValue().equals(latest.getStatus())) {
+            session.onFinish(permits::release);
+            session.stop();
+            return;
+        }
+        User user = userService.getById(job.getUserId());
+        if (user == null) {
+            session.onFinish(permits::release);
+            session.fail(new BusinessException(ErrorCode.NOT_FOUND_ERROR, "用户不存在"));
+            return;
+        }
+        execute(job, user, session);
+    }
+
+    /**
+     * 执行任务，调用前已获取执行许可
+     */
+    private void execute(GenerationJob job, User user, GenerationSession session) {
+        session.onFinish(permits::release);
+        if (session.isFinished()) {
+            // 排队期间已被停止
+            return;
+        }
+        updateJob(job, GenerationJobStatusEnum.RUNNING, null);
+        // 模型并发已满时在准入队列中排队，排队位置推送给订阅者
+        AdmissionContext admissionContext = new AdmissionContext(user.getId(), llmAdmissionController.weightOf(user),
+                position -> publishQueuePosition(job, position));
+        // 生成 ID 随 Reactor Context 传递，各阶段据此记录耗时
+        GenerationTrace trace = generationTracer.start(job.getGenerationId(), GenerationTracer.KIND_GENERATION,
+                job.getAppId(), user.getId());
+        try {
+            session.start(appService.chatToGenCode(job.getChatRequest(), user)
+                    .contextWrite(Context.of(AdmissionContext.class, admissionContext,
+                            MonitorContext.class, trace.getMonitorContext())));
+        } catch (Exception e) {
+            log.error("生成任务启动失败: generationId={}, 错误信息: {}", job.getGenerationId(), e.getMessage());
+            session.fail(e);
+        }
+    }
+
+    private GenerationSession createSession(GenerationJob job, boolean autoStop) {
+        GenerationSession session = generationSessionManager.create(job.getGenerationId(), job.getAppId(),
+                job.getUserId(), autoStop);
+        session.onFinish(() -> onSessionFinished(job, session));
+        return session;
+    }
+
+    private void onSessionFinished(GenerationJob job, GenerationSession session) {
+        GenerationJobStatusEnum status;
+        if (session.isCancelled()) {
+            status = GenerationJobStatusEnum.CANCELLED;
+            // 取消时生成流不会再回调，应用状态修正为生成失败，避免一直停留在生成中
+            if (GenerationJobStatusEnum.RUNNING.getValue().equals(job.getStatus())) {
+                appSideEffectExecutor.execute(job.getAppId(), "gen_status",
+                        () -> appService.updateGenStatus(job.getAppId(), AppGenStatusEnum.GENERATED_FAILED.getValue()));
+            }
+        } else if (session.getError() != null) {
+            status = GenerationJobStatusEnum.FAILED;
+        } else {
+            status = GenerationJobStatusEnum.SUCCEEDED;
+        }
+        Throwable error = session.getError();
+        generationTracer.finish(generationTracer.get(job.getGenerationId()),
+                session.isCancelled() ? new CancellationException() : error);
+        updateJob(job, status, error == null ? null : error.getMessage());
+        releaseLock(job);
+        Counter.builder("generation_job_finished_total")
+                .description("结束的生成任务数")
+                .tag("status", status.getValue())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 更新任务状态：写入 Redis 并推送状态变更
+     */
+    private void updateJob(GenerationJob job, GenerationJobStatusEnum status, String errorMessage) {
+        String json;
+        synchronized (job) {
+            GenerationJobStatusEnum current = GenerationJobStatusEnum.getEnumByValue(job.getStatus());
+            if (current != null && current.isFinished()) {
+                return;
+            }
+            job.setStatus(status.getValue());
+            job.setWorkerNode(status == GenerationJobStatusEnum.RUNNING ? node : job.getWorkerNode());
+            job.setErrorMessage(errorMessage);
+            job.setUpdateTime(System.currentTimeMillis());
+            json = JSONUtil.toJsonStr(job);
+        }
+        Integer genStatus = status.toAppGenStatus().getValue();
+        GenerationStatusMessage message = new GenerationStatusMessage(job.getGenerationId(), job.getAppId(),
+                status.getValue(), genStatus, node, null);
+        emitStatus(message);
+        try {
+            Duration ttl = Duration.ofMinutes(stateTtlMinutes);
+            jobBucket(job.getGenerationId()).set(json, ttl);
+            appStatusBucket(job.getAppId()).set(String.valueOf(genStatus), ttl);
+            statusTopic.publish(JSONUtil.toJsonStr(message));
+        } catch (Exception e) {
+            log.warn("生成任务状态写入 Redis 失败: generationId={}, status={}, 错误信息: {}",
+                    job.getGenerationId(), status.getValue(), e.getMessage());
+        }
+        if (status.isFinished()) {
+            clearAppStatusAfterSideEffects(job.getAppId(), genStatus);
+        }
+    }
+
+    /**
+     * 任务结束后清除 Redis 中的应用状态，之后以数据库为准：
+     * 同一应用的副作用按提交顺序执行，排在数据库生成状态更新之后清除，期间仍读取 Redis 中的最终状态；
+     * 只在值仍为本次最终状态时清除，不影响之后新任务写入的状态
+     */
+    private void clearAppStatusAfterSideEffects(Long appId, Integer genStatus) {
+        appSideEffectExecutor.execute(appId, "gen_status_cache", () -> {
+            try {
+                appStatusBucket(appId).compareAndSet(String.valueOf(genStatus), null);
+            } catch (Exception e) {
+                log.warn("清除应用生成状态失败: appId={}, 错误信息: {}", appId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 推送排队位置（不改变任务状态）
+     */
+    private void publishQueuePosition(GenerationJob job, int position) {
+        GenerationStatusMessage message = new GenerationStatusMessage(job.getGenerationId(), job.getAppId(),
+                job.getStatus(), AppGenStatusEnum.GENERATING.getValue(), node, position);
+        emitStatus(message);
+        try {
+            statusTopic.publish(JSONUtil.toJsonStr(message));
+        } catch (Exception e) {
+            log.warn("排队位置推送失败: generationId={}, 错误信息: {}", job.getGenerationId(), e.getMessage());
+        }
+    }
+
+    private void emitStatus(GenerationStatusMessage message) {
+        // 多个线程可能同时推送，串行化发射
+        synchronized (statusSink) {
+            statusSink.tryEmitNext(message);
+        }
+    }
+
+    private RBucket<String> jobBucket(String generationId) {
+        return redissonClient.getBucket(JOB_KEY_PREFIX + generationId, StringCodec.INSTANCE);
+    }
+
+    private RBucket<String> appStatusBucket(Long appId) {
+        return redissonClient.getBucket(APP_STATUS_KEY_PREFIX + appId, StringCodec.INSTANCE);
+    }
+}
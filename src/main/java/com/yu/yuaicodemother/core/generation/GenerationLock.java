@@ -0,0 +1,143 @@
+package com.yu.yuaicodemother.core.generation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 应用级生成锁（跨节点）
+ * <p>
+ * 同一应用同一时间只允许一个生成任务，锁的值为持有者的 generationId：
+ * 1. 锁带有租期，持有者在生成流存活期间定期续期，节点宕机后租期到期自动释放；
+ * 2. 续期与释放都先比较 generationId，不会误续或误删其他任务的锁；
+ * 3. 生成会跨越多个线程（排队、虚拟线程、模型回调），因此不使用与线程绑定的 RLock；
+ * 4. 加锁与读取持有者在同一个脚本内完成，只有 Redis 不可用时才退化为不加锁，并计入 generation_lock_fail_open_total。
+ * </p>
+ */
+@Slf4j
+@Component
+public class GenerationLock {
+
+    private static final String LOCK_KEY_PREFIX = "generation:lock:";
+
+    /**
+     * 不存在时加锁并返回 nil，否则返回当前持有者（原子执行，不会出现加锁失败但读不到持有者的情况）
+     */
+    private static final String ACQUIRE_SCRIPT =
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+            "return nil " +
+            "end " +
+            "return redis.call('get', KEYS[1])";
+
+    /**
+     * 持有者一致时续期
+     */
+    private static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('pexpire', KEYS[1], ARGV[2]) " +
+            "end " +
+            "return 0";
+
+    @Getter
+    @Value("${generation.lock.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 锁租期（秒），持有者每 1/3 租期续期一次
+     */
+    @Getter
+    @Value("${generation.lock.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 尝试获取应用的生成锁
+     *
+     * @param appId        应用 ID
+     * @param generationId 生成 ID
+     * @return 获取成功返回 null，否则返回当前持有者的 generationId
+     */
+    public String tryAcquire(Long appId, String generationId) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            return redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, ACQUIRE_SCRIPT,
+                    RScript.ReturnType.VALUE, List.of(LOCK_KEY_PREFIX + appId),
+                    generationId, String.valueOf(lease().toMillis()));
+        } catch (Exception e) {
+            // Redis 不可用时不阻塞生成，退化为不加锁
+            log.warn("获取生成锁失败，本次不加锁: appId={}, generationId={}, 错误信息: {}",
+                    appId, generationId, e.getMessage());
+            Counter.builder("generation_lock_fail_open_total")
+                    .description("Redis不可用时未加锁直接生成的次数")
+                    .register(meterRegistry)
+                    .increment();
+            return null;
+        }
+    }
+
+    /**
+     * 续期
+     *
+     * @return 是否仍持有锁
+     */
+    public boolean renew(Long appId, String generationId) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            Boolean renewed = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RENEW_SCRIPT,
+                    RScript.ReturnType.BOOLEAN, List.of(LOCK_KEY_PREFIX + appId),
+                    generationId, String.valueOf(lease().toMillis()));
+            if (!Boolean.TRUE.equals(renewed)) {
+                log.warn("生成锁已丢失: appId={}, generationId={}", appId, generationId);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            // 偶发失败不放弃持有，下次续期重试
+            log.warn("生成锁续期失败: appId={}, generationId={}, 错误信息: {}", appId, generationId, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 释放锁（仅当持有者为该生成任务时）
+     */
+    public void release(Long appId, String generationId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            lockBucket(appId).compareAndSet(generationId, null);
+        } catch (Exception e) {
+            log.warn("生成锁释放失败，等待租期到期: appId={}, generationId={}, 错误信息: {}",
+                    appId, generationId, e.getMessage());
+        }
+    }
+
+    private Duration lease() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+
+    private RBucket<String> lockBucket(Long appId) {
+        return redissonClient.getBucket(LOCK_KEY_PREFIX + appId, StringCodec.INSTANCE);
+    }
+}
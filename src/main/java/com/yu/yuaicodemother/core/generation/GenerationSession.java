@@ -0,0 +1,477 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import lombok.Getter;
+import lombok.Setter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 一次代码生成的会话
+ * <p>
+ * 生成流由会话自身订阅，不随 SSE 连接断开而取消；产生的事件写入有界环形缓冲区（按事件数和字节数限制），
+ * 任意数量的客户端可以从指定事件 ID 之后重放并继续接收实时事件。
+ * 每个连接只保存读取位置，按下游请求量从缓冲区拉取事件，慢连接不会在堆上堆积待发送内容；
+ * 连接在订阅之后新增的落后字节超过上限时断开并通知客户端续传（订阅时已有的重放内容不计入）。
+ * 未开启 Redis 存储时，连接尚未发送的事件一旦被缓冲区淘汰就无法再续传，此时以明确的错误结束该连接。
+ * 开启 Redis 存储时，锁内只把事件交给 {@link GenerationEventWriter}，写入在锁外批量进行。
+ * </p>
+ */
+public class GenerationSession {
+
+    @Getter
+    private final String generationId;
+
+    @Getter
+    private final Long appId;
+
+    @Getter
+    private final Long userId;
+
+    /**
+     * 缓冲区容量（事件数）
+     */
+    private final int capacity;
+
+    /**
+     * 缓冲区字节上限，不大于 0 表示只按事件数限制
+     */
+    private final long maxBufferBytes;
+
+    /**
+     * 单个连接最多落后的字节数，不大于 0 表示不限制
+     */
+    private final long maxConnectionLagBytes;
+
+    /**
+     * 环形缓冲区，事件 ID 对容量取模为下标
+     */
+    private final GenerationEvent[] ring;
+
+    /**
+     * 终止连接时会回调移除自身，使用写时复制列表避免遍历时修改
+     */
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+    /**
+     * 跨节点事件存储，未开启时为 null
+     */
+    private final GenerationEventStore eventStore;
+
+    /**
+     * 事件存储的异步写入器（锁内只入队，在虚拟线程上批量写入），未开启存储时为 null
+     */
+    private final GenerationEventWriter eventWriter;
+
+    /**
+     * 无人订阅超时后是否自动停止
+     */
+    @Getter
+    @Setter
+    private volatile boolean autoStop = true;
+
+    /**
+     * 最后一个订阅者断开时的回调
+     */
+    @Setter
+    private volatile Runnable detachListener;
+
+    /**
+     * 连接因落后过多被断开时的回调
+     */
+    @Setter
+    private volatile Runnable overflowListener;
+
+    /**
+     * 缓冲区中最早的事件 ID
+     */
+    private long firstEventId = 1;
+
+    private long lastEventId;
+
+    /**
+     * 缓冲区中事件占用的字节数
+     */
+    private long bufferedBytes;
+
+    private boolean finished;
+
+    private Throwable error;
+
+    /**
+     * 是否被主动停止
+     */
+    private boolean cancelled;
+
+    /**
+     * 会话结束回调，在锁外执行
+     */
+    private final List<Runnable> finishListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 最近一次没有任何订阅者的时间（System.nanoTime），有订阅者时为 0
+     */
+    private long detachedAt = System.nanoTime();
+
+    private long finishedAt;
+
+    private Disposable upstream;
+
+    GenerationSession(String generationId, Long appId, Long userId, int capacity,
+                      long maxBufferBytes, long maxConnectionLagBytes, GenerationEventStore eventStore) {
+        this.generationId = generationId;
+        this.appId = appId;
+        this.userId = userId;
+        this.capacity = capacity;
+        this.maxBufferBytes = maxBufferBytes;
+        this.maxConnectionLagBytes = maxConnectionLagBytes;
+        this.ring = new GenerationEvent[capacity];
+        this.eventStore = eventStore;
+        this.eventWriter = eventStore == null ? null : new GenerationEventWriter(generationId, eventStore);
+    }
+
+    /**
+     * 开始消费生成流
+     */
+    void start(Flux<String> source) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+        }
+        Disposable disposable = source.subscribe(this::append, this::fail, this::complete);
+        synchronized (this) {
+            upstream = disposable;
+            // 订阅期间已被停止，此时 stop 拿不到上游，由这里补充取消
+            if (!cancelled) {
+                return;
+            }
+        }
+        disposable.dispose();
+    }
+
+    /**
+     * 订阅事件：先重放 lastEventId 之后的缓冲事件，再接收实时事件
+     *
+     * @param lastEventId 客户端已收到的最后一个事件 ID（从头开始传 0）
+     * @return 事件流（按下游请求量从缓冲区拉取）
+     */
+    public Flux<GenerationEvent> subscribe(long lastEventId) {
+        return Flux.create(sink -> {
+            Connection connection = new Connection(sink);
+            synchronized (this) {
+                connection.cursor = Math.max(lastEventId, firstEventId - 1);
+                for (long id = connection.cursor + 1; id <= this.lastEventId; id++) {
+                    connection.lagBytes += sizeOf(eventAt(id));
+                }
+                // 续传时需要重放的内容不计入落后上限，只限制订阅之后新增的落后
+                connection.lagBaseline = connection.lagBytes;
+                if (!finished) {
+                    connections.add(connection);
+                    detachedAt = 0;
+                }
+            }
+            sink.onDispose(() -> removeConnection(connection));
+            // 注册时已有请求量会立即回调
+            sink.onRequest(n -> drain(connection));
+        });
+    }
+
+    /**
+     * 是否还能从指定事件之后续传（之后的事件都还在缓冲区中）
+     */
+    public synchronized boolean canResumeFrom(long lastEventId) {
+        return lastEventId >= firstEventId - 1 && lastEventId <= this.lastEventId;
+    }
+
+    /**
+     * 停止生成（取消上游订阅）
+     */
+    public void stop() {
+        Disposable disposable;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            cancelled = true;
+            disposable = upstream;
+        }
+        if (disposable != null) {
+            disposable.dispose();
+        }
+        // 取消后上游不会再发出终止信号，主动结束会话
+        complete();
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 是否被主动停止（用户停止或无人订阅超时）
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 注册会话结束回调，会话已结束时立即执行
+     */
+    public void onFinish(Runnable listener) {
+        synchronized (this) {
+            if (!finished) {
+                finishListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * 已无订阅者的时长（纳秒），有订阅者时返回 0
+     */
+    synchronized long detachedNanos(long now) {
+        return connections.isEmpty() && detachedAt != 0 ? now - detachedAt : 0;
+    }
+
+    /**
+     * 已结束的时长（纳秒），未结束时返回 0
+     */
+    synchronized long finishedNanos(long now) {
+        return finished ? now - finishedAt : 0;
+    }
+
+    /**
+     * 缓冲区占用的字节数
+     */
+    synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    /**
+     * 所有连接落后的字节数之和
+     */
+    synchronized long getConnectionLagBytes() {
+        long total = 0;
+        for (Connection connection : connections) {
+            total += connection.lagBytes;
+        }
+        return total;
+    }
+
+    synchronized void append(String data) {
+        if (finished) {
+            return;
+        }
+        GenerationEvent event = new GenerationEvent(++lastEventId, data);
+        int slot = (int) (lastEventId % capacity);
+        GenerationEvent overwritten = ring[slot];
+        if (overwritten != null) {
+            bufferedBytes -= sizeOf(overwritten);
+            firstEventId = overwritten.id() + 1;
+        }
+        ring[slot] = event;
+        long size = sizeOf(event);
+        bufferedBytes += size;
+        // 超出字节上限时淘汰最早的事件，至少保留最新一个
+        while (maxBufferBytes > 0 && bufferedBytes > maxBufferBytes && firstEventId < lastEventId) {
+            int oldest = (int) (firstEventId % capacity);
+            bufferedBytes -= sizeOf(ring[oldest]);
+            ring[oldest] = null;
+            firstEventId++;
+        }
+        for (Connection connection : connections) {
+            connection.lagBytes += size;
+            drain(connection);
+        }
+        if (eventWriter != null) {
+            // 只入队，写入 Redis 在锁外进行；入队在锁内保证与结束标记的顺序
+            eventWriter.append(event);
+        }
+    }
+
+    void complete() {
+        if (finish(null)) {
+            notifyFinished();
+        }
+    }
+
+    void fail(Throwable throwable) {
+        if (finish(throwable)) {
+            notifyFinished();
+        }
+    }
+
+    /**
+     * 生成失败时的异常，未失败时为 null
+     */
+    public synchronized Throwable getError() {
+        return error;
+    }
+
+    private synchronized boolean finish(Throwable throwable) {
+        if (finished) {
+            return false;
+        }
+        finished = true;
+        finishedAt = System.nanoTime();
+        error = throwable;
+        // 已读完的连接立即结束，其余连接读完缓冲区后结束（由下游请求驱动）
+        for (Connection connection : connections) {
+            drain(connection);
+        }
+        connections.clear();
+        if (eventWriter != null) {
+            eventWriter.finish(throwable);
+        }
+        return true;
+    }
+
+    private void notifyFinished() {
+        for (Runnable listener : finishListeners) {
+            listener.run();
+        }
+        finishListeners.clear();
+    }
+
+    private void terminate(FluxSink<GenerationEvent> sink) {
+        if (error != null) {
+            sink.error(error);
+        } else {
+            sink.complete();
+        }
+    }
+
+    /**
+     * 按下游请求量向连接发送事件，重入时由外层循环继续处理
+     */
+    private synchronized void drain(Connection connection) {
+        if (connection.draining) {
+            connection.missed = true;
+            return;
+        }
+        connection.draining = true;
+        try {
+            do {
+                connection.missed = false;
+                while (!connection.done && connection.cursor < lastEventId
+                        && connection.sink.requestedFromDownstream() > 0) {
+                    GenerationEvent next = eventAt(connection.cursor + 1);
+                    if (next == null) {
+                        evicted(connection);
+                        return;
+                    }
+                    // 先推进位置再发送，发送时下游同步请求也不会重复发送
+                    connection.cursor = next.id();
+                    connection.lagBytes -= sizeOf(next);
+                    // 重放内容发送后基线随之减少，之后新增的落后全部计入上限
+                    connection.lagBaseline = Math.min(connection.lagBaseline, connection.lagBytes);
+                    connection.sink.next(next);
+                }
+                if (connection.done) {
+                    return;
+                }
+                if (finished && connection.cursor >= lastEventId) {
+                    connection.done = true;
+                    terminate(connection.sink);
+                } else if (maxConnectionLagBytes > 0
+                        && connection.lagBytes - connection.lagBaseline > maxConnectionLagBytes) {
+                    detach(connection);
+                }
+            } while (connection.missed);
+        } finally {
+            connection.draining = false;
+        }
+    }
+
+    /**
+     * 断开落后过多的连接，客户端收到后从已收到的最后一个事件续传
+     */
+    private void detach(Connection connection) {
+        connection.done = true;
+        Runnable listener = overflowListener;
+        if (listener != null) {
+            listener.run();
+        }
+        connection.sink.error(new GenerationDetachedException(connection.cursor));
+    }
+
+    /**
+     * 待发送的事件已被淘汰：开启 Redis 存储时断开后从 Redis 续传，否则已无法续传，直接结束连接
+     */
+    private void evicted(Connection connection) {
+        if (eventStore != null) {
+            detach(connection);
+            return;
+        }
+        connection.done = true;
+        connection.sink.error(new BusinessException(ErrorCode.OPERATION_ERROR,
+                "连接过慢，未接收的内容已超出续传缓冲区，请在生成结束后刷新查看结果"));
+    }
+
+    private GenerationEvent eventAt(long id) {
+        if (id < firstEventId || id > lastEventId) {
+            return null;
+        }
+        return ring[(int) (id % capacity)];
+    }
+
+    /**
+     * 事件占用的字节数（按 UTF-16 字符估算）
+     */
+    private static long sizeOf(GenerationEvent event) {
+        return event == null || event.data() == null ? 0 : 2L * event.data().length();
+    }
+
+    private void removeConnection(Connection connection) {
+        Runnable listener;
+        synchronized (this) {
+            if (!connections.remove(connection) || !connections.isEmpty()) {
+                return;
+            }
+            detachedAt = System.nanoTime();
+            listener = finished ? null : detachListener;
+        }
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 一个订阅连接，只保存读取位置，所有状态在会话锁内访问
+     */
+    private static final class Connection {
+
+        private final FluxSink<GenerationEvent> sink;
+
+        /**
+         * 已发送的最后一个事件 ID
+         */
+        private long cursor;
+
+        /**
+         * 尚未发送的事件字节数
+         */
+        private long lagBytes;
+
+        /**
+         * 订阅时需要重放的字节数，随发送减少，不计入落后上限
+         */
+        private long lagBaseline;
+
+        private boolean done;
+
+        private boolean draining;
+
+        private boolean missed;
+
+        private Connection(FluxSink<GenerationEvent> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.yu.yuaicodemother.core.generation;
+
+import cn.hutool.core.util.IdUtil;
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码生成会话管理器
+ * <p>
+ * 为每次生成分配 generationId 并在后台持续消费生成流，SSE 连接只是会话的订阅者：
+ * 1. 连接断开后生成继续进行，客户端可带上最后收到的事件 ID 续传；
+ * 2. 长时间无人订阅的会话自动停止，避免无人接收的生成持续消耗 token；
+ * 3. 结束的会话保留一段时间供续传，随后清理；
+ * 4. 开启 Redis 存储后，其他节点也可以续传。
+ * </p>
+ */
+@Slf4j
+@Component
+public class GenerationSessionManager {
+
+    /**
+     * 清理任务执行间隔（秒）
+     */
+    private static final long SWEEP_INTERVAL_SECONDS = 10;
+
+    /**
+     * 每次生成缓冲的事件数
+     */
+    @Value("${generation.resume.buffer-size:2048}")
+    private int bufferSize;
+
+    /**
+     * 每次生成缓冲的字节上限（按 UTF-16 估算），不大于 0 表示只按事件数限制
+     */
+    @Value("${generation.resume.buffer-max-bytes:8388608}")
+    private long bufferMaxBytes;
+
+    /**
+     * 单个连接最多落后的字节数，超出后断开连接并通知客户端续传，不大于 0 表示不限制
+     */
+    @Value("${generation.backpressure.connection-max-lag-bytes:1048576}")
+    private long connectionMaxLagBytes;
+
+    /**
+     * 结束后保留多久供续传（分钟）
+     */
+    @Value("${generation.resume.retention-minutes:5}")
+    private long retentionMinutes;
+
+    /**
+     * 无人订阅多久后停止生成（秒）
+     */
+    @Value("${generation.resume.detached-timeout-seconds:30}")
+    private long detachedTimeoutSeconds;
+
+    /**
+     * 客户端断开后是否在宽限期结束时立即停止生成（关闭则只由定期清理任务停止）
+     */
+    @Value("${generation.resume.cancel-on-disconnect:true}")
+    private boolean cancelOnDisconnect;
+
+    @Resource
+    private GenerationEventStore generationEventStore;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, GenerationSession> sessions = new ConcurrentHashMap<>();
+
+    private Disposable sweeper;
+
+    private Counter detachedCounter;
+
+    @PostConstruct
+    public void init() {
+        sweeper = Schedulers.parallel().schedulePeriodically(this::sweep,
+                SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Gauge.builder("generation_session_active_count", sessions,
+                        map -> map.values().stream().filter(session -> !session.isFinished()).count())
+                .description("进行中的生成会话数")
+                .register(meterRegistry);
+        Gauge.builder("generation_buffer_bytes", sessions,
+                        map -> map.values().stream().mapToLong(GenerationSession::getBufferedBytes).sum())
+                .description("生成会话缓冲区占用的字节数")
+                .register(meterRegistry);
+        Gauge.builder("generation_connection_lag_bytes", sessions,
+                        map -> map.values().stream().mapToLong(GenerationSession::getConnectionLagBytes).sum())
+                .description("所有连接尚未发送的字节数")
+                .register(meterRegistry);
+        detachedCounter = Counter.builder("generation_connection_overflow_total")
+                .description("落后超过字节上限被断开的连接数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    /**
+     * 创建会话并开始消费生成流
+     *
+     * @param appId  应用 ID
+     * @param userId 用户 ID
+     * @param source 生成流（展示内容片段）
+     * @return 会话
+     */
+    public GenerationSession start(Long appId, Long userId, Flux<String> source) {
+        GenerationSession session = create(IdUtil.fastSimpleUUID(), appId, userId, true);
+        session.start(source);
+        return session;
+    }
+
+    /**
+     * 创建会话，生成流由调用方稍后通过 {@link GenerationSession#start} 接入（排队中的任务先创建会话供订阅）
+     *
+     * @param generationId 生成 ID
+     * @param appId        应用 ID
+     * @param userId       用户 ID
+     * @param autoStop     无人订阅超时后是否自动停止（订阅者在其他节点的任务不能按本地订阅判断）
+     * @return 会话
+     */
+    public GenerationSession create(String generationId, Long appId, Long userId, boolean autoStop) {
+        GenerationEventStore eventStore = generationEventStore.isEnabled() ? generationEventStore : null;
+        if (eventStore != null) {
+            eventStore.register(generationId, userId);
+        }
+        GenerationSession session = new GenerationSession(generationId, appId, userId, bufferSize,
+                bufferMaxBytes, connectionMaxLagBytes, eventStore);
+        session.setAutoStop(autoStop);
+        session.setOverflowListener(() -> {
+            detachedCounter.increment();
+            log.info("连接落后过多已断开，等待客户端续传: generationId={}, appId={}", generationId, appId);
+        });
+        if (autoStop && cancelOnDisconnect) {
+            // 最后一个订阅者断开后，宽限期内没有续传则停止生成并关闭模型调用
+            session.setDetachListener(() -> Schedulers.parallel().schedule(() -> stopIfDetached(session, System.nanoTime()),
+                    detachedTimeoutSeconds, TimeUnit.SECONDS));
+        }
+        sessions.put(generationId, session);
+        log.info("生成会话已创建: generationId={}, appId={}", generationId, appId);
+        return session;
+    }
+
+    /**
+     * 获取本节点的会话
+     *
+     * @return 会话，不在本节点时返回 null
+     */
+    public GenerationSession getSession(String generationId) {
+        return sessions.get(generationId);
+    }
+
+    /**
+     * 续传：重放指定事件之后的内容并继续接收实时事件
+     *
+     * @param generationId 生成 ID
+     * @param lastEventId  已收到的最后一个事件 ID
+     * @param userId       当前用户 ID
+     * @return 事件流
+     */
+    public Flux<GenerationEvent> resume(String generationId, long lastEventId, Long userId) {
+        GenerationSession session = sessions.get(generationId);
+        if (session != null) {
+            checkOwner(session.getUserId(), userId);
+            if (session.canResumeFrom(lastEventId)) {
+                return session.subscribe(lastEventId);
+            }
+            // 本地缓冲区已淘汰，Redis Stream 保留的事件可能更多
+            if (!generationEventStore.isEnabled() || !generationEventStore.canResumeFrom(generationId, lastEventId)) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "续传位置已过期，请重新生成");
+            }
+            return generationEventStore.replay(generationId, lastEventId);
+        }
+        // 本节点没有该会话，尝试从 Redis 续传
+        if (generationEventStore.isEnabled()) {
+            Long owner = generationEventStore.getOwner(generationId);
+            if (owner != null) {
+                checkOwner(owner, userId);
+                if (!generationEventStore.canResumeFrom(generationId, lastEventId)) {
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "续传位置已过期，请重新生成");
+                }
+                return generationEventStore.replay(generationId, lastEventId);
+            }
+        }
+        throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "生成任务不存在或已过期");
+    }
+
+    /**
+     * 停止生成
+     *
+     * @param generationId 生成 ID
+     * @param userId       当前用户 ID
+     * @return 是否停止了进行中的生成
+     */
+    public boolean stop(String generationId, Long userId) {
+        GenerationSession session = sessions.get(generationId);
+        if (session == null) {
+            return false;
+        }
+        checkOwner(session.getUserId(), userId);
+        if (session.isFinished()) {
+            return false;
+        }
+        session.stop();
+        log.info("生成已被用户停止: generationId={}, appId={}", generationId, session.getAppId());
+        return true;
+    }
+
+    /**
+     * 停止本节点的生成（权限已在发起停止的节点校验）
+     *
+     * @return 是否停止了进行中的生成
+     */
+    public boolean stopLocal(String generationId) {
+        GenerationSession session = sessions.get(generationId);
+        if (session == null || session.isFinished()) {
+            return false;
+        }
+        session.stop();
+        log.info("生成已被停止: generationId={}, appId={}", generationId, session.getAppId());
+        return true;
+    }
+
+    /**
+     * 停止长时间无人订阅的生成，清理过期的会话
+     */
+    void sweep() {
+        long now = System.nanoTime();
+        long retention = TimeUnit.MINUTES.toNanos(retentionMinutes);
+        sessions.values().removeIf(session -> {
+            if (stopIfDetached(session, now)) {
+                return false;
+            }
+            return session.finishedNanos(now) > retention;
+        });
+    }
+
+    /**
+     * 无人订阅超过宽限期时停止生成
+     *
+     * @return 是否停止了生成
+     */
+    private boolean stopIfDetached(GenerationSession session, long now) {
+        if (!session.isAutoStop() || session.isFinished()) {
+            return false;
+        }
+        // 有订阅者时为 0
+        long detachedNanos = session.detachedNanos(now);
+        if (detachedNanos == 0 || detachedNanos < TimeUnit.SECONDS.toNanos(detachedTimeoutSeconds)) {
+            return false;
+        }
+        log.info("生成会话无人订阅，停止生成: generationId={}, appId={}", session.getGenerationId(), session.getAppId());
+        session.stop();
+        return true;
+    }
+
+    private void checkOwner(Long ownerId, Long userId) {
+        if (!ownerId.equals(userId)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该生成任务");
+        }
+    }
+}
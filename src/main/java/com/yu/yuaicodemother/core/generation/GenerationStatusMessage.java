@@ -0,0 +1,44 @@
+package com.yu.yuaicodemother.core.generation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 生成状态变更消息（通过 Redis 发布订阅推送到所有节点）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerationStatusMessage {
+
+    /**
+     * 生成 ID
+     */
+    private String generationId;
+
+    /**
+     * 应用 ID
+     */
+    private Long appId;
+
+    /**
+     * 任务状态（GenerationJobStatusEnum 的 value）
+     */
+    private String status;
+
+    /**
+     * 应用生成状态（AppGenStatusEnum 的 value）
+     */
+    private Integer genStatus;
+
+    /**
+     * 发布消息的节点，节点收到自己发布的消息时忽略（本地已直接推送）
+     */
+    private String node;
+
+    /**
+     * 等待模型调用许可时的排队位置（1 表示下一个放行，0 表示已放行），状态变更消息为 null
+     */
+    private Integer queuePosition;
+}
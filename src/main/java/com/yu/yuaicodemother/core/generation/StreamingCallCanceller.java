@@ -0,0 +1,113 @@
+package com.yu.yuaicodemother.core.generation;
+
+import dev.langchain4j.model.chat.response.StreamingHandle;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 模型流式调用的取消器
+ * <p>
+ * 每个流式回调都会带上底层调用的 {@link StreamingHandle}，这里记录最新的句柄：
+ * 1. 取消时直接关闭底层 HTTP 流，释放连接，模型不再继续输出；
+ * 2. 取消时尚未收到任何片段（句柄未知）的，在第一个片段到达时立即关闭；
+ * 3. 工具调用后 langchain4j 会发起新一轮请求，新请求的句柄同样在第一个片段到达时关闭。
+ * </p>
+ */
+public class StreamingCallCanceller {
+
+    /**
+     * 在工具回调中抛出，用于终止 langchain4j 的工具调用循环
+     */
+    public static final String CANCELLED_MESSAGE = "CANCELLED_BY_USER";
+
+    /**
+     * 底层调用被关闭时的回调
+     */
+    @FunctionalInterface
+    public interface AbortListener {
+
+        /**
+         * @param outputChunks 关闭前已输出的片段数（每个片段约为一个 token）
+         * @param releaseNanos 从请求取消到关闭底层调用的耗时
+         */
+        void onAborted(long outputChunks, long releaseNanos);
+    }
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    private final AtomicBoolean aborted = new AtomicBoolean();
+
+    private final AtomicReference<StreamingHandle> handle = new AtomicReference<>();
+
+    private final AtomicLong outputChunks = new AtomicLong();
+
+    private final AbortListener abortListener;
+
+    private volatile long cancelRequestedAt;
+
+    public StreamingCallCanceller(AbortListener abortListener) {
+        this.abortListener = abortListener;
+    }
+
+    /**
+     * 在每个流式片段回调中调用：记录句柄，已取消时立即关闭底层调用
+     *
+     * @param streamingHandle 当前调用的句柄
+     * @return 是否已取消（已取消时回调应直接返回，不再向下游推送）
+     */
+    public boolean onChunk(StreamingHandle streamingHandle) {
+        // 先记录句柄再检查标记，与 cancel 的顺序相反，保证两者并发时至少一方能关闭调用
+        handle.set(streamingHandle);
+        if (cancelled.get()) {
+            abort(streamingHandle);
+            return true;
+        }
+        outputChunks.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 请求取消，句柄已知时立即关闭底层调用
+     */
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        cancelRequestedAt = System.nanoTime();
+        StreamingHandle current = handle.get();
+        if (current != null) {
+            abort(current);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * 已取消时抛出异常，用于不带句柄的工具回调
+     */
+    public void checkCancelled() {
+        if (cancelled.get()) {
+            throw new RuntimeException(CANCELLED_MESSAGE);
+        }
+    }
+
+    /**
+     * 流的异常是否由取消引起
+     */
+    public boolean isCancellation(Throwable error) {
+        return cancelled.get() || CANCELLED_MESSAGE.equals(error.getMessage());
+    }
+
+    private void abort(StreamingHandle streamingHandle) {
+        if (!streamingHandle.isCancelled()) {
+            streamingHandle.cancel();
+        }
+        if (aborted.compareAndSet(false, true)) {
+            abortListener.onAborted(outputChunks.get(), System.nanoTime() - cancelRequestedAt);
+        }
+    }
+}
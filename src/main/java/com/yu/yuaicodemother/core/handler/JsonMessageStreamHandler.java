@@ -1,22 +1,20 @@
 package com.yu.yuaicodemother.core.handler;
 
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.DeepThinkMessage;
 import com.yu.yuaicodemother.ai.model.message.StreamMessage;
 import com.yu.yuaicodemother.ai.model.message.ToolExecutedMessage;
 import com.yu.yuaicodemother.ai.model.message.BeforeToolExecuted;
 import com.yu.yuaicodemother.ai.tools.BaseTool;
 import com.yu.yuaicodemother.ai.tools.ToolManager;
-import com.yu.yuaicodemother.constant.AppConstant;
-import com.yu.yuaicodemother.core.builder.VueProjectBuilder;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
 import com.yu.yuaicodemother.model.entity.User;
 import com.yu.yuaicodemother.model.enums.ChatHistoryMessageTypeEnum;
 import com.yu.yuaicodemother.model.enums.StreamMessageTypeEnum;
 import com.yu.yuaicodemother.service.ChatHistoryService;
-import dev.langchain4j.model.chat.response.PartialThinking;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -24,6 +22,7 @@ import reactor.core.publisher.Flux;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * JSON 消息流处理器
@@ -34,14 +33,14 @@ import java.util.Set;
 public class JsonMessageStreamHandler {
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private ToolManager toolManager;
 
     @Resource
-    private ToolManager toolManager;
+    private AppSideEffectExecutor appSideEffectExecutor;
 
     /**
      * 处理 TokenStream（VUE_PROJECT）
-     * 解析 JSON 消息并重组为完整的响应格式
+     * 将类型化消息转换为前端展示文本，并重组为完整的响应格式
      *
      * @param originFlux         原始流
      * @param chatHistoryService 聊天历史服务
@@ -49,59 +48,65 @@ public class JsonMessageStreamHandler {
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
             ChatHistoryService chatHistoryService,
             long appId, User loginUser) {
         // 收集数据用于生成后端记忆格式
         StringBuilder chatHistoryStringBuilder = new StringBuilder();
         // 用于跟踪已经见过的工具ID，判断是否是第一次调用
         Set<String> seenToolIds = new HashSet<>();
+        // 是否正处于连续的思考内容中（同一段思考只输出一次前缀）
+        AtomicBoolean thinking = new AtomicBoolean(false);
         return originFlux
-                .map(chunk -> {
-                    // 解析每个 JSON 消息块
-                    return handleJsonMessageChunk(chunk, chatHistoryStringBuilder, seenToolIds);
+                .map(message -> {
+                    // 转换每个消息
+                    return handleJsonMessageChunk(message, chatHistoryStringBuilder, seenToolIds, thinking);
                 })
                 .filter(StrUtil::isNotEmpty) // 过滤空字串
                 .doOnComplete(() -> {
-                    // 流式响应完成后，添加 AI 消息到对话历史
+                    // 流式响应完成后，异步添加 AI 消息到对话历史，不阻塞流的结束
+                    // （项目构建已由生成门面提交到同一应用的副作用队列，排在对话历史之前）
                     String aiResponse = chatHistoryStringBuilder.toString();
-                    chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(),
-                            loginUser.getId());
-                    String projectDir = AppConstant.CODE_OUTPUT_ROOT_DIR + "/vue_project_" + appId;
-                    vueProjectBuilder.buildProjectAsync(projectDir);
+                    appSideEffectExecutor.execute(appId, "ai_chat_history", () -> chatHistoryService.addChatMessage(
+                            appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId()));
                 })
                 .doOnError(error -> {
                     // 如果AI回复失败，也要记录错误消息
                     String errorMessage = "AI回复失败: " + error.getMessage();
-                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(),
-                            loginUser.getId());
+                    appSideEffectExecutor.execute(appId, "ai_chat_history", () -> chatHistoryService.addChatMessage(
+                            appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId()));
                 });
     }
 
     /**
-     * 解析并收集 TokenStream 数据
+     * 处理并收集 TokenStream 消息
+     * 消息已是类型化对象，按类型直接转换，不再反复解析 JSON
      */
-    private String handleJsonMessageChunk(String chunk, StringBuilder chatHistoryStringBuilder,
-            Set<String> seenToolIds) {
-        // 解析 JSON
-        StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
+    String handleJsonMessageChunk(StreamMessage streamMessage, StringBuilder chatHistoryStringBuilder,
+            Set<String> seenToolIds, AtomicBoolean thinking) {
         StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
+        if (typeEnum == null) {
+            log.error("不支持的消息类型: {}", streamMessage.getType());
+            return "";
+        }
+        // 思考内容结束
+        boolean afterThinking = typeEnum != StreamMessageTypeEnum.Deep_THINK && thinking.getAndSet(false);
         switch (typeEnum) {
             case AI_RESPONSE -> {
-                AiResponseMessage aiMessage = JSONUtil.toBean(chunk, AiResponseMessage.class);
+                AiResponseMessage aiMessage = (AiResponseMessage) streamMessage;
                 String data = aiMessage.getData();
                 // 直接拼接响应
                 chatHistoryStringBuilder.append(data);
-                return data;
+                // 与前面的思考内容分段显示，不写入对话历史
+                return afterThinking ? "\n\n" + data : data;
             }
             case TOOL_REQUEST -> {
-                BeforeToolExecuted toolRequestMessage = JSONUtil.toBean(chunk, BeforeToolExecuted.class);
+                BeforeToolExecuted toolRequestMessage = (BeforeToolExecuted) streamMessage;
                 String toolId = toolRequestMessage.getId();
                 String toolName = toolRequestMessage.getName();
                 // 检查是否是第一次看到这个工具 ID
-                if (toolId != null && !seenToolIds.contains(toolId)) {
-                    // 第一次调用这个工具，记录 ID 并完整返回工具信息
-                    seenToolIds.add(toolId);
+                if (toolId != null && seenToolIds.add(toolId)) {
+                    // 第一次调用这个工具，完整返回工具信息
                     BaseTool tool = toolManager.getTool(toolName);
                     return tool.generateToolRequestResponse();
                 } else {
@@ -110,9 +115,9 @@ public class JsonMessageStreamHandler {
                 }
             }
             case TOOL_EXECUTED -> {
-                ToolExecutedMessage toolExecutedMessage = JSONUtil.toBean(chunk, ToolExecutedMessage.class);
+                ToolExecutedMessage toolExecutedMessage = (ToolExecutedMessage) streamMessage;
+                // 工具参数本身是模型输出的 JSON 字符串，仍需解析
                 JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
-                String relativeFilePath = jsonObject.getStr("relativeFilePath");
                 String toolName = toolExecutedMessage.getName();
                 BaseTool tool = toolManager.getTool(toolName);
                 String result = tool.generateToolExecutedResult(jsonObject);
@@ -122,12 +127,13 @@ public class JsonMessageStreamHandler {
                 return output;
             }
             case Deep_THINK -> {
-                PartialThinking partialThinking = JSONUtil.toBean(chunk, PartialThinking.class);
-                if (partialThinking.text() == null) {
+                String reasoningContent = ((DeepThinkMessage) streamMessage).getReasoningContent();
+                if (StrUtil.isEmpty(reasoningContent)) {
                     // 忽略空消息
                     return "";
                 }
-                return "\n\n[AI正在思考🐟] " + partialThinking.text();
+                // 连续的思考片段合并为一段，只在开头输出前缀
+                return thinking.getAndSet(true) ? reasoningContent : "\n\n[AI正在思考🐟] " + reasoningContent;
             }
 
             default -> {
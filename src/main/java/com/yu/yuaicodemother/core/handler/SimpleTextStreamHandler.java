@@ -1,5 +1,8 @@
 package com.yu.yuaicodemother.core.handler;
 
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
 import com.yu.yuaicodemother.model.entity.User;
 import com.yu.yuaicodemother.model.enums.ChatHistoryMessageTypeEnum;
 import com.yu.yuaicodemother.service.ChatHistoryService;
@@ -13,6 +16,12 @@ import reactor.core.publisher.Flux;
 @Slf4j
 public class SimpleTextStreamHandler {
 
+    private final AppSideEffectExecutor appSideEffectExecutor;
+
+    public SimpleTextStreamHandler(AppSideEffectExecutor appSideEffectExecutor) {
+        this.appSideEffectExecutor = appSideEffectExecutor;
+    }
+
     /**
      * 处理传统流（HTML, MULTI_FILE）
      * 直接收集完整的文本响应
@@ -23,27 +32,28 @@ public class SimpleTextStreamHandler {
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
             ChatHistoryService chatHistoryService,
             long appId, User loginUser) {
         StringBuilder aiResponseBuilder = new StringBuilder();
         return originFlux
-                .map(chunk -> {
+                .map(message -> {
                     // 收集AI响应内容
+                    String chunk = ((AiResponseMessage) message).getData();
                     aiResponseBuilder.append(chunk);
                     return chunk;
                 })
                 .doOnComplete(() -> {
-                    // 流式响应完成后，添加AI消息到对话历史
+                    // 流式响应完成后，异步添加AI消息到对话历史，不阻塞流的结束
                     String aiResponse = aiResponseBuilder.toString();
-                    chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(),
-                            loginUser.getId());
+                    appSideEffectExecutor.execute(appId, "ai_chat_history", () -> chatHistoryService.addChatMessage(
+                            appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId()));
                 })
                 .doOnError(error -> {
                     // 如果AI回复失败，也要记录错误消息
                     String errorMessage = "AI回复失败: " + error.getMessage();
-                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(),
-                            loginUser.getId());
+                    appSideEffectExecutor.execute(appId, "ai_chat_history", () -> chatHistoryService.addChatMessage(
+                            appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId()));
                 });
     }
 }
@@ -1,5 +1,7 @@
 package com.yu.yuaicodemother.core.handler;
 
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
 import com.yu.yuaicodemother.model.entity.User;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
 import com.yu.yuaicodemother.service.AppVersionService;
@@ -12,8 +14,9 @@ import reactor.core.publisher.Flux;
 /**
  * 流处理器执行器
  * 根据代码生成类型创建合适的流处理器：
- * 1. 传统的 Flux<String> 流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
+ * 1. 传统的文本流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
  * 2. TokenStream 格式的复杂流（VUE_PROJECT） -> JsonMessageStreamHandler
+ * 输入均为类型化的 StreamMessage，先按类型合并连续的增量，再转换为前端展示文本
  */
 @Slf4j
 @Component
@@ -22,9 +25,15 @@ public class StreamHandlerExecutor {
     @Resource
     private JsonMessageStreamHandler jsonMessageStreamHandler;
 
+    @Resource
+    private StreamMessageCoalescer streamMessageCoalescer;
+
     @Resource
     private AppVersionService appVersionService;
 
+    @Resource
+    private AppSideEffectExecutor appSideEffectExecutor;
+
     /**
      * 创建流处理器并处理聊天历史记录
      *
@@ -35,21 +44,24 @@ public class StreamHandlerExecutor {
      * @param codeGenType        代码生成类型
      * @return 处理后的流
      */
-    public Flux<String> doExecute(Flux<String> originFlux,
+    public Flux<String> doExecute(Flux<StreamMessage> originFlux,
             ChatHistoryService chatHistoryService,
             long appId, User loginUser, CodeGenTypeEnum codeGenType) {
+        // 合并逐 token 的小消息，减少 SSE 事件数
+        Flux<StreamMessage> coalescedFlux = streamMessageCoalescer.coalesce(originFlux);
         Flux<String> resultFlux = switch (codeGenType) {
             case VUE_PROJECT ->
-                jsonMessageStreamHandler.handle(originFlux, chatHistoryService, appId, loginUser);
+                jsonMessageStreamHandler.handle(coalescedFlux, chatHistoryService, appId, loginUser);
             case HTML, MULTI_FILE ->
-                new SimpleTextStreamHandler().handle(originFlux, chatHistoryService, appId, loginUser);
+                new SimpleTextStreamHandler(appSideEffectExecutor).handle(coalescedFlux, chatHistoryService, appId, loginUser);
         };
-        return resultFlux.doOnComplete(() -> {
+        // 创建版本需要复制整个项目目录，排在对话历史之后异步执行
+        return resultFlux.doOnComplete(() -> appSideEffectExecutor.execute(appId, "create_version", () -> {
             try {
                 appVersionService.createVersion(appId, "AI生成代码");
             } catch (Exception e) {
                 log.error("版本创建失败: appId={}, error={}", appId, e.getMessage());
             }
-        });
+        }));
     }
 }
@@ -0,0 +1,189 @@
+package com.yu.yuaicodemother.core.handler;
+
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.DeepThinkMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.model.enums.StreamMessageTypeEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式消息合并器
+ * <p>
+ * 推理模型几乎逐 token 推送，逐条转成 SSE 事件会产生大量小事件。这里按类型合并连续的增量：
+ * 1. 连续的 AI 响应 / 思考片段合并为一条，首个片段到达后最多等待一个时间窗口，或累计达到字符上限时立即输出；
+ * 2. 类型切换时先输出已合并的内容，保证顺序不变；
+ * 3. 工具请求 / 工具执行结果不合并，到达时立即输出。
+ * </p>
+ */
+@Component
+public class StreamMessageCoalescer {
+
+    @Value("${sse.coalesce.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 合并时间窗口（毫秒）
+     */
+    @Value("${sse.coalesce.window-ms:40}")
+    private long windowMs;
+
+    /**
+     * 单条合并消息的字符上限
+     */
+    @Value("${sse.coalesce.max-chars:2048}")
+    private int maxChars;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Scheduler scheduler = Schedulers.parallel();
+
+    private Counter inputCounter;
+
+    private Counter outputCounter;
+
+    @PostConstruct
+    public void init() {
+        inputCounter = Counter.builder("stream_message_coalesce_input_total")
+                .description("合并前的流式消息数")
+                .register(meterRegistry);
+        outputCounter = Counter.builder("stream_message_coalesce_output_total")
+                .description("合并后输出的流式消息数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 合并消息流
+     *
+     * @param originFlux 原始消息流
+     * @return 合并后的消息流
+     */
+    public Flux<StreamMessage> coalesce(Flux<StreamMessage> originFlux) {
+        if (!enabled) {
+            return originFlux;
+        }
+        return Flux.create(sink -> {
+            Window window = new Window(sink);
+            // 上游以下游的 Reactor Context 订阅，准入、追踪等上下文才能越过合并层
+            Disposable upstream = originFlux.contextWrite(sink.contextView())
+                    .subscribe(window::onNext, window::onError, window::onComplete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                window.cancelTimer();
+            });
+        });
+    }
+
+    /**
+     * 单个流的合并窗口，上游线程与定时器线程通过对象锁串行访问
+     */
+    private class Window {
+
+        private final FluxSink<StreamMessage> sink;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        /**
+         * 正在合并的消息类型，为空表示没有待输出内容
+         */
+        private StreamMessageTypeEnum pendingType;
+
+        private Disposable timer;
+
+        Window(FluxSink<StreamMessage> sink) {
+            this.sink = sink;
+        }
+
+        synchronized void onNext(StreamMessage message) {
+            inputCounter.increment();
+            StreamMessageTypeEnum type = StreamMessageTypeEnum.getEnumByValue(message.getType());
+            String text = mergeableText(type, message);
+            if (text == null) {
+                // 工具事件等不可合并的消息立即输出
+                flush();
+                emit(message);
+                return;
+            }
+            if (pendingType != type) {
+                flush();
+                pendingType = type;
+            }
+            buffer.append(text);
+            if (buffer.length() >= maxChars) {
+                flush();
+            } else if (timer == null) {
+                timer = scheduler.schedule(this::onTimer, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void onComplete() {
+            flush();
+            sink.complete();
+        }
+
+        synchronized void onError(Throwable error) {
+            // 出错前先输出已收到的内容
+            flush();
+            sink.error(error);
+        }
+
+        synchronized void cancelTimer() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+
+        private synchronized void onTimer() {
+            timer = null;
+            flush();
+        }
+
+        private void flush() {
+            cancelTimer();
+            if (pendingType == null) {
+                return;
+            }
+            String text = buffer.toString();
+            buffer.setLength(0);
+            StreamMessageTypeEnum type = pendingType;
+            pendingType = null;
+            if (text.isEmpty()) {
+                return;
+            }
+            emit(type == StreamMessageTypeEnum.Deep_THINK ? new DeepThinkMessage(text) : new AiResponseMessage(text));
+        }
+
+        private void emit(StreamMessage message) {
+            outputCounter.increment();
+            sink.next(message);
+        }
+    }
+
+    /**
+     * 可合并消息的文本，不可合并时返回 null
+     */
+    private static String mergeableText(StreamMessageTypeEnum type, StreamMessage message) {
+        if (type == StreamMessageTypeEnum.AI_RESPONSE) {
+            String data = ((AiResponseMessage) message).getData();
+            return data == null ? "" : data;
+        }
+        if (type == StreamMessageTypeEnum.Deep_THINK) {
+            String reasoningContent = ((DeepThinkMessage) message).getReasoningContent();
+            return reasoningContent == null ? "" : reasoningContent;
+        }
+        return null;
+    }
+}
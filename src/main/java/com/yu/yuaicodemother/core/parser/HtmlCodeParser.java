@@ -3,9 +3,6 @@ package com.yu.yuaicodemother.core.parser;
 import com.yu.yuaicodemother.ai.model.HtmlCodeResult;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * HTML 单文件代码解析器
  *
@@ -14,8 +11,6 @@ import java.util.regex.Pattern;
 @Slf4j
 public class HtmlCodeParser implements CodeParser<HtmlCodeResult> {
 
-    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-
     @Override
     public HtmlCodeResult parseCode(String codeContent) {
         HtmlCodeResult result = new HtmlCodeResult();
@@ -38,10 +33,6 @@ public class HtmlCodeParser implements CodeParser<HtmlCodeResult> {
      * @return HTML代码
      */
     private String extractHtmlCode(String content) {
-        Matcher matcher = HTML_CODE_PATTERN.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
+        return StreamingCodeBlockParser.findFirst(content, "html");
     }
 }
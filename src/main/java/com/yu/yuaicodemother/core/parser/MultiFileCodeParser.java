@@ -2,9 +2,6 @@ package com.yu.yuaicodemother.core.parser;
 
 import com.yu.yuaicodemother.ai.model.MultiFileCodeResult;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * 多文件代码解析器（HTML + CSS + JS）
  *
@@ -12,17 +9,22 @@ import java.util.regex.Pattern;
  */
 public class MultiFileCodeParser implements CodeParser<MultiFileCodeResult> {
 
-    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-
     @Override
     public MultiFileCodeResult parseCode(String codeContent) {
         MultiFileCodeResult result = new MultiFileCodeResult();
-        // 提取各类代码
-        String htmlCode = extractCodeByPattern(codeContent, HTML_CODE_PATTERN);
-        String cssCode = extractCodeByPattern(codeContent, CSS_CODE_PATTERN);
-        String jsCode = extractCodeByPattern(codeContent, JS_CODE_PATTERN);
+        // 单次扫描提取各类代码（每种取第一个已闭合的代码块，只复制取用的代码块）
+        String htmlCode = null;
+        String cssCode = null;
+        String jsCode = null;
+        for (StreamingCodeBlockParser.CodeBlock block : StreamingCodeBlockParser.parse(codeContent)) {
+            if (htmlCode == null && block.isLanguage("html")) {
+                htmlCode = block.content(codeContent);
+            } else if (cssCode == null && block.isLanguage("css")) {
+                cssCode = block.content(codeContent);
+            } else if (jsCode == null && block.isLanguage("js", "javascript")) {
+                jsCode = block.content(codeContent);
+            }
+        }
         // 设置HTML代码
         if (htmlCode != null && !htmlCode.trim().isEmpty()) {
             result.setHtmlCode(htmlCode.trim());
@@ -37,21 +39,4 @@ public class MultiFileCodeParser implements CodeParser<MultiFileCodeResult> {
         }
         return result;
     }
-
-
-
-    /**
-     * 根据正则模式提取代码 (元)
-     * @param content 原始内容
-     * @param pattern 正则模式
-     * @return 提取的代码
-     */
-    @Deprecated
-    private String extractCodeByPattern(String content, Pattern pattern) {
-        Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
-    }
 }
@@ -0,0 +1,299 @@
+package com.yu.yuaicodemother.core.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+/**
+ * 代码块解析器（状态机）
+ * <p>
+ * 单次线性扫描识别 ```lang ... ``` 代码块，扫描只记录偏移量，不逐字符复制内容：
+ * 1. 代码块标记必须位于行首（允许最多 3 个空格缩进），行内的 ``` 属于普通内容；
+ * 2. 语言标识为开始标记到换行之间的内容（见 {@link #normalizeLanguage}），代码块在下一个行首的 ``` 处结束；
+ * 3. 流式保存按片段喂入（{@link #feed}），代码块闭合时立即回调，标记可以跨片段出现，
+ *    缓冲区只保留尚未闭合的代码块（第一个代码块出现前保留全部文本作为兜底内容）；
+ * 4. {@link HtmlCodeParser}、{@link MultiFileCodeParser} 的一次性解析（{@link #parse}、{@link #findFirst}）
+ *    直接扫描完整内容，与流式解析共用同一状态机，两者的解析结果始终一致。
+ * </p>
+ *
+ * @author yu🐟
+ */
+public class StreamingCodeBlockParser {
+
+    private static final char BACKTICK = '`';
+
+    private static final int FENCE_LENGTH = 3;
+
+    /**
+     * 标记前允许的最大缩进（空格数）
+     */
+    private static final int MAX_FENCE_INDENT = 3;
+
+    private enum State {
+        /**
+         * 代码块外
+         */
+        TEXT,
+        /**
+         * 读取语言标识
+         */
+        INFO,
+        /**
+         * 代码块内
+         */
+        CODE
+    }
+
+    /**
+     * 代码块闭合回调：语言（小写）、代码在扫描内容中的起止偏移
+     */
+    @FunctionalInterface
+    private interface BlockSink {
+
+        /**
+         * @return 是否继续扫描
+         */
+        boolean accept(String language, int start, int end);
+    }
+
+    private final BlockSink sink;
+
+    private State state = State.TEXT;
+
+    /**
+     * 当前行是否仍处于行首（此前只有缩进或反引号）
+     */
+    private boolean atLineStart = true;
+
+    private int indent;
+
+    /**
+     * 行首连续反引号数量（尚未确定是否为标记）
+     */
+    private int backticks;
+
+    private int lineStart;
+
+    private int infoStart;
+
+    private int codeStart;
+
+    private String language;
+
+    private boolean hasCodeBlock;
+
+    /**
+     * 流式解析的缓冲区：第一个代码块出现前为全部文本，之后只保留未闭合的代码块
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    public StreamingCodeBlockParser(BiConsumer<String, String> onCodeBlock) {
+        this.sink = (language, start, end) -> {
+            onCodeBlock.accept(language, buffer.substring(start, end));
+            return true;
+        };
+    }
+
+    private StreamingCodeBlockParser(BlockSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * 一次性解析完整内容中所有已闭合的代码块（末尾未闭合的代码块不返回），只返回偏移量
+     *
+     * @param content 原始内容
+     * @return 代码块列表（按出现顺序）
+     */
+    public static List<CodeBlock> parse(CharSequence content) {
+        List<CodeBlock> blocks = new ArrayList<>(4);
+        if (content != null) {
+            new StreamingCodeBlockParser((language, start, end) -> blocks.add(new CodeBlock(language, start, end)))
+                    .scan(content, 0, content.length());
+        }
+        return blocks;
+    }
+
+    /**
+     * 查找第一个指定语言且已闭合的代码块，找到后停止扫描
+     *
+     * @param content   原始内容
+     * @param languages 语言（小写，任一匹配即可）
+     * @return 代码内容，不存在时返回 null
+     */
+    public static String findFirst(CharSequence content, String... languages) {
+        if (content == null) {
+            return null;
+        }
+        CodeBlock[] found = new CodeBlock[1];
+        new StreamingCodeBlockParser((language, start, end) -> {
+            CodeBlock block = new CodeBlock(language, start, end);
+            if (!block.isLanguage(languages)) {
+                return true;
+            }
+            found[0] = block;
+            return false;
+        }).scan(content, 0, content.length());
+        return found[0] == null ? null : found[0].content(content);
+    }
+
+    /**
+     * 规范化语言标识：去掉首尾空白并转为小写
+     *
+     * @param info 开始标记到换行之间的内容
+     * @return 语言（小写）
+     */
+    public static String normalizeLanguage(String info) {
+        return info.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 喂入一个片段
+     *
+     * @param chunk 输出片段
+     */
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        int from = buffer.length();
+        buffer.append(chunk);
+        scan(buffer, from, buffer.length());
+        compact();
+    }
+
+    /**
+     * 输出结束：未闭合的代码块按已收到的内容回调（输出被截断时尽量保留结果）
+     */
+    public void finish() {
+        if (state == State.CODE) {
+            sink.accept(language, codeStart, buffer.length());
+        }
+        state = State.TEXT;
+        compact();
+    }
+
+    /**
+     * 是否出现过代码块
+     */
+    public boolean hasCodeBlock() {
+        return hasCodeBlock;
+    }
+
+    /**
+     * 没有任何代码块时的完整文本
+     *
+     * @return 文本，出现过代码块时返回 null
+     */
+    public String getLeadingText() {
+        return hasCodeBlock ? null : buffer.toString();
+    }
+
+    /**
+     * 状态机：扫描 [from, to) 区间，偏移量相对于 text
+     *
+     * @return 是否扫描到末尾（回调要求停止时返回 false）
+     */
+    private boolean scan(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (state == State.INFO) {
+                if (c == '\n') {
+                    language = normalizeLanguage(text.subSequence(infoStart, i).toString());
+                    codeStart = i + 1;
+                    hasCodeBlock = true;
+                    state = State.CODE;
+                    startLine(i + 1);
+                }
+            } else if (c == '\n') {
+                startLine(i + 1);
+            } else if (atLineStart && !acceptLineStart(c, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 行首字符：缩进、标记的反引号，其他字符表示本行不是标记
+     *
+     * @return 是否继续扫描
+     */
+    private boolean acceptLineStart(char c, int offset) {
+        if (c == ' ' && backticks == 0 && indent < MAX_FENCE_INDENT) {
+            indent++;
+            return true;
+        }
+        if (c != BACKTICK) {
+            atLineStart = false;
+            return true;
+        }
+        if (++backticks < FENCE_LENGTH) {
+            return true;
+        }
+        atLineStart = false;
+        if (state == State.TEXT) {
+            infoStart = offset + 1;
+            state = State.INFO;
+            return true;
+        }
+        state = State.TEXT;
+        return sink.accept(language, codeStart, lineStart);
+    }
+
+    private void startLine(int offset) {
+        atLineStart = true;
+        lineStart = offset;
+        indent = 0;
+        backticks = 0;
+    }
+
+    /**
+     * 丢弃缓冲区中不再需要的前缀，偏移量随之平移
+     */
+    private void compact() {
+        int keepFrom = switch (state) {
+            case TEXT -> hasCodeBlock ? buffer.length() : 0;
+            case INFO -> hasCodeBlock ? infoStart : 0;
+            case CODE -> codeStart;
+        };
+        if (keepFrom > 0) {
+            buffer.delete(0, keepFrom);
+            lineStart -= keepFrom;
+            infoStart -= keepFrom;
+            codeStart -= keepFrom;
+        }
+    }
+
+    /**
+     * 已闭合的代码块
+     *
+     * @param language 语言（小写）
+     * @param start    代码在原始内容中的起始偏移
+     * @param end      代码在原始内容中的结束偏移（不含结束标记所在行）
+     */
+    public record CodeBlock(String language, int start, int end) {
+
+        /**
+         * 语言是否为给定语言之一
+         */
+        public boolean isLanguage(String... languages) {
+            for (String candidate : languages) {
+                if (candidate.equals(language)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 取出代码内容（只在需要时复制）
+         *
+         * @param source 解析时的原始内容
+         * @return 代码内容
+         */
+        public String content(CharSequence source) {
+            return source.subSequence(start, end).toString();
+        }
+    }
+}
@@ -1,10 +1,10 @@
 package com.yu.yuaicodemother.core.processor;
 
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.core.generation.StreamingCallCanceller;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
 import reactor.core.publisher.FluxSink;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-
 /**
  * AI 流式处理策略接口
  */
@@ -17,7 +17,9 @@ public interface AiStreamProcessor {
 
     /**
      * 处理流
-     * @param source 原始流对象 (Flux<String> 或 TokenStream)
+     * @param source    原始流对象 (TokenStream)
+     * @param sink      类型化消息输出
+     * @param canceller 取消器，取消时关闭底层模型调用
      */
-    void process(Object source, FluxSink<String> sink, AtomicBoolean cancelled, Long appId, CodeGenTypeEnum type);
+    void process(Object source, FluxSink<StreamMessage> sink, StreamingCallCanceller canceller, Long appId, CodeGenTypeEnum type);
 }
@@ -1,14 +1,15 @@
 package com.yu.yuaicodemother.core.processor;
 
-import com.yu.yuaicodemother.core.CodeParserExecutor;
-import com.yu.yuaicodemother.core.saver.CodeFileSaverExecutor;
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.core.generation.StreamingCallCanceller;
+import com.yu.yuaicodemother.core.saver.StreamingCodeFileSaver;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.service.TokenStream;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 
 import java.io.File;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 简单代码流处理器 (HTML / MULTI_FILE)
@@ -22,32 +23,28 @@ public class SimpleStreamProcessor extends AbstractStreamProcessor {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public void process(Object source, FluxSink<String> sink, AtomicBoolean cancelled, Long appId, CodeGenTypeEnum type) {
-        Flux<String> codeStream = (Flux<String>) source;
-        StringBuilder codeBuilder = new StringBuilder();
+    public void process(Object source, FluxSink<StreamMessage> sink, StreamingCallCanceller canceller, Long appId, CodeGenTypeEnum type) {
+        TokenStream tokenStream = (TokenStream) source;
+        // 边接收边解析，代码块闭合后立即写入文件
+        StreamingCodeFileSaver codeFileSaver = new StreamingCodeFileSaver(type, appId);
 
-        codeStream.doOnNext(chunk -> {
-            checkCancelled(cancelled);
-            codeBuilder.append(chunk);
-            sink.next(chunk);
+        tokenStream.onPartialResponseWithContext((partial, context) -> {
+            if (canceller.onChunk(context.streamingHandle())) {
+                return;
+            }
+            codeFileSaver.append(partial.text());
+            sink.next(new AiResponseMessage(partial.text()));
         })
-        .doOnComplete(() -> {
-            if (cancelled.get()) {
+        .onCompleteResponse(response -> {
+            if (canceller.isCancelled()) {
                 sink.complete();
                 return;
             }
-            try {
-                String completeCode = codeBuilder.toString();
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, type);
-                File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, type, appId);
-                log.info("代码保存成功: {}", savedDir.getAbsolutePath());
-            } catch (Exception e) {
-                log.error("代码保存失败: {}", e.getMessage());
-            }
+            File savedDir = codeFileSaver.complete();
+            log.info("代码保存成功: {}", savedDir.getAbsolutePath());
             sink.complete();
         })
-        .doOnError(error -> handleStreamError(error, sink, cancelled, appId))
-        .subscribe();
+        .onError(error -> handleStreamError(error, sink, canceller, appId))
+        .start();
     }
 }
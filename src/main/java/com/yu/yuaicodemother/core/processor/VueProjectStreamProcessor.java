@@ -1,11 +1,14 @@
 package com.yu.yuaicodemother.core.processor;
 
-import cn.hutool.json.JSONUtil;
 import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
 import com.yu.yuaicodemother.ai.model.message.BeforeToolExecuted;
+import com.yu.yuaicodemother.ai.model.message.DeepThinkMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
 import com.yu.yuaicodemother.ai.model.message.ToolExecutedMessage;
 import com.yu.yuaicodemother.constant.AppConstant;
-import com.yu.yuaicodemother.core.builder.VueProjectBuilder;
+import com.yu.yuaicodemother.core.builder.VueProjectBuildScheduler;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
+import com.yu.yuaicodemother.core.generation.StreamingCallCanceller;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
 import dev.langchain4j.service.TokenStream;
 import jakarta.annotation.Resource;
@@ -13,7 +16,6 @@ import org.springframework.stereotype.Component;
 import reactor.core.publisher.FluxSink;
 
 import java.io.File;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Vue 项目流处理器
@@ -22,7 +24,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class VueProjectStreamProcessor extends AbstractStreamProcessor {
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueProjectBuildScheduler vueProjectBuildScheduler;
+
+    @Resource
+    private AppSideEffectExecutor appSideEffectExecutor;
 
     @Override
     public boolean supports(CodeGenTypeEnum type) {
@@ -30,34 +35,38 @@ public class VueProjectStreamProcessor extends AbstractStreamProcessor {
     }
 
     @Override
-    public void process(Object source, FluxSink<String> sink, AtomicBoolean cancelled, Long appId, CodeGenTypeEnum type) {
+    public void process(Object source, FluxSink<StreamMessage> sink, StreamingCallCanceller canceller, Long appId, CodeGenTypeEnum type) {
         TokenStream tokenStream = (TokenStream) source;
-        tokenStream.onPartialResponse(partial -> {
-            checkCancelled(cancelled);
-            sink.next(JSONUtil.toJsonStr(new AiResponseMessage(partial)));
+        tokenStream.onPartialResponseWithContext((partial, context) -> {
+            if (!canceller.onChunk(context.streamingHandle())) {
+                sink.next(new AiResponseMessage(partial.text()));
+            }
         })
-        .onPartialThinking(thinking -> {
-            checkCancelled(cancelled);
-            sink.next(JSONUtil.toJsonStr(thinking.text()));
+        .onPartialThinkingWithContext((thinking, context) -> {
+            if (!canceller.onChunk(context.streamingHandle())) {
+                sink.next(new DeepThinkMessage(thinking.text()));
+            }
         })
         .beforeToolExecution(execution -> {
-            checkCancelled(cancelled);
-            sink.next(JSONUtil.toJsonStr(new BeforeToolExecuted(execution.request())));
+            canceller.checkCancelled();
+            sink.next(new BeforeToolExecuted(execution.request()));
         })
         .onToolExecuted(execution -> {
-            checkCancelled(cancelled);
-            sink.next(JSONUtil.toJsonStr(new ToolExecutedMessage(execution)));
+            canceller.checkCancelled();
+            sink.next(new ToolExecutedMessage(execution));
         })
         .onCompleteResponse(response -> {
-            if (cancelled.get()) {
+            if (canceller.isCancelled()) {
                 sink.complete();
                 return;
             }
             String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + "vue_project_" + appId;
-            vueProjectBuilder.buildProject(projectPath);
+            // 构建排在该应用后续副作用之前异步执行，不阻塞模型回调线程
+            appSideEffectExecutor.execute(appId, "vue_build",
+                    () -> vueProjectBuildScheduler.buildAndWait(appId, projectPath));
             sink.complete();
         })
-        .onError(error -> handleStreamError(error, sink, cancelled, appId))
+        .onError(error -> handleStreamError(error, sink, canceller, appId))
         .start();
     }
 }
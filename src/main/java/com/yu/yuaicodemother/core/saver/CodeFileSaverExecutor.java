@@ -36,4 +36,35 @@ public class CodeFileSaverExecutor {
         };
     }
 
+    /**
+     * 执行代码块保存（流式，使用 appId）
+     *
+     * @param language    代码块语言
+     * @param content     代码内容
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
+     * @return 写入的文件名，未写入时返回 null
+     */
+    public static String executeCodeBlockSaver(String language, String content, CodeGenTypeEnum codeGenType, Long appId) {
+        return switch (codeGenType) {
+            case HTML -> htmlCodeFileSaver.saveCodeBlock(language, content, appId);
+            case MULTI_FILE -> multiFileCodeFileSaver.saveCodeBlock(language, content, appId);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        };
+    }
+
+    /**
+     * 获取代码块对应的文件名
+     *
+     * @param language    代码块语言
+     * @param codeGenType 代码生成类型
+     * @return 文件名，不属于该类型时返回 null
+     */
+    public static String resolveFileName(String language, CodeGenTypeEnum codeGenType) {
+        return switch (codeGenType) {
+            case HTML -> htmlCodeFileSaver.resolveFileName(language);
+            case MULTI_FILE -> multiFileCodeFileSaver.resolveFileName(language);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        };
+    }
 }
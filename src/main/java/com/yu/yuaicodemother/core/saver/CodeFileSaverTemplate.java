@@ -9,7 +9,10 @@ import com.yu.yuaicodemother.exception.ErrorCode;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * 抽象代码文件保存器 - 模板方法模式
@@ -45,6 +48,33 @@ public abstract class CodeFileSaverTemplate<T> {
         return new File(baseDirPath);
     }
 
+    /**
+     * 代码块语言对应的文件名
+     *
+     * @param language 代码块语言（小写）
+     * @return 文件名，不属于该类型时返回 null
+     */
+    public final String resolveFileName(String language) {
+        return language == null ? null : getFileName(language);
+    }
+
+    /**
+     * 流式保存：代码块闭合后立即写入对应文件（使用 appId），内容原样写入
+     *
+     * @param language 代码块语言
+     * @param content  代码内容
+     * @param appId    应用 ID
+     * @return 写入的文件名，语言不属于该类型或内容为空时返回 null
+     */
+    public final String saveCodeBlock(String language, String content, Long appId) {
+        String filename = resolveFileName(language);
+        if (filename == null || StrUtil.isBlank(content)) {
+            return null;
+        }
+        writeToFile(buildUniqueDir(appId), filename, content);
+        return filename;
+    }
+
     /**
      * 构建基于 appId 的目录路径
      *
@@ -77,15 +107,23 @@ public abstract class CodeFileSaverTemplate<T> {
 
 
     /**
-     * 写入单个文件的工具方法
+     * 写入单个文件的工具方法（先写临时文件再重命名，预览时不会读到写了一半的文件）
      * @param dirPath  目录路径
      * @param filename 文件名
      * @param content  文件内容
      */
     protected final void writeToFile(String dirPath, String filename, String content) {
         if (StrUtil.isNotBlank(content)) {
-            String filePath = dirPath + File.separator + filename;
-            FileUtil.writeString(content, filePath, StandardCharsets.UTF_8);
+            File target = new File(dirPath, filename);
+            File tempFile = new File(dirPath, "." + filename + "." + IdUtil.fastSimpleUUID() + ".tmp");
+            FileUtil.writeString(content, tempFile, StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile.toPath(), target.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                FileUtil.del(tempFile);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件保存失败: " + filename);
+            }
         }
     }
 
@@ -96,6 +134,14 @@ public abstract class CodeFileSaverTemplate<T> {
      */
     protected abstract CodeGenTypeEnum getCodeType();
 
+    /**
+     * 代码块语言对应的文件名（由子类实现）
+     *
+     * @param language 代码块语言（小写）
+     * @return 文件名，不属于该类型时返回 null
+     */
+    protected abstract String getFileName(String language);
+
     /**
      * 保存文件的具体实现（由子类实现）
      *
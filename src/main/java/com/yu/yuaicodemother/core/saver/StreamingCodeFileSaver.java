@@ -0,0 +1,113 @@
+package com.yu.yuaicodemother.core.saver;
+
+import cn.hutool.core.util.StrUtil;
+import com.yu.yuaicodemother.constant.AppConstant;
+import com.yu.yuaicodemother.core.parser.StreamingCodeBlockParser;
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流式代码保存器（HTML / MULTI_FILE）
+ * <p>
+ * 边接收 AI 输出边解析，每个代码块闭合后立即写入应用目录，无需等待整个响应结束，
+ * 也不再在内存中缓存完整响应。每种文件只取第一个代码块，与一次性解析的行为一致。
+ * 与一次性保存一样必须有 HTML：index.html 之前闭合的样式、脚本先暂存，写入 index.html 后再写；
+ * 直到结束都没有 HTML 时不写入任何文件，不会留下不完整的站点。
+ * 每个流创建一个实例，非线程安全。
+ * </p>
+ *
+ * @author yu🐟
+ */
+@Slf4j
+public class StreamingCodeFileSaver {
+
+    private static final String INDEX_HTML = "index.html";
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final Long appId;
+
+    private final StreamingCodeBlockParser parser = new StreamingCodeBlockParser(this::onCodeBlock);
+
+    /**
+     * 已写入的文件名
+     */
+    private final Set<String> savedFiles = new HashSet<>();
+
+    /**
+     * 写入 index.html 前闭合的代码块（文件名 -> 代码块）
+     */
+    private final Map<String, PendingBlock> pendingBlocks = new LinkedHashMap<>();
+
+    public StreamingCodeFileSaver(CodeGenTypeEnum codeGenType, Long appId) {
+        this.codeGenType = codeGenType;
+        this.appId = appId;
+    }
+
+    /**
+     * 接收一个输出片段
+     *
+     * @param chunk 输出片段
+     */
+    public void append(String chunk) {
+        parser.feed(chunk);
+    }
+
+    /**
+     * 输出结束：写入未闭合的代码块，HTML 模式下没有代码块时将整个内容作为 HTML
+     *
+     * @return 保存的目录
+     */
+    public File complete() {
+        parser.finish();
+        if (!savedFiles.contains(INDEX_HTML) && codeGenType == CodeGenTypeEnum.HTML && !parser.hasCodeBlock()) {
+            log.warn("没有找到HTML代码块，将整个内容作为HTML");
+            onCodeBlock("html", parser.getLeadingText());
+        }
+        if (!savedFiles.contains(INDEX_HTML)) {
+            log.error("代码保存失败: HTML代码内容为空, appId={}, 未写入的文件={}", appId, pendingBlocks.keySet());
+            pendingBlocks.clear();
+        }
+        return new File(AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator
+                + StrUtil.format("{}_{}", codeGenType.getValue(), appId));
+    }
+
+    private void onCodeBlock(String language, String content) {
+        String filename = CodeFileSaverExecutor.resolveFileName(language, codeGenType);
+        // 同一文件只取第一个代码块
+        if (filename == null || savedFiles.contains(filename) || pendingBlocks.containsKey(filename)) {
+            return;
+        }
+        if (!INDEX_HTML.equals(filename) && !savedFiles.contains(INDEX_HTML)) {
+            if (StrUtil.isNotBlank(content)) {
+                pendingBlocks.put(filename, new PendingBlock(language, content));
+            }
+            return;
+        }
+        save(filename, language, content);
+        if (savedFiles.contains(INDEX_HTML)) {
+            pendingBlocks.forEach((name, block) -> save(name, block.language(), block.content()));
+            pendingBlocks.clear();
+        }
+    }
+
+    private void save(String filename, String language, String content) {
+        try {
+            if (CodeFileSaverExecutor.executeCodeBlockSaver(language, content, codeGenType, appId) != null) {
+                savedFiles.add(filename);
+                log.info("代码块已保存: appId={}, 文件={}", appId, filename);
+            }
+        } catch (Exception e) {
+            log.error("代码块保存失败: appId={}, 文件={}, 错误信息: {}", appId, filename, e.getMessage());
+        }
+    }
+
+    private record PendingBlock(String language, String content) {
+    }
+}
@@ -0,0 +1,433 @@
+package com.yu.yuaicodemother.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.yu.yuaicodemother.core.parser.StreamingCodeBlockParser;
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 流式补丁应用器（HTML / MULTI_FILE 后续轮次）
+ * <p>
+ * 模型只输出修改块而不是完整文件，格式为文件名一行，后跟 SEARCH/REPLACE 块：
+ * <pre>
+ * index.html
+ * &lt;&lt;&lt;&lt;&lt;&lt;&lt; SEARCH
+ * 原文件中连续的若干行
+ * =======
+ * 替换后的内容
+ * &gt;&gt;&gt;&gt;&gt;&gt;&gt; REPLACE
+ * </pre>
+ * 修改块可以包在代码块中；改动较大的文件也可以直接输出完整代码块（```html / ```css / ```javascript）。
+ * 每个修改块结束时立即在内存副本上校验并应用：SEARCH 必须在文件中唯一出现（逐字匹配，
+ * 找不到时按去除首尾空白的整行匹配）。任何一块无法应用即标记失败，调用方应停止接收并完整重新生成；
+ * 全部成功时在 {@link #complete()} 中一次写入修改过的文件，失败时不修改任何文件。
+ * 每个流创建一个实例，非线程安全。
+ * </p>
+ *
+ * @author yu🐟
+ */
+@Slf4j
+public class StreamingPatchApplier {
+
+    private static final String SEARCH_MARKER = "<<<<<<< SEARCH";
+
+    private static final String DIVIDER_MARKER = "=======";
+
+    private static final String REPLACE_MARKER = ">>>>>>> REPLACE";
+
+    private static final String FENCE = "```";
+
+    /**
+     * 文件名行首尾的 Markdown 标记与冒号
+     */
+    private static final Pattern FILE_NAME_DECORATION = Pattern.compile("^[#>*`'\"\\-\\s]+|[*`'\":：\\s]+$");
+
+    /**
+     * 可能出现的代码块语言，用于确定各模式下的文件名
+     */
+    private static final List<String> LANGUAGES = List.of("html", "css", "javascript");
+
+    private enum State {
+        /**
+         * 修改块外
+         */
+        TEXT,
+        /**
+         * 代码块内，尚不确定是完整文件还是包裹修改块
+         */
+        FENCE,
+        /**
+         * 包裹修改块的代码块内
+         */
+        PATCH_FENCE,
+        /**
+         * SEARCH 部分
+         */
+        SEARCH,
+        /**
+         * REPLACE 部分
+         */
+        REPLACE
+    }
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final Long appId;
+
+    /**
+     * 文件名 -> 应用修改后的内容（内存副本）
+     */
+    private final Map<String, String> workingFiles;
+
+    private final Set<String> changedFiles = new LinkedHashSet<>();
+
+    private final StringBuilder line = new StringBuilder();
+
+    private final StringBuilder fenceContent = new StringBuilder();
+
+    private final StringBuilder search = new StringBuilder();
+
+    private final StringBuilder replace = new StringBuilder();
+
+    private State state = State.TEXT;
+
+    /**
+     * 修改块所在的代码块是否为包裹修改块的代码块（REPLACE 结束后回到该代码块内）
+     */
+    private boolean patchInFence;
+
+    private String fenceLanguage;
+
+    /**
+     * 最近一次出现的文件名，作为后续修改块的目标文件
+     */
+    private String currentFile;
+
+    /**
+     * 已应用的修改块数
+     */
+    @Getter
+    private int appliedBlocks;
+
+    /**
+     * 失败原因，未失败时为 null
+     */
+    @Getter
+    private String failureReason;
+
+    /**
+     * @param codeGenType  代码生成类型
+     * @param appId        应用 ID
+     * @param currentFiles 当前文件内容（{@link #readCurrentFiles} 的结果）
+     */
+    public StreamingPatchApplier(CodeGenTypeEnum codeGenType, Long appId, Map<String, String> currentFiles) {
+        this.codeGenType = codeGenType;
+        this.appId = appId;
+        this.workingFiles = new LinkedHashMap<>(currentFiles);
+        // 单文件模式可以省略文件名
+        if (codeGenType == CodeGenTypeEnum.HTML) {
+            this.currentFile = CodeFileSaverExecutor.resolveFileName("html", codeGenType);
+        }
+    }
+
+    /**
+     * 读取应用当前的代码文件
+     *
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
+     * @return 文件名 -> 内容，按 HTML、CSS、JS 顺序；尚未生成过代码时为空
+     */
+    public static Map<String, String> readCurrentFiles(CodeGenTypeEnum codeGenType, Long appId) {
+        Map<String, String> files = new LinkedHashMap<>();
+        File dir = new File(CodeFileSaverTemplate.FILE_SAVE_ROOT_DIR,
+                StrUtil.format("{}_{}", codeGenType.getValue(), appId));
+        for (String language : LANGUAGES) {
+            String filename = CodeFileSaverExecutor.resolveFileName(language, codeGenType);
+            File file = filename == null ? null : new File(dir, filename);
+            if (file != null && file.isFile()) {
+                files.put(filename, FileUtil.readString(file, StandardCharsets.UTF_8));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 将当前文件格式化为提示词内容：每个文件一个标题加完整代码块
+     *
+     * @param files 文件名 -> 内容
+     * @return 提示词内容
+     */
+    public static String formatFiles(Map<String, String> files) {
+        StringBuilder sb = new StringBuilder();
+        files.forEach((filename, content) -> {
+            sb.append("### ").append(filename).append('\n')
+                    .append(FENCE).append(StrUtil.subAfter(filename, ".", true)).append('\n')
+                    .append(content);
+            if (!content.endsWith("\n")) {
+                sb.append('\n');
+            }
+            sb.append(FENCE).append("\n\n");
+        });
+        return sb.toString();
+    }
+
+    /**
+     * 接收一个输出片段，按行解析
+     *
+     * @param chunk 输出片段
+     */
+    public void append(String chunk) {
+        if (chunk == null || isFailed()) {
+            return;
+        }
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n') {
+                acceptLine(line.toString());
+                line.setLength(0);
+                if (isFailed()) {
+                    return;
+                }
+            } else if (c != '\r') {
+                line.append(c);
+            }
+        }
+    }
+
+    /**
+     * 是否已有修改块无法应用
+     */
+    public boolean isFailed() {
+        return failureReason != null;
+    }
+
+    /**
+     * 输出结束：全部修改块都成功应用时写入修改过的文件
+     *
+     * @return 是否已应用（false 时没有修改任何文件，调用方应完整重新生成）
+     */
+    public boolean complete() {
+        if (!isFailed() && !line.isEmpty()) {
+            acceptLine(line.toString());
+            line.setLength(0);
+        }
+        if (!isFailed() && (state == State.SEARCH || state == State.REPLACE)) {
+            fail("修改块未结束");
+        }
+        if (!isFailed() && state == State.FENCE) {
+            // 输出被截断的完整文件不可信
+            fail("代码块未结束");
+        }
+        if (!isFailed() && changedFiles.isEmpty()) {
+            fail("没有可应用的修改");
+        }
+        if (isFailed()) {
+            log.warn("补丁无法应用: appId={}, 原因={}", appId, failureReason);
+            return false;
+        }
+        for (String filename : changedFiles) {
+            String language = languageOf(filename);
+            if (CodeFileSaverExecutor.executeCodeBlockSaver(language, workingFiles.get(filename), codeGenType, appId) == null) {
+                // 修改后内容为空
+                log.warn("补丁应用后文件为空，未写入: appId={}, 文件={}", appId, filename);
+            }
+        }
+        log.info("补丁已应用: appId={}, 修改块={}, 文件={}", appId, appliedBlocks, changedFiles);
+        return true;
+    }
+
+    private void acceptLine(String text) {
+        String trimmed = text.trim();
+        switch (state) {
+            case TEXT -> {
+                if (trimmed.startsWith(FENCE)) {
+                    fenceLanguage = StreamingCodeBlockParser.normalizeLanguage(trimmed.substring(FENCE.length()));
+                    fenceContent.setLength(0);
+                    state = State.FENCE;
+                } else if (trimmed.equals(SEARCH_MARKER)) {
+                    startBlock(false);
+                } else {
+                    detectFileName(trimmed);
+                }
+            }
+            case FENCE -> {
+                if (trimmed.equals(SEARCH_MARKER)) {
+                    // 代码块只是包裹修改块，之前的行中可能有文件名
+                    for (String fenceLine : fenceContent.toString().split("\n")) {
+                        detectFileName(fenceLine.trim());
+                    }
+                    startBlock(true);
+                } else if (trimmed.equals(FENCE)) {
+                    replaceWholeFile();
+                    state = State.TEXT;
+                } else {
+                    fenceContent.append(text).append('\n');
+                }
+            }
+            case PATCH_FENCE -> {
+                if (trimmed.equals(SEARCH_MARKER)) {
+                    startBlock(true);
+                } else if (trimmed.startsWith(FENCE)) {
+                    state = State.TEXT;
+                } else {
+                    detectFileName(trimmed);
+                }
+            }
+            case SEARCH -> {
+                if (trimmed.equals(DIVIDER_MARKER)) {
+                    state = State.REPLACE;
+                } else {
+                    search.append(text).append('\n');
+                }
+            }
+            case REPLACE -> {
+                if (trimmed.startsWith(REPLACE_MARKER)) {
+                    applyBlock();
+                    state = patchInFence ? State.PATCH_FENCE : State.TEXT;
+                } else {
+                    replace.append(text).append('\n');
+                }
+            }
+        }
+    }
+
+    private void startBlock(boolean inFence) {
+        patchInFence = inFence;
+        search.setLength(0);
+        replace.setLength(0);
+        state = State.SEARCH;
+    }
+
+    /**
+     * 文件名行，允许带有 Markdown 标记，例如 **style.css**、`script.js`、### index.html:
+     */
+    private void detectFileName(String trimmed) {
+        if (trimmed.isEmpty() || trimmed.length() > 64) {
+            return;
+        }
+        String name = FILE_NAME_DECORATION.matcher(trimmed).replaceAll("");
+        if (workingFiles.containsKey(name) || languageOf(name) != null) {
+            currentFile = name;
+        }
+    }
+
+    private void replaceWholeFile() {
+        String filename = CodeFileSaverExecutor.resolveFileName(fenceLanguage, codeGenType);
+        if (filename == null || StrUtil.isBlank(fenceContent)) {
+            return;
+        }
+        workingFiles.put(filename, fenceContent.toString());
+        changedFiles.add(filename);
+    }
+
+    private void applyBlock() {
+        if (currentFile == null || languageOf(currentFile) == null) {
+            fail("修改块没有指定文件");
+            return;
+        }
+        String content = workingFiles.get(currentFile);
+        if (content == null) {
+            fail("文件不存在: " + currentFile);
+            return;
+        }
+        String searchText = StrUtil.removeSuffix(search, "\n");
+        String replaceText = StrUtil.removeSuffix(replace, "\n");
+        if (StrUtil.isBlank(searchText)) {
+            fail("SEARCH 内容为空: " + currentFile);
+            return;
+        }
+        String patched = replaceExact(content, searchText, replaceText);
+        if (patched == null) {
+            patched = replaceTrimmedLines(content, searchText, replaceText);
+        }
+        if (patched == null) {
+            fail("SEARCH 内容在文件中不存在或不唯一: " + currentFile);
+            return;
+        }
+        workingFiles.put(currentFile, patched);
+        changedFiles.add(currentFile);
+        appliedBlocks++;
+    }
+
+    /**
+     * 从行首开始逐字匹配，唯一出现时替换（不匹配行中间，避免替换内容的缩进叠加到原有缩进上）
+     */
+    private static String replaceExact(String content, String searchText, String replaceText) {
+        int match = -1;
+        for (int index = content.indexOf(searchText); index >= 0; index = content.indexOf(searchText, index + 1)) {
+            if (index > 0 && content.charAt(index - 1) != '\n') {
+                continue;
+            }
+            if (match >= 0) {
+                return null;
+            }
+            match = index;
+        }
+        if (match < 0) {
+            return null;
+        }
+        return content.substring(0, match) + replaceText + content.substring(match + searchText.length());
+    }
+
+    /**
+     * 按去除首尾空白的整行匹配（模型常改变缩进），唯一出现时替换这些行
+     */
+    private static String replaceTrimmedLines(String content, String searchText, String replaceText) {
+        String[] lines = content.split("\n", -1);
+        String[] searchLines = searchText.split("\n", -1);
+        int match = -1;
+        for (int start = 0; start + searchLines.length <= lines.length; start++) {
+            if (linesMatch(lines, start, searchLines)) {
+                if (match >= 0) {
+                    return null;
+                }
+                match = start;
+            }
+        }
+        if (match < 0) {
+            return null;
+        }
+        StringBuilder patched = new StringBuilder(content.length() + replaceText.length());
+        for (int i = 0; i < match; i++) {
+            patched.append(lines[i]).append('\n');
+        }
+        patched.append(replaceText);
+        for (int i = match + searchLines.length; i < lines.length; i++) {
+            patched.append('\n').append(lines[i]);
+        }
+        return patched.toString();
+    }
+
+    private static boolean linesMatch(String[] lines, int start, String[] searchLines) {
+        for (int i = 0; i < searchLines.length; i++) {
+            if (!lines[start + i].trim().equals(searchLines[i].trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String languageOf(String filename) {
+        for (String language : LANGUAGES) {
+            if (filename.equals(CodeFileSaverExecutor.resolveFileName(language, codeGenType))) {
+                return language;
+            }
+        }
+        return null;
+    }
+
+    private void fail(String reason) {
+        failureReason = reason;
+    }
+}
@@ -8,6 +8,7 @@ public enum ErrorCode {
     NO_AUTH_ERROR(40101, "无权限"),
     TOO_MANY_REQUEST(42900, "请求过于频繁"),
     NOT_FOUND_ERROR(40400, "请求数据不存在"),
+    CONFLICT_ERROR(40900, "资源冲突"),
     FORBIDDEN_ERROR(40300, "禁止访问"),
     SYSTEM_ERROR(50000, "系统内部异常"),
     OPERATION_ERROR(50001, "操作失败");
@@ -99,12 +99,13 @@ public class GlobalExceptionHandler {
 
         // 2. 判断当前请求是否为 SSE 流式请求
         // 依据 A: 请求头 Accept 包含 text/event-stream (标准做法)
-        // 依据 B: 请求路径包含 /chat/gen/code (特定业务接口兜底，防止前端漏传 Header)
+        // 依据 B: 请求路径为生成/续传/状态订阅等流式接口 (特定业务接口兜底，防止前端漏传 Header)
         String accept = request.getHeader("Accept");
         String uri = request.getRequestURI();
 
         if ((accept != null && accept.contains("text/event-stream")) ||
-                uri.contains("/chat/gen/code")) {
+                uri.contains("/chat/gen/code") || uri.contains("/chat/gen/resume")
+                || uri.contains("/gen-status/stream")) {
 
             try {
                 // 3. 设置 SSE 专用的响应头
@@ -0,0 +1,18 @@
+package com.yu.yuaicodemother.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+@Data
+public class AppGenStopRequest implements Serializable {
+
+    /**
+     * 生成 id
+     */
+    private String generationId;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,62 @@
+package com.yu.yuaicodemother.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 代码生成任务状态枚举
+ */
+@Getter
+public enum GenerationJobStatusEnum {
+
+    QUEUED("排队中", "queued"),
+    RUNNING("生成中", "running"),
+    SUCCEEDED("生成成功", "succeeded"),
+    FAILED("生成失败", "failed"),
+    CANCELLED("已取消", "cancelled");
+
+    private final String text;
+
+    private final String value;
+
+    GenerationJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 是否为终止状态
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+
+    /**
+     * 对应的应用生成状态（取消视为生成失败，避免应用一直停留在生成中）
+     */
+    public AppGenStatusEnum toAppGenStatus() {
+        return switch (this) {
+            case QUEUED, RUNNING -> AppGenStatusEnum.GENERATING;
+            case SUCCEEDED -> AppGenStatusEnum.GENERATED_SUCCESS;
+            case FAILED, CANCELLED -> AppGenStatusEnum.GENERATED_FAILED;
+        };
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static GenerationJobStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (GenerationJobStatusEnum anEnum : GenerationJobStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.yu.yuaicodemother.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 大模型类型枚举（按模型划分准入并发预算）
+ */
+@Getter
+public enum LlmModelTypeEnum {
+
+    REASONING("reasoning", "推理模型"),
+    STREAMING("streaming", "流式模型"),
+    ROUTING("routing", "路由模型");
+
+    private final String value;
+    private final String text;
+
+    LlmModelTypeEnum(String value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    /**
+     * 代码生成类型使用的模型
+     */
+    public static LlmModelTypeEnum ofCodeGenType(CodeGenTypeEnum codeGenType) {
+        return switch (codeGenType) {
+            case VUE_PROJECT -> REASONING;
+            case HTML, MULTI_FILE -> STREAMING;
+        };
+    }
+
+    /**
+     * 根据值获取枚举
+     */
+    public static LlmModelTypeEnum getEnumByValue(String value) {
+        for (LlmModelTypeEnum typeEnum : values()) {
+            if (typeEnum.getValue().equals(value)) {
+                return typeEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.yu.yuaicodemother.model.enums;
+
+import lombok.Getter;
+
+/**
+ * Vue 项目构建优先级枚举（value 越小越优先）
+ */
+@Getter
+public enum VueBuildPriorityEnum {
+
+    DEPLOY(0, "部署"),
+    PREVIEW(1, "生成后预览");
+
+    private final int value;
+    private final String text;
+
+    VueBuildPriorityEnum(int value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value
+     * @return
+     */
+    public static VueBuildPriorityEnum getEnumByValue(Integer value) {
+        if (value == null) {
+            return null;
+        }
+        for (VueBuildPriorityEnum anEnum : VueBuildPriorityEnum.values()) {
+            if (anEnum.value == value) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.yu.yuaicodemother.model.vo.monitor;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次生成（或部署）的阶段耗时明细
+ */
+@Data
+public class GenerationTraceVO implements Serializable {
+
+    /**
+     * 生成 ID
+     */
+    private String generationId;
+
+    /**
+     * 类型：generation / deploy
+     */
+    private String kind;
+
+    private Long appId;
+
+    private Long userId;
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 状态：running / success / error
+     */
+    private String status;
+
+    /**
+     * 失败时的异常类型
+     */
+    private String error;
+
+    private LocalDateTime startTime;
+
+    /**
+     * 总耗时（毫秒），进行中时为已经过的时间
+     */
+    private Long totalMillis;
+
+    /**
+     * 按阶段名称汇总的耗时（毫秒），同名阶段（如多次工具调用）累加
+     */
+    private Map<String, Long> stageTotals;
+
+    /**
+     * 各阶段明细，按开始时间排序
+     */
+    private List<Stage> stages;
+
+    /**
+     * 超出上限未记录的阶段数
+     */
+    private Integer droppedStages;
+
+    @Data
+    public static class Stage implements Serializable {
+
+        /**
+         * 阶段名称
+         */
+        private String name;
+
+        /**
+         * 补充信息（工具名、模型名等）
+         */
+        private String detail;
+
+        /**
+         * 相对生成开始的偏移（毫秒）
+         */
+        private Long startOffsetMillis;
+
+        /**
+         * 耗时（毫秒）
+         */
+        private Long durationMillis;
+
+        /**
+         * 失败时的异常类型
+         */
+        private String error;
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+    }
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,55 @@
+package com.yu.yuaicodemother.model.vo.monitor;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 当前统计窗口内的 token 消耗排行
+ */
+@Data
+public class TokenSpendVO implements Serializable {
+
+    /**
+     * 统计窗口开始时间
+     */
+    private LocalDateTime windowStart;
+
+    /**
+     * 窗口内的总 token 消耗
+     */
+    private Long totalTokens;
+
+    /**
+     * 消耗最多的用户
+     */
+    private List<Item> topUsers;
+
+    /**
+     * 消耗最多的应用
+     */
+    private List<Item> topApps;
+
+    @Data
+    public static class Item implements Serializable {
+
+        /**
+         * 用户 id 或应用 id
+         */
+        private String id;
+
+        /**
+         * 估算的 token 消耗（Count-Min Sketch 只会高估）
+         */
+        private Long tokens;
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+    }
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
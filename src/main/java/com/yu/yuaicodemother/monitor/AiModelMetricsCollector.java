@@ -4,6 +4,7 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -22,6 +23,11 @@ import java.util.concurrent.ConcurrentMap;
  * 4. {@link #recordResponseTime} - 性能监控 (响应耗时/延迟)
  * </p>
  *
+ * <h3>标签基数</h3>
+ * 指标只带模型名称、状态、Token 类型、异常类型这类取值有限的标签，时间序列数量不随用户量增长；
+ * 按用户、按应用的 Token 消耗由 {@link TokenSpendAccounting} 以固定内存统计。
+ * 每个模型的指标在第一次出现时创建并缓存，之后按模型名称直接查找，记录时不拼接字符串、不创建对象。
+ *
  * @author 鱼🐟
  * @version 1.0
  */
@@ -30,28 +36,61 @@ import java.util.concurrent.ConcurrentMap;
 public class AiModelMetricsCollector {
 
     /**
-     * Micrometer 核心注册表，用于注册和管理所有的指标仪表盘
+     * 最多单独统计的模型数，超出的模型（例如服务商返回了异常的模型名）归入 other
      */
-    @Resource
-    private MeterRegistry meterRegistry;
+    private static final int MAX_MODELS = 32;
+
+    /**
+     * 每个模型最多单独统计的异常类型数
+     */
+    private static final int MAX_ERROR_TYPES = 32;
 
-    // =================================================================================
-    // 本地缓存层
-    // 设计目的：虽然 MeterRegistry 内部有缓存，但在高并发场景下，
-    // 在应用层维护一个 Map 可以减少 Builder 对象的重复创建和查找开销。
-    // =================================================================================
+    private static final String OTHER = "other";
 
-    /** 请求计数器缓存：Key = userId_appId_modelName_status */
-    private final ConcurrentMap<String, Counter> requestCountersCache = new ConcurrentHashMap<>();
+    /**
+     * 请求状态
+     */
+    @Getter
+    public enum Status {
 
-    /** 错误计数器缓存：Key = userId_appId_modelName_errorMessage */
-    private final ConcurrentMap<String, Counter> errorCountersCache = new ConcurrentHashMap<>();
+        STARTED("started"),
+        SUCCESS("success"),
+        ERROR("error");
 
-    /** Token计数器缓存：Key = userId_appId_modelName_tokenType */
-    private final ConcurrentMap<String, Counter> tokenCountersCache = new ConcurrentHashMap<>();
+        private final String value;
 
-    /** 响应时间记录器缓存：Key = userId_appId_modelName */
-    private final ConcurrentMap<String, Timer> responseTimersCache = new ConcurrentHashMap<>();
+        Status(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Token 类型
+     */
+    @Getter
+    public enum TokenType {
+
+        INPUT("input"),
+        OUTPUT("output"),
+        TOTAL("total");
+
+        private final String value;
+
+        TokenType(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Micrometer 核心注册表，用于注册和管理所有的指标仪表盘
+     */
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 模型名称 -> 该模型的全部指标
+     */
+    private final ConcurrentMap<String, ModelMeters> modelMetersCache = new ConcurrentHashMap<>();
 
     /**
      * 记录 AI 模型的请求次数 (Counter)
@@ -59,70 +98,25 @@ public class AiModelMetricsCollector {
      * 用于统计总调用量、计算 QPS 以及分析不同模型的调用热度。
      * </p>
      *
-     * @param userId    调用用户的ID (建议：如果用户量过百万，建议仅记录租户ID或不做Tag，防止基数爆炸)
-     * @param appId     接入应用的ID
-     * @param modelName 模型名称 (如: gpt-4, claude-3-opus)
-     * @param status    请求状态 (如: "SUCCESS", "FAILED", "TIMEOUT")，用于计算成功率
+     * @param modelName 模型名称 (如: qwen-plus)
+     * @param status    请求状态，用于计算成功率
      */
-    public void recordRequest(String userId, String appId, String modelName, String status) {
-        // 归一化处理，防止 null 导致 Micrometer 报错
-        String finalUserId = defaultIfNull(userId);
-        String finalAppId = defaultIfNull(appId);
-        String finalModelName = defaultIfNull(modelName);
-        String finalStatus = defaultIfNull(status);
-
-        // 拼接唯一Key，用于在本地 Map 中查找是否已存在该 Counter
-        String key = String.format("%s_%s_%s_%s", finalUserId, finalAppId, finalModelName, finalStatus);
-
-        // computeIfAbsent 保证线程安全：如果 Key 不存在则创建并注册，存在则直接返回
-        Counter counter = requestCountersCache.computeIfAbsent(key, k ->
-                Counter.builder("ai_model_requests_total") // 指标名称 (Prometheus 中显示的 metric name)
-                        .description("AI模型总请求次数")       // 指标描述
-                        .tag("user_id", finalUserId)            // 维度标签：用户
-                        .tag("app_id", finalAppId)              // 维度标签：应用
-                        .tag("model_name", finalModelName)      // 维度标签：模型
-                        .tag("status", finalStatus)             // 维度标签：状态
-                        .register(meterRegistry)           // 注册到 Micrometer
-        );
-
-        // 计数器 +1
-        counter.increment();
+    public void recordRequest(String modelName, Status status) {
+        meters(modelName).requests[status.ordinal()].increment();
     }
 
     /**
      * 记录 AI 模型的异常次数 (Counter)
      * <p>
      * 用于监控服务稳定性，配合 AlertManager 配置告警规则。
+     * 只按异常类名区分（如 HttpException、TimeoutException），不使用可能包含动态内容的异常信息。
      * </p>
      *
-     * <h3>⚠️ 警告 (High Cardinality Warning)</h3>
-     * 请勿将包含动态内容（如时间戳、请求ID、堆栈详情）的原始错误信息直接传入 {@code errorMessage}。
-     * 必须先进行归一化处理（例如将 "Timeout at 12:00" 转换为 "TIMEOUT_ERROR"），
-     * 否则会导致监控系统内存溢出。
-     *
-     * @param userId       调用用户的ID
-     * @param appId        接入应用的ID
-     * @param modelName    模型名称
-     * @param errorMessage 错误类型摘要 (如: "API_KEY_INVALID", "CONTEXT_LENGTH_EXCEEDED")
+     * @param modelName 模型名称
+     * @param error     异常
      */
-    public void recordError(String userId, String appId, String modelName, String errorMessage) {
-        String finalUserId = defaultIfNull(userId);
-        String finalAppId = defaultIfNull(appId);
-        String finalModelName = defaultIfNull(modelName);
-        String finalErrorMessage = defaultIfNull(errorMessage);
-
-        String key = String.format("%s_%s_%s_%s", finalUserId, finalAppId, finalModelName, finalErrorMessage);
-        Counter counter = errorCountersCache.computeIfAbsent(key, k ->
-                Counter.builder("ai_model_errors_total")
-                        .description("AI模型错误次数")
-                        .tag("user_id", finalUserId)
-                        .tag("app_id", finalAppId)
-                        .tag("model_name", finalModelName)
-                        .tag("error_message", finalErrorMessage) // 关键标签：错误原因
-                        .register(meterRegistry)
-        );
-
-        counter.increment();
+    public void recordError(String modelName, Throwable error) {
+        meters(modelName).error(error == null ? Throwable.class : error.getClass()).increment();
     }
 
     /**
@@ -131,38 +125,16 @@ public class AiModelMetricsCollector {
      * 用于成本核算和模型产出分析。与请求次数不同，这里是累加具体的数值。
      * </p>
      *
-     * @param userId     调用用户的ID
-     * @param appId      接入应用的ID
      * @param modelName  模型名称
-     * @param tokenType  Token类型 (通常为 "Input" 或 "Prompt" 表示输入，"Output" 或 "Completion" 表示输出)
+     * @param tokenType  Token 类型
      * @param tokenCount 本次请求消耗的 Token 数量
      */
-    public void recordTokenUsage(String userId, String appId, String modelName,
-                                 String tokenType, long tokenCount) {
+    public void recordTokenUsage(String modelName, TokenType tokenType, long tokenCount) {
         // 过滤掉无效数据，避免污染指标
         if (tokenCount <= 0) {
             return;
         }
-
-        String finalUserId = defaultIfNull(userId);
-        String finalAppId = defaultIfNull(appId);
-        String finalModelName = defaultIfNull(modelName);
-        String finalTokenType = defaultIfNull(tokenType);
-
-        String key = String.format("%s_%s_%s_%s", finalUserId, finalAppId, finalModelName, finalTokenType);
-
-        Counter counter = tokenCountersCache.computeIfAbsent(key, k ->
-                Counter.builder("ai_model_tokens_total")
-                        .description("AI模型Token消耗总数")
-                        .tag("user_id", finalUserId)
-                        .tag("app_id", finalAppId)
-                        .tag("model_name", finalModelName)
-                        .tag("token_type", finalTokenType) // 区分是提问消耗还是回答消耗
-                        .register(meterRegistry)
-        );
-
-        // 累加指定的 Token 数量
-        counter.increment(tokenCount);
+        meters(modelName).tokens[tokenType.ordinal()].increment(tokenCount);
     }
 
     /**
@@ -175,33 +147,87 @@ public class AiModelMetricsCollector {
      * (若配置了直方图，还能计算 P99, P95 等分位数)
      * </p>
      *
-     * @param userId    调用用户的ID
-     * @param appId     接入应用的ID
      * @param modelName 模型名称
-     * @param duration  本次请求的耗时对象 (Duration.ofMillis(xxx))
+     * @param duration  本次请求的耗时
      */
-    public void recordResponseTime(String userId, String appId, String modelName, Duration duration) {
-        String finalUserId = defaultIfNull(userId);
-        String finalAppId = defaultIfNull(appId);
-        String finalModelName = defaultIfNull(modelName);
-
-        String key = String.format("%s_%s_%s", finalUserId, finalAppId, finalModelName);
-
-        Timer timer = responseTimersCache.computeIfAbsent(key, k ->
-                Timer.builder("ai_model_response_duration_seconds")
-                        .description("AI模型响应时间")
-                        .tag("user_id", finalUserId)
-                        .tag("app_id", finalAppId)
-                        .tag("model_name", finalModelName)
-                        // 注意：Timer 默认单位通常是秒，Micrometer 会自动处理单位转换
-                        .register(meterRegistry)
-        );
-
-        // 记录本次耗时
-        timer.record(duration);
+    public void recordResponseTime(String modelName, Duration duration) {
+        meters(modelName).responseTime.record(duration);
     }
 
-    private String defaultIfNull(String value) {
-        return value == null ? "unknown" : value;
+    private ModelMeters meters(String modelName) {
+        String key = modelName == null ? "unknown" : modelName;
+        ModelMeters meters = modelMetersCache.get(key);
+        if (meters != null) {
+            return meters;
+        }
+        if (modelMetersCache.size() >= MAX_MODELS) {
+            key = OTHER;
+        }
+        return modelMetersCache.computeIfAbsent(key, name -> new ModelMeters(meterRegistry, name));
+    }
+
+    /**
+     * 单个模型的全部指标，请求与 Token 指标按枚举下标存放
+     */
+    private static final class ModelMeters {
+
+        private final MeterRegistry meterRegistry;
+
+        private final String modelName;
+
+        private final Counter[] requests;
+
+        private final Counter[] tokens;
+
+        private final Timer responseTime;
+
+        private final ConcurrentMap<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+        private ModelMeters(MeterRegistry meterRegistry, String modelName) {
+            this.meterRegistry = meterRegistry;
+            this.modelName = modelName;
+            Status[] statuses = Status.values();
+            requests = new Counter[statuses.length];
+            for (Status status : statuses) {
+                requests[status.ordinal()] = Counter.builder("ai_model_requests_total")
+                        .description("AI模型总请求次数")
+                        .tag("model_name", modelName)
+                        .tag("status", status.getValue())
+                        .register(meterRegistry);
+            }
+            TokenType[] tokenTypes = TokenType.values();
+            tokens = new Counter[tokenTypes.length];
+            for (TokenType tokenType : tokenTypes) {
+                tokens[tokenType.ordinal()] = Counter.builder("ai_model_tokens_total")
+                        .description("AI模型Token消耗总数")
+                        .tag("model_name", modelName)
+                        .tag("token_type", tokenType.getValue())
+                        .register(meterRegistry);
+            }
+            responseTime = Timer.builder("ai_model_response_duration_seconds")
+                    .description("AI模型响应时间")
+                    .tag("model_name", modelName)
+                    .register(meterRegistry);
+        }
+
+        private Counter error(Class<?> errorClass) {
+            Counter counter = errors.get(errorClass);
+            if (counter != null) {
+                return counter;
+            }
+            if (errors.size() >= MAX_ERROR_TYPES) {
+                return errorCounter(OTHER);
+            }
+            String errorType = errorClass.getSimpleName().isEmpty() ? errorClass.getName() : errorClass.getSimpleName();
+            return errors.computeIfAbsent(errorClass, key -> errorCounter(errorType));
+        }
+
+        private Counter errorCounter(String errorType) {
+            return Counter.builder("ai_model_errors_total")
+                    .description("AI模型错误次数")
+                    .tag("model_name", modelName)
+                    .tag("error_type", errorType)
+                    .register(meterRegistry);
+        }
     }
-}
\ No newline at end of file
+}
@@ -33,6 +33,12 @@ public class AiModelMonitorListener implements ChatModelListener {
 
     @Resource
     private AiModelMetricsCollector aiModelMetricsCollector;
+
+    @Resource
+    private TokenSpendAccounting tokenSpendAccounting;
+
+    @Resource
+    private GenerationTracer generationTracer;
     /**
      * 属性键：请求开始时间
      * 用于在 attributes Map 中存储 Instant 对象，以便在响应/错误时计算耗时。
@@ -49,6 +55,11 @@ public class AiModelMonitorListener implements ChatModelListener {
      */
     private static final String MONITOR_CONTEXT_KEY = "monitor_context";
 
+    /**
+     * 属性键：本轮模型请求在生成链路中的阶段（工具调用循环中每一轮是一个阶段）
+     */
+    private static final String GENERATION_STAGE_KEY = "generation_stage";
+
 
 
     /**
@@ -76,14 +87,15 @@ public class AiModelMonitorListener implements ChatModelListener {
             requestContext.attributes().put(MONITOR_CONTEXT_KEY, context);
         }
 
-        String userId = (context != null) ? context.getUserId() : "unknown";
-        String appId = (context != null) ? context.getAppId() : "unknown";
-
         // 4. 获取模型名称 (e.g., "gpt-4")
         String modelName = requestContext.chatRequest().modelName();
 
         // 5. 埋点：记录请求已开始
-        aiModelMetricsCollector.recordRequest(userId, appId, modelName, "started");
+        aiModelMetricsCollector.recordRequest(modelName, AiModelMetricsCollector.Status.STARTED);
+
+        // 6. 属于某次生成时，记录本轮请求的阶段耗时
+        GenerationTracer.Stage stage = generationTracer.stage(generationTracer.current(), "llm_request", modelName);
+        requestContext.attributes().put(GENERATION_STAGE_KEY, stage);
     }
 
     /**
@@ -104,21 +116,22 @@ public class AiModelMonitorListener implements ChatModelListener {
         // 2. 【关键】从属性中恢复监控上下文（而不是从 MonitorContextHolder 获取，因为线程可能变了）
         MonitorContext context = (MonitorContext) attributes.get(MONITOR_CONTEXT_KEY);
 
-        // 防御性编程：防止 context 为空（虽然理论上 onRequest 必先执行）
-        String userId = (context != null) ? context.getUserId() : "unknown";
-        String appId = (context != null) ? context.getAppId() : "unknown";
-
         // 3. 获取实际响应的模型名称
         String modelName = responseContext.chatResponse().modelName();
 
         // 4. 埋点：记录请求成功
-        aiModelMetricsCollector.recordRequest(userId, appId, modelName, "success");
+        aiModelMetricsCollector.recordRequest(modelName, AiModelMetricsCollector.Status.SUCCESS);
 
         // 5. 埋点：记录响应时间
-        recordResponseTime(attributes, userId, appId, modelName);
+        recordResponseTime(attributes, modelName);
 
         // 6. 埋点：记录 Token 消耗
-        recordTokenUsage(responseContext, userId, appId, modelName);
+        recordTokenUsage(responseContext, context, modelName);
+
+        // 7. 结束本轮请求的阶段
+        if (attributes.get(GENERATION_STAGE_KEY) instanceof GenerationTracer.Stage stage) {
+            stage.stop();
+        }
     }
 
     /**
@@ -142,18 +155,19 @@ public class AiModelMonitorListener implements ChatModelListener {
         // 获取模型名称
         String modelName = errorContext.chatRequest().modelName();
 
-        // 获取错误详情
-        // ⚠️ 注意：ErrorMessage 可能包含动态内容，建议在 Collector 中进行归一化处理，防止 Tag 基数爆炸
-        String errorMessage = errorContext.error().getMessage();
-
         // 3. 埋点：记录请求失败
-        aiModelMetricsCollector.recordRequest(userId, appId, modelName, "error");
+        aiModelMetricsCollector.recordRequest(modelName, AiModelMetricsCollector.Status.ERROR);
 
-        // 4. 埋点：记录具体的错误原因
-        aiModelMetricsCollector.recordError(userId, appId, modelName, errorMessage);
+        // 4. 埋点：按异常类型记录错误（异常信息可能包含动态内容，只写日志，不作为标签）
+        aiModelMetricsCollector.recordError(modelName, errorContext.error());
+        log.warn("AI 模型调用失败: model={}, userId={}, appId={}, 错误信息: {}",
+                modelName, userId, appId, errorContext.error().getMessage());
 
         // 5. 埋点：即使失败，也记录耗时（用于分析超时等问题）
-        recordResponseTime(attributes, userId, appId, modelName);
+        recordResponseTime(attributes, modelName);
+        if (attributes.get(GENERATION_STAGE_KEY) instanceof GenerationTracer.Stage stage) {
+            stage.stop(errorContext.error());
+        }
     }
 
 
@@ -161,42 +175,54 @@ public class AiModelMonitorListener implements ChatModelListener {
      * 辅助方法：计算并记录响应耗时
      *
      * @param attributes 请求属性上下文
-     * @param userId     用户ID
-     * @param appId      应用ID
      * @param modelName  模型名称
      */
-    private void recordResponseTime(Map<Object, Object> attributes, String userId, String appId, String modelName) {
+    private void recordResponseTime(Map<Object, Object> attributes, String modelName) {
         Object startTimeObj = attributes.get(REQUEST_START_TIME_KEY);
         if (startTimeObj instanceof Instant) {
             Instant startTime = (Instant) startTimeObj;
             // 计算时间差：Now - Start
             Duration responseTime = Duration.between(startTime, Instant.now());
-            aiModelMetricsCollector.recordResponseTime(userId, appId, modelName, responseTime);
+            aiModelMetricsCollector.recordResponseTime(modelName, responseTime);
         }
     }
 
     /**
-     * 辅助方法：提取并记录 Token 使用情况
+     * 辅助方法：提取并记录 Token 使用情况（按用户、按应用的消耗计入有界统计）
+     * <p>
+     * 消耗归属取自请求属性中的监控上下文；没有上下文的调用（不属于任何用户请求）只计入模型维度，
+     * 不以 "unknown" 混入用户、应用排行。
+     * </p>
      *
      * @param responseContext 响应上下文
-     * @param userId          用户ID
-     * @param appId           应用ID
+     * @param context         请求发起时的监控上下文（可能为 null）
      * @param modelName       模型名称
      */
-    private void recordTokenUsage(ChatModelResponseContext responseContext, String userId, String appId, String modelName) {
+    private void recordTokenUsage(ChatModelResponseContext responseContext, MonitorContext context, String modelName) {
         // LangChain4j 标准化了 TokenUsage 对象
         TokenUsage tokenUsage = responseContext.chatResponse().metadata().tokenUsage();
 
         if (tokenUsage != null) {
             // 记录 Prompt (输入) Token
-            aiModelMetricsCollector.recordTokenUsage(userId, appId, modelName, "input", tokenUsage.inputTokenCount());
-
+            aiModelMetricsCollector.recordTokenUsage(modelName, AiModelMetricsCollector.TokenType.INPUT,
+                    toLong(tokenUsage.inputTokenCount()));
 
             // 记录 Completion (输出) Token
-            aiModelMetricsCollector.recordTokenUsage(userId, appId, modelName, "output", tokenUsage.outputTokenCount());
+            aiModelMetricsCollector.recordTokenUsage(modelName, AiModelMetricsCollector.TokenType.OUTPUT,
+                    toLong(tokenUsage.outputTokenCount()));
 
             // 记录 Total Token
-            aiModelMetricsCollector.recordTokenUsage(userId, appId, modelName, "total", tokenUsage.totalTokenCount());
+            long totalTokens = toLong(tokenUsage.totalTokenCount());
+            aiModelMetricsCollector.recordTokenUsage(modelName, AiModelMetricsCollector.TokenType.TOTAL, totalTokens);
+            if (context != null) {
+                tokenSpendAccounting.record(context.getUserId(), context.getAppId(), totalTokens);
+            } else {
+                log.debug("模型调用没有监控上下文，消耗不计入用户与应用排行: model={}", modelName);
+            }
         }
     }
-}
\ No newline at end of file
+
+    private static long toLong(Integer count) {
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,104 @@
+package com.yu.yuaicodemother.monitor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 有界的热点计数：Count-Min Sketch + Top-K
+ * <p>
+ * 1. Count-Min Sketch 用固定大小的 depth × width 计数表估算任意 key 的累计值，只会高估不会低估，
+ * 误差上限约为 总量 × e / width；
+ * 2. 另外保留估算值最大的 K 个 key，新 key 的估算值超过当前最小值时替换它。
+ * 内存只与 depth、width、K 有关，不随 key 的数量增长。
+ * </p>
+ */
+public class CountMinTopK {
+
+    private final long[][] table;
+
+    private final int[] seeds;
+
+    private final int width;
+
+    private final int k;
+
+    private final Map<String, Long> top;
+
+    private long total;
+
+    public CountMinTopK(int depth, int width, int k) {
+        this.table = new long[depth][width];
+        this.seeds = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = 0x9E3779B9 * (i + 1);
+        }
+        this.width = width;
+        this.k = k;
+        this.top = new HashMap<>(k * 2);
+    }
+
+    public synchronized void add(String key, long count) {
+        if (count <= 0) {
+            return;
+        }
+        total += count;
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < table.length; i++) {
+            int index = index(hash, i);
+            table[i][index] += count;
+            estimate = Math.min(estimate, table[i][index]);
+        }
+        if (top.containsKey(key) || top.size() < k) {
+            top.put(key, estimate);
+            return;
+        }
+        Map.Entry<String, Long> min = null;
+        for (Map.Entry<String, Long> entry : top.entrySet()) {
+            if (min == null || entry.getValue() < min.getValue()) {
+                min = entry;
+            }
+        }
+        if (min != null && estimate > min.getValue()) {
+            top.remove(min.getKey());
+            top.put(key, estimate);
+        }
+    }
+
+    /**
+     * 估算 key 的累计值（可能高估）
+     */
+    public synchronized long estimate(String key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < table.length; i++) {
+            estimate = Math.min(estimate, table[i][index(hash, i)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * 累计值最大的 key，按估算值降序
+     */
+    public synchronized List<Map.Entry<String, Long>> top(int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(top.size());
+        for (Map.Entry<String, Long> entry : top.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * seeds[row];
+        h ^= h >>> 16;
+        return Math.floorMod(h, width);
+    }
+}
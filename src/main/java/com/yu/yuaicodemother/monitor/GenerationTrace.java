@@ -0,0 +1,126 @@
+package com.yu.yuaicodemother.monitor;
+
+import io.micrometer.observation.Observation;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次生成（或部署）的阶段记录
+ * <p>
+ * 由 {@link GenerationTracer} 创建，各阶段结束时追加一条记录；
+ * 阶段可能在模型回调线程、副作用虚拟线程上结束，记录方法均为线程安全的。
+ * </p>
+ */
+@Getter
+public class GenerationTrace {
+
+    /**
+     * 每次生成最多保留的阶段记录数（工具调用轮次很多时丢弃后续记录）
+     */
+    static final int MAX_STAGES = 512;
+
+    private final String generationId;
+
+    /**
+     * 类型：generation / deploy
+     */
+    private final String kind;
+
+    private final Long appId;
+
+    private final Long userId;
+
+    private final LocalDateTime startTime;
+
+    private final long startNanos;
+
+    /**
+     * 随 Reactor Context 与线程传递的监控上下文
+     */
+    private final MonitorContext monitorContext;
+
+    /**
+     * 整次生成的 Observation，各阶段的父级
+     */
+    private final Observation observation;
+
+    private volatile String codeGenType;
+
+    private volatile long endNanos;
+
+    private volatile String error;
+
+    private final List<StageRecord> stages = new ArrayList<>();
+
+    private int droppedStages;
+
+    GenerationTrace(String generationId, String kind, Long appId, Long userId, Observation observation) {
+        this.generationId = generationId;
+        this.kind = kind;
+        this.appId = appId;
+        this.userId = userId;
+        this.startTime = LocalDateTime.now();
+        this.startNanos = System.nanoTime();
+        this.observation = observation;
+        this.monitorContext = MonitorContext.builder()
+                .userId(userId == null ? null : userId.toString())
+                .appId(appId == null ? null : appId.toString())
+                .generationId(generationId)
+                .build();
+    }
+
+    /**
+     * 设置代码生成类型（生成开始时应用信息尚未查询）
+     */
+    public void setCodeGenType(String codeGenType) {
+        this.codeGenType = codeGenType;
+        observation.lowCardinalityKeyValue("code_gen_type", codeGenType);
+    }
+
+    public boolean isFinished() {
+        return endNanos != 0;
+    }
+
+    /**
+     * 阶段记录快照，按结束顺序排列
+     */
+    public synchronized List<StageRecord> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    public synchronized int getDroppedStages() {
+        return droppedStages;
+    }
+
+    synchronized void addStage(StageRecord stage) {
+        if (stages.size() >= MAX_STAGES) {
+            droppedStages++;
+            return;
+        }
+        stages.add(stage);
+    }
+
+    synchronized boolean finish(Throwable error) {
+        if (endNanos != 0) {
+            return false;
+        }
+        this.endNanos = System.nanoTime();
+        this.error = error == null ? null : error.getClass().getSimpleName();
+        return true;
+    }
+
+    /**
+     * 一个阶段的耗时
+     *
+     * @param name             阶段名称
+     * @param detail           补充信息（工具名、模型名等）
+     * @param startOffsetNanos 相对生成开始的偏移
+     * @param durationNanos    耗时
+     * @param error            异常类型，成功时为 null
+     */
+    public record StageRecord(String name, String detail, long startOffsetNanos, long durationNanos, String error) {
+    }
+}
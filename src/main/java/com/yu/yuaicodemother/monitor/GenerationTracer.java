@@ -0,0 +1,317 @@
+package com.yu.yuaicodemother.monitor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yu.yuaicodemother.model.vo.monitor.GenerationTraceVO;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 生成链路追踪
+ * <p>
+ * 一次对话生成依次经过：附件下载解析、对话记忆加载、护轨、模型流式调用（含多轮请求与工具执行）、
+ * 解析保存、对话历史、创建版本、Vue 构建；部署另外经过构建、复制、截图与对象存储上传。
+ * 每个阶段是一个 Micrometer Observation（名称 generation.stage，按 stage 标签区分，
+ * 父级为整次生成的 generation.trace），同时按生成 ID 记录到内存中，供管理员接口查询最近生成的耗时明细。
+ * </p>
+ *
+ * <h3>上下文传递</h3>
+ * 生成 ID 放在 {@link MonitorContext} 中，通过 Reactor Context 向生成流传递，
+ * 在虚拟线程、模型回调线程上由 {@link MonitorContextHolder#wrap} 恢复；
+ * 应用级副作用按应用查找当前生成（同一应用同时只有一个生成）。
+ */
+@Component
+public class GenerationTracer {
+
+    public static final String KIND_GENERATION = "generation";
+
+    public static final String KIND_DEPLOY = "deploy";
+
+    private static final String UNKNOWN = "unknown";
+
+    @Resource
+    private ObservationRegistry observationRegistry;
+
+    /**
+     * 内存中保留的最近生成数
+     */
+    @Value("${monitor.generation-trace.max-size:1000}")
+    private int maxSize;
+
+    /**
+     * 生成记录的保留时间（分钟）
+     */
+    @Value("${monitor.generation-trace.retention-minutes:60}")
+    private long retentionMinutes;
+
+    /**
+     * 生成 ID -> 生成记录
+     */
+    private Cache<String, GenerationTrace> traces;
+
+    /**
+     * 应用 ID -> 该应用最近一次生成
+     */
+    private Cache<Long, GenerationTrace> latestByApp;
+
+    @PostConstruct
+    public void init() {
+        traces = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(retentionMinutes))
+                .build();
+        latestByApp = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(retentionMinutes))
+                .build();
+    }
+
+    /**
+     * 开始记录一次生成
+     *
+     * @param generationId 生成 ID
+     * @param kind         类型（{@link #KIND_GENERATION} / {@link #KIND_DEPLOY}）
+     * @param appId        应用 ID
+     * @param userId       用户 ID
+     * @return 生成记录
+     */
+    public GenerationTrace start(String generationId, String kind, Long appId, Long userId) {
+        Observation observation = Observation.createNotStarted("generation.trace", observationRegistry)
+                .contextualName(kind)
+                .lowCardinalityKeyValue("kind", kind)
+                .lowCardinalityKeyValue("code_gen_type", UNKNOWN)
+                .highCardinalityKeyValue("generation.id", generationId)
+                .start();
+        GenerationTrace trace = new GenerationTrace(generationId, kind, appId, userId, observation);
+        traces.put(generationId, trace);
+        if (appId != null && KIND_GENERATION.equals(kind)) {
+            latestByApp.put(appId, trace);
+        }
+        return trace;
+    }
+
+    /**
+     * 结束一次生成（之后结束的阶段仍会记录，例如异步执行的副作用）
+     */
+    public void finish(GenerationTrace trace, Throwable error) {
+        if (trace == null || !trace.finish(error)) {
+            return;
+        }
+        if (error != null) {
+            trace.getObservation().error(error);
+        }
+        trace.getObservation().stop();
+    }
+
+    public GenerationTrace get(String generationId) {
+        return generationId == null ? null : traces.getIfPresent(generationId);
+    }
+
+    /**
+     * 当前线程监控上下文对应的生成
+     */
+    public GenerationTrace current() {
+        return of(MonitorContextHolder.getContext());
+    }
+
+    /**
+     * Reactor Context 中的监控上下文对应的生成
+     */
+    public GenerationTrace current(ContextView contextView) {
+        return of(contextView.getOrDefault(MonitorContext.class, null));
+    }
+
+    /**
+     * 应用最近一次生成
+     */
+    public GenerationTrace latestOfApp(Long appId) {
+        return appId == null ? null : latestByApp.getIfPresent(appId);
+    }
+
+    /**
+     * 开始一个阶段，须调用 {@link Stage#stop()} 结束
+     *
+     * @param trace 所属生成（为 null 时返回空操作的阶段）
+     * @param name  阶段名称
+     */
+    public Stage stage(GenerationTrace trace, String name) {
+        return stage(trace, name, null);
+    }
+
+    /**
+     * 开始一个阶段，须调用 {@link Stage#stop()} 结束
+     *
+     * @param trace  所属生成（为 null 时返回空操作的阶段）
+     * @param name   阶段名称
+     * @param detail 补充信息（工具名、模型名等）
+     */
+    public Stage stage(GenerationTrace trace, String name, String detail) {
+        if (trace == null) {
+            return Stage.NOOP;
+        }
+        Observation observation = Observation.createNotStarted("generation.stage", observationRegistry)
+                .contextualName(name)
+                .parentObservation(trace.getObservation())
+                .lowCardinalityKeyValue("stage", name)
+                .lowCardinalityKeyValue("kind", trace.getKind())
+                .lowCardinalityKeyValue("code_gen_type", Objects.requireNonNullElse(trace.getCodeGenType(), UNKNOWN))
+                .highCardinalityKeyValue("generation.id", trace.getGenerationId());
+        if (detail != null) {
+            observation.highCardinalityKeyValue("detail", detail);
+        }
+        return new Stage(trace, name, detail, observation.start());
+    }
+
+    /**
+     * 在一个阶段内执行
+     */
+    public <T> T observe(GenerationTrace trace, String name, Supplier<T> action) {
+        Stage stage = stage(trace, name);
+        try {
+            T result = action.get();
+            stage.stop();
+            return result;
+        } catch (RuntimeException | Error e) {
+            stage.stop(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 在一个阶段内执行
+     */
+    public void observe(GenerationTrace trace, String name, Runnable action) {
+        observe(trace, name, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 最近的生成，按开始时间倒序
+     *
+     * @param appId 应用 ID（为 null 时不过滤）
+     * @param limit 最多返回条数
+     */
+    public List<GenerationTrace> listRecent(Long appId, int limit) {
+        return traces.asMap().values().stream()
+                .filter(trace -> appId == null || appId.equals(trace.getAppId()))
+                .sorted(Comparator.comparingLong(GenerationTrace::getStartNanos).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * 转换为阶段耗时明细
+     */
+    public GenerationTraceVO toVO(GenerationTrace trace) {
+        if (trace == null) {
+            return null;
+        }
+        GenerationTraceVO traceVO = new GenerationTraceVO();
+        traceVO.setGenerationId(trace.getGenerationId());
+        traceVO.setKind(trace.getKind());
+        traceVO.setAppId(trace.getAppId());
+        traceVO.setUserId(trace.getUserId());
+        traceVO.setCodeGenType(trace.getCodeGenType());
+        traceVO.setStartTime(trace.getStartTime());
+        traceVO.setError(trace.getError());
+        if (!trace.isFinished()) {
+            traceVO.setStatus("running");
+        } else {
+            traceVO.setStatus(trace.getError() == null ? "success" : "error");
+        }
+        long endNanos = trace.isFinished() ? trace.getEndNanos() : System.nanoTime();
+        traceVO.setTotalMillis(TimeUnit.NANOSECONDS.toMillis(endNanos - trace.getStartNanos()));
+
+        List<GenerationTrace.StageRecord> records = trace.getStages();
+        records.sort(Comparator.comparingLong(GenerationTrace.StageRecord::startOffsetNanos));
+        List<GenerationTraceVO.Stage> stages = new ArrayList<>(records.size());
+        Map<String, Long> stageTotalNanos = new LinkedHashMap<>();
+        for (GenerationTrace.StageRecord record : records) {
+            GenerationTraceVO.Stage stage = new GenerationTraceVO.Stage();
+            stage.setName(record.name());
+            stage.setDetail(record.detail());
+            stage.setStartOffsetMillis(TimeUnit.NANOSECONDS.toMillis(record.startOffsetNanos()));
+            stage.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(record.durationNanos()));
+            stage.setError(record.error());
+            stages.add(stage);
+            stageTotalNanos.merge(record.name(), record.durationNanos(), Long::sum);
+        }
+        Map<String, Long> stageTotals = new LinkedHashMap<>();
+        stageTotalNanos.forEach((name, nanos) -> stageTotals.put(name, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        traceVO.setStages(stages);
+        traceVO.setStageTotals(stageTotals);
+        traceVO.setDroppedStages(trace.getDroppedStages());
+        return traceVO;
+    }
+
+    private GenerationTrace of(MonitorContext context) {
+        return context == null ? null : get(context.getGenerationId());
+    }
+
+    /**
+     * 进行中的阶段，只结束一次
+     */
+    public static class Stage {
+
+        static final Stage NOOP = new Stage(null, null, null, null);
+
+        private final GenerationTrace trace;
+
+        private final String name;
+
+        private final String detail;
+
+        private final Observation observation;
+
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        private Stage(GenerationTrace trace, String name, String detail, Observation observation) {
+            this.trace = trace;
+            this.name = name;
+            this.detail = detail;
+            this.observation = observation;
+        }
+
+        public void stop() {
+            stop(null);
+        }
+
+        /**
+         * 结束阶段
+         *
+         * @param error 失败时的异常，成功时为 null
+         */
+        public void stop(Throwable error) {
+            if (trace == null || !stopped.compareAndSet(false, true)) {
+                return;
+            }
+            long endNanos = System.nanoTime();
+            trace.addStage(new GenerationTrace.StageRecord(name, detail, startNanos - trace.getStartNanos(),
+                    endNanos - startNanos, error == null ? null : error.getClass().getSimpleName()));
+            if (error != null) {
+                observation.error(error);
+            }
+            observation.stop();
+        }
+    }
+}
@@ -17,6 +17,11 @@ public class MonitorContext implements Serializable {
 
     private String appId;
 
+    /**
+     * 生成 ID（一次生成或部署的全部阶段共用）
+     */
+    private String generationId;
+
     @Serial
     private static final long serialVersionUID = 1L;
 }
@@ -2,6 +2,15 @@ package com.yu.yuaicodemother.monitor;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 监控上下文持有者
+ * <p>
+ * 生成流的上下文以 Reactor Context 为准（键为 {@link MonitorContext}），这里的 ThreadLocal
+ * 只用于把上下文交给同一线程上同步执行、无法传参的代码（模型监听器、护轨、工具）：
+ * 1. {@link #scope} 在当前线程设置上下文，关闭时恢复原值，设置与清除总在同一线程；
+ * 2. {@link #wrap} 在提交任务时捕获上下文，在执行任务的线程（虚拟线程、定时线程）上恢复。
+ * </p>
+ */
 @Slf4j
 public class MonitorContextHolder {
 
@@ -27,4 +36,51 @@ public class MonitorContextHolder {
     public static void clearContext() {
         CONTEXT_HOLDER.remove();
     }
+
+    /**
+     * 在当前线程设置监控上下文，关闭时恢复之前的上下文
+     *
+     * @param context 监控上下文（为 null 时不做修改）
+     * @return 作用域，须在同一线程上关闭
+     */
+    public static Scope scope(MonitorContext context) {
+        MonitorContext previous = CONTEXT_HOLDER.get();
+        if (context == null || context == previous) {
+            return () -> {
+            };
+        }
+        CONTEXT_HOLDER.set(context);
+        return () -> {
+            if (previous == null) {
+                CONTEXT_HOLDER.remove();
+            } else {
+                CONTEXT_HOLDER.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 捕获当前线程的监控上下文，任务在其他线程执行时恢复
+     */
+    public static Runnable wrap(Runnable task) {
+        MonitorContext context = CONTEXT_HOLDER.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope ignored = scope(context)) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 上下文作用域
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
 }
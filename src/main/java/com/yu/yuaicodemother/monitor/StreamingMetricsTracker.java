@@ -0,0 +1,107 @@
+package com.yu.yuaicodemother.monitor;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次流式生成的计时器
+ * <p>
+ * 一次生成可能包含多轮模型输出（工具调用后 langchain4j 会发起新一轮请求）：
+ * 1. 首 token 耗时只统计整次生成的第一个片段；
+ * 2. token 间隔只统计同一轮内相邻片段，工具执行与新一轮的等待不算作卡顿；
+ * 3. 输出速度按各轮“第一个片段到最后一个片段”的时长之和计算。
+ * </p>
+ */
+public class StreamingMetricsTracker {
+
+    /**
+     * 输出阶段
+     */
+    @Getter
+    public enum Phase {
+
+        THINKING("thinking"),
+        TEXT("text"),
+        TOOL_CALL("tool_call");
+
+        private final String value;
+
+        Phase(String value) {
+            this.value = value;
+        }
+    }
+
+    private final StreamingModelMetrics.Meters meters;
+
+    private final long startNanos = System.nanoTime();
+
+    private boolean firstTokenRecorded;
+
+    /**
+     * 当前轮第一个 / 最后一个片段的时间，0 表示当前轮还没有片段
+     */
+    private long roundFirstNanos;
+
+    private long roundLastNanos;
+
+    private long outputNanos;
+
+    private long toolStartNanos;
+
+    private long chunks;
+
+    StreamingMetricsTracker(StreamingModelMetrics.Meters meters) {
+        this.meters = meters;
+    }
+
+    public synchronized void onChunk(Phase phase) {
+        long now = System.nanoTime();
+        chunks++;
+        if (!firstTokenRecorded) {
+            firstTokenRecorded = true;
+            meters.firstToken.record(now - startNanos, TimeUnit.NANOSECONDS);
+        }
+        if (roundFirstNanos == 0) {
+            roundFirstNanos = now;
+        } else {
+            meters.interToken[phase.ordinal()].record(now - roundLastNanos, TimeUnit.NANOSECONDS);
+        }
+        roundLastNanos = now;
+    }
+
+    public synchronized void beforeToolExecution() {
+        endRound();
+        toolStartNanos = System.nanoTime();
+    }
+
+    public synchronized void afterToolExecution() {
+        if (toolStartNanos != 0) {
+            meters.toolExecution.record(System.nanoTime() - toolStartNanos, TimeUnit.NANOSECONDS);
+            toolStartNanos = 0;
+        }
+    }
+
+    /**
+     * 生成完成：按响应中的输出 token 数计算输出速度，没有用量信息时按片段数估算
+     */
+    public synchronized void onComplete(ChatResponse response) {
+        endRound();
+        TokenUsage tokenUsage = response == null ? null : response.tokenUsage();
+        long outputTokens = tokenUsage != null && tokenUsage.outputTokenCount() != null
+                ? tokenUsage.outputTokenCount() : chunks;
+        // 输出时长过短（例如只有一个片段）时速度没有意义
+        if (outputTokens > 0 && outputNanos >= TimeUnit.MILLISECONDS.toNanos(1)) {
+            meters.outputTokensPerSecond.record(outputTokens * 1e9 / outputNanos);
+        }
+    }
+
+    private void endRound() {
+        if (roundFirstNanos != 0) {
+            outputNanos += roundLastNanos - roundFirstNanos;
+            roundFirstNanos = 0;
+        }
+    }
+}
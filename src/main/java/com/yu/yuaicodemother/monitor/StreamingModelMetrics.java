@@ -0,0 +1,102 @@
+package com.yu.yuaicodemother.monitor;
+
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import com.yu.yuaicodemother.model.enums.LlmModelTypeEnum;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 流式模型的体感指标：首 token 耗时、token 间隔、输出速度与工具执行耗时
+ * <p>
+ * {@link AiModelMonitorListener} 只能拿到请求开始与结束，统计的是总耗时；
+ * 这里在生成流的每个片段上计时，区分思考、正文、工具调用三个阶段。
+ * 标签只有模型类型与生成类型，所有指标在启动时创建，记录时不再查找或分配。
+ * </p>
+ */
+@Component
+public class StreamingModelMetrics {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<CodeGenTypeEnum, Meters> metersMap = new EnumMap<>(CodeGenTypeEnum.class);
+
+    @PostConstruct
+    public void init() {
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            metersMap.put(codeGenType, new Meters(meterRegistry, LlmModelTypeEnum.ofCodeGenType(codeGenType), codeGenType));
+        }
+    }
+
+    /**
+     * 为一次生成创建计时器，在调用 TokenStream.start() 前创建
+     */
+    public StreamingMetricsTracker newTracker(CodeGenTypeEnum codeGenType) {
+        return new StreamingMetricsTracker(metersMap.get(codeGenType));
+    }
+
+    /**
+     * 同一生成类型的全部指标
+     */
+    static final class Meters {
+
+        final Timer firstToken;
+
+        final Timer[] interToken;
+
+        final DistributionSummary outputTokensPerSecond;
+
+        final Timer toolExecution;
+
+        Meters(MeterRegistry meterRegistry, LlmModelTypeEnum model, CodeGenTypeEnum codeGenType) {
+            String modelTag = model.getValue();
+            String typeTag = codeGenType.getValue();
+            firstToken = Timer.builder("ai_stream_first_token_seconds")
+                    .description("从发起流式调用到收到第一个片段的耗时")
+                    .tag("model", modelTag)
+                    .tag("code_gen_type", typeTag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(10))
+                    .maximumExpectedValue(Duration.ofMinutes(2))
+                    .register(meterRegistry);
+            StreamingMetricsTracker.Phase[] phases = StreamingMetricsTracker.Phase.values();
+            interToken = new Timer[phases.length];
+            for (StreamingMetricsTracker.Phase phase : phases) {
+                interToken[phase.ordinal()] = Timer.builder("ai_stream_inter_token_seconds")
+                        .description("同一轮输出中相邻两个片段的间隔（按思考、正文、工具调用阶段区分）")
+                        .tag("model", modelTag)
+                        .tag("code_gen_type", typeTag)
+                        .tag("phase", phase.getValue())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(meterRegistry);
+            }
+            outputTokensPerSecond = DistributionSummary.builder("ai_stream_output_tokens_per_second")
+                    .description("输出速度：输出 token 数 / 实际输出时长（不含工具执行与等待首 token）")
+                    .baseUnit("tokens")
+                    .tag("model", modelTag)
+                    .tag("code_gen_type", typeTag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1000.0)
+                    .register(meterRegistry);
+            toolExecution = Timer.builder("ai_stream_tool_execution_seconds")
+                    .description("生成过程中单次工具执行的耗时")
+                    .tag("model", modelTag)
+                    .tag("code_gen_type", typeTag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofMinutes(5))
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.yu.yuaicodemother.monitor;
+
+import com.yu.yuaicodemother.model.vo.monitor.TokenSpendVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按用户、按应用的 token 消耗统计
+ * <p>
+ * 用户和应用的数量没有上限，不能作为指标标签；这里用固定大小的 {@link CountMinTopK} 统计，
+ * 内存不随用户量增长，通过管理员接口查询消耗最多的用户与应用。统计按窗口滚动，窗口结束后重新计数。
+ * </p>
+ */
+@Component
+public class TokenSpendAccounting {
+
+    /**
+     * 每个统计保留的热点数
+     */
+    @Value("${monitor.token-spend.top-k:100}")
+    private int topK;
+
+    /**
+     * Count-Min Sketch 的宽度，误差上限约为 总量 × 2.7 / width
+     */
+    @Value("${monitor.token-spend.width:4096}")
+    private int width;
+
+    @Value("${monitor.token-spend.depth:4}")
+    private int depth;
+
+    /**
+     * 统计窗口（小时）
+     */
+    @Value("${monitor.token-spend.window-hours:24}")
+    private long windowHours;
+
+    private volatile Window window;
+
+    /**
+     * 记录一次调用的 token 消耗
+     */
+    public void record(String userId, String appId, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        Window current = currentWindow();
+        if (userId != null) {
+            current.users.add(userId, tokens);
+        }
+        if (appId != null) {
+            current.apps.add(appId, tokens);
+        }
+    }
+
+    /**
+     * 当前窗口的消耗排行
+     */
+    public TokenSpendVO snapshot(int limit) {
+        Window current = currentWindow();
+        TokenSpendVO tokenSpendVO = new TokenSpendVO();
+        tokenSpendVO.setWindowStart(LocalDateTime.ofInstant(Instant.ofEpochMilli(current.startMillis), ZoneId.systemDefault()));
+        tokenSpendVO.setTotalTokens(current.users.total());
+        tokenSpendVO.setTopUsers(toItems(current.users.top(limit)));
+        tokenSpendVO.setTopApps(toItems(current.apps.top(limit)));
+        return tokenSpendVO;
+    }
+
+    private Window currentWindow() {
+        long now = System.currentTimeMillis();
+        Window current = window;
+        if (current != null && now - current.startMillis < TimeUnit.HOURS.toMillis(windowHours)) {
+            return current;
+        }
+        synchronized (this) {
+            if (window == null || now - window.startMillis >= TimeUnit.HOURS.toMillis(windowHours)) {
+                window = new Window(now, new CountMinTopK(depth, width, topK), new CountMinTopK(depth, width, topK));
+            }
+            return window;
+        }
+    }
+
+    private static List<TokenSpendVO.Item> toItems(List<Map.Entry<String, Long>> entries) {
+        List<TokenSpendVO.Item> items = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Long> entry : entries) {
+            TokenSpendVO.Item item = new TokenSpendVO.Item();
+            item.setId(entry.getKey());
+            item.setTokens(entry.getValue());
+            items.add(item);
+        }
+        return items;
+    }
+
+    private record Window(long startMillis, CountMinTopK users, CountMinTopK apps) {
+    }
+}
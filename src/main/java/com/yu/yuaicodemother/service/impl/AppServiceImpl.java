@@ -3,6 +3,7 @@ package com.yu.yuaicodemother.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import com.mybatisflex.core.query.QueryWrapper;
@@ -11,9 +12,12 @@ import com.yu.yuaicodemother.ai.AiCodeGenTypeRoutingService;
 import com.yu.yuaicodemother.ai.AiCodeGenerateAppNameService;
 import com.yu.yuaicodemother.ai.MultiModalMessageBuilder;
 import com.yu.yuaicodemother.ai.model.CodeGenTypeRoutingResult;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
 import com.yu.yuaicodemother.constant.AppConstant;
 import com.yu.yuaicodemother.core.AiCodeGeneratorFacade;
-import com.yu.yuaicodemother.core.builder.VueProjectBuilder;
+import com.yu.yuaicodemother.core.admission.LlmAdmissionController;
+import com.yu.yuaicodemother.core.builder.VueProjectBuildScheduler;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
 import com.yu.yuaicodemother.core.handler.StreamHandlerExecutor;
 import com.yu.yuaicodemother.exception.BusinessException;
 import com.yu.yuaicodemother.exception.ErrorCode;
@@ -26,6 +30,8 @@ import com.yu.yuaicodemother.model.enums.*;
 import com.yu.yuaicodemother.model.vo.app.AppVO;
 import com.yu.yuaicodemother.model.vo.file.FileProcessResult;
 import com.yu.yuaicodemother.model.vo.user.UserVO;
+import com.yu.yuaicodemother.monitor.GenerationTrace;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
 import com.yu.yuaicodemother.monitor.MonitorContext;
 import com.yu.yuaicodemother.monitor.MonitorContextHolder;
 import com.yu.yuaicodemother.service.*;
@@ -67,7 +73,10 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     private StreamHandlerExecutor streamHandlerExecutor;
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueProjectBuildScheduler vueProjectBuildScheduler;
+
+    @Resource
+    private AppSideEffectExecutor appSideEffectExecutor;
 
     @Resource
     private ScreenshotService screenshotService;
@@ -81,9 +90,15 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     @Resource
     private AiCodeGenTypeRoutingService aiCodeGenTypeRoutingService;
 
+    @Resource
+    private LlmAdmissionController llmAdmissionController;
+
     @Resource
     private AiCodeGenerateAppNameService aiCodeGenerateAppNameService;
 
+    @Resource
+    private GenerationTracer generationTracer;
+
     @Override
     public Long createApp(AppAddRequest appAddRequest, User loginUser) {
         // 参数校验
@@ -131,7 +146,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         // 构建多模态消息用于路由选择
         List<Content> multimodalContents = multiModalMessageBuilder.buildMessage(initPrompt, processedFiles);
         // 使用 AI 智能选择代码生成类型
-        CodeGenTypeRoutingResult result = aiCodeGenTypeRoutingService.routeCodeGenType(multimodalContents);
+        CodeGenTypeRoutingResult result = llmAdmissionController.call(LlmModelTypeEnum.ROUTING, loginUser,
+                () -> aiCodeGenTypeRoutingService.routeCodeGenType(multimodalContents));
         CodeGenTypeEnum selectedCodeGenType = result.getType();
         app.setCodeGenType(selectedCodeGenType.getValue());
         // 插入数据库
@@ -143,6 +159,21 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 
     @Override
     public Flux<String> chatToGenCode(AppChatRequest appChatRequest, User loginUser) {
+        // 订阅时执行，从 Reactor Context 读取监控上下文（生成 ID），不依赖调用线程
+        return Flux.deferContextual(contextView -> {
+            MonitorContext monitorContext = contextView.getOrDefault(MonitorContext.class,
+                    MonitorContext.builder()
+                            .appId(String.valueOf(appChatRequest.getAppId()))
+                            .userId(loginUser.getId().toString())
+                            .build());
+            // 同步执行的部分（附件解析、记忆加载、护轨）在当前线程读取监控上下文
+            try (MonitorContextHolder.Scope ignored = MonitorContextHolder.scope(monitorContext)) {
+                return doChatToGenCode(appChatRequest, loginUser, generationTracer.current(contextView));
+            }
+        });
+    }
+
+    private Flux<String> doChatToGenCode(AppChatRequest appChatRequest, User loginUser, GenerationTrace trace) {
         Long appId = appChatRequest.getAppId();
         String message = appChatRequest.getMessage();
         List<AppChatFile> fileList = appChatRequest.getFileList();
@@ -159,20 +190,25 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (!app.getUserId().equals(loginUser.getId())) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
         }
+        if (trace != null) {
+            trace.setCodeGenType(app.getCodeGenType());
+        }
         
         // 4. 处理文件列表，收集处理结果
         List<FileProcessResult> processedFiles = new ArrayList<>();
         if (CollUtil.isNotEmpty(fileList)) {
-            for (AppChatFile appChatFile : fileList) {
-                try {
-                    FileProcessResult result = fileService.processFile(appChatFile.getUrl(), appChatFile.getFileName());
-                    if (ProcessStatusEnum.SUCCESS.getValue().equals(result.getStatus())) {
-                        processedFiles.add(result);
+            generationTracer.observe(trace, "file_process", () -> {
+                for (AppChatFile appChatFile : fileList) {
+                    try {
+                        FileProcessResult result = fileService.processFile(appChatFile.getUrl(), appChatFile.getFileName());
+                        if (ProcessStatusEnum.SUCCESS.getValue().equals(result.getStatus())) {
+                            processedFiles.add(result);
+                        }
+                    } catch (Exception e) {
+                        log.error("文件处理失败: {}", appChatFile.getFileName(), e);
                     }
-                } catch (Exception e) {
-                    log.error("文件处理失败: {}", appChatFile.getFileName(), e);
                 }
-            }
+            });
         }
 
         // 5. 获取应用的代码生成类型
@@ -183,35 +219,29 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         }
         
         // 6. 通过校验后,添加用户消息到对话历史
-        chatHistoryService.addChatMessage(appId, message, processedFiles, ChatHistoryMessageTypeEnum.USER.getValue(),
-                loginUser.getId());
-        MonitorContextHolder.setContext(MonitorContext.builder()
-                .appId(appId.toString())
-                .userId(loginUser.getId().toString())
-                .build());
+        generationTracer.observe(trace, "user_chat_history", () -> chatHistoryService.addChatMessage(appId, message,
+                processedFiles, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId()));
         
         // 7. 更新生成状态为"生成中"
         updateGenStatus(appId, AppGenStatusEnum.GENERATING.getValue());
         
         // 8. 调用 AI 生成代码（流式）
-        Flux<String> contentFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, processedFiles, codeGenTypeEnum, appId);
+        Flux<StreamMessage> contentFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, processedFiles, codeGenTypeEnum, appId);
         
         // 9. 收集AI响应内容并在完成后记录到对话历史
-        Flux<String> result = streamHandlerExecutor
+        return streamHandlerExecutor
                 .doExecute(contentFlux, chatHistoryService, appId, loginUser, codeGenTypeEnum)
                 .doOnComplete(() -> {
-                    // 流正常完成，更新状态为生成成功
-                    updateGenStatus(appId, AppGenStatusEnum.GENERATED_SUCCESS.getValue());
+                    // 流正常完成，更新状态为生成成功（排在对话历史、版本之后异步执行）
+                    appSideEffectExecutor.execute(appId, "gen_status",
+                            () -> updateGenStatus(appId, AppGenStatusEnum.GENERATED_SUCCESS.getValue()));
                 })
                 .doOnError(error -> {
                     // 流发生错误，更新状态为生成失败
                     log.error("应用生成失败: {}", error.getMessage());
-                    updateGenStatus(appId, AppGenStatusEnum.GENERATED_FAILED.getValue());
-                })
-                .doFinally(signalType ->
-                // 流结束后清理 无论成功/失败/取消
-                MonitorContextHolder.clearContext());
-        return result;
+                    appSideEffectExecutor.execute(appId, "gen_status",
+                            () -> updateGenStatus(appId, AppGenStatusEnum.GENERATED_FAILED.getValue()));
+                });
     }
 
     /**
@@ -268,6 +298,21 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 
     @Override
     public String deployApp(Long appId, User loginUser) {
+        // 构建、复制、截图与上传的耗时记录为一次部署
+        GenerationTrace trace = generationTracer.start(IdUtil.fastSimpleUUID(), GenerationTracer.KIND_DEPLOY,
+                appId, loginUser == null ? null : loginUser.getId());
+        Throwable error = null;
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.scope(trace.getMonitorContext())) {
+            return doDeployApp(appId, loginUser, trace);
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            generationTracer.finish(trace, error);
+        }
+    }
+
+    private String doDeployApp(Long appId, User loginUser, GenerationTrace trace) {
         // 1. 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
@@ -300,9 +345,11 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         }
         // 7. Vue 项目特殊处理：执行构建
         CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(codeGenType);
+        trace.setCodeGenType(codeGenType);
         if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT) {
-            // Vue 项目需要构建
-            boolean buildSuccess = vueProjectBuilder.buildProject(sourceDirPath);
+            // Vue 项目需要构建（源码未变化时复用最近一次成功的 dist）
+            boolean buildSuccess = generationTracer.observe(trace, "vue_build",
+                    () -> vueProjectBuildScheduler.buildAndWait(appId, sourceDirPath, VueBuildPriorityEnum.DEPLOY));
             ThrowUtils.throwIf(!buildSuccess, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，请检查代码和依赖");
             // 检查 dist 目录是否存在
             File distDir = new File(sourceDirPath, "dist");
@@ -313,9 +360,12 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         }
         // 8. 复制文件到部署目录
         String deployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + deployKey;
+        GenerationTracer.Stage copyStage = generationTracer.stage(trace, "deploy_copy");
         try {
             FileUtil.copyContent(sourceDir, new File(deployDirPath), true);
+            copyStage.stop();
         } catch (Exception e) {
+            copyStage.stop(e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
         }
         // 9. 更新应用的 deployKey、部署时间和部署状态
@@ -423,8 +473,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
      */
     @Override
     public void generateAppScreenshotAsync(Long appId, String appUrl) {
-        // 使用虚拟线程异步执行
-        Thread.startVirtualThread(() -> {
+        // 使用虚拟线程异步执行（带上部署的监控上下文，截图与上传计入部署耗时）
+        Thread.startVirtualThread(MonitorContextHolder.wrap(() -> {
             // 调用截图服务生成截图并上传
             String screenshotUrl = screenshotService.generateAndUploadScreenshot(appUrl);
             // 更新应用封面字段
@@ -433,7 +483,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             updateApp.setCover(screenshotUrl);
             boolean updated = this.updateById(updateApp);
             ThrowUtils.throwIf(!updated, ErrorCode.OPERATION_ERROR, "更新应用封面字段失败");
-        });
+        }));
     }
 
     @Override
@@ -2,6 +2,7 @@ package com.yu.yuaicodemother.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.file.FileCopier;
 import com.github.difflib.DiffUtils;
 import com.github.difflib.UnifiedDiffUtils;
 import com.github.difflib.patch.Patch;
@@ -66,7 +67,12 @@ public class AppVersionServiceImpl extends ServiceImpl<AppVersionMapper, AppVers
         String versionDirPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + "versions" + File.separator + appId
                 + File.separator + "v" + newVersion;
         try {
-            FileUtil.copyContent(sourceDir, new File(versionDirPath), true);
+            // node_modules 可能是指向共享依赖仓库的链接，.cache 是构建工具缓存，都不纳入版本快照
+            FileCopier.create(sourceDir, new File(versionDirPath))
+                    .setCopyContentIfDir(true)
+                    .setOverride(true)
+                    .setCopyFilter(file -> !"node_modules".equals(file.getName()) && !".cache".equals(file.getName()))
+                    .copy();
         } catch (Exception e) {
             log.error("版本文件复制失败: {}", e.getMessage());
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "版本创建失败");
@@ -27,6 +27,7 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
      */
     private static final Set<String> IGNORED_NAMES = Set.of(
             "node_modules",
+            ".cache",
             ".git",
             "dist",
             "build",
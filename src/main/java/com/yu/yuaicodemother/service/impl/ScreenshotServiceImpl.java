@@ -6,6 +6,8 @@ import cn.hutool.core.util.StrUtil;
 import com.yu.yuaicodemother.exception.ErrorCode;
 import com.yu.yuaicodemother.exception.ThrowUtils;
 import com.yu.yuaicodemother.manager.CosManager;
+import com.yu.yuaicodemother.monitor.GenerationTrace;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
 import com.yu.yuaicodemother.service.ScreenshotService;
 import com.yu.yuaicodemother.utils.WebScreenshotUtils;
 import jakarta.annotation.Resource;
@@ -23,16 +25,23 @@ public class ScreenshotServiceImpl implements ScreenshotService {
     @Resource
     private CosManager cosManager;
 
+    @Resource
+    private GenerationTracer generationTracer;
+
     @Override
     public String generateAndUploadScreenshot(String webUrl) {
         ThrowUtils.throwIf(StrUtil.isBlank(webUrl), ErrorCode.PARAMS_ERROR, "网页URL不能为空");
         log.info("开始生成网页截图，URL: {}", webUrl);
+        // 部署时截图与上传计入部署的阶段耗时
+        GenerationTrace trace = generationTracer.current();
         // 1. 生成本地截图
-        String localScreenshotPath = WebScreenshotUtils.saveWebPageScreenshot(webUrl);
+        String localScreenshotPath = generationTracer.observe(trace, "screenshot",
+                () -> WebScreenshotUtils.saveWebPageScreenshot(webUrl));
         ThrowUtils.throwIf(StrUtil.isBlank(localScreenshotPath), ErrorCode.OPERATION_ERROR, "本地截图生成失败");
         try {
             // 2. 上传到对象存储
-            String cosUrl = uploadScreenshotToCos(localScreenshotPath);
+            String cosUrl = generationTracer.observe(trace, "cos_upload",
+                    () -> uploadScreenshotToCos(localScreenshotPath));
             ThrowUtils.throwIf(StrUtil.isBlank(cosUrl), ErrorCode.OPERATION_ERROR, "截图上传对象存储失败");
             log.info("网页截图生成并上传成功: {} -> {}", webUrl, cosUrl);
             return cosUrl;
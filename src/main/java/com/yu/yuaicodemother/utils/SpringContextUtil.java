@@ -26,6 +26,13 @@ public class SpringContextUtil implements ApplicationContextAware {
         return applicationContext.getBean(clazz);
     }
 
+    /**
+     * 获取Spring Bean，容器未初始化或不存在该 Bean 时返回 null
+     */
+    public static <T> T getBeanIfAvailable(Class<T> clazz) {
+        return applicationContext == null ? null : applicationContext.getBeanProvider(clazz).getIfAvailable();
+    }
+
     /**
      * 获取Spring Bean
      */
@@ -0,0 +1,16 @@
+// 单次构建：在项目根目录下运行 vite build，与 npm run build 等价，
+// 但 Vite 缓存目录使用 VUE_BUILD_CACHE_DIR 指定的项目私有目录，
+// 而不是 node_modules/.vite（node_modules 链接到多个项目共享的依赖仓库）
+import { createRequire } from 'node:module'
+import path from 'node:path'
+
+const root = process.cwd()
+const require = createRequire(path.join(root, 'package.json'))
+
+try {
+  const { build } = require('vite')
+  await build({ root, cacheDir: process.env.VUE_BUILD_CACHE_DIR })
+} catch (e) {
+  console.error(String(e && e.stack || e))
+  process.exit(1)
+}
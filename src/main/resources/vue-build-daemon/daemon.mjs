@@ -0,0 +1,124 @@
+// Vite 常驻构建进程：在项目根目录下以 watch 模式运行 vite build，源码变化时增量重新构建
+// watcher 的构建产物写入项目私有的暂存目录，只有收到 build 命令时才同步发布到 dist，
+// 保证 dist 只在 Java 端同一应用的构建队列内被改写（部署复制 dist 时不会被后台重新构建覆盖）
+// 与 Java 端通过 stdin / stdout 按行交换 JSON：
+//   stdin  -> {"cmd":"build","id":1}   等待包含最新改动的构建完成
+//   stdin  -> {"cmd":"close"}          关闭进程
+//   stdout <- {"event":"ready","ok":true,"duration":1234}
+//   stdout <- {"id":1,"ok":true,"duration":321,"error":null}
+import fs from 'node:fs'
+import { createRequire } from 'node:module'
+import path from 'node:path'
+import readline from 'node:readline'
+
+const root = process.cwd()
+const require = createRequire(path.join(root, 'package.json'))
+// 等待文件系统事件到达 watcher 的时间
+const SETTLE_MS = Number(process.env.VUE_BUILD_DAEMON_SETTLE_MS || 300)
+// watcher 输出目录与发布目录
+const OUT_DIR = path.join(root, '.cache', 'daemon-dist')
+const DIST_DIR = path.join(root, 'dist')
+
+const send = (message) => process.stdout.write(JSON.stringify(message) + '\n')
+
+let building = false
+let startedAt = 0
+let changedAt = 0
+let current = { ok: true, error: null }
+let lastBuild = null
+let ready = false
+const waiters = []
+
+// 同步复制，期间事件循环被占用，watcher 不会开始新的构建写入暂存目录
+const publish = (result) => {
+  if (!result.ok) {
+    return result
+  }
+  try {
+    fs.rmSync(DIST_DIR, { recursive: true, force: true })
+    fs.cpSync(OUT_DIR, DIST_DIR, { recursive: true })
+    return result
+  } catch (e) {
+    return { ...result, ok: false, error: 'publish dist failed: ' + String(e && e.message || e) }
+  }
+}
+
+const flush = () => {
+  if (building || !lastBuild || lastBuild.startedAt < changedAt || !waiters.length) {
+    return
+  }
+  const result = publish(lastBuild)
+  while (waiters.length) {
+    const id = waiters.shift()
+    send({ id, ok: result.ok, duration: result.duration, error: result.error })
+  }
+}
+
+let watcher
+try {
+  const { build } = require('vite')
+  // 缓存写入项目私有目录，node_modules 是共享依赖仓库的链接
+  watcher = await build({
+    root,
+    cacheDir: process.env.VUE_BUILD_CACHE_DIR,
+    logLevel: 'error',
+    build: { outDir: OUT_DIR, emptyOutDir: true, watch: {} }
+  })
+} catch (e) {
+  send({ event: 'ready', ok: false, error: String(e && e.message || e) })
+  process.exit(1)
+}
+
+watcher.on('change', () => {
+  changedAt = Date.now()
+})
+watcher.on('event', (event) => {
+  switch (event.code) {
+    case 'START':
+      building = true
+      startedAt = Date.now()
+      current = { ok: true, error: null }
+      break
+    case 'ERROR':
+      current = { ok: false, error: String(event.error && event.error.message || event.error) }
+      break
+    case 'END':
+      building = false
+      lastBuild = { startedAt, duration: Date.now() - startedAt, ...current }
+      if (!ready) {
+        // 首次构建由 Java 端在构建队列内启动进程时等待，直接发布
+        ready = true
+        const result = publish(lastBuild)
+        send({ event: 'ready', ok: result.ok, duration: result.duration, error: result.error })
+      }
+      flush()
+      break
+    default:
+      break
+  }
+  if (event.result && typeof event.result.close === 'function') {
+    event.result.close()
+  }
+})
+
+const shutdown = async () => {
+  await watcher.close()
+  process.exit(0)
+}
+
+readline.createInterface({ input: process.stdin }).on('line', (line) => {
+  let command
+  try {
+    command = JSON.parse(line)
+  } catch {
+    return
+  }
+  if (command.cmd === 'build') {
+    setTimeout(() => {
+      waiters.push(command.id)
+      flush()
+    }, SETTLE_MS)
+  } else if (command.cmd === 'close') {
+    shutdown()
+  }
+}).on('close', shutdown)
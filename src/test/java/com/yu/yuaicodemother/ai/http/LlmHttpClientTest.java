@@ -0,0 +1,177 @@
+package com.yu.yuaicodemother.ai.http;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpMethod;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.sse.DefaultServerSentEventParser;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventContext;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmHttpClientTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountDownLatch releaseSlowStream = new CountDownLatch(1);
+
+    private HttpServer server;
+
+    private LlmHttpClientFactory factory;
+
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stream", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("data: a\n\ndata: b\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("data: a\n\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                releaseSlowStream.await(5, TimeUnit.SECONDS);
+                out.write("data: b\n\n".getBytes(StandardCharsets.UTF_8));
+            } catch (Exception ignored) {
+                // 客户端中断连接
+            }
+        });
+        server.createContext("/error", exchange -> {
+            byte[] body = "rate limited".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(429, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        factory = new LlmHttpClientFactory();
+        ReflectionTestUtils.setField(factory, "maxConnections", 10);
+        ReflectionTestUtils.setField(factory, "maxConnectionsPerRoute", 10);
+        ReflectionTestUtils.setField(factory, "connectTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(factory, "idleTimeoutSeconds", 60L);
+        ReflectionTestUtils.setField(factory, "meterRegistry", meterRegistry);
+        factory.init();
+        client = factory.builder().readTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseSlowStream.countDown();
+        factory.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void streamsEventsAndReusesPooledConnection() throws Exception {
+        assertEquals(List.of("a", "b"), stream("/stream").get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b"), stream("/stream").get(5, TimeUnit.SECONDS));
+
+        assertEquals(0, gauge("leased"));
+        assertEquals(1, gauge("available"));
+        assertEquals(0, meterRegistry.get("llm_http_tls_handshake_seconds").timer().count());
+    }
+
+    @Test
+    void cancellingStreamDiscardsConnectionWithoutDraining() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        client.execute(request("/slow"), new DefaultServerSentEventParser(), new ServerSentEventListener() {
+            @Override
+            public void onEvent(ServerSentEvent event, ServerSentEventContext context) {
+                events.add(event.data());
+                context.parsingHandle().cancel();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                closed.complete(null);
+            }
+
+            @Override
+            public void onClose() {
+                closed.complete(null);
+            }
+        });
+
+        // 服务端仍在等待，连接没有被读到结尾就已释放
+        closed.get(2, TimeUnit.SECONDS);
+        assertEquals(List.of("a"), events);
+        assertEquals(0, gauge("leased"));
+        assertEquals(0, gauge("available"));
+    }
+
+    @Test
+    void nonSuccessfulStatusIsReportedAsHttpException() throws Exception {
+        ExecutionException streamError = assertThrows(ExecutionException.class,
+                () -> stream("/error").get(5, TimeUnit.SECONDS));
+        HttpException error = assertInstanceOf(HttpException.class, streamError.getCause());
+        assertEquals(429, error.statusCode());
+        assertEquals("rate limited", error.getMessage());
+
+        HttpException syncError = assertThrows(HttpException.class, () -> client.execute(request("/error")));
+        assertEquals(429, syncError.statusCode());
+    }
+
+    private CompletableFuture<List<String>> stream(String path) {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        client.execute(request(path), new DefaultServerSentEventParser(), new ServerSentEventListener() {
+            @Override
+            public void onEvent(ServerSentEvent event) {
+                events.add(event.data());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+
+            @Override
+            public void onClose() {
+                result.complete(events);
+            }
+        });
+        return result;
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.builder()
+                .method(HttpMethod.POST)
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + path)
+                .addHeader("Content-Type", "application/json")
+                .body("{}")
+                .build();
+    }
+
+    private double gauge(String state) {
+        return meterRegistry.get("llm_http_pool_connections").tag("state", state).gauge().value();
+    }
+}
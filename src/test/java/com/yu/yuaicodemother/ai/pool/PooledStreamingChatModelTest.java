@@ -0,0 +1,189 @@
+package com.yu.yuaicodemother.ai.pool;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledStreamingChatModelTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void selectsEndpointWithFastestFirstToken() throws Exception {
+        StubModel slow = new StubModel("slow");
+        StubModel fast = new StubModel("fast");
+        ModelPool<StreamingChatModel> pool = pool(endpoint("slow", slow, 200), endpoint("fast", fast, 10));
+
+        assertEquals("fast", call(new PooledStreamingChatModel(pool, false, 0.9, 0)));
+        assertEquals(0, slow.calls.get());
+        assertEquals(1, fast.calls.get());
+    }
+
+    @Test
+    void hedgeWinsWhenPrimaryIsSlowAndLoserIsCancelled() throws Exception {
+        CountDownLatch primaryGate = new CountDownLatch(1);
+        StubModel primary = new StubModel("primary", primaryGate);
+        StubModel backup = new StubModel("backup");
+        ModelPool<StreamingChatModel> pool = pool(endpoint("primary", primary, 20), endpoint("backup", backup, 30));
+
+        assertEquals("backup", call(new PooledStreamingChatModel(pool, true, 0.9, 0)));
+        primaryGate.countDown();
+        assertTrue(primary.cancelled.await(5, TimeUnit.SECONDS));
+        assertEquals(1, counter("llm_hedge_total", "fired"));
+        assertEquals(1, counter("llm_hedge_total", "won"));
+        // 落败被关闭的请求不计入错误率
+        assertEquals(0, pool.getEndpoints().get(0).stats().errorRate());
+    }
+
+    @Test
+    void failsOverWhenEndpointFailsBeforeFirstToken() throws Exception {
+        StubModel broken = new StubModel("broken");
+        broken.fail = true;
+        StubModel backup = new StubModel("backup");
+        ModelPool<StreamingChatModel> pool = pool(endpoint("broken", broken, 10), endpoint("backup", backup, 50));
+
+        assertEquals("backup", call(new PooledStreamingChatModel(pool, false, 0.9, 0)));
+        assertEquals(1, counter("llm_endpoint_failover_total", "switched"));
+        assertTrue(pool.getEndpoints().get(0).stats().errorRate() > 0);
+    }
+
+    @Test
+    void consecutiveFailuresOpenCircuit() {
+        EndpointStats stats = new EndpointStats(10, 5, 0.5, TimeUnit.SECONDS.toNanos(30));
+        ModelEndpoint<StreamingChatModel> open = new ModelEndpoint<>("open", new StubModel("open"), stats);
+        ModelEndpoint<StreamingChatModel> healthy = endpoint("healthy", new StubModel("healthy"), 500);
+        ModelPool<StreamingChatModel> pool = pool(open, healthy);
+
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            stats.recordFailure(now);
+        }
+        assertFalse(stats.isHealthy(now));
+        assertTrue(stats.isHealthy(now + TimeUnit.SECONDS.toNanos(31)));
+        // 熔断的端点即使评分更低也不会被优先选择
+        assertSame(healthy, pool.select(Set.of()));
+    }
+
+    private ModelPool<StreamingChatModel> pool(List<ModelEndpoint<StreamingChatModel>> endpoints) {
+        return new ModelPool<>("test", endpoints, meterRegistry);
+    }
+
+    @SafeVarargs
+    private ModelPool<StreamingChatModel> pool(ModelEndpoint<StreamingChatModel>... endpoints) {
+        return pool(List.of(endpoints));
+    }
+
+    /**
+     * 构造已有首 token 耗时样本的端点
+     */
+    private ModelEndpoint<StreamingChatModel> endpoint(String name, StubModel model, long ttftMillis) {
+        EndpointStats stats = new EndpointStats(100, 20, 0.5, TimeUnit.SECONDS.toNanos(30));
+        for (int i = 0; i < 20; i++) {
+            stats.recordFirstToken(TimeUnit.MILLISECONDS.toNanos(ttftMillis));
+            stats.recordSuccess();
+        }
+        return new ModelEndpoint<>(name, model, stats);
+    }
+
+    private String call(StreamingChatModel model) throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        StringBuilder text = new StringBuilder();
+        model.chat(ChatRequest.builder().messages(UserMessage.from("hi")).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                text.append(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                result.complete(text.toString());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    private double counter(String name, String result) {
+        return meterRegistry.counter(name, "pool", "test", "result", result).count();
+    }
+
+    /**
+     * 进程内的假端点：异步输出一个片段（内容为端点名称）后完成
+     */
+    private static final class StubModel implements StreamingChatModel {
+
+        private final String name;
+
+        private final CountDownLatch gate;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final CountDownLatch cancelled = new CountDownLatch(1);
+
+        private volatile boolean fail;
+
+        private StubModel(String name) {
+            this(name, new CountDownLatch(0));
+        }
+
+        private StubModel(String name, CountDownLatch gate) {
+            this.name = name;
+            this.gate = gate;
+        }
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            calls.incrementAndGet();
+            AtomicBoolean cancelFlag = new AtomicBoolean();
+            StreamingHandle handle = new StreamingHandle() {
+                @Override
+                public void cancel() {
+                    cancelFlag.set(true);
+                    cancelled.countDown();
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return cancelFlag.get();
+                }
+            };
+            Thread.ofVirtual().start(() -> {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (fail) {
+                    handler.onError(new RuntimeException(name + " unavailable"));
+                    return;
+                }
+                handler.onPartialResponse(new PartialResponse(name), new PartialResponseContext(handle));
+                if (!cancelFlag.get()) {
+                    handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(name)).build());
+                }
+            });
+        }
+    }
+}
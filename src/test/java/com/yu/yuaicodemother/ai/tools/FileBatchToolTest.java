@@ -0,0 +1,126 @@
+package com.yu.yuaicodemother.ai.tools;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.yu.yuaicodemother.constant.AppConstant;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBatchToolTest {
+
+    private final FileBatchTool tool = new FileBatchTool();
+
+    private long appId;
+
+    private File projectDir;
+
+    @BeforeEach
+    void setUp() {
+        appId = System.nanoTime();
+        projectDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, "vue_project_" + appId);
+        FileUtil.writeUtf8String("import App from './App.vue'\ncreateApp(App).mount('#app')", new File(projectDir, "src/main.js"));
+        FileUtil.writeUtf8String("<template>old</template>", new File(projectDir, "src/components/Old.vue"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(projectDir);
+    }
+
+    @Test
+    void appliesOperationsInOrder() {
+        String result = tool.batchFileOperation(List.of(
+                operation(FileBatchTool.OperationType.WRITE, "src/App.vue", "<template>v1</template>", null, null),
+                // 修改同一批次中刚写入的文件
+                operation(FileBatchTool.OperationType.MODIFY, "src/App.vue", null, "v1", "v2"),
+                operation(FileBatchTool.OperationType.MODIFY, "src/main.js", null, "#app", "#root"),
+                operation(FileBatchTool.OperationType.DELETE, "src/components/Old.vue", null, null, null)
+        ), appId);
+
+        assertEquals("批量操作成功：\n写入 src/App.vue\n修改 src/App.vue\n修改 src/main.js\n删除 src/components/Old.vue", result);
+        assertEquals("<template>v2</template>", FileUtil.readUtf8String(new File(projectDir, "src/App.vue")));
+        assertTrue(FileUtil.readUtf8String(new File(projectDir, "src/main.js")).endsWith("mount('#root')"));
+        assertFalse(new File(projectDir, "src/components/Old.vue").exists());
+        // 临时文件已全部重命名
+        String[] names = new File(projectDir, "src").list();
+        assertNotNull(names);
+        Arrays.sort(names);
+        assertArrayEquals(new String[]{"App.vue", "components", "main.js"}, names);
+    }
+
+    @Test
+    void failedOperationLeavesProjectUntouched() {
+        String result = tool.batchFileOperation(List.of(
+                operation(FileBatchTool.OperationType.WRITE, "src/App.vue", "<template/>", null, null),
+                operation(FileBatchTool.OperationType.DELETE, "src/components/Old.vue", null, null, null),
+                operation(FileBatchTool.OperationType.MODIFY, "src/main.js", null, "missing", "x")
+        ), appId);
+
+        assertEquals("批量操作失败，未修改任何文件：第 3 项 src/main.js - 文件中未找到要替换的内容", result);
+        assertFalse(new File(projectDir, "src/App.vue").exists());
+        assertTrue(new File(projectDir, "src/components/Old.vue").exists());
+    }
+
+    @Test
+    void rejectsPathsOutsideProjectAndImportantFiles() {
+        String outside = tool.batchFileOperation(List.of(
+                operation(FileBatchTool.OperationType.WRITE, "../escape.txt", "x", null, null)), appId);
+        assertTrue(outside.endsWith("路径不在项目目录内"));
+        assertFalse(new File(projectDir.getParentFile(), "escape.txt").exists());
+
+        String important = tool.batchFileOperation(List.of(
+                operation(FileBatchTool.OperationType.DELETE, "src/main.js", null, null, null)), appId);
+        assertTrue(important.endsWith("不允许删除重要文件"));
+        assertTrue(new File(projectDir, "src/main.js").exists());
+    }
+
+    @Test
+    void executesFromModelArguments() throws Exception {
+        ToolSpecification specification = ToolSpecifications.toolSpecificationsFrom(tool).get(0);
+        assertEquals("batchFileOperation", specification.name());
+        assertInstanceOf(JsonArraySchema.class, specification.parameters().properties().get("operations"));
+
+        String arguments = JSONUtil.toJsonStr(Map.of("operations", List.of(
+                Map.of("type", "WRITE", "relativeFilePath", "src/App.vue", "content", "<template>\n  <h1/>\n</template>"),
+                Map.of("type", "MODIFY", "relativeFilePath", "src/main.js", "oldContent", "#app", "newContent", "#root"))));
+        ToolExecutionRequest request = ToolExecutionRequest.builder()
+                .id("call-1")
+                .name("batchFileOperation")
+                .arguments(arguments)
+                .build();
+        DefaultToolExecutor executor = new DefaultToolExecutor(tool,
+                FileBatchTool.class.getMethod("batchFileOperation", List.class, Long.class));
+
+        assertEquals("批量操作成功：\n写入 src/App.vue\n修改 src/main.js", executor.execute(request, appId));
+        assertTrue(new File(projectDir, "src/App.vue").exists());
+
+        // 展示内容只列出文件与行数
+        assertEquals("[工具调用] 批量文件操作（2 项）\n- 写入 src/App.vue（3 行）\n- 修改 src/main.js（-1 / +1 行）",
+                tool.generateToolExecutedResult(new JSONObject(arguments)));
+    }
+
+    private FileBatchTool.FileOperation operation(FileBatchTool.OperationType type, String relativeFilePath,
+                                                  String content, String oldContent, String newContent) {
+        FileBatchTool.FileOperation operation = new FileBatchTool.FileOperation();
+        operation.setType(type);
+        operation.setRelativeFilePath(relativeFilePath);
+        operation.setContent(content);
+        operation.setOldContent(oldContent);
+        operation.setNewContent(newContent);
+        return operation;
+    }
+}
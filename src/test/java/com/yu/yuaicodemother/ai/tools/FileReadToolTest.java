@@ -0,0 +1,152 @@
+package com.yu.yuaicodemother.ai.tools;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import com.yu.yuaicodemother.constant.AppConstant;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileReadToolTest {
+
+    private static final String APP_VUE = """
+            <template>
+              <div id="app">
+                <HelloWorld msg="hi" />
+              </div>
+            </template>
+
+            <script setup>
+            import { ref } from 'vue'
+            import HelloWorld from './components/HelloWorld.vue'
+
+            const count = ref(0)
+
+            function increment() {
+              count.value++
+            }
+            </script>
+
+            <style scoped>
+            #app {
+              color: red;
+            }
+            </style>""";
+
+    private final FileReadTool tool = new FileReadTool();
+
+    private long appId;
+
+    private File projectDir;
+
+    @BeforeEach
+    void setUp() {
+        appId = System.nanoTime();
+        projectDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, "vue_project_" + appId);
+        FileUtil.writeUtf8String(APP_VUE, new File(projectDir, "src/App.vue"));
+        FileUtil.writeUtf8String(lines(1, 1000), new File(projectDir, "src/long.js"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(projectDir);
+    }
+
+    @Test
+    void smallFileIsReturnedUnchanged() {
+        assertEquals(APP_VUE, tool.readFile("src/App.vue", null, null, null, appId));
+    }
+
+    @Test
+    void optionalArgumentsMayBeOmittedByModel() throws Exception {
+        ToolSpecification specification = ToolSpecifications.toolSpecificationsFrom(tool).get(0);
+        assertEquals(List.of("relativeFilePath"), specification.parameters().required());
+        DefaultToolExecutor executor = new DefaultToolExecutor(tool, FileReadTool.class.getMethod("readFile",
+                String.class, Integer.class, Integer.class, Boolean.class, Long.class));
+        ToolExecutionRequest request = ToolExecutionRequest.builder()
+                .id("call-1")
+                .name("readFile")
+                .arguments("{\"relativeFilePath\":\"src/long.js\",\"startLine\":999}")
+                .build();
+        assertEquals(lines(999, 1000) + "\n\n[已显示第 999-1000 行，共 1000 行]", executor.execute(request, appId));
+    }
+
+    @Test
+    void longFileIsCappedWithContinuationHint() {
+        String firstWindow = tool.readFile("src/long.js", null, null, null, appId);
+        assertTrue(firstWindow.startsWith(lines(1, FileReadTool.MAX_LINES) + "\n"));
+        assertTrue(firstWindow.endsWith("[已显示第 1-300 行，共 1000 行。继续读取请调用 readFile 并指定 startLine=301]"));
+
+        String lastWindow = tool.readFile("src/long.js", 901, null, null, appId);
+        assertEquals(lines(901, 1000) + "\n\n[已显示第 901-1000 行，共 1000 行]", lastWindow);
+
+        String range = tool.readFile("src/long.js", 10, 12, null, appId);
+        assertEquals(lines(10, 12) + "\n\n[已显示第 10-12 行，共 1000 行]", range);
+
+        assertTrue(tool.readFile("src/long.js", 2000, null, null, appId).startsWith("错误：起始行 2000 超出文件总行数 1000"));
+    }
+
+    @Test
+    void characterCapStopsBeforeLineCap() {
+        String wideLine = "x".repeat(1000);
+        FileUtil.writeUtf8String(IntStream.range(0, 100).mapToObj(i -> wideLine).collect(Collectors.joining("\n")),
+                new File(projectDir, "src/wide.js"));
+        String window = tool.readFile("src/wide.js", null, null, null, appId);
+        assertTrue(window.length() < FileReadTool.MAX_CHARS + 200);
+        assertTrue(window.endsWith("[已显示第 1-19 行，共 100 行。继续读取请调用 readFile 并指定 startLine=20]"));
+    }
+
+    @Test
+    void outlineListsVueSectionsAndTopLevelDeclarations() {
+        String outline = tool.readFile("src/App.vue", null, null, true, appId);
+        assertEquals("""
+                src/App.vue 大纲（共 22 行）：
+                <template>（第 1 行起）
+                </template>（第 1-5 行）
+                <script setup>（第 7 行起）
+                  8: import 语句 2 条
+                  11: const count = ref(0)
+                  13: function increment() {
+                </script>（第 7-16 行）
+                <style scoped>（第 18 行起）
+                </style>（第 18-22 行）""", outline);
+    }
+
+    @Test
+    void refusesLockFilesArtifactsAndPathsOutsideProject() {
+        FileUtil.writeUtf8String("{}", new File(projectDir, "package-lock.json"));
+        FileUtil.writeUtf8String("var a=1", new File(projectDir, "dist/assets/index.js"));
+        FileUtil.writeUtf8String("{}", new File(projectDir, "src/main.js.map"));
+
+        assertTrue(tool.readFile("package-lock.json", null, null, null, appId).startsWith("错误：不允许读取锁文件或构建产物"));
+        assertTrue(tool.readFile("dist/assets/index.js", null, null, null, appId).startsWith("错误：不允许读取锁文件或构建产物"));
+        assertTrue(tool.readFile("src/main.js.map", null, null, null, appId).startsWith("错误：不允许读取锁文件或构建产物"));
+        assertTrue(tool.readFile("../other/secret.txt", null, null, null, appId).startsWith("错误：路径不在项目目录内"));
+    }
+
+    @Test
+    void executedResultShowsRangeOrOutline() {
+        assertEquals("[工具调用] 读取文件 src/App.vue",
+                tool.generateToolExecutedResult(new JSONObject().set("relativeFilePath", "src/App.vue")));
+        assertEquals("[工具调用] 读取文件 src/App.vue 第 10-20 行", tool.generateToolExecutedResult(
+                new JSONObject().set("relativeFilePath", "src/App.vue").set("startLine", 10).set("endLine", 20)));
+        assertEquals("[工具调用] 读取文件 src/App.vue（大纲）", tool.generateToolExecutedResult(
+                new JSONObject().set("relativeFilePath", "src/App.vue").set("outline", true)));
+    }
+
+    private static String lines(int from, int to) {
+        return IntStream.rangeClosed(from, to).mapToObj(i -> "const line" + i + " = " + i)
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -2,6 +2,8 @@ package com.yu.yuaicodemother.core;
 
 import com.yu.yuaicodemother.ai.AiCodeGeneratorService;
 import com.yu.yuaicodemother.ai.AiCodeGeneratorServiceFactory;
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
 import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
 import dev.langchain4j.service.TokenStream;
 import org.junit.jupiter.api.Test;
@@ -29,11 +31,12 @@ public class AiStopGenerationTest {
         AtomicInteger tokenCount = new AtomicInteger(0);
         
         // 模拟前端流式请求
-        Flux<String> resultFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, CodeGenTypeEnum.HTML, appId);
+        Flux<StreamMessage> resultFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, CodeGenTypeEnum.HTML, appId);
         
         // 使用 StepVerifier 模拟中途取消
         StepVerifier.create(resultFlux)
-                .thenConsumeWhile(token -> {
+                .thenConsumeWhile(streamMessage -> {
+                    String token = ((AiResponseMessage) streamMessage).getData();
                     int count = tokenCount.incrementAndGet();
                     System.out.println("收到第 " + count + " 个 Token: " + (token.length() > 20 ? token.substring(0, 20) : token));
                     // 收到 5 个 token 后立即取消订阅（模拟前端 close）
@@ -0,0 +1,124 @@
+package com.yu.yuaicodemother.core.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionLaneTest {
+
+    private final AdmissionLane lane = new AdmissionLane(10, new AdmissionPermitPool.Local(1));
+
+    private final Map<String, List<Integer>> positions = new ConcurrentHashMap<>();
+
+    @Test
+    void usersTakeTurnsWhileWaiting() {
+        AdmissionLane.Ticket holder = enqueue("holder", 9L, 1);
+        assertTrue(holder.future.isDone());
+        AdmissionLane.Ticket a1 = enqueue("a1", 1L, 1);
+        AdmissionLane.Ticket a2 = enqueue("a2", 1L, 1);
+        AdmissionLane.Ticket b1 = enqueue("b1", 2L, 1);
+        // 用户 2 后提交，但排在用户 1 的第二个请求之前
+        assertEquals(List.of(1), positions.get("a1"));
+        assertEquals(List.of(2, 3), positions.get("a2"));
+        assertEquals(List.of(2), positions.get("b1"));
+
+        lane.release(holder);
+        assertTrue(a1.future.isDone());
+        lane.release(a1);
+        assertTrue(b1.future.isDone());
+        assertFalse(a2.future.isDone());
+        lane.release(b1);
+        assertTrue(a2.future.isDone());
+        assertEquals(List.of(2, 3, 2, 1, 0), positions.get("a2"));
+        assertEquals(0, lane.getQueued());
+        assertEquals(1, lane.getInFlight());
+    }
+
+    @Test
+    void weightAllowsConsecutiveGrants() {
+        AdmissionLane.Ticket holder = enqueue("holder", 9L, 1);
+        AdmissionLane.Ticket a1 = enqueue("a1", 1L, 2);
+        AdmissionLane.Ticket a2 = enqueue("a2", 1L, 2);
+        AdmissionLane.Ticket a3 = enqueue("a3", 1L, 2);
+        AdmissionLane.Ticket b1 = enqueue("b1", 2L, 1);
+
+        lane.release(holder);
+        lane.release(a1);
+        assertTrue(a2.future.isDone());
+        lane.release(a2);
+        assertTrue(b1.future.isDone());
+        assertFalse(a3.future.isDone());
+    }
+
+    @Test
+    void cancelledTicketLeavesQueueAndRejectsWhenFull() {
+        AdmissionLane small = new AdmissionLane(1, new AdmissionPermitPool.Local(1));
+        AdmissionLane.Ticket holder = small.enqueue(9L, 1, null);
+        AdmissionLane.Ticket waiting = small.enqueue(1L, 1, null);
+        assertNull(small.enqueue(2L, 1, null));
+
+        small.release(waiting);
+        assertEquals(0, small.getQueued());
+        small.release(holder);
+        assertFalse(waiting.future.isDone());
+        // 重复释放不会多归还许可
+        small.release(holder);
+        AdmissionLane.Ticket next = small.enqueue(2L, 1, null);
+        AdmissionLane.Ticket after = small.enqueue(3L, 1, null);
+        assertTrue(next.future.isDone());
+        assertFalse(after.future.isDone());
+    }
+
+    @Test
+    void permitIsAcquiredOutsideLockAndReturnedWhenWaiterLeaves() {
+        AdmissionPermitPool.Local local = new AdmissionPermitPool.Local(1);
+        AdmissionLane.Ticket[] waiting = new AdmissionLane.Ticket[1];
+        AdmissionLane[] lanes = new AdmissionLane[1];
+        List<String> released = new CopyOnWriteArrayList<>();
+        AdmissionPermitPool pool = new AdmissionPermitPool() {
+            @Override
+            public String tryAcquire() {
+                // 模拟 Redis 往返：获取许可时不持有通道锁，期间排队的请求被取消
+                assertFalse(Thread.holdsLock(lanes[0]));
+                String permitId = local.tryAcquire();
+                if (permitId != null && waiting[0] != null) {
+                    lanes[0].release(waiting[0]);
+                }
+                return permitId;
+            }
+
+            @Override
+            public void release(String permitId) {
+                released.add(permitId);
+                local.release(permitId);
+            }
+
+            @Override
+            public void renew(String permitId) {
+            }
+        };
+        lanes[0] = new AdmissionLane(10, pool);
+        AdmissionLane.Ticket holder = lanes[0].enqueue(9L, 1, null);
+        assertTrue(holder.future.isDone());
+        waiting[0] = lanes[0].enqueue(1L, 1, null);
+        assertFalse(waiting[0].future.isDone());
+
+        lanes[0].release(holder);
+        // 等待者在获取许可期间离开，多拿的许可被归还
+        assertFalse(waiting[0].future.isDone());
+        assertEquals(2, released.size());
+        assertEquals(0, lanes[0].getInFlight());
+        waiting[0] = null;
+        assertTrue(lanes[0].enqueue(2L, 1, null).future.isDone());
+    }
+
+    private AdmissionLane.Ticket enqueue(String name, Long userId, int weight) {
+        List<Integer> received = positions.computeIfAbsent(name, key -> new CopyOnWriteArrayList<>());
+        return lane.enqueue(userId, weight, received::add);
+    }
+}
@@ -0,0 +1,103 @@
+package com.yu.yuaicodemother.core.admission;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import com.yu.yuaicodemother.model.entity.User;
+import com.yu.yuaicodemother.model.enums.LlmModelTypeEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmAdmissionControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LlmAdmissionController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new LlmAdmissionController();
+        ReflectionTestUtils.setField(controller, "enabled", true);
+        ReflectionTestUtils.setField(controller, "reasoningMaxConcurrency", 1);
+        ReflectionTestUtils.setField(controller, "streamingMaxConcurrency", 1);
+        ReflectionTestUtils.setField(controller, "routingMaxConcurrency", 1);
+        ReflectionTestUtils.setField(controller, "maxQueueSize", 1);
+        ReflectionTestUtils.setField(controller, "maxWaitSeconds", 60L);
+        ReflectionTestUtils.setField(controller, "adminWeight", 2);
+        ReflectionTestUtils.setField(controller, "meterRegistry", meterRegistry);
+        controller.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    void callStartsOnlyAfterPermitIsReleased() {
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger secondSubscribed = new AtomicInteger();
+        List<Integer> positions = new CopyOnWriteArrayList<>();
+
+        controller.admit(LlmModelTypeEnum.STREAMING, first.asFlux()).subscribe();
+        controller.admit(LlmModelTypeEnum.STREAMING, Sinks.many().unicast().<String>onBackpressureBuffer().asFlux()
+                        .doOnSubscribe(subscription -> secondSubscribed.incrementAndGet()))
+                .contextWrite(Context.of(AdmissionContext.class, new AdmissionContext(2L, 1, positions::add)))
+                .subscribe();
+
+        assertEquals(0, secondSubscribed.get());
+        assertEquals(List.of(1), positions);
+        assertEquals(1.0, gauge("llm_admission_in_flight"));
+        assertEquals(1.0, gauge("llm_admission_queued"));
+
+        first.tryEmitComplete();
+
+        assertEquals(1, secondSubscribed.get());
+        assertEquals(List.of(1, 0), positions);
+        assertEquals(0.0, gauge("llm_admission_queued"));
+    }
+
+    @Test
+    void cancelWhileQueuedLeavesQueueAndFullQueueRejects() {
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+        controller.admit(LlmModelTypeEnum.STREAMING, first.asFlux()).subscribe();
+        Disposable waiting = controller.admit(LlmModelTypeEnum.STREAMING, Sinks.many().unicast().<String>onBackpressureBuffer().asFlux())
+                .subscribe();
+
+        AtomicReference<Throwable> rejected = new AtomicReference<>();
+        controller.admit(LlmModelTypeEnum.STREAMING, Sinks.many().unicast().<String>onBackpressureBuffer().asFlux())
+                .subscribe(data -> {
+                }, rejected::set);
+        assertInstanceOf(BusinessException.class, rejected.get());
+        assertEquals(ErrorCode.TOO_MANY_REQUEST.getCode(), ((BusinessException) rejected.get()).getCode());
+
+        waiting.dispose();
+        assertEquals(0.0, gauge("llm_admission_queued"));
+        first.tryEmitComplete();
+        assertEquals(0.0, gauge("llm_admission_in_flight"));
+        // 其他模型的预算互不影响
+        assertEquals("routed", controller.call(LlmModelTypeEnum.ROUTING, user(), () -> "routed"));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("model", LlmModelTypeEnum.STREAMING.getValue()).gauge().value();
+    }
+
+    private User user() {
+        User user = new User();
+        user.setId(1L);
+        return user;
+    }
+}
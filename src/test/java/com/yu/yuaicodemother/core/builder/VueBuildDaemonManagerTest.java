@@ -0,0 +1,144 @@
+package com.yu.yuaicodemother.core.builder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 使用假的 vite 模块（watch 模式下源码变化即重新"构建"）验证 Java 端与 daemon 脚本的协议
+ */
+class VueBuildDaemonManagerTest {
+
+    /**
+     * 模拟 vite.build({ build: { outDir, watch } })：返回 watcher，src 变化时发出 START / ERROR / END 事件，
+     * 产物 index.html 的内容为 src/main.js 的内容
+     */
+    private static final String FAKE_VITE = """
+            const { EventEmitter } = require('events')
+            const fs = require('fs')
+            const path = require('path')
+            exports.build = async ({ root, build }) => {
+              const watcher = new EventEmitter()
+              watcher.close = async () => {}
+              const run = () => {
+                watcher.emit('event', { code: 'START' })
+                setTimeout(() => {
+                  fs.mkdirSync(build.outDir, { recursive: true })
+                  const source = fs.readFileSync(path.join(root, 'src', 'main.js'), 'utf8')
+                  fs.writeFileSync(path.join(build.outDir, 'index.html'), source)
+                  if (source.includes('broken')) {
+                    watcher.emit('event', { code: 'ERROR', error: new Error('compile failed') })
+                  }
+                  watcher.emit('event', { code: 'END' })
+                }, 50)
+              }
+              fs.watch(path.join(root, 'src'), () => {
+                watcher.emit('change', 'main.js')
+                run()
+              })
+              setImmediate(run)
+              return watcher
+            }
+            """;
+
+    @TempDir
+    Path projectDir;
+
+    private VueProjectBuilder builder;
+
+    private VueBuildDaemonManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(nodeAvailable(), "node 不可用");
+        Files.writeString(projectDir.resolve("package.json"), "{\"name\":\"demo\"}");
+        Files.createDirectories(projectDir.resolve("src"));
+        Files.writeString(projectDir.resolve("src/main.js"), "console.log(1)");
+        Path vite = Files.createDirectories(projectDir.resolve("node_modules/vite"));
+        Files.writeString(vite.resolve("package.json"), "{\"name\":\"vite\",\"main\":\"index.js\"}");
+        Files.writeString(vite.resolve("index.js"), FAKE_VITE);
+
+        builder = mock(VueProjectBuilder.class);
+        when(builder.prepareDependencies(any(File.class))).thenReturn(true);
+        manager = new VueBuildDaemonManager();
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        ReflectionTestUtils.setField(manager, "maxWorkers", 2);
+        ReflectionTestUtils.setField(manager, "idleTimeoutMinutes", 10L);
+        ReflectionTestUtils.setField(manager, "buildTimeoutSeconds", 20L);
+        ReflectionTestUtils.setField(manager, "vueProjectBuilder", builder);
+        ReflectionTestUtils.setField(manager, "meterRegistry", new SimpleMeterRegistry());
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.destroy();
+        }
+    }
+
+    @Test
+    void incrementalRebuildReusesDaemon() throws Exception {
+        File dir = projectDir.toFile();
+        assertTrue(manager.build(1L, dir));
+
+        Files.writeString(projectDir.resolve("src/main.js"), "console.log(2)");
+        assertTrue(manager.build(1L, dir));
+
+        Files.writeString(projectDir.resolve("src/main.js"), "broken");
+        assertFalse(manager.build(1L, dir));
+
+        Files.writeString(projectDir.resolve("src/main.js"), "console.log(3)");
+        assertTrue(manager.build(1L, dir));
+
+        // 始终由常驻进程构建，没有回退到 npm run build
+        verify(builder, times(1)).prepareDependencies(any(File.class));
+        verify(builder, never()).buildProject(anyString());
+    }
+
+    @Test
+    void watchRebuildDoesNotTouchDistUntilRequested() throws Exception {
+        File dir = projectDir.toFile();
+        assertTrue(manager.build(1L, dir));
+        Path index = projectDir.resolve("dist/index.html");
+        assertEquals("console.log(1)", Files.readString(index));
+
+        // watcher 在后台完成增量构建，dist 保持上一次发布的内容
+        Files.writeString(projectDir.resolve("src/main.js"), "console.log(2)");
+        Thread.sleep(500);
+        assertEquals("console.log(1)", Files.readString(index));
+
+        assertTrue(manager.build(1L, dir));
+        assertEquals("console.log(2)", Files.readString(index));
+    }
+
+    @Test
+    void configChangeRestartsDaemon() throws Exception {
+        File dir = projectDir.toFile();
+        assertTrue(manager.build(1L, dir));
+        Files.writeString(projectDir.resolve("package.json"), "{\"name\":\"demo\",\"dependencies\":{}}");
+        assertTrue(manager.build(1L, dir));
+        verify(builder, times(2)).prepareDependencies(any(File.class));
+    }
+
+    private boolean nodeAvailable() {
+        try {
+            return new ProcessBuilder("node", "--version").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.yu.yuaicodemother.core.builder;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.RuntimeUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 共享依赖仓库耗时对比：未命中（真实 npm install）与命中（仅创建链接）
+ * 需要本机可执行 npm 且能访问 npm 仓库，默认跳过，运行方式：
+ * mvn test -Dtest=VueDependencyStoreBenchmarkTest -Dbenchmark=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VueDependencyStoreBenchmarkTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Predicate<File> npmInstall = dir -> {
+        try {
+            String npm = System.getProperty("os.name").toLowerCase().contains("windows") ? "npm.cmd" : "npm";
+            Process process = RuntimeUtil.exec(null, dir, npm, "install", "--prefer-offline", "--no-audit", "--no-fund");
+            return process.waitFor(300, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    };
+
+    @Test
+    void compareUncachedAndCachedInstall() throws Exception {
+        VueDependencyStore store = new VueDependencyStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "storeRoot", tempDir.resolve("store"));
+        ReflectionTestUtils.setField(store, "projectRoot", tempDir);
+        ReflectionTestUtils.setField(store, "maxIdleDays", 7L);
+        ReflectionTestUtils.setField(store, "maxEntries", 50);
+        String packageJson = ResourceUtil.readUtf8Str("vue-template/package.json");
+
+        File first = createProject("app1", packageJson);
+        long start = System.nanoTime();
+        assertTrue(store.prepareDependencies(first, npmInstall));
+        long uncachedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        File second = createProject("app2", packageJson);
+        start = System.nanoTime();
+        assertTrue(store.prepareDependencies(second, npmInstall));
+        long cachedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        log.info("依赖准备耗时：未命中 {}ms，命中 {}ms", uncachedMillis, cachedMillis);
+        assertTrue(cachedMillis < uncachedMillis);
+    }
+
+    private File createProject(String name, String packageJson) throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve(name));
+        Files.writeString(dir.resolve("package.json"), packageJson);
+        return dir.toFile();
+    }
+}
@@ -0,0 +1,157 @@
+package com.yu.yuaicodemother.core.builder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VueDependencyStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger installCount = new AtomicInteger();
+
+    /**
+     * 模拟 npm install：生成 node_modules/vue/package.json
+     */
+    private final Predicate<File> fakeInstaller = dir -> {
+        installCount.incrementAndGet();
+        return new File(dir, "node_modules/vue").mkdirs();
+    };
+
+    private VueDependencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new VueDependencyStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "storeRoot", tempDir.resolve("store"));
+        ReflectionTestUtils.setField(store, "projectRoot", tempDir);
+        ReflectionTestUtils.setField(store, "maxIdleDays", 7L);
+        ReflectionTestUtils.setField(store, "maxEntries", 50);
+    }
+
+    @Test
+    void sameDependenciesInstallOnce() throws Exception {
+        File first = createProject("app1", "{\"dependencies\":{\"vue\":\"^3.3.4\",\"vue-router\":\"^4.2.4\"}}");
+        File second = createProject("app2", "{\"name\":\"other\",\"dependencies\":{\"vue-router\":\"^4.2.4\",\"vue\":\"^3.3.4\"}}");
+
+        assertTrue(store.prepareDependencies(first, fakeInstaller));
+        assertTrue(store.prepareDependencies(second, fakeInstaller));
+
+        assertEquals(1, installCount.get());
+        Path firstModules = first.toPath().resolve("node_modules");
+        assertTrue(Files.isSymbolicLink(firstModules));
+        assertTrue(Files.isSameFile(firstModules, second.toPath().resolve("node_modules")));
+        assertTrue(Files.isDirectory(firstModules.resolve("vue")));
+    }
+
+    @Test
+    void alreadyLinkedProjectSkipsInstall() throws Exception {
+        File project = createProject("app1", "{\"dependencies\":{\"vue\":\"^3.3.4\"}}");
+        assertTrue(store.prepareDependencies(project, fakeInstaller));
+        assertTrue(store.prepareDependencies(project, fakeInstaller));
+        assertEquals(1, installCount.get());
+    }
+
+    @Test
+    void changedDependenciesRelinkToNewEntry() throws Exception {
+        File project = createProject("app1", "{\"dependencies\":{\"vue\":\"^3.3.4\"}}");
+        assertTrue(store.prepareDependencies(project, fakeInstaller));
+        Path oldTarget = project.toPath().resolve("node_modules").toRealPath();
+
+        Files.writeString(project.toPath().resolve("package.json"), "{\"dependencies\":{\"vue\":\"^3.4.0\"}}");
+        assertTrue(store.prepareDependencies(project, fakeInstaller));
+
+        assertEquals(2, installCount.get());
+        assertNotEquals(oldTarget, project.toPath().resolve("node_modules").toRealPath());
+        // 旧的仓库条目仍被其他项目使用，不能随链接一起删除
+        assertTrue(Files.isDirectory(oldTarget.resolve("vue")));
+    }
+
+    @Test
+    void lockFileTakesPrecedence() throws Exception {
+        File project = createProject("app1", "{\"dependencies\":{\"vue\":\"^3.3.4\"}}");
+        assertTrue(store.computeDependencyKey(project).startsWith("pkg-"));
+        Files.writeString(project.toPath().resolve("package-lock.json"), "{\"lockfileVersion\":3}");
+        assertTrue(store.computeDependencyKey(project).startsWith("lock-"));
+    }
+
+    @Test
+    void failedInstallIsNotStored() throws Exception {
+        File project = createProject("app1", "{\"dependencies\":{\"vue\":\"^3.3.4\"}}");
+        assertFalse(store.prepareDependencies(project, dir -> false));
+        try (var entries = Files.list(tempDir.resolve("store"))) {
+            assertEquals(0, entries.count());
+        }
+    }
+
+    @Test
+    void sweepRemovesIdleUnlinkedEntriesOnly() throws Exception {
+        File linked = createProject("app1", "{\"dependencies\":{\"vue\":\"^3.3.4\"}}");
+        File relinked = createProject("app2", "{\"dependencies\":{\"vue\":\"^3.4.0\"}}");
+        assertTrue(store.prepareDependencies(linked, fakeInstaller));
+        assertTrue(store.prepareDependencies(relinked, fakeInstaller));
+        Path linkedEntry = linked.toPath().resolve("node_modules").toRealPath().getParent();
+        Path orphanEntry = relinked.toPath().resolve("node_modules").toRealPath().getParent();
+        Files.writeString(relinked.toPath().resolve("package.json"), "{\"dependencies\":{\"vue\":\"^3.5.0\"}}");
+        assertTrue(store.prepareDependencies(relinked, fakeInstaller));
+        Path recentEntry = relinked.toPath().resolve("node_modules").toRealPath().getParent();
+        Files.delete(relinked.toPath().resolve("node_modules"));
+
+        ageBy(linkedEntry, Duration.ofDays(30));
+        ageBy(orphanEntry, Duration.ofDays(30));
+        store.sweep();
+
+        // 仍被项目链接的条目保留，闲置且未被链接的条目删除，最近使用过的条目保留
+        assertTrue(Files.isDirectory(linkedEntry));
+        assertFalse(Files.exists(orphanEntry));
+        assertTrue(Files.isDirectory(recentEntry));
+    }
+
+    @Test
+    void sweepEvictsLeastRecentlyUsedOverLimit() throws Exception {
+        ReflectionTestUtils.setField(store, "maxEntries", 2);
+        File first = createProject("app1", "{\"dependencies\":{\"vue\":\"^3.3.4\"}}");
+        File second = createProject("app2", "{\"dependencies\":{\"vue\":\"^3.4.0\"}}");
+        File third = createProject("app3", "{\"dependencies\":{\"vue\":\"^3.5.0\"}}");
+        for (File project : new File[]{first, second, third}) {
+            assertTrue(store.prepareDependencies(project, fakeInstaller));
+        }
+        Path oldest = first.toPath().resolve("node_modules").toRealPath().getParent();
+        Path older = second.toPath().resolve("node_modules").toRealPath().getParent();
+        ageBy(oldest, Duration.ofDays(3));
+        ageBy(older, Duration.ofDays(2));
+
+        store.sweep();
+
+        // 超出上限时按最近使用时间淘汰，被淘汰的项目下次构建重新安装并链接
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.isDirectory(older));
+        assertTrue(store.prepareDependencies(first, fakeInstaller));
+        assertEquals(4, installCount.get());
+        assertTrue(Files.isDirectory(first.toPath().resolve("node_modules").resolve("vue")));
+    }
+
+    private void ageBy(Path entry, Duration age) throws Exception {
+        Files.setLastModifiedTime(entry, FileTime.from(Instant.now().minus(age)));
+    }
+
+    private File createProject(String name, String packageJson) throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve(name));
+        Files.writeString(dir.resolve("package.json"), packageJson);
+        return dir.toFile();
+    }
+}
@@ -0,0 +1,122 @@
+package com.yu.yuaicodemother.core.builder;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.model.enums.VueBuildPriorityEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VueProjectBuildExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountDownLatch releaseRunning = new CountDownLatch(1);
+
+    private VueProjectBuildExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new VueProjectBuildExecutor();
+        ReflectionTestUtils.setField(executor, "maxParallel", 1);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 2);
+        ReflectionTestUtils.setField(executor, "meterRegistry", meterRegistry);
+        executor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseRunning.countDown();
+        executor.destroy();
+    }
+
+    @Test
+    void deployRunsBeforeQueuedPreview() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> running = executor.submit(VueBuildPriorityEnum.PREVIEW, () -> block("running"));
+        waitUntilQueueEmpty();
+        CompletableFuture<String> preview = executor.submit(VueBuildPriorityEnum.PREVIEW, () -> record(order, "preview"));
+        CompletableFuture<String> deploy = executor.submit(VueBuildPriorityEnum.DEPLOY, () -> record(order, "deploy"));
+        releaseRunning.countDown();
+        CompletableFuture.allOf(running, preview, deploy).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("deploy", "preview"), order);
+    }
+
+    @Test
+    void fullQueueRejectsPreviewAndDeployEvictsPreview() throws Exception {
+        executor.submit(VueBuildPriorityEnum.PREVIEW, () -> block("running"));
+        waitUntilQueueEmpty();
+        CompletableFuture<String> firstPreview = executor.submit(VueBuildPriorityEnum.PREVIEW, () -> "p1");
+        CompletableFuture<String> secondPreview = executor.submit(VueBuildPriorityEnum.PREVIEW, () -> "p2");
+
+        CompletableFuture<String> rejected = executor.submit(VueBuildPriorityEnum.PREVIEW, () -> "p3");
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(BusinessException.class, e.getCause());
+
+        CompletableFuture<String> deploy = executor.submit(VueBuildPriorityEnum.DEPLOY, () -> "deploy");
+        assertTrue(secondPreview.isCompletedExceptionally());
+        releaseRunning.countDown();
+        assertEquals("deploy", deploy.get(5, TimeUnit.SECONDS));
+        assertEquals("p1", firstPreview.get(5, TimeUnit.SECONDS));
+        assertEquals(2.0, meterRegistry.get("vue_build_rejected_total").tag("priority", "preview").counter().count());
+    }
+
+    @Test
+    void promotedPreviewRunsFirstAndIsNotEvicted() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        executor.submit(VueBuildPriorityEnum.PREVIEW, () -> block("running"));
+        waitUntilQueueEmpty();
+        CompletableFuture<String> first = executor.submit(VueBuildPriorityEnum.PREVIEW, () -> record(order, "p1"));
+        CompletableFuture<String> promoted = executor.submit(VueBuildPriorityEnum.PREVIEW, () -> record(order, "p2"));
+        assertTrue(executor.promote(promoted, VueBuildPriorityEnum.DEPLOY));
+        assertFalse(executor.promote(promoted, VueBuildPriorityEnum.DEPLOY));
+
+        // 队列已满时挤掉的是未提升的预览任务
+        CompletableFuture<String> deploy = executor.submit(VueBuildPriorityEnum.DEPLOY, () -> record(order, "deploy"));
+        assertTrue(first.isCompletedExceptionally());
+        releaseRunning.countDown();
+        CompletableFuture.allOf(promoted, deploy).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("p2", "deploy"), order);
+    }
+
+    @Test
+    void destroyFailsQueuedTasks() {
+        executor.submit(VueBuildPriorityEnum.PREVIEW, () -> block("running"));
+        CompletableFuture<String> queued = executor.submit(VueBuildPriorityEnum.DEPLOY, () -> "deploy");
+
+        executor.destroy();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BusinessException.class, e.getCause());
+    }
+
+    private String block(String value) {
+        try {
+            releaseRunning.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private String record(List<String> order, String value) {
+        order.add(value);
+        return value;
+    }
+
+    private void waitUntilQueueEmpty() throws InterruptedException {
+        for (int i = 0; i < 100 && meterRegistry.get("vue_build_queue_size").gauge().value() > 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
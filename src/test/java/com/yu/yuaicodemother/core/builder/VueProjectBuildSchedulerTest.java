@@ -0,0 +1,119 @@
+package com.yu.yuaicodemother.core.builder;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.model.enums.VueBuildPriorityEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VueProjectBuildSchedulerTest {
+
+    @TempDir
+    Path projectDir;
+
+    private final AtomicInteger buildCount = new AtomicInteger();
+
+    private final CountDownLatch releaseBuild = new CountDownLatch(1);
+
+    private VueProjectBuildScheduler scheduler;
+
+    private VueProjectBuildExecutor executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(projectDir.resolve("package.json"), "{}");
+        Files.createDirectories(projectDir.resolve("src"));
+        Files.writeString(projectDir.resolve("src/App.vue"), "<template>v1</template>");
+
+        VueProjectBuilder builder = mock(VueProjectBuilder.class);
+        when(builder.buildProject(anyString())).thenAnswer(invocation -> {
+            buildCount.incrementAndGet();
+            releaseBuild.await(5, TimeUnit.SECONDS);
+            new File(invocation.getArgument(0, String.class), "dist").mkdirs();
+            return true;
+        });
+        executor = new VueProjectBuildExecutor();
+        ReflectionTestUtils.setField(executor, "maxParallel", 2);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 20);
+        ReflectionTestUtils.setField(executor, "meterRegistry", new SimpleMeterRegistry());
+        executor.init();
+        scheduler = new VueProjectBuildScheduler();
+        ReflectionTestUtils.setField(scheduler, "vueProjectBuilder", builder);
+        ReflectionTestUtils.setField(scheduler, "vueProjectBuildExecutor", executor);
+        ReflectionTestUtils.setField(scheduler, "vueBuildDaemonManager", new VueBuildDaemonManager());
+    }
+
+    @Test
+    void duplicateRequestsShareOneBuild() throws Exception {
+        CompletableFuture<Boolean> first = scheduler.submitBuild(1L, projectDir.toString());
+        CompletableFuture<Boolean> second = scheduler.submitBuild(1L, projectDir.toString());
+        assertSame(first, second);
+        releaseBuild.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, buildCount.get());
+    }
+
+    @Test
+    void unchangedSourceReusesLastDist() {
+        releaseBuild.countDown();
+        assertTrue(scheduler.buildAndWait(1L, projectDir.toString()));
+        // node_modules / dist 的变化不影响指纹
+        projectDir.resolve("node_modules").toFile().mkdirs();
+        assertTrue(scheduler.buildAndWait(1L, projectDir.toString()));
+        assertEquals(1, buildCount.get());
+    }
+
+    @Test
+    void changedSourceTriggersRebuild() throws Exception {
+        releaseBuild.countDown();
+        assertTrue(scheduler.buildAndWait(1L, projectDir.toString()));
+        Files.writeString(projectDir.resolve("src/App.vue"), "<template>v2</template>");
+        assertTrue(scheduler.buildAndWait(1L, projectDir.toString()));
+        assertEquals(2, buildCount.get());
+    }
+
+    @Test
+    void deployMergedIntoQueuedPreviewIsNotEvicted() throws Exception {
+        // 两个并行位都被占用，应用 1 的预览构建进入排队
+        CompletableFuture<Boolean> running1 = scheduler.submitBuild(2L, projectDir.toString());
+        CompletableFuture<Boolean> running2 = scheduler.submitBuild(3L, projectDir.toString());
+        waitUntil(() -> buildCount.get() == 2);
+        CompletableFuture<Boolean> preview = scheduler.submitBuild(1L, projectDir.toString());
+        CompletableFuture<Boolean> deploy = scheduler.submitBuild(1L, projectDir.toString(), VueBuildPriorityEnum.DEPLOY);
+        assertSame(preview, deploy);
+
+        // 队列已满时，其他部署任务不能挤掉部署正在等待的任务
+        ReflectionTestUtils.setField(executor, "queueCapacity", 1);
+        CompletableFuture<Boolean> otherDeploy = scheduler.submitBuild(4L, projectDir.toString(), VueBuildPriorityEnum.DEPLOY);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> otherDeploy.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BusinessException.class, e.getCause());
+        assertFalse(deploy.isDone());
+
+        releaseBuild.countDown();
+        assertTrue(deploy.get(5, TimeUnit.SECONDS));
+        assertTrue(running1.get(5, TimeUnit.SECONDS) && running2.get(5, TimeUnit.SECONDS));
+    }
+
+    private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppSideEffectExecutorTest {
+
+    private AppSideEffectExecutor executor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = create(true, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void runsSideEffectsOfSameAppInOrderWithoutBlockingCaller() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        executor.execute(1L, "history", () -> {
+            await(blocker);
+            order.add("history");
+        });
+        // 执行失败不影响同一应用后续的副作用
+        CompletableFuture<Void> failed = executor.execute(1L, "version", () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<Void> status = executor.execute(1L, "status", () -> order.add("status"));
+        // 其他应用不受阻塞
+        executor.execute(2L, "other", () -> order.add("other")).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("other"), order);
+
+        blocker.countDown();
+        status.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("other", "history", "status"), order);
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(1.0, meterRegistry.get("app_side_effect_failed_total").counter().count());
+        assertEquals(4, meterRegistry.get("app_side_effect_lag_seconds").timer().count());
+    }
+
+    @Test
+    void runsInlineWhenQueueIsFull() throws Exception {
+        executor.destroy();
+        executor = create(true, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(1L, "slow", () -> {
+            started.countDown();
+            await(blocker);
+        });
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+        // 第一个仍在执行中（已出队），第二个排队，第三个超出上限在调用线程执行
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(1L, "queued", () -> threads.add(Thread.currentThread()));
+        executor.execute(1L, "inline", () -> threads.add(Thread.currentThread()));
+
+        assertEquals(List.of(caller), threads);
+        assertEquals(1.0, meterRegistry.get("app_side_effect_inline_total").counter().count());
+        blocker.countDown();
+    }
+
+    private AppSideEffectExecutor create(boolean enabled, int maxPending) {
+        AppSideEffectExecutor sideEffectExecutor = new AppSideEffectExecutor();
+        ReflectionTestUtils.setField(sideEffectExecutor, "enabled", enabled);
+        ReflectionTestUtils.setField(sideEffectExecutor, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(sideEffectExecutor, "maxPending", maxPending);
+        ReflectionTestUtils.setField(sideEffectExecutor, "meterRegistry", meterRegistry);
+        GenerationTracer generationTracer = new GenerationTracer();
+        ReflectionTestUtils.setField(generationTracer, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(generationTracer, "maxSize", 100);
+        ReflectionTestUtils.setField(generationTracer, "retentionMinutes", 60L);
+        generationTracer.init();
+        ReflectionTestUtils.setField(sideEffectExecutor, "generationTracer", generationTracer);
+        sideEffectExecutor.init();
+        return sideEffectExecutor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.yu.yuaicodemother.core.generation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GenerationEventWriterTest {
+
+    @Test
+    void writesEventsInBatchesAndFinishLast() throws Exception {
+        GenerationEventStore eventStore = mock(GenerationEventStore.class);
+        List<Long> written = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<GenerationEvent> events = invocation.getArgument(1);
+            firstBatchStarted.countDown();
+            // 第一批写入较慢，期间到达的事件合并为后续批次
+            releaseFirstBatch.await(5, TimeUnit.SECONDS);
+            batchSizes.add(events.size());
+            events.forEach(event -> written.add(event.id()));
+            return null;
+        }).when(eventStore).appendBatch(eq("g"), anyList());
+        doAnswer(invocation -> {
+            finished.countDown();
+            return null;
+        }).when(eventStore).finish(eq("g"), any());
+
+        GenerationEventWriter writer = new GenerationEventWriter("g", eventStore);
+        writer.append(new GenerationEvent(1, "a"));
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+        for (long id = 2; id <= 300; id++) {
+            writer.append(new GenerationEvent(id, "x"));
+        }
+        writer.finish(null);
+        releaseFirstBatch.countDown();
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(300, written.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(i + 1, written.get(i));
+        }
+        assertEquals(List.of(1, GenerationEventWriter.MAX_BATCH, 299 - GenerationEventWriter.MAX_BATCH), batchSizes);
+        verify(eventStore, times(1)).finish("g", null);
+    }
+
+    @Test
+    void sessionAppendDoesNotWaitForStore() throws Exception {
+        GenerationEventStore eventStore = mock(GenerationEventStore.class);
+        CountDownLatch releaseStore = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            releaseStore.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(eventStore).appendBatch(eq("g"), anyList());
+        GenerationSession session = new GenerationSession("g", 1L, 1L, 16, 0, 0, eventStore);
+
+        long start = System.nanoTime();
+        session.append("aa");
+        session.append("bb");
+        // 存储写入阻塞时，会话锁不被占用，订阅者照常读取
+        assertEquals(2, session.subscribe(0).take(2).collectList().block().size());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        releaseStore.countDown();
+    }
+}
@@ -0,0 +1,226 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.core.admission.LlmAdmissionController;
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import com.yu.yuaicodemother.model.dto.app.AppChatRequest;
+import com.yu.yuaicodemother.model.entity.App;
+import com.yu.yuaicodemother.model.entity.User;
+import com.yu.yuaicodemother.model.enums.AppGenStatusEnum;
+import com.yu.yuaicodemother.model.enums.GenerationJobStatusEnum;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.service.AppService;
+import com.yu.yuaicodemother.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GenerationJobEngineTest {
+
+    private GenerationJobEngine engine;
+
+    private GenerationSessionManager sessionManager;
+
+    private final AppService appService = mock(AppService.class);
+
+    private final GenerationLock generationLock = mock(GenerationLock.class);
+
+    private final RedissonClient redissonClient = mock(RedissonClient.class);
+
+    private final Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+
+    private User user;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        GenerationEventStore eventStore = mock(GenerationEventStore.class);
+        when(eventStore.isEnabled()).thenReturn(false);
+        sessionManager = new GenerationSessionManager();
+        ReflectionTestUtils.setField(sessionManager, "bufferSize", 16);
+        ReflectionTestUtils.setField(sessionManager, "retentionMinutes", 5L);
+        ReflectionTestUtils.setField(sessionManager, "detachedTimeoutSeconds", 120L);
+        ReflectionTestUtils.setField(sessionManager, "generationEventStore", eventStore);
+        ReflectionTestUtils.setField(sessionManager, "meterRegistry", new SimpleMeterRegistry());
+        sessionManager.init();
+
+        when(redissonClient.getTopic(anyString(), any())).thenReturn(mock(RTopic.class));
+        when(redissonClient.getBucket(anyString(), any())).thenAnswer(invocation -> mock(RBucket.class));
+
+        user = new User();
+        user.setId(1L);
+        App app = new App();
+        app.setId(10L);
+        app.setUserId(1L);
+        when(appService.getById(10L)).thenReturn(app);
+        when(appService.chatToGenCode(any(), eq(user))).thenReturn(source.asFlux());
+
+        engine = new GenerationJobEngine();
+        ReflectionTestUtils.setField(engine, "dispatch", "local");
+        ReflectionTestUtils.setField(engine, "workerEnabled", true);
+        ReflectionTestUtils.setField(engine, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(engine, "stateTtlMinutes", 60L);
+        ReflectionTestUtils.setField(engine, "appService", appService);
+        ReflectionTestUtils.setField(engine, "userService", mock(UserService.class));
+        ReflectionTestUtils.setField(engine, "generationSessionManager", sessionManager);
+        // 副作用在调用线程同步执行，便于断言
+        GenerationTracer generationTracer = new GenerationTracer();
+        ReflectionTestUtils.setField(generationTracer, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(generationTracer, "maxSize", 100);
+        ReflectionTestUtils.setField(generationTracer, "retentionMinutes", 60L);
+        generationTracer.init();
+        ReflectionTestUtils.setField(engine, "generationTracer", generationTracer);
+        AppSideEffectExecutor sideEffectExecutor = new AppSideEffectExecutor();
+        ReflectionTestUtils.setField(sideEffectExecutor, "enabled", false);
+        ReflectionTestUtils.setField(sideEffectExecutor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sideEffectExecutor, "generationTracer", generationTracer);
+        sideEffectExecutor.init();
+        ReflectionTestUtils.setField(engine, "appSideEffectExecutor", sideEffectExecutor);
+        ReflectionTestUtils.setField(engine, "generationEventStore", eventStore);
+        ReflectionTestUtils.setField(engine, "generationLock", generationLock);
+        LlmAdmissionController admissionController = new LlmAdmissionController();
+        ReflectionTestUtils.setField(admissionController, "enabled", false);
+        ReflectionTestUtils.setField(engine, "llmAdmissionController", admissionController);
+        ReflectionTestUtils.setField(engine, "redissonClient", redissonClient);
+        ReflectionTestUtils.setField(engine, "meterRegistry", new SimpleMeterRegistry());
+        engine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.destroy();
+        sessionManager.destroy();
+    }
+
+    @Test
+    void runsJobInBackgroundAndPushesStatusChanges() {
+        List<String> statuses = new CopyOnWriteArrayList<>();
+        Disposable statusSubscription = engine.statusStream(10L).subscribe(message -> statuses.add(message.getStatus()));
+
+        GenerationJob job = engine.submit(chatRequest(), user);
+        List<String> received = new CopyOnWriteArrayList<>();
+        sessionManager.resume(job.getGenerationId(), 0, 1L).subscribe(event -> received.add(event.data()));
+        awaitStatus(job, GenerationJobStatusEnum.RUNNING);
+        source.tryEmitNext("a");
+        source.tryEmitNext("b");
+        source.tryEmitComplete();
+
+        awaitStatus(job, GenerationJobStatusEnum.SUCCEEDED);
+        assertEquals(List.of("a", "b"), received);
+        // 状态先写入任务再推送，推送可能稍晚于 awaitStatus 返回
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (statuses.size() < 3 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(List.of("queued", "running", "succeeded"), statuses);
+        statusSubscription.dispose();
+    }
+
+    @Test
+    void stoppedJobIsCancelledAndAppMarkedFailed() {
+        GenerationJob job = engine.submit(chatRequest(), user);
+        awaitStatus(job, GenerationJobStatusEnum.RUNNING);
+
+        assertTrue(engine.stop(job.getGenerationId(), 1L));
+
+        awaitStatus(job, GenerationJobStatusEnum.CANCELLED);
+        verify(appService).updateGenStatus(10L, AppGenStatusEnum.GENERATED_FAILED.getValue());
+    }
+
+    @Test
+    void rejectsInvalidSubmissionSynchronously() {
+        AppChatRequest request = chatRequest();
+        request.setAppId(11L);
+        BusinessException notFound = assertThrows(BusinessException.class, () -> engine.submit(request, user));
+        assertEquals(ErrorCode.NOT_FOUND_ERROR.getCode(), notFound.getCode());
+
+        User other = new User();
+        other.setId(2L);
+        BusinessException noAuth = assertThrows(BusinessException.class, () -> engine.submit(chatRequest(), other));
+        assertEquals(ErrorCode.NO_AUTH_ERROR.getCode(), noAuth.getCode());
+        verify(appService, never()).chatToGenCode(any(), any());
+    }
+
+    @Test
+    void duplicateSubmissionAttachesAndDifferentMessageConflicts() {
+        GenerationJob job = engine.submit(chatRequest(), user);
+        awaitStatus(job, GenerationJobStatusEnum.RUNNING);
+        when(generationLock.tryAcquire(eq(10L), anyString())).thenReturn(job.getGenerationId());
+
+        // 相同消息重复提交，接入进行中的任务
+        assertSame(job, engine.submit(chatRequest(), user));
+        // 不同消息直接返回冲突
+        AppChatRequest other = chatRequest();
+        other.setMessage("换一个风格");
+        BusinessException conflict = assertThrows(BusinessException.class, () -> engine.submit(other, user));
+        assertEquals(ErrorCode.CONFLICT_ERROR.getCode(), conflict.getCode());
+        verify(appService, timeout(1000).times(1)).chatToGenCode(any(), any());
+
+        source.tryEmitComplete();
+        awaitStatus(job, GenerationJobStatusEnum.SUCCEEDED);
+        verify(generationLock, timeout(1000)).release(10L, job.getGenerationId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void clearsAppStatusAfterJobFinishes() {
+        RBucket<Object> appStatus = mock(RBucket.class);
+        doReturn(appStatus).when(redissonClient).getBucket(eq("generation:app-status:10"), any());
+        GenerationJob job = engine.submit(chatRequest(), user);
+        awaitStatus(job, GenerationJobStatusEnum.RUNNING);
+        verify(appStatus, never()).compareAndSet(any(), any());
+
+        source.tryEmitComplete();
+        awaitStatus(job, GenerationJobStatusEnum.SUCCEEDED);
+
+        // 数据库状态更新后清除，只清除本次写入的最终状态
+        verify(appStatus, timeout(1000)).compareAndSet(
+                String.valueOf(AppGenStatusEnum.GENERATED_SUCCESS.getValue()), null);
+    }
+
+    @Test
+    void renewsLockOnlyWhileSessionIsAlive() {
+        when(generationLock.renew(anyLong(), anyString())).thenReturn(true);
+        GenerationJob job = engine.submit(chatRequest(), user);
+        awaitStatus(job, GenerationJobStatusEnum.RUNNING);
+
+        engine.renewLocks();
+        verify(generationLock, times(1)).renew(10L, job.getGenerationId());
+
+        source.tryEmitComplete();
+        awaitStatus(job, GenerationJobStatusEnum.SUCCEEDED);
+        engine.renewLocks();
+        verify(generationLock, times(1)).renew(10L, job.getGenerationId());
+    }
+
+    private AppChatRequest chatRequest() {
+        AppChatRequest request = new AppChatRequest();
+        request.setAppId(10L);
+        request.setMessage("做一个网站");
+        return request;
+    }
+
+    private void awaitStatus(GenerationJob job, GenerationJobStatusEnum status) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!status.getValue().equals(job.getStatus())) {
+            assertTrue(System.nanoTime() < deadline, "任务状态未变为 " + status.getValue());
+            Thread.onSpinWait();
+        }
+    }
+}
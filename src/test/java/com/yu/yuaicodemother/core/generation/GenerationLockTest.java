@@ -0,0 +1,73 @@
+package com.yu.yuaicodemother.core.generation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GenerationLockTest {
+
+    private final RedissonClient redissonClient = mock(RedissonClient.class);
+
+    private final RBucket<Object> bucket = mock(RBucket.class);
+
+    private final RScript script = mock(RScript.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private GenerationLock lock;
+
+    @BeforeEach
+    void setUp() {
+        when(redissonClient.getBucket(eq("generation:lock:10"), any())).thenReturn(bucket);
+        when(redissonClient.getScript(any(Codec.class))).thenReturn(script);
+        lock = new GenerationLock();
+        ReflectionTestUtils.setField(lock, "enabled", true);
+        ReflectionTestUtils.setField(lock, "leaseSeconds", 30L);
+        ReflectionTestUtils.setField(lock, "redissonClient", redissonClient);
+        ReflectionTestUtils.setField(lock, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void acquiresWithLeaseOrReturnsHolder() {
+        // 加锁脚本：加锁成功返回 nil，否则返回持有者
+        when(script.eval(eq(RScript.Mode.READ_WRITE), contains("'NX'"), eq(RScript.ReturnType.VALUE),
+                eq(List.of("generation:lock:10")), eq("g1"), eq("30000"))).thenReturn(null);
+        when(script.eval(eq(RScript.Mode.READ_WRITE), contains("'NX'"), eq(RScript.ReturnType.VALUE),
+                eq(List.of("generation:lock:10")), eq("g2"), eq("30000"))).thenReturn("g1");
+        assertNull(lock.tryAcquire(10L, "g1"));
+        assertEquals("g1", lock.tryAcquire(10L, "g2"));
+        assertNull(meterRegistry.find("generation_lock_fail_open_total").counter());
+    }
+
+    @Test
+    void renewAndReleaseCompareHolder() {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), eq("g1"), eq("30000")))
+                .thenReturn(true);
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), eq("g2"), eq("30000")))
+                .thenReturn(false);
+        assertTrue(lock.renew(10L, "g1"));
+        assertFalse(lock.renew(10L, "g2"));
+
+        lock.release(10L, "g1");
+        verify(bucket).compareAndSet("g1", null);
+    }
+
+    @Test
+    void redisFailureDoesNotBlockGeneration() {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class)))
+                .thenThrow(new IllegalStateException("redis down"));
+        assertNull(lock.tryAcquire(10L, "g1"));
+        assertEquals(1.0, meterRegistry.get("generation_lock_fail_open_total").counter().count());
+    }
+}
@@ -0,0 +1,138 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GenerationSessionManagerTest {
+
+    private GenerationSessionManager manager;
+
+    private final Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        GenerationEventStore eventStore = mock(GenerationEventStore.class);
+        when(eventStore.isEnabled()).thenReturn(false);
+        manager = new GenerationSessionManager();
+        ReflectionTestUtils.setField(manager, "bufferSize", 3);
+        ReflectionTestUtils.setField(manager, "retentionMinutes", 5L);
+        ReflectionTestUtils.setField(manager, "detachedTimeoutSeconds", 0L);
+        ReflectionTestUtils.setField(manager, "generationEventStore", eventStore);
+        ReflectionTestUtils.setField(manager, "meterRegistry", new SimpleMeterRegistry());
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.destroy();
+    }
+
+    @Test
+    void generationContinuesAfterDisconnectAndResumesFromLastEvent() {
+        GenerationSession session = start();
+        List<String> first = new CopyOnWriteArrayList<>();
+        Disposable connection = session.subscribe(0).subscribe(event -> first.add(event.data()));
+        source.tryEmitNext("a");
+        source.tryEmitNext("b");
+        // 连接断开，生成继续
+        connection.dispose();
+        source.tryEmitNext("c");
+        assertFalse(upstreamCancelled.get());
+        assertEquals(List.of("a", "b"), first);
+
+        List<GenerationEvent> resumed = new CopyOnWriteArrayList<>();
+        manager.resume(session.getGenerationId(), 2, 1L).subscribe(resumed::add);
+        source.tryEmitNext("d");
+        source.tryEmitComplete();
+
+        assertEquals(List.of(new GenerationEvent(3, "c"), new GenerationEvent(4, "d")), resumed);
+        assertTrue(session.isFinished());
+    }
+
+    @Test
+    void rejectsResumeOutsideBufferOrFromOtherUser() {
+        GenerationSession session = start();
+        for (String data : List.of("a", "b", "c", "d", "e")) {
+            source.tryEmitNext(data);
+        }
+        // 缓冲区只保留最后 3 个事件（3、4、5）
+        assertTrue(session.canResumeFrom(2));
+        BusinessException expired = assertThrows(BusinessException.class,
+                () -> manager.resume(session.getGenerationId(), 1, 1L));
+        assertEquals(ErrorCode.OPERATION_ERROR.getCode(), expired.getCode());
+        BusinessException noAuth = assertThrows(BusinessException.class,
+                () -> manager.resume(session.getGenerationId(), 4, 2L));
+        assertEquals(ErrorCode.NO_AUTH_ERROR.getCode(), noAuth.getCode());
+        BusinessException notFound = assertThrows(BusinessException.class,
+                () -> manager.resume("missing", 0, 1L));
+        assertEquals(ErrorCode.NOT_FOUND_ERROR.getCode(), notFound.getCode());
+    }
+
+    @Test
+    void finishedGenerationReplaysAndCompletes() {
+        GenerationSession session = start();
+        source.tryEmitNext("a");
+        source.tryEmitNext("b");
+        source.tryEmitComplete();
+
+        List<GenerationEvent> events = manager.resume(session.getGenerationId(), 1, 1L).collectList().block();
+
+        assertEquals(List.of(new GenerationEvent(2, "b")), events);
+    }
+
+    @Test
+    void stopsDetachedGenerationAndExplicitStop() {
+        GenerationSession detached = start();
+        manager.sweep();
+        assertTrue(upstreamCancelled.get());
+        assertTrue(detached.isFinished());
+
+        Sinks.Many<String> other = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession attached = manager.start(1L, 1L, other.asFlux());
+        attached.subscribe(0).subscribe();
+        manager.sweep();
+        assertFalse(attached.isFinished());
+        assertThrows(BusinessException.class, () -> manager.stop(attached.getGenerationId(), 2L));
+        assertTrue(manager.stop(attached.getGenerationId(), 1L));
+        assertTrue(attached.isFinished());
+    }
+
+    @Test
+    void disconnectStopsGenerationAfterGracePeriod() {
+        ReflectionTestUtils.setField(manager, "cancelOnDisconnect", true);
+        GenerationSession session = start();
+        Disposable connection = session.subscribe(0).subscribe();
+        source.tryEmitNext("a");
+
+        connection.dispose();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!upstreamCancelled.get() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(upstreamCancelled.get());
+        assertTrue(session.isCancelled());
+    }
+
+    private GenerationSession start() {
+        return manager.start(1L, 1L, source.asFlux().doOnCancel(() -> upstreamCancelled.set(true)));
+    }
+}
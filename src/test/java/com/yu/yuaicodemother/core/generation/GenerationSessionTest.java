@@ -0,0 +1,154 @@
+package com.yu.yuaicodemother.core.generation;
+
+import com.yu.yuaicodemother.exception.BusinessException;
+import com.yu.yuaicodemother.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationSessionTest {
+
+    @Test
+    void slowConnectionPullsOnDemandAndDetachesWhenTooFarBehind() {
+        // 每个事件 4 字节（2 个字符），连接最多落后 8 字节
+        GenerationSession session = new GenerationSession("g", 1L, 1L, 16, 0, 8, null);
+        AtomicInteger overflows = new AtomicInteger();
+        session.setOverflowListener(overflows::incrementAndGet);
+        SlowSubscriber subscriber = new SlowSubscriber();
+        session.subscribe(0).subscribe(subscriber);
+
+        session.append("aa");
+        session.append("bb");
+        session.append("cc");
+        // 只请求了 1 个事件，其余留在会话缓冲区
+        assertEquals(List.of("aa"), subscriber.received);
+        assertEquals(8, session.getConnectionLagBytes());
+
+        session.append("dd");
+
+        GenerationDetachedException detached = assertInstanceOf(GenerationDetachedException.class, subscriber.error.get());
+        assertEquals(1, detached.getLastEventId());
+        assertEquals(1, overflows.get());
+        assertEquals(0, session.getConnectionLagBytes());
+
+        // 从断开位置续传，生成不受影响
+        List<String> resumed = new CopyOnWriteArrayList<>();
+        session.subscribe(detached.getLastEventId()).subscribe(event -> resumed.add(event.data()));
+        session.complete();
+        assertEquals(List.of("bb", "cc", "dd"), resumed);
+    }
+
+    @Test
+    void lagCapOnlyCountsLagAddedAfterSubscribe() {
+        GenerationSession session = new GenerationSession("g", 1L, 1L, 16, 0, 8, null);
+        for (String data : List.of("aa", "bb", "cc", "dd")) {
+            session.append(data);
+        }
+        // 续传时需要重放 16 字节，超过上限但不应立即断开
+        SlowSubscriber subscriber = new SlowSubscriber();
+        session.subscribe(0).subscribe(subscriber);
+        assertNull(subscriber.error.get());
+        assertEquals(List.of("aa"), subscriber.received);
+
+        // 订阅后新增 8 字节，仍在上限内
+        session.append("ee");
+        session.append("ff");
+        assertNull(subscriber.error.get());
+
+        session.append("gg");
+        GenerationDetachedException detached = assertInstanceOf(GenerationDetachedException.class, subscriber.error.get());
+        assertEquals(1, detached.getLastEventId());
+    }
+
+    @Test
+    void evictedEventsWithoutStoreEndConnectionWithClearError() {
+        GenerationSession session = new GenerationSession("g", 1L, 1L, 2, 0, 0, null);
+        SlowSubscriber subscriber = new SlowSubscriber();
+        session.subscribe(0).subscribe(subscriber);
+        session.append("aa");
+        session.append("bb");
+        session.append("cc");
+        session.append("dd");
+
+        // 事件 2 已被淘汰，没有 Redis 存储无法续传
+        subscriber.requestOne();
+
+        BusinessException error = assertInstanceOf(BusinessException.class, subscriber.error.get());
+        assertEquals(ErrorCode.OPERATION_ERROR.getCode(), error.getCode());
+        assertEquals(List.of("aa"), subscriber.received);
+    }
+
+    @Test
+    void bufferEvictsOldestEventsOverByteCap() {
+        GenerationSession session = new GenerationSession("g", 1L, 1L, 16, 8, 0, null);
+        for (String data : List.of("aa", "bb", "cc", "dd")) {
+            session.append(data);
+        }
+
+        assertEquals(8, session.getBufferedBytes());
+        assertFalse(session.canResumeFrom(1));
+        assertTrue(session.canResumeFrom(2));
+        session.complete();
+        List<GenerationEvent> events = session.subscribe(0).collectList().block();
+        assertEquals(List.of(new GenerationEvent(3, "cc"), new GenerationEvent(4, "dd")), events);
+    }
+
+    @Test
+    void finishedSessionDrainsRemainingEventsBeforeCompleting() {
+        GenerationSession session = new GenerationSession("g", 1L, 1L, 16, 0, 0, null);
+        SlowSubscriber subscriber = new SlowSubscriber();
+        session.subscribe(0).subscribe(subscriber);
+        session.append("aa");
+        session.append("bb");
+        session.complete();
+        assertFalse(subscriber.completed);
+
+        subscriber.requestOne();
+
+        assertEquals(List.of("aa", "bb"), subscriber.received);
+        assertTrue(subscriber.completed);
+    }
+
+    /**
+     * 初始只请求一个事件，之后手动请求
+     */
+    private static class SlowSubscriber extends BaseSubscriber<GenerationEvent> {
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        private volatile boolean completed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(1);
+        }
+
+        @Override
+        protected void hookOnNext(GenerationEvent value) {
+            received.add(value.data());
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error.set(throwable);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+
+        void requestOne() {
+            request(1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.yu.yuaicodemother.core.generation;
+
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCallCancellerTest {
+
+    private final List<Long> abortedChunks = new CopyOnWriteArrayList<>();
+
+    private final StreamingCallCanceller canceller =
+            new StreamingCallCanceller((outputChunks, releaseNanos) -> abortedChunks.add(outputChunks));
+
+    @Test
+    void cancelClosesKnownHandleImmediately() {
+        FakeHandle handle = new FakeHandle();
+        assertFalse(canceller.onChunk(handle));
+        assertFalse(canceller.onChunk(handle));
+
+        canceller.cancel();
+        canceller.cancel();
+
+        assertTrue(handle.cancelled);
+        assertEquals(List.of(2L), abortedChunks);
+        // 已关闭后迟到的片段不再向下游推送
+        assertTrue(canceller.onChunk(handle));
+        assertEquals(1, abortedChunks.size());
+    }
+
+    @Test
+    void cancelBeforeFirstChunkClosesOnArrival() {
+        canceller.cancel();
+        assertTrue(abortedChunks.isEmpty());
+
+        FakeHandle handle = new FakeHandle();
+        assertTrue(canceller.onChunk(handle));
+
+        assertTrue(handle.cancelled);
+        assertEquals(List.of(0L), abortedChunks);
+    }
+
+    @Test
+    void toolCallbacksAbortAgentLoopAfterCancel() {
+        assertDoesNotThrow(canceller::checkCancelled);
+        canceller.cancel();
+
+        RuntimeException error = assertThrows(RuntimeException.class, canceller::checkCancelled);
+        assertTrue(canceller.isCancellation(error));
+        // 工具调用后发起的新一轮请求在第一个片段到达时关闭
+        FakeHandle nextRound = new FakeHandle();
+        assertTrue(canceller.onChunk(nextRound));
+        assertTrue(nextRound.cancelled);
+    }
+
+    private static class FakeHandle implements StreamingHandle {
+
+        private volatile boolean cancelled;
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
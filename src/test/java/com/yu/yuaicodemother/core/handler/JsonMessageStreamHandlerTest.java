@@ -0,0 +1,117 @@
+package com.yu.yuaicodemother.core.handler;
+
+import cn.hutool.json.JSONObject;
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.BeforeToolExecuted;
+import com.yu.yuaicodemother.ai.model.message.DeepThinkMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.ai.model.message.ToolExecutedMessage;
+import com.yu.yuaicodemother.ai.tools.BaseTool;
+import com.yu.yuaicodemother.ai.tools.ToolManager;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
+import com.yu.yuaicodemother.model.entity.User;
+import com.yu.yuaicodemother.model.enums.ChatHistoryMessageTypeEnum;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.service.ChatHistoryService;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JsonMessageStreamHandlerTest {
+
+    private final ToolManager toolManager = mock(ToolManager.class);
+
+    private JsonMessageStreamHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        BaseTool tool = mock(BaseTool.class);
+        when(tool.generateToolRequestResponse()).thenReturn("[选择工具] 写入文件");
+        when(tool.generateToolExecutedResult(any(JSONObject.class)))
+                .thenAnswer(invocation -> "[工具调用] 写入文件 "
+                        + invocation.getArgument(0, JSONObject.class).getStr("relativeFilePath"));
+        when(toolManager.getTool(anyString())).thenReturn(tool);
+
+        handler = new JsonMessageStreamHandler();
+        ReflectionTestUtils.setField(handler, "toolManager", toolManager);
+        // 副作用在调用线程同步执行，便于断言
+        GenerationTracer generationTracer = new GenerationTracer();
+        ReflectionTestUtils.setField(generationTracer, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(generationTracer, "maxSize", 100);
+        ReflectionTestUtils.setField(generationTracer, "retentionMinutes", 60L);
+        generationTracer.init();
+        AppSideEffectExecutor sideEffectExecutor = new AppSideEffectExecutor();
+        ReflectionTestUtils.setField(sideEffectExecutor, "enabled", false);
+        ReflectionTestUtils.setField(sideEffectExecutor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sideEffectExecutor, "generationTracer", generationTracer);
+        sideEffectExecutor.init();
+        ReflectionTestUtils.setField(handler, "appSideEffectExecutor", sideEffectExecutor);
+    }
+
+    @Test
+    void convertsTypedMessagesWithoutParsing() {
+        StringBuilder history = new StringBuilder();
+        Set<String> seenToolIds = new HashSet<>();
+        AtomicBoolean thinking = new AtomicBoolean(false);
+        ToolExecutionRequest request = ToolExecutionRequest.builder()
+                .id("call-1")
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"src/App.vue\",\"content\":\"<template/>\"}")
+                .build();
+        ToolExecution execution = ToolExecution.builder().request(request).result("ok").build();
+
+        assertEquals("你好", handler.handleJsonMessageChunk(new AiResponseMessage("你好"), history, seenToolIds, thinking));
+        assertEquals("[选择工具] 写入文件",
+                handler.handleJsonMessageChunk(new BeforeToolExecuted(request), history, seenToolIds, thinking));
+        // 同一工具调用的后续片段不再重复输出
+        assertEquals("", handler.handleJsonMessageChunk(new BeforeToolExecuted(request), history, seenToolIds, thinking));
+        assertEquals("\n\n[工具调用] 写入文件 src/App.vue\n\n",
+                handler.handleJsonMessageChunk(new ToolExecutedMessage(execution), history, seenToolIds, thinking));
+        assertEquals("\n\n[AI正在思考🐟] 分析需求",
+                handler.handleJsonMessageChunk(new DeepThinkMessage("分析需求"), history, seenToolIds, thinking));
+        assertEquals("", handler.handleJsonMessageChunk(new DeepThinkMessage(null), history, seenToolIds, thinking));
+        // 连续的思考内容只输出一次前缀
+        assertEquals("，补充细节",
+                handler.handleJsonMessageChunk(new DeepThinkMessage("，补充细节"), history, seenToolIds, thinking));
+        // 思考结束后的回复另起一段
+        assertEquals("\n\n好的", handler.handleJsonMessageChunk(new AiResponseMessage("好的"), history, seenToolIds, thinking));
+        assertEquals("", handler.handleJsonMessageChunk(new StreamMessage("unknown"), history, seenToolIds, thinking));
+
+        // 思考内容只展示不持久化
+        assertEquals("你好\n\n[工具调用] 写入文件 src/App.vue\n\n好的", history.toString());
+    }
+
+    @Test
+    void handleSavesHistory() {
+        ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+        User user = new User();
+        user.setId(7L);
+        Flux<StreamMessage> origin = Flux.just(new AiResponseMessage("a"), new DeepThinkMessage(null),
+                new AiResponseMessage("b"));
+
+        List<String> output = handler.handle(origin, chatHistoryService, 1L, user).collectList().block();
+
+        assertEquals(List.of("a", "b"), output);
+        verify(chatHistoryService).addChatMessage(eq(1L), eq("ab"),
+                eq(ChatHistoryMessageTypeEnum.AI.getValue()), anyLong());
+    }
+}
@@ -0,0 +1,349 @@
+package com.yu.yuaicodemother.core.handler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import com.yu.yuaicodemother.ai.AiCodeGeneratorService;
+import com.yu.yuaicodemother.ai.AiCodeGeneratorServiceFactory;
+import com.yu.yuaicodemother.ai.MultiModalMessageBuilder;
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import com.yu.yuaicodemother.ai.tools.BaseTool;
+import com.yu.yuaicodemother.ai.tools.ToolManager;
+import com.yu.yuaicodemother.constant.AppConstant;
+import com.yu.yuaicodemother.core.AiCodeGeneratorFacade;
+import com.yu.yuaicodemother.core.admission.AdmissionContext;
+import com.yu.yuaicodemother.core.admission.LlmAdmissionController;
+import com.yu.yuaicodemother.core.builder.VueProjectBuildScheduler;
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
+import com.yu.yuaicodemother.model.entity.User;
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import com.yu.yuaicodemother.model.enums.LlmModelTypeEnum;
+import com.yu.yuaicodemother.model.vo.monitor.TokenSpendVO;
+import com.yu.yuaicodemother.monitor.AiModelMetricsCollector;
+import com.yu.yuaicodemother.monitor.AiModelMonitorListener;
+import com.yu.yuaicodemother.monitor.GenerationTrace;
+import com.yu.yuaicodemother.monitor.GenerationTracer;
+import com.yu.yuaicodemother.monitor.MonitorContext;
+import com.yu.yuaicodemother.monitor.MonitorContextHolder;
+import com.yu.yuaicodemother.monitor.StreamingModelMetrics;
+import com.yu.yuaicodemother.monitor.TokenSpendAccounting;
+import com.yu.yuaicodemother.service.AppVersionService;
+import com.yu.yuaicodemother.service.ChatHistoryService;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class StreamHandlerExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+
+    private GenerationTracer generationTracer;
+
+    private LlmAdmissionController admissionController;
+
+    private final AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory = mock(AiCodeGeneratorServiceFactory.class);
+
+    private final TokenSpendAccounting tokenSpendAccounting = new TokenSpendAccounting();
+
+    private final VueProjectBuildScheduler vueProjectBuildScheduler = mock(VueProjectBuildScheduler.class);
+
+    private StreamHandlerExecutor executor;
+
+    private AiCodeGeneratorFacade facade;
+
+    private AiModelMonitorListener monitorListener;
+
+    private long appId;
+
+    @BeforeEach
+    void setUp() {
+        generationTracer = new GenerationTracer();
+        ReflectionTestUtils.setField(generationTracer, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(generationTracer, "maxSize", 100);
+        ReflectionTestUtils.setField(generationTracer, "retentionMinutes", 60L);
+        generationTracer.init();
+        // 副作用在调用线程同步执行，便于断言
+        AppSideEffectExecutor sideEffectExecutor = new AppSideEffectExecutor();
+        ReflectionTestUtils.setField(sideEffectExecutor, "enabled", false);
+        ReflectionTestUtils.setField(sideEffectExecutor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(sideEffectExecutor, "generationTracer", generationTracer);
+        sideEffectExecutor.init();
+
+        StreamMessageCoalescer coalescer = new StreamMessageCoalescer();
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "windowMs", 40L);
+        ReflectionTestUtils.setField(coalescer, "maxChars", 8);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        coalescer.init();
+
+        admissionController = new LlmAdmissionController();
+        ReflectionTestUtils.setField(admissionController, "enabled", true);
+        ReflectionTestUtils.setField(admissionController, "reasoningMaxConcurrency", 1);
+        ReflectionTestUtils.setField(admissionController, "streamingMaxConcurrency", 1);
+        ReflectionTestUtils.setField(admissionController, "routingMaxConcurrency", 1);
+        ReflectionTestUtils.setField(admissionController, "maxQueueSize", 1);
+        ReflectionTestUtils.setField(admissionController, "maxWaitSeconds", 60L);
+        ReflectionTestUtils.setField(admissionController, "adminWeight", 2);
+        ReflectionTestUtils.setField(admissionController, "meterRegistry", meterRegistry);
+        admissionController.init();
+
+        BaseTool tool = mock(BaseTool.class);
+        when(tool.generateToolRequestResponse()).thenReturn("[选择工具] 写入文件");
+        when(tool.generateToolExecutedResult(any(JSONObject.class))).thenReturn("[工具调用] 写入文件");
+        ToolManager toolManager = mock(ToolManager.class);
+        when(toolManager.getTool(anyString())).thenReturn(tool);
+        JsonMessageStreamHandler jsonMessageStreamHandler = new JsonMessageStreamHandler();
+        ReflectionTestUtils.setField(jsonMessageStreamHandler, "toolManager", toolManager);
+        ReflectionTestUtils.setField(jsonMessageStreamHandler, "appSideEffectExecutor", sideEffectExecutor);
+
+        executor = new StreamHandlerExecutor();
+        ReflectionTestUtils.setField(executor, "streamMessageCoalescer", coalescer);
+        ReflectionTestUtils.setField(executor, "jsonMessageStreamHandler", jsonMessageStreamHandler);
+        ReflectionTestUtils.setField(executor, "appSideEffectExecutor", sideEffectExecutor);
+        ReflectionTestUtils.setField(executor, "appVersionService", mock(AppVersionService.class));
+
+        AiModelMetricsCollector metricsCollector = new AiModelMetricsCollector();
+        ReflectionTestUtils.setField(metricsCollector, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "topK", 10);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "width", 64);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "depth", 2);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "windowHours", 24L);
+        monitorListener = new AiModelMonitorListener();
+        ReflectionTestUtils.setField(monitorListener, "aiModelMetricsCollector", metricsCollector);
+        ReflectionTestUtils.setField(monitorListener, "tokenSpendAccounting", tokenSpendAccounting);
+        ReflectionTestUtils.setField(monitorListener, "generationTracer", generationTracer);
+
+        StreamingModelMetrics streamingModelMetrics = new StreamingModelMetrics();
+        ReflectionTestUtils.setField(streamingModelMetrics, "meterRegistry", meterRegistry);
+        streamingModelMetrics.init();
+        MultiModalMessageBuilder multiModalMessageBuilder = mock(MultiModalMessageBuilder.class);
+        when(multiModalMessageBuilder.buildMessage(anyString(), any())).thenReturn(List.of(TextContent.from("做一个网站")));
+        facade = new AiCodeGeneratorFacade();
+        ReflectionTestUtils.setField(facade, "aiCodeGeneratorServiceFactory", aiCodeGeneratorServiceFactory);
+        ReflectionTestUtils.setField(facade, "vueProjectBuildScheduler", vueProjectBuildScheduler);
+        ReflectionTestUtils.setField(facade, "appSideEffectExecutor", sideEffectExecutor);
+        ReflectionTestUtils.setField(facade, "multiModalMessageBuilder", multiModalMessageBuilder);
+        ReflectionTestUtils.setField(facade, "llmAdmissionController", admissionController);
+        ReflectionTestUtils.setField(facade, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(facade, "streamingModelMetrics", streamingModelMetrics);
+        ReflectionTestUtils.setField(facade, "generationTracer", generationTracer);
+        ReflectionTestUtils.setField(facade, "streamingMaxTokens", 8192);
+        ReflectionTestUtils.setField(facade, "reasoningMaxTokens", 32768);
+        ReflectionTestUtils.setField(facade, "patchEnabled", true);
+        ReflectionTestUtils.setField(facade, "patchMaxSourceChars", 60000);
+
+        appId = System.nanoTime();
+    }
+
+    @AfterEach
+    void tearDown() {
+        admissionController.destroy();
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            FileUtil.del(new File(AppConstant.CODE_OUTPUT_ROOT_DIR, codeGenType.getValue() + "_" + appId));
+        }
+    }
+
+    @Test
+    void admissionContextReachesControllerThroughCoalescer() {
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+        admissionController.admit(LlmModelTypeEnum.STREAMING, first.asFlux()).subscribe();
+
+        List<Integer> positions = new CopyOnWriteArrayList<>();
+        Flux<StreamMessage> origin = admissionController.admit(LlmModelTypeEnum.STREAMING,
+                Flux.<StreamMessage>just(new AiResponseMessage("<html></html>")));
+        User loginUser = new User();
+        loginUser.setId(2L);
+
+        // 与生成任务一致：上下文写在执行器输出之后
+        executor.doExecute(origin, chatHistoryService, 1L, loginUser, CodeGenTypeEnum.HTML)
+                .contextWrite(Context.of(AdmissionContext.class, new AdmissionContext(2L, 1, positions::add)))
+                .subscribe();
+
+        assertEquals(List.of(1), positions);
+        first.tryEmitComplete();
+        assertEquals(List.of(1, 0), positions);
+    }
+
+    @Test
+    void vueGenerationRecordsModelAndToolStages() {
+        // 第一轮请求调用工具，第二轮输出文本
+        ScriptedService scripted = AiServices.builder(ScriptedService.class)
+                .streamingChatModel(new ScriptedStreamingChatModel(monitorListener, "完成"))
+                .chatMemory(MessageWindowChatMemory.withMaxMessages(20))
+                .tools(new WriteFileTool())
+                .build();
+        AiCodeGeneratorService service = mock(AiCodeGeneratorService.class);
+        when(service.generateVueProjectCode(anyLong(), any())).thenAnswer(invocation -> scripted.chat(invocation.getArgument(1)));
+        when(aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(anyLong(), eq(CodeGenTypeEnum.VUE_PROJECT)))
+                .thenReturn(service);
+
+        GenerationTrace trace = generate(CodeGenTypeEnum.VUE_PROJECT);
+
+        List<String> stages = stageNames(trace);
+        assertEquals(2, stages.stream().filter("llm_request"::equals).count(), stages.toString());
+        assertTrue(stages.contains("llm_stream"), stages.toString());
+        assertTrue(stages.contains("tool_execution"), stages.toString());
+        // 两轮请求的消耗都归属到发起生成的用户与应用
+        TokenSpendVO spend = tokenSpendAccounting.snapshot(10);
+        assertEquals(List.of("7"), spend.getTopUsers().stream().map(TokenSpendVO.Item::getId).toList());
+        assertEquals(30L, spend.getTopUsers().get(0).getTokens());
+        assertEquals(List.of(String.valueOf(appId)), spend.getTopApps().stream().map(TokenSpendVO.Item::getId).toList());
+        // 项目只由生成门面提交一次构建
+        verify(vueProjectBuildScheduler).buildAndWait(eq(appId), anyString());
+        verifyNoMoreInteractions(vueProjectBuildScheduler);
+    }
+
+    @Test
+    void htmlGenerationRecordsSaveAndPatchStages() {
+        ScriptedService scripted = AiServices.builder(ScriptedService.class)
+                .streamingChatModel(new ScriptedStreamingChatModel(monitorListener, "```html\n<html><body>hi</body></html>\n```"))
+                .chatMemory(MessageWindowChatMemory.withMaxMessages(20))
+                .build();
+        AiCodeGeneratorService service = mock(AiCodeGeneratorService.class);
+        when(service.generateHTMLCodeStream(any())).thenAnswer(invocation -> scripted.chat(invocation.getArgument(0)));
+        when(service.generateCodePatchStream(anyString(), any())).thenAnswer(invocation -> scripted.chat(invocation.getArgument(1)));
+        when(aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(anyLong(), eq(CodeGenTypeEnum.HTML)))
+                .thenReturn(service);
+
+        List<String> firstStages = stageNames(generate(CodeGenTypeEnum.HTML));
+        assertTrue(firstStages.containsAll(List.of("llm_request", "llm_stream", "code_save")), firstStages.toString());
+
+        // 已有代码时走补丁模式
+        List<String> secondStages = stageNames(generate(CodeGenTypeEnum.HTML));
+        assertTrue(secondStages.containsAll(List.of("llm_request", "llm_stream", "patch_apply")), secondStages.toString());
+    }
+
+    /**
+     * 与生成任务一致：经执行器处理，监控上下文写在最外层
+     */
+    private GenerationTrace generate(CodeGenTypeEnum codeGenType) {
+        User loginUser = new User();
+        loginUser.setId(7L);
+        GenerationTrace trace = generationTracer.start(UUID.randomUUID().toString(), GenerationTracer.KIND_GENERATION,
+                appId, loginUser.getId());
+        Flux<StreamMessage> origin = facade.generateAndSaveCodeStream("做一个网站", codeGenType, appId);
+        executor.doExecute(origin, chatHistoryService, appId, loginUser, codeGenType)
+                .contextWrite(Context.of(MonitorContext.class, trace.getMonitorContext()))
+                .blockLast(Duration.ofSeconds(10));
+        return trace;
+    }
+
+    private static List<String> stageNames(GenerationTrace trace) {
+        return trace.getStages().stream().map(GenerationTrace.StageRecord::name).toList();
+    }
+
+    /**
+     * 代替生成服务发起真实的 AI Service 调用（生成服务的系统提示词不在测试类路径上）
+     */
+    interface ScriptedService {
+
+        TokenStream chat(@UserMessage List<Content> contents);
+    }
+
+    static class WriteFileTool {
+
+        @Tool("写入文件")
+        String writeFile(String relativeFilePath) {
+            return "ok";
+        }
+    }
+
+    /**
+     * 按脚本响应的流式模型：带工具时先请求一次工具调用，之后输出文本。
+     * 与 HTTP 客户端一致，在另一个线程上回调，监控上下文经 {@link MonitorContextHolder#wrap} 传递
+     */
+    private record ScriptedStreamingChatModel(ChatModelListener listener, String text) implements StreamingChatModel {
+
+        @Override
+        public List<ChatModelListener> listeners() {
+            return List.of(listener);
+        }
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            Thread.startVirtualThread(MonitorContextHolder.wrap(() -> respond(chatRequest, handler)));
+        }
+
+        private void respond(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            List<ChatMessage> messages = chatRequest.messages();
+            boolean toolCalled = messages.stream().anyMatch(ToolExecutionResultMessage.class::isInstance);
+            if (chatRequest.toolSpecifications() != null && !chatRequest.toolSpecifications().isEmpty() && !toolCalled) {
+                ToolExecutionRequest request = ToolExecutionRequest.builder()
+                        .id("call-1")
+                        .name("writeFile")
+                        .arguments("{\"arg0\":\"src/App.vue\"}")
+                        .build();
+                handler.onCompleteResponse(ChatResponse.builder()
+                        .aiMessage(AiMessage.from(request))
+                        .modelName("scripted")
+                        .tokenUsage(new TokenUsage(10, 5))
+                        .finishReason(FinishReason.TOOL_EXECUTION)
+                        .build());
+                return;
+            }
+            StreamingHandle handle = new StreamingHandle() {
+                @Override
+                public void cancel() {
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return false;
+                }
+            };
+            handler.onPartialResponse(new PartialResponse(text), new PartialResponseContext(handle));
+            handler.onCompleteResponse(ChatResponse.builder()
+                    .aiMessage(AiMessage.from(text))
+                    .modelName("scripted")
+                    .tokenUsage(new TokenUsage(10, 5))
+                    .finishReason(FinishReason.STOP)
+                    .build());
+        }
+    }
+}
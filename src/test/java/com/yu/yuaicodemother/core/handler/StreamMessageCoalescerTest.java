@@ -0,0 +1,94 @@
+package com.yu.yuaicodemother.core.handler;
+
+import com.yu.yuaicodemother.ai.model.message.AiResponseMessage;
+import com.yu.yuaicodemother.ai.model.message.BeforeToolExecuted;
+import com.yu.yuaicodemother.ai.model.message.DeepThinkMessage;
+import com.yu.yuaicodemother.ai.model.message.StreamMessage;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamMessageCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+
+    private StreamMessageCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new StreamMessageCoalescer();
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "windowMs", 40L);
+        ReflectionTestUtils.setField(coalescer, "maxChars", 8);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "scheduler", scheduler);
+        coalescer.init();
+    }
+
+    @Test
+    void mergesByTypeAndFlushesToolEventsImmediately() {
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("writeFile").arguments("{}").build();
+        Flux<StreamMessage> origin = Flux.just(
+                new DeepThinkMessage("想"), new DeepThinkMessage("一想"),
+                new AiResponseMessage("好"), new AiResponseMessage("的"),
+                new BeforeToolExecuted(request),
+                new AiResponseMessage("完成"));
+
+        List<StreamMessage> result = coalescer.coalesce(origin).collectList().block();
+
+        assertEquals(4, result.size());
+        assertEquals("想一想", ((DeepThinkMessage) result.get(0)).getReasoningContent());
+        assertEquals("好的", ((AiResponseMessage) result.get(1)).getData());
+        assertInstanceOf(BeforeToolExecuted.class, result.get(2));
+        assertEquals("完成", ((AiResponseMessage) result.get(3)).getData());
+        assertEquals(6, meterRegistry.counter("stream_message_coalesce_input_total").count());
+        assertEquals(4, meterRegistry.counter("stream_message_coalesce_output_total").count());
+    }
+
+    @Test
+    void flushesWhenWindowElapsesOrSizeLimitReached() {
+        Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> received = new CopyOnWriteArrayList<>();
+        coalescer.coalesce(upstream.asFlux())
+                .subscribe(message -> received.add(((AiResponseMessage) message).getData()));
+
+        upstream.tryEmitNext(new AiResponseMessage("a"));
+        upstream.tryEmitNext(new AiResponseMessage("b"));
+        assertTrue(received.isEmpty());
+        // 时间窗口到达后输出已合并的内容
+        scheduler.advanceTimeBy(Duration.ofMillis(40));
+        assertEquals(List.of("ab"), received);
+
+        // 达到字符上限时不等待时间窗口
+        upstream.tryEmitNext(new AiResponseMessage("12345"));
+        upstream.tryEmitNext(new AiResponseMessage("678"));
+        assertEquals(List.of("ab", "12345678"), received);
+
+        upstream.tryEmitNext(new AiResponseMessage("z"));
+        upstream.tryEmitComplete();
+        assertEquals(List.of("ab", "12345678", "z"), received);
+    }
+
+    @Test
+    void disabledPassesThrough() {
+        ReflectionTestUtils.setField(coalescer, "enabled", false);
+        Flux<StreamMessage> origin = Flux.just(new AiResponseMessage("a"), new AiResponseMessage("b"));
+
+        assertEquals(2, coalescer.coalesce(origin).count().block());
+    }
+}
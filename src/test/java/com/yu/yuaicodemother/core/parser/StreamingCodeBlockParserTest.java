@@ -0,0 +1,189 @@
+package com.yu.yuaicodemother.core.parser;
+
+import com.yu.yuaicodemother.ai.model.MultiFileCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCodeBlockParserTest {
+
+    /**
+     * 原正则实现，用于对比解析结果
+     */
+    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+
+    private static final List<String> SAMPLES = List.of(
+            """
+                    说明文字
+                    ```html
+                    <html><body>`inline`</body></html>
+                    ```
+                    ```CSS
+                    body { margin: 0; }
+                    ```
+                    ```js
+                    const s = `template ${1}`;
+                    ```
+                    """,
+            "```javascript\nalert(1)\n```\n```html\n<p>后出现的 html</p>\n```",
+            "```html\n<p>第一个</p>\n```\n```html\n<p>第二个</p>\n```",
+            "```html\n\n   \n```\n```css\np{}\n```",
+            "```css\np{}\n```\n```html\n<p>未闭合",
+            "没有任何代码块"
+    );
+
+    private static final String MULTI_FILE_RESPONSE = """
+            好的，下面是页面代码：
+            ```html
+            <!DOCTYPE html>
+            <html><body><h1>Hello</h1></body></html>
+            ```
+            样式：
+            ```css
+            h1 { color: red; }
+            ```
+            脚本：
+            ```javascript
+            const name = `world`;
+            console.log(`hello ${name}`);
+            ```
+            完成。
+            """;
+
+    @Test
+    void splitAtEveryPositionMatchesRegexParser() {
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(MULTI_FILE_RESPONSE);
+        for (int split = 0; split <= MULTI_FILE_RESPONSE.length(); split++) {
+            Map<String, String> blocks = new LinkedHashMap<>();
+            StreamingCodeBlockParser parser = new StreamingCodeBlockParser(blocks::putIfAbsent);
+            parser.feed(MULTI_FILE_RESPONSE.substring(0, split));
+            parser.feed(MULTI_FILE_RESPONSE.substring(split));
+            parser.finish();
+            assertEquals(expected.getHtmlCode(), blocks.get("html").trim(), "split=" + split);
+            assertEquals(expected.getCssCode(), blocks.get("css").trim(), "split=" + split);
+            assertEquals(expected.getJsCode(), blocks.get("javascript").trim(), "split=" + split);
+        }
+    }
+
+    @Test
+    void blockIsReportedAsSoonAsFenceCloses() {
+        List<String> languages = new ArrayList<>();
+        StreamingCodeBlockParser parser = new StreamingCodeBlockParser((language, code) -> languages.add(language));
+        parser.feed("```HTML\n<p>a</p>\n`");
+        assertTrue(languages.isEmpty());
+        parser.feed("``\n```css\np{}");
+        assertEquals(List.of("html"), languages);
+    }
+
+    @Test
+    void unclosedBlockIsFlushedOnFinish() {
+        Map<String, String> blocks = new LinkedHashMap<>();
+        StreamingCodeBlockParser parser = new StreamingCodeBlockParser(blocks::put);
+        parser.feed("```html\n<p>truncated</p>``");
+        parser.finish();
+        assertEquals("<p>truncated</p>``", blocks.get("html").trim());
+    }
+
+    @Test
+    void leadingTextKeptOnlyWithoutCodeBlocks() {
+        StreamingCodeBlockParser plain = new StreamingCodeBlockParser((language, code) -> {
+        });
+        plain.feed("<html>`inline` ``double``</html>");
+        plain.finish();
+        assertFalse(plain.hasCodeBlock());
+        assertEquals("<html>`inline` ``double``</html>", plain.getLeadingText());
+
+        StreamingCodeBlockParser fenced = new StreamingCodeBlockParser((language, code) -> {
+        });
+        fenced.feed("text\n```html\n<p></p>\n```");
+        assertTrue(fenced.hasCodeBlock());
+        assertNull(fenced.getLeadingText());
+    }
+
+    @Test
+    void multiFileResultMatchesRegex() {
+        MultiFileCodeParser parser = new MultiFileCodeParser();
+        for (String sample : SAMPLES) {
+            MultiFileCodeResult result = parser.parseCode(sample);
+            assertEquals(regex(sample, HTML_CODE_PATTERN), result.getHtmlCode(), sample);
+            assertEquals(regex(sample, CSS_CODE_PATTERN), result.getCssCode(), sample);
+            assertEquals(regex(sample, JS_CODE_PATTERN), result.getJsCode(), sample);
+        }
+    }
+
+    @Test
+    void streamingAndBatchParsingNormalizeLanguageTheSameWay() {
+        String content = "a\n``` Vue\t\r\nx\n```b";
+        List<StreamingCodeBlockParser.CodeBlock> blocks = StreamingCodeBlockParser.parse(content);
+        assertEquals(1, blocks.size());
+        assertEquals("vue", blocks.get(0).language());
+        assertEquals("x\n", blocks.get(0).content(content));
+
+        Map<String, String> streamed = new LinkedHashMap<>();
+        StreamingCodeBlockParser parser = new StreamingCodeBlockParser(streamed::put);
+        content.chars().forEach(c -> parser.feed(String.valueOf((char) c)));
+        parser.finish();
+        assertEquals(Map.of("vue", "x\n"), streamed);
+    }
+
+    @Test
+    void unterminatedFenceOnLargeOutput() {
+        // 100KB 输出且最后一个代码块未闭合
+        String content = "```css\np{}\n```\n```html\n" + "<div>`` </div>\n".repeat(7_000);
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            List<StreamingCodeBlockParser.CodeBlock> blocks = StreamingCodeBlockParser.parse(content);
+            assertEquals(List.of(new StreamingCodeBlockParser.CodeBlock("css", 7, 11)), blocks);
+            assertNull(new MultiFileCodeParser().parseCode(content).getHtmlCode());
+        });
+    }
+
+    @Test
+    void fencesAreRecognizedOnlyAtLineStart() {
+        // 行内的 ``` 不是标记，不能让后面的代码块错位配对
+        String content = """
+                用 ``` 包裹代码，例如 ```html 这样。
+                ```html
+                <p>const fence = "```";</p>
+                ```
+                  ```css
+                p{}
+                  ```
+                """;
+        assertEquals("<p>const fence = \"```\";</p>\n", StreamingCodeBlockParser.findFirst(content, "html"));
+        assertEquals("p{}\n", StreamingCodeBlockParser.findFirst(content, "css"));
+
+        for (int split = 0; split <= content.length(); split++) {
+            Map<String, String> blocks = new LinkedHashMap<>();
+            StreamingCodeBlockParser parser = new StreamingCodeBlockParser(blocks::putIfAbsent);
+            parser.feed(content.substring(0, split));
+            parser.feed(content.substring(split));
+            parser.finish();
+            assertEquals(Map.of("html", "<p>const fence = \"```\";</p>\n", "css", "p{}\n"), blocks, "split=" + split);
+        }
+    }
+
+    @Test
+    void findFirstStopsAtFirstMatchingBlock() {
+        String content = "```css\np{}\n```\n```html\n<p>1</p>\n```\n```html\n<p>2</p>\n```";
+        assertEquals("<p>1</p>\n", StreamingCodeBlockParser.findFirst(content, "html"));
+        assertNull(StreamingCodeBlockParser.findFirst(content, "js", "javascript"));
+    }
+
+    private String regex(String content, Pattern pattern) {
+        Matcher matcher = pattern.matcher(content);
+        if (matcher.find() && !matcher.group(1).trim().isEmpty()) {
+            return matcher.group(1).trim();
+        }
+        return null;
+    }
+}
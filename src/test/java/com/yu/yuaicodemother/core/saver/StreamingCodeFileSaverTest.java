@@ -0,0 +1,88 @@
+package com.yu.yuaicodemother.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCodeFileSaverTest {
+
+    private final List<File> createdDirs = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        createdDirs.forEach(FileUtil::del);
+    }
+
+    @Test
+    void multiFileWritesEachFileWhenFenceCloses() {
+        long appId = System.nanoTime();
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, appId);
+        File dir = new File(CodeFileSaverTemplate.FILE_SAVE_ROOT_DIR, "multi_file_" + appId);
+        createdDirs.add(dir);
+        saver.append("```html\n<h1>v1</h1>\n``");
+        assertFalse(new File(dir, "index.html").exists());
+
+        saver.append("`\n```css\nh1{}\n```");
+        assertEquals("<h1>v1</h1>\n", FileUtil.readUtf8String(new File(dir, "index.html")));
+        assertEquals("h1{}\n", FileUtil.readUtf8String(new File(dir, "style.css")));
+        // 同一文件只取第一个代码块
+        saver.append("\n```html\n<h1>v2</h1>\n```");
+        saver.complete();
+        assertEquals("<h1>v1</h1>\n", FileUtil.readUtf8String(new File(dir, "index.html")));
+        // 临时文件已全部重命名
+        assertArrayEquals(new String[]{"index.html", "style.css"}, sortedNames(dir));
+    }
+
+    @Test
+    void htmlWithoutFenceFallsBackToWholeContent() {
+        long appId = System.nanoTime();
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.HTML, appId);
+        saver.append("<html><body>");
+        saver.append("plain</body></html>\n");
+        File dir = saver.complete();
+        createdDirs.add(dir);
+        assertEquals("<html><body>plain</body></html>\n", FileUtil.readUtf8String(new File(dir, "index.html")));
+    }
+
+    @Test
+    void multiFileWritesStylesAndScriptsOnlyAfterHtml() {
+        long appId = System.nanoTime();
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, appId);
+        File dir = new File(CodeFileSaverTemplate.FILE_SAVE_ROOT_DIR, "multi_file_" + appId);
+        createdDirs.add(dir);
+        saver.append("```css\n  h1 {}\n```\n```js\nrun();\n```\n");
+        assertFalse(dir.exists());
+
+        saver.append("```html\n<h1>v1</h1>\n```\n");
+        saver.complete();
+        assertArrayEquals(new String[]{"index.html", "script.js", "style.css"}, sortedNames(dir));
+        // 内容原样写入
+        assertEquals("  h1 {}\n", FileUtil.readUtf8String(new File(dir, "style.css")));
+    }
+
+    @Test
+    void multiFileWithoutHtmlWritesNothing() {
+        long appId = System.nanoTime();
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, appId);
+        File dir = new File(CodeFileSaverTemplate.FILE_SAVE_ROOT_DIR, "multi_file_" + appId);
+        createdDirs.add(dir);
+        saver.append("```css\nh1{}\n```\n```js\nrun();\n```\n样式和脚本已完成。");
+        saver.complete();
+        assertFalse(dir.exists());
+    }
+
+    private String[] sortedNames(File dir) {
+        String[] names = dir.list();
+        assertNotNull(names);
+        Arrays.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,156 @@
+package com.yu.yuaicodemother.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingPatchApplierTest {
+
+    private static final String HTML = """
+            <html>
+            <body>
+              <h1>标题</h1>
+              <button class="btn">提交</button>
+            </body>
+            </html>""";
+
+    private static final String CSS = """
+            h1 {
+              color: red;
+            }
+            .btn {
+              color: red;
+            }""";
+
+    private final List<File> createdDirs = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        createdDirs.forEach(FileUtil::del);
+    }
+
+    @Test
+    void multiFilePatchAppliesBlocksAcrossFiles() {
+        long appId = System.nanoTime();
+        File dir = createFiles(CodeGenTypeEnum.MULTI_FILE, appId, Map.of("index.html", HTML, "style.css", CSS));
+        Map<String, String> currentFiles = StreamingPatchApplier.readCurrentFiles(CodeGenTypeEnum.MULTI_FILE, appId);
+        assertEquals(List.of("index.html", "style.css"), List.copyOf(currentFiles.keySet()));
+
+        StreamingPatchApplier applier = new StreamingPatchApplier(CodeGenTypeEnum.MULTI_FILE, appId, currentFiles);
+        String output = """
+                把标题改为蓝色，按钮文字改为"发送"。
+
+                **style.css**
+                <<<<<<< SEARCH
+                h1 {
+                  color: red;
+                =======
+                h1 {
+                  color: blue;
+                >>>>>>> REPLACE
+
+                ```html
+                index.html
+                <<<<<<< SEARCH
+                  <button class="btn">提交</button>
+                =======
+                  <button class="btn">发送</button>
+                >>>>>>> REPLACE
+                ```
+                """;
+        // 按 3 个字符切分，标记被拆到多个片段中
+        for (int i = 0; i < output.length(); i += 3) {
+            applier.append(output.substring(i, Math.min(output.length(), i + 3)));
+        }
+        assertFalse(applier.isFailed());
+        assertTrue(applier.complete());
+        assertEquals(2, applier.getAppliedBlocks());
+        assertEquals(HTML.replace("提交", "发送"), FileUtil.readUtf8String(new File(dir, "index.html")));
+        assertEquals(CSS.replaceFirst("red", "blue"), FileUtil.readUtf8String(new File(dir, "style.css")));
+        assertFalse(new File(dir, "script.js").exists());
+    }
+
+    @Test
+    void htmlPatchDefaultsToIndexAndToleratesIndentation() {
+        long appId = System.nanoTime();
+        File dir = createFiles(CodeGenTypeEnum.HTML, appId, Map.of("index.html", HTML));
+        StreamingPatchApplier applier = new StreamingPatchApplier(CodeGenTypeEnum.HTML, appId,
+                StreamingPatchApplier.readCurrentFiles(CodeGenTypeEnum.HTML, appId));
+        // 省略文件名，SEARCH 的缩进与原文件不同
+        applier.append("<<<<<<< SEARCH\n<h1>标题</h1>\n=======\n  <h1>新标题</h1>\n>>>>>>> REPLACE");
+        assertTrue(applier.complete());
+        assertEquals(HTML.replace("标题", "新标题"), FileUtil.readUtf8String(new File(dir, "index.html")));
+    }
+
+    @Test
+    void failedBlockStopsEarlyAndKeepsFiles() {
+        long appId = System.nanoTime();
+        File dir = createFiles(CodeGenTypeEnum.MULTI_FILE, appId, Map.of("index.html", HTML, "style.css", CSS));
+        StreamingPatchApplier applier = new StreamingPatchApplier(CodeGenTypeEnum.MULTI_FILE, appId,
+                StreamingPatchApplier.readCurrentFiles(CodeGenTypeEnum.MULTI_FILE, appId));
+        applier.append("index.html\n<<<<<<< SEARCH\n<h1>标题</h1>\n=======\n<h1>新标题</h1>\n>>>>>>> REPLACE\n");
+        assertFalse(applier.isFailed());
+        // 出现两次，无法确定位置
+        applier.append("style.css\n<<<<<<< SEARCH\n  color: red;\n=======\n  color: blue;\n>>>>>>> REPLACE\n");
+        assertTrue(applier.isFailed());
+        assertTrue(applier.getFailureReason().contains("style.css"));
+
+        assertFalse(applier.complete());
+        assertEquals(HTML, FileUtil.readUtf8String(new File(dir, "index.html")));
+        assertEquals(CSS, FileUtil.readUtf8String(new File(dir, "style.css")));
+    }
+
+    @Test
+    void rejectsMissingFileUnterminatedBlockAndEmptyOutput() {
+        long appId = System.nanoTime();
+        createFiles(CodeGenTypeEnum.MULTI_FILE, appId, Map.of("index.html", HTML));
+        Map<String, String> currentFiles = StreamingPatchApplier.readCurrentFiles(CodeGenTypeEnum.MULTI_FILE, appId);
+
+        StreamingPatchApplier missingFile = new StreamingPatchApplier(CodeGenTypeEnum.MULTI_FILE, appId, currentFiles);
+        missingFile.append("script.js\n<<<<<<< SEARCH\nlet a;\n=======\nlet b;\n>>>>>>> REPLACE\n");
+        assertTrue(missingFile.isFailed());
+
+        StreamingPatchApplier unterminated = new StreamingPatchApplier(CodeGenTypeEnum.MULTI_FILE, appId, currentFiles);
+        unterminated.append("index.html\n<<<<<<< SEARCH\n<h1>标题</h1>\n=======\n<h1>新");
+        assertFalse(unterminated.complete());
+
+        StreamingPatchApplier empty = new StreamingPatchApplier(CodeGenTypeEnum.MULTI_FILE, appId, currentFiles);
+        empty.append("好的，已经修改完成。");
+        assertFalse(empty.complete());
+    }
+
+    @Test
+    void fullFileBlockReplacesFile() {
+        long appId = System.nanoTime();
+        File dir = createFiles(CodeGenTypeEnum.MULTI_FILE, appId, Map.of("index.html", HTML, "style.css", CSS));
+        StreamingPatchApplier applier = new StreamingPatchApplier(CodeGenTypeEnum.MULTI_FILE, appId,
+                StreamingPatchApplier.readCurrentFiles(CodeGenTypeEnum.MULTI_FILE, appId));
+        applier.append("样式整体重写：\n```css\nbody { margin: 0; }\n```\n");
+        applier.append("```javascript\nconsole.log('ready');\n```\n");
+        assertTrue(applier.complete());
+        assertEquals(HTML, FileUtil.readUtf8String(new File(dir, "index.html")));
+        assertEquals("body { margin: 0; }\n", FileUtil.readUtf8String(new File(dir, "style.css")));
+        assertEquals("console.log('ready');\n", FileUtil.readUtf8String(new File(dir, "script.js")));
+    }
+
+    @Test
+    void formatFilesRendersHeadingAndFence() {
+        String formatted = StreamingPatchApplier.formatFiles(Map.of("style.css", "h1{}"));
+        assertEquals("### style.css\n```css\nh1{}\n```\n\n", formatted);
+    }
+
+    private File createFiles(CodeGenTypeEnum codeGenType, long appId, Map<String, String> files) {
+        File dir = new File(CodeFileSaverTemplate.FILE_SAVE_ROOT_DIR, codeGenType.getValue() + "_" + appId);
+        createdDirs.add(dir);
+        files.forEach((name, content) -> FileUtil.writeUtf8String(content, new File(dir, name)));
+        return dir;
+    }
+}
@@ -0,0 +1,445 @@
+package com.yu.yuaicodemother.loadtest;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * 本地 OpenAI 兼容的 chat-completions 模拟服务（仅用于测试）
+ * <p>
+ * 按脚本回放录制的模型响应：正文、reasoning_content 思考增量、writeFile / modifyFile 工具调用，
+ * 可配置首 token 延迟与每秒输出 token 数，用于在没有真实 API Key 的情况下测量本项目自身的流式开销。
+ * </p>
+ *
+ * <h3>脚本</h3>
+ * 脚本位于 src/test/resources/fake-openai/&lt;名称&gt;.json，由若干轮响应组成，
+ * 每轮可包含 reasoning、content 与 toolCalls（name + arguments）。
+ * 请求带 tools 时使用工具脚本，否则使用文本脚本；
+ * 第几轮由请求中最后一条用户消息之后的助手消息数决定（每执行一轮工具调用，模型会再被请求一次）。
+ *
+ * <h3>输出记录</h3>
+ * 用户消息中带有 {@link #sessionTag(String)} 标记时，按会话记录每个正文 token 的发出时刻，
+ * 压测时据此计算客户端收到每个 SSE 事件的延迟。
+ */
+public class FakeOpenAiServer implements AutoCloseable {
+
+    /**
+     * 每个 token 的字符数（按 token 切分回放内容）
+     */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private static final Pattern SESSION_PATTERN = Pattern.compile("\\[session:([\\w-]+)]");
+
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+
+    private final Map<String, EmissionLog> emissionLogs = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final String textScript;
+
+    private final String toolScript;
+
+    private volatile Duration firstTokenDelay = Duration.ZERO;
+
+    /**
+     * 每秒输出的 token 数，0 表示不限速
+     */
+    private volatile int tokensPerSecond;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * @param textScript 不带工具的请求使用的脚本（html / multi_file）
+     * @param toolScript 带工具的请求使用的脚本（vue_project）
+     */
+    public FakeOpenAiServer(String textScript, String toolScript) {
+        this.textScript = textScript;
+        this.toolScript = toolScript;
+    }
+
+    /**
+     * 在随机端口上启动
+     */
+    public FakeOpenAiServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/", this::handle);
+        // 每个流式响应占用一个线程，按 token 速率等待期间不占用平台线程
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+        return this;
+    }
+
+    /**
+     * 模型 base-url
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public FakeOpenAiServer firstTokenDelay(Duration firstTokenDelay) {
+        this.firstTokenDelay = firstTokenDelay;
+        return this;
+    }
+
+    public FakeOpenAiServer tokensPerSecond(int tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+        return this;
+    }
+
+    /**
+     * 收到的请求数
+     */
+    public long requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * 会话的正文输出记录
+     *
+     * @param sessionId 会话 ID（用户消息中的 {@link #sessionTag(String)} 标记）
+     */
+    public EmissionLog emissions(String sessionId) {
+        return emissionLogs.computeIfAbsent(sessionId, key -> new EmissionLog());
+    }
+
+    /**
+     * 加在用户消息中的会话标记
+     */
+    public static String sessionTag(String sessionId) {
+        return "[session:" + sessionId + "]";
+    }
+
+    /**
+     * 脚本中某一轮的正文
+     */
+    public String content(String scriptName, int round) {
+        return script(scriptName).round(round).content();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            requestCount.incrementAndGet();
+            JSONObject request = JSONUtil.parseObj(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            JSONArray messages = request.getJSONArray("messages");
+            boolean withTools = CollUtil.isNotEmpty(request.getJSONArray("tools"));
+            Round round = script(withTools ? toolScript : textScript).round(assistantTurns(messages));
+            String model = request.getStr("model", "fake-model");
+            int promptTokens = messages.toString().length() / CHARS_PER_TOKEN;
+            if (request.getBool("stream", false)) {
+                stream(exchange, model, round, promptTokens, emissionLog(messages));
+            } else {
+                complete(exchange, model, round, promptTokens);
+            }
+        } catch (IOException e) {
+            // 客户端中断连接（例如停止生成）
+        }
+    }
+
+    /**
+     * 流式响应：按 token 切分回放，依次输出思考、正文、工具调用，最后输出结束原因与 Token 用量
+     */
+    private void stream(HttpExchange exchange, String model, Round round, int promptTokens, EmissionLog emissionLog)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        String id = "chatcmpl-" + IdUtil.fastSimpleUUID();
+        Pacer pacer = new Pacer(firstTokenDelay, tokensPerSecond);
+        for (String token : split(round.reasoning())) {
+            pacer.await();
+            writeChunk(out, id, model, JSONUtil.createObj().set("reasoning_content", token), null);
+        }
+        for (String token : split(round.content())) {
+            pacer.await();
+            writeChunk(out, id, model, JSONUtil.createObj().set("content", token), null);
+            if (emissionLog != null) {
+                emissionLog.record(token.length(), System.nanoTime());
+            }
+        }
+        for (int i = 0; i < round.toolCalls().size(); i++) {
+            ToolCall toolCall = round.toolCalls().get(i);
+            pacer.await();
+            JSONObject function = JSONUtil.createObj().set("name", toolCall.name()).set("arguments", "");
+            writeChunk(out, id, model, toolCallDelta(i, JSONUtil.createObj()
+                    .set("id", "call_" + IdUtil.fastSimpleUUID())
+                    .set("type", "function")
+                    .set("function", function)), null);
+            for (String token : split(toolCall.arguments())) {
+                pacer.await();
+                writeChunk(out, id, model, toolCallDelta(i, JSONUtil.createObj()
+                        .set("function", JSONUtil.createObj().set("arguments", token))), null);
+            }
+        }
+        JSONObject usage = JSONUtil.createObj()
+                .set("prompt_tokens", promptTokens)
+                .set("completion_tokens", pacer.tokens)
+                .set("total_tokens", promptTokens + pacer.tokens);
+        writeChunk(out, id, model, JSONUtil.createObj(), round.toolCalls().isEmpty() ? "stop" : "tool_calls");
+        writeEvent(out, JSONUtil.createObj()
+                .set("id", id)
+                .set("object", "chat.completion.chunk")
+                .set("model", model)
+                .set("choices", new JSONArray())
+                .set("usage", usage)
+                .toString());
+        writeEvent(out, "[DONE]");
+    }
+
+    /**
+     * 非流式响应：等待首 token 延迟后一次返回整轮内容
+     */
+    private void complete(HttpExchange exchange, String model, Round round, int promptTokens) throws IOException {
+        new Pacer(firstTokenDelay, 0).await();
+        JSONObject message = JSONUtil.createObj().set("role", "assistant").set("content", round.content());
+        if (!round.toolCalls().isEmpty()) {
+            JSONArray toolCalls = new JSONArray();
+            for (ToolCall toolCall : round.toolCalls()) {
+                toolCalls.add(JSONUtil.createObj()
+                        .set("id", "call_" + IdUtil.fastSimpleUUID())
+                        .set("type", "function")
+                        .set("function", JSONUtil.createObj()
+                                .set("name", toolCall.name())
+                                .set("arguments", toolCall.arguments())));
+            }
+            message.set("tool_calls", toolCalls);
+        }
+        int completionTokens = split(round.content()).size();
+        JSONObject body = JSONUtil.createObj()
+                .set("id", "chatcmpl-" + IdUtil.fastSimpleUUID())
+                .set("object", "chat.completion")
+                .set("model", model)
+                .set("choices", JSONUtil.createArray().set(JSONUtil.createObj()
+                        .set("index", 0)
+                        .set("message", message)
+                        .set("finish_reason", round.toolCalls().isEmpty() ? "stop" : "tool_calls")))
+                .set("usage", JSONUtil.createObj()
+                        .set("prompt_tokens", promptTokens)
+                        .set("completion_tokens", completionTokens)
+                        .set("total_tokens", promptTokens + completionTokens));
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static JSONObject toolCallDelta(int index, JSONObject toolCall) {
+        return JSONUtil.createObj().set("tool_calls", JSONUtil.createArray().set(toolCall.set("index", index)));
+    }
+
+    private static void writeChunk(OutputStream out, String id, String model, JSONObject delta, String finishReason)
+            throws IOException {
+        JSONObject choice = JSONUtil.createObj().set("index", 0).set("delta", delta);
+        if (finishReason != null) {
+            choice.set("finish_reason", finishReason);
+        }
+        writeEvent(out, JSONUtil.createObj()
+                .set("id", id)
+                .set("object", "chat.completion.chunk")
+                .set("model", model)
+                .set("choices", JSONUtil.createArray().set(choice))
+                .toString());
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 最后一条用户消息之后的助手消息数，即已完成的工具调用轮数
+     */
+    private static int assistantTurns(JSONArray messages) {
+        int turns = 0;
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            String role = messages.getJSONObject(i).getStr("role");
+            if ("user".equals(role)) {
+                break;
+            }
+            if ("assistant".equals(role)) {
+                turns++;
+            }
+        }
+        return turns;
+    }
+
+    private EmissionLog emissionLog(JSONArray messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            JSONObject message = messages.getJSONObject(i);
+            if ("user".equals(message.getStr("role"))) {
+                // content 可能是字符串，也可能是多模态的内容数组
+                String sessionId = ReUtil.get(SESSION_PATTERN, message.getStr("content"), 1);
+                return sessionId == null ? null : emissions(sessionId);
+            }
+        }
+        return null;
+    }
+
+    private static List<String> split(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>(text.length() / CHARS_PER_TOKEN + 1);
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + CHARS_PER_TOKEN);
+            // 不拆开代理对
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end++;
+            }
+            tokens.add(text.substring(start, end));
+            start = end;
+        }
+        return tokens;
+    }
+
+    private Script script(String name) {
+        return scripts.computeIfAbsent(name, Script::load);
+    }
+
+    /**
+     * 按固定节奏放行 token：第 n 个 token 在 首 token 延迟 + n / 速率 之后发出，不因写出耗时累积误差
+     */
+    private static final class Pacer {
+
+        private final long startNanos = System.nanoTime();
+
+        private final long firstTokenDelayNanos;
+
+        private final long intervalNanos;
+
+        private int tokens;
+
+        private Pacer(Duration firstTokenDelay, int tokensPerSecond) {
+            this.firstTokenDelayNanos = firstTokenDelay.toNanos();
+            this.intervalNanos = tokensPerSecond > 0 ? 1_000_000_000L / tokensPerSecond : 0;
+        }
+
+        private void await() {
+            long deadline = startNanos + firstTokenDelayNanos + tokens * intervalNanos;
+            tokens++;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    /**
+     * 一个会话的正文输出记录：累计字符数 -> 发出时刻
+     */
+    public static final class EmissionLog {
+
+        private long[] endOffsets = new long[256];
+
+        private long[] nanos = new long[256];
+
+        private int size;
+
+        private long totalChars;
+
+        private synchronized void record(int chars, long emittedNanos) {
+            if (size == endOffsets.length) {
+                endOffsets = Arrays.copyOf(endOffsets, size * 2);
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            totalChars += chars;
+            endOffsets[size] = totalChars;
+            nanos[size] = emittedNanos;
+            size++;
+        }
+
+        /**
+         * 包含第 charOffset 个字符（从 0 开始）的 token 的发出时刻，尚未发出时返回 -1
+         */
+        public synchronized long emittedAt(long charOffset) {
+            int index = Arrays.binarySearch(endOffsets, 0, size, charOffset + 1);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < size ? nanos[index] : -1;
+        }
+
+        public synchronized long totalChars() {
+            return totalChars;
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+    }
+
+    /**
+     * 回放脚本
+     */
+    private record Script(List<Round> rounds) {
+
+        private static Script load(String name) {
+            JSONObject json = JSONUtil.parseObj(ResourceUtil.readUtf8Str("fake-openai/" + name + ".json"));
+            List<Round> rounds = new ArrayList<>();
+            for (JSONObject round : json.getJSONArray("rounds").jsonIter()) {
+                List<ToolCall> toolCalls = new ArrayList<>();
+                JSONArray toolCallArray = round.getJSONArray("toolCalls");
+                if (toolCallArray != null) {
+                    for (JSONObject toolCall : toolCallArray.jsonIter()) {
+                        toolCalls.add(new ToolCall(toolCall.getStr("name"), toolCall.getJSONObject("arguments").toString()));
+                    }
+                }
+                rounds.add(new Round(round.getStr("reasoning"), round.getStr("content"), toolCalls));
+            }
+            return new Script(rounds);
+        }
+
+        /**
+         * 超出脚本轮数时重复最后一轮
+         */
+        private Round round(int index) {
+            return rounds.get(Math.min(index, rounds.size() - 1));
+        }
+    }
+
+    private record Round(String reasoning, String content, List<ToolCall> toolCalls) {
+    }
+
+    private record ToolCall(String name, String arguments) {
+    }
+}
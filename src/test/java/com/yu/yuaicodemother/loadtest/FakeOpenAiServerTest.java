@@ -0,0 +1,154 @@
+package com.yu.yuaicodemother.loadtest;
+
+import cn.hutool.json.JSONUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.output.FinishReason;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FakeOpenAiServerTest {
+
+    private FakeOpenAiServer server;
+
+    private StreamingChatModel model;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeOpenAiServer("html", "vue_project").start();
+        model = OpenAiStreamingChatModel.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey("test")
+                .modelName("fake-model")
+                .returnThinking(true)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void streamsReasoningAndContent() throws Exception {
+        StringBuilder content = new StringBuilder();
+        StringBuilder thinking = new StringBuilder();
+        ChatResponse response = chat(List.of(UserMessage.from("做一个作品集页面 " + FakeOpenAiServer.sessionTag("s1"))),
+                List.of(), content, thinking);
+
+        String expected = server.content("html", 0);
+        assertEquals(expected, content.toString());
+        assertEquals(expected, response.aiMessage().text());
+        assertFalse(thinking.isEmpty());
+        assertEquals(FinishReason.STOP, response.finishReason());
+        assertTrue(response.tokenUsage().outputTokenCount() > 0);
+
+        FakeOpenAiServer.EmissionLog emissions = server.emissions("s1");
+        assertEquals(expected.length(), emissions.totalChars());
+        assertTrue(emissions.emittedAt(0) > 0);
+        assertTrue(emissions.emittedAt(expected.length() - 1) >= emissions.emittedAt(0));
+        assertEquals(-1, emissions.emittedAt(expected.length()));
+    }
+
+    @Test
+    void replaysToolCallRoundsInOrder() throws Exception {
+        List<ToolSpecification> tools = List.of(tool("writeFile"), tool("modifyFile"));
+        List<ChatMessage> messages = new ArrayList<>(List.of(UserMessage.from("做一个 Vue 计数器")));
+
+        AiMessage first = chat(messages, tools, new StringBuilder(), new StringBuilder()).aiMessage();
+        assertEquals(List.of("writeFile", "writeFile"),
+                first.toolExecutionRequests().stream().map(ToolExecutionRequest::name).toList());
+        assertEquals("src/main.js", JSONUtil.parseObj(first.toolExecutionRequests().get(0).arguments())
+                .getStr("relativeFilePath"));
+        appendToolResults(messages, first);
+
+        AiMessage second = chat(messages, tools, new StringBuilder(), new StringBuilder()).aiMessage();
+        assertEquals("modifyFile", second.toolExecutionRequests().get(0).name());
+        appendToolResults(messages, second);
+
+        ChatResponse last = chat(messages, tools, new StringBuilder(), new StringBuilder());
+        assertFalse(last.aiMessage().hasToolExecutionRequests());
+        assertEquals(server.content("vue_project", 2), last.aiMessage().text());
+        assertEquals(3, server.requestCount());
+    }
+
+    @Test
+    void pacesTokensByConfiguredRate() throws Exception {
+        server.firstTokenDelay(Duration.ofMillis(100)).tokensPerSecond(2000);
+        long startNanos = System.nanoTime();
+        ChatResponse response = chat(List.of(UserMessage.from("做一个作品集页面")), List.of(),
+                new StringBuilder(), new StringBuilder());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // 首 token 延迟 + 其余每个 token 0.5 毫秒
+        long expectedMillis = 100 + (response.tokenUsage().outputTokenCount() - 1) / 2;
+        assertTrue(elapsedMillis >= expectedMillis, elapsedMillis + "ms < " + expectedMillis + "ms");
+    }
+
+    private ChatResponse chat(List<ChatMessage> messages, List<ToolSpecification> tools,
+                              StringBuilder content, StringBuilder thinking) throws Exception {
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        ChatRequest request = ChatRequest.builder()
+                .messages(messages)
+                .toolSpecifications(tools)
+                .build();
+        model.chat(request, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                content.append(partialResponse);
+            }
+
+            @Override
+            public void onPartialThinking(PartialThinking partialThinking) {
+                thinking.append(partialThinking.text());
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    private static void appendToolResults(List<ChatMessage> messages, AiMessage aiMessage) {
+        messages.add(aiMessage);
+        for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+            messages.add(ToolExecutionResultMessage.from(request, "ok"));
+        }
+    }
+
+    private static ToolSpecification tool(String name) {
+        return ToolSpecification.builder()
+                .name(name)
+                .parameters(JsonObjectSchema.builder()
+                        .addStringProperty("relativeFilePath")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,404 @@
+package com.yu.yuaicodemother.loadtest;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.yu.yuaicodemother.model.entity.App;
+import com.yu.yuaicodemother.model.enums.AppDeployStatusEnum;
+import com.yu.yuaicodemother.model.enums.AppGenStatusEnum;
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import com.yu.yuaicodemother.service.AppService;
+import com.yu.yuaicodemother.service.UserService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 代码生成端到端压测
+ * <p>
+ * 启动完整应用，模型地址指向本地 {@link FakeOpenAiServer}，并发发起 N 个 /app/chat/gen/code SSE 会话，
+ * 统计服务端吞吐、每个 SSE 事件的延迟（模拟服务发出 token 到客户端收到包含该 token 的事件）、堆内存与线程数。
+ * 每次修改流式链路（合并、背压、续传、准入等）后运行一次，对比结果即可发现回退。
+ * </p>
+ * <p>
+ * 需要 application.yml 中配置的 MySQL 与 Redis，默认不运行：
+ * <pre>
+ * mvn test -Dtest=GenerationLoadTest -Dloadtest=true \
+ *     -Dloadtest.sessions=64 -Dloadtest.code-gen-type=html \
+ *     -Dloadtest.tokens-per-second=50 -Dloadtest.first-token-millis=500
+ * </pre>
+ * 事件延迟只在 html / multi_file 模式下统计（正文原样输出）；vue_project 模式输出的是工具调用事件，只统计吞吐。
+ * </p>
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class GenerationLoadTest {
+
+    private static final int SESSIONS = Integer.getInteger("loadtest.sessions", 32);
+
+    private static final String CODE_GEN_TYPE = System.getProperty("loadtest.code-gen-type",
+            CodeGenTypeEnum.HTML.getValue());
+
+    private static final int TOKENS_PER_SECOND = Integer.getInteger("loadtest.tokens-per-second", 50);
+
+    private static final int FIRST_TOKEN_MILLIS = Integer.getInteger("loadtest.first-token-millis", 500);
+
+    private static final String PASSWORD = "loadtest123";
+
+    private static FakeOpenAiServer fakeOpenAiServer;
+
+    @LocalServerPort
+    private int port;
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private AppService appService;
+
+    @DynamicPropertySource
+    static void modelProperties(DynamicPropertyRegistry registry) throws IOException {
+        String textScript = CodeGenTypeEnum.VUE_PROJECT.getValue().equals(CODE_GEN_TYPE)
+                ? CodeGenTypeEnum.HTML.getValue() : CODE_GEN_TYPE;
+        fakeOpenAiServer = new FakeOpenAiServer(textScript, CodeGenTypeEnum.VUE_PROJECT.getValue())
+                .firstTokenDelay(Duration.ofMillis(FIRST_TOKEN_MILLIS))
+                .tokensPerSecond(TOKENS_PER_SECOND)
+                .start();
+        for (String model : List.of("chat-model", "streaming-chat-model", "reasoning-chat-model")) {
+            String prefix = "langchain4j.open-ai." + model;
+            registry.add(prefix + ".base-url", fakeOpenAiServer::baseUrl);
+            registry.add(prefix + ".api-key", () -> "loadtest");
+            // 逐条打印请求与响应会成为压测的瓶颈
+            registry.add(prefix + ".log-requests", () -> false);
+            registry.add(prefix + ".log-responses", () -> false);
+        }
+        registry.add("routing-chat-model.base-url", fakeOpenAiServer::baseUrl);
+        registry.add("routing-chat-model.api-key", () -> "loadtest");
+    }
+
+    @AfterAll
+    static void stopFakeServer() {
+        if (fakeOpenAiServer != null) {
+            fakeOpenAiServer.close();
+        }
+    }
+
+    @Test
+    void concurrentGenerationSessions() throws Exception {
+        String runId = IdUtil.nanoId(6).replaceAll("[^\\w]", "x");
+        List<Long> userIds = new ArrayList<>();
+        List<Long> appIds = new ArrayList<>();
+        try {
+            // 每个会话使用独立用户，避免触发按用户的对话限流
+            List<Session> sessions = new ArrayList<>();
+            for (int i = 0; i < SESSIONS; i++) {
+                String account = "loadtest_" + runId + "_" + i;
+                long userId = userService.userRegister(account, PASSWORD, PASSWORD);
+                userIds.add(userId);
+                appIds.add(createApp(userId, i));
+                sessions.add(new Session(runId + "-" + i, appIds.get(i), login(account)));
+            }
+            Report report = run(sessions);
+            log.info(report.format());
+            assertEquals(SESSIONS, report.succeeded, "部分会话失败");
+        } finally {
+            appService.removeByIds(appIds);
+            userService.removeByIds(userIds);
+        }
+    }
+
+    private Report run(List<Session> sessions) throws Exception {
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        System.gc();
+        Report report = new Report();
+        report.baselineHeapBytes = memoryBean.getHeapMemoryUsage().getUsed();
+        report.baselineThreads = threadBean.getThreadCount();
+        threadBean.resetPeakThreadCount();
+
+        // 每 100 毫秒采样一次堆内存
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong peakHeapBytes = new AtomicLong();
+        Thread sampler = Thread.ofPlatform().daemon().name("loadtest-sampler").start(() -> {
+            while (running.get()) {
+                peakHeapBytes.accumulateAndGet(memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        CountDownLatch startSignal = new CountDownLatch(1);
+        long startNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Session session : sessions) {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    session.run();
+                    return null;
+                }));
+            }
+            startNanos = System.nanoTime();
+            startSignal.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.MINUTES);
+            }
+        } finally {
+            running.set(false);
+            sampler.interrupt();
+        }
+        report.wallNanos = System.nanoTime() - startNanos;
+        report.peakHeapBytes = peakHeapBytes.get();
+        report.peakThreads = threadBean.getPeakThreadCount();
+        report.modelRequests = fakeOpenAiServer.requestCount();
+
+        List<long[]> latencies = new ArrayList<>();
+        List<Long> firstEventNanos = new ArrayList<>();
+        for (Session session : sessions) {
+            if (session.error == null) {
+                report.succeeded++;
+            } else {
+                log.warn("会话 {} 失败: {}", session.id, session.error);
+            }
+            report.events += session.events;
+            report.chars += session.chars;
+            latencies.add(Arrays.copyOf(session.latencies, session.latencyCount));
+            if (session.firstEventNanos > 0) {
+                firstEventNanos.add(session.firstEventNanos);
+            }
+        }
+        report.latencyNanos = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        report.firstEventNanos = firstEventNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        return report;
+    }
+
+    private Long createApp(long userId, int index) {
+        App app = new App();
+        app.setUserId(userId);
+        app.setAppName("压测应用" + index);
+        app.setInitPrompt("做一个个人作品集页面");
+        app.setCodeGenType(CODE_GEN_TYPE);
+        app.setVisualRange(true);
+        app.setDeployStatus(AppDeployStatusEnum.NOT_DEPLOYED.getValue());
+        app.setGenStatus(AppGenStatusEnum.NOT_STARTED.getValue());
+        appService.save(app);
+        return app.getId();
+    }
+
+    /**
+     * 登录并返回带会话 Cookie 的客户端
+     */
+    private HttpClient login(String account) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url("/user/login")))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(JSONUtil.createObj()
+                        .set("userAccount", account)
+                        .set("userPassword", PASSWORD)
+                        .toString()))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(0, JSONUtil.parseObj(response.body()).getInt("code"), response.body());
+        return client;
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + "/api" + path;
+    }
+
+    /**
+     * 一个 SSE 会话：发起生成并读取到 done 事件，记录每个正文事件的延迟
+     */
+    private final class Session {
+
+        private final String id;
+
+        private final long appId;
+
+        private final HttpClient client;
+
+        private long[] latencies = new long[1024];
+
+        private int latencyCount;
+
+        private long events;
+
+        private long chars;
+
+        private long firstEventNanos;
+
+        private String error;
+
+        private Session(String id, long appId, HttpClient client) {
+            this.id = id;
+            this.appId = appId;
+            this.client = client;
+        }
+
+        private void run() {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url("/app/chat/gen/code")))
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .POST(HttpRequest.BodyPublishers.ofString(JSONUtil.createObj()
+                            .set("appId", appId)
+                            .set("message", "做一个个人作品集页面 " + FakeOpenAiServer.sessionTag(id))
+                            .toString()))
+                    .build();
+            long startNanos = System.nanoTime();
+            try {
+                HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() != 200) {
+                    error = "HTTP " + response.statusCode();
+                    return;
+                }
+                FakeOpenAiServer.EmissionLog emissions = fakeOpenAiServer.emissions(id);
+                String event = null;
+                StringBuilder data = new StringBuilder();
+                try (Stream<String> lines = response.body()) {
+                    for (String line : (Iterable<String>) lines::iterator) {
+                        if (line.startsWith("event:")) {
+                            event = line.substring(6).trim();
+                        } else if (line.startsWith("data:")) {
+                            data.append(StrUtil.removePrefix(line.substring(5), " "));
+                        } else if (line.isEmpty() && (event != null || !data.isEmpty())) {
+                            if ("done".equals(event)) {
+                                return;
+                            }
+                            if ("business-error".equals(event) || "detached".equals(event)) {
+                                error = event + " " + data;
+                                return;
+                            }
+                            if (event == null) {
+                                onData(JSONUtil.parseObj(data.toString()), emissions, startNanos);
+                            }
+                            event = null;
+                            data.setLength(0);
+                        }
+                    }
+                }
+                error = "连接在 done 事件之前关闭";
+            } catch (Exception e) {
+                error = e.toString();
+            }
+        }
+
+        private void onData(JSONObject json, FakeOpenAiServer.EmissionLog emissions, long startNanos) {
+            long receivedNanos = System.nanoTime();
+            String chunk = json.getStr("d", "");
+            if (events == 0) {
+                firstEventNanos = receivedNanos - startNanos;
+            }
+            events++;
+            // 事件延迟按事件中最早的字符计算（合并窗口内等待最久的 token）
+            long emittedNanos = emissions.emittedAt(chars);
+            chars += chunk.length();
+            if (emittedNanos <= 0 || emittedNanos > receivedNanos) {
+                return;
+            }
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = receivedNanos - emittedNanos;
+        }
+    }
+
+    /**
+     * 压测结果
+     */
+    private static final class Report {
+
+        private int succeeded;
+
+        private long events;
+
+        private long chars;
+
+        private long wallNanos;
+
+        private long modelRequests;
+
+        private long[] latencyNanos;
+
+        private long[] firstEventNanos;
+
+        private long baselineHeapBytes;
+
+        private long peakHeapBytes;
+
+        private int baselineThreads;
+
+        private int peakThreads;
+
+        private String format() {
+            double seconds = wallNanos / 1e9;
+            return String.format("""
+
+                            ===== 代码生成压测（%s，%d 个会话，%d token/s，首 token %d ms） =====
+                            成功会话: %d / %d，模型请求: %d，耗时: %.1f s
+                            吞吐: %.1f 事件/s，%.0f 字符/s，%.2f 生成/s
+                            事件延迟: p50 %.1f ms，p99 %.1f ms，max %.1f ms（%d 个事件）
+                            首个事件: p50 %.0f ms，p99 %.0f ms
+                            堆内存: 基线 %d MB，峰值 %d MB
+                            线程数: 基线 %d，峰值 %d
+                            """,
+                    CODE_GEN_TYPE, SESSIONS, TOKENS_PER_SECOND, FIRST_TOKEN_MILLIS,
+                    succeeded, SESSIONS, modelRequests, seconds,
+                    events / seconds, chars / seconds, succeeded / seconds,
+                    millis(percentile(latencyNanos, 0.50)), millis(percentile(latencyNanos, 0.99)),
+                    millis(percentile(latencyNanos, 1.0)), latencyNanos.length,
+                    millis(percentile(firstEventNanos, 0.50)), millis(percentile(firstEventNanos, 0.99)),
+                    baselineHeapBytes >> 20, peakHeapBytes >> 20,
+                    baselineThreads, peakThreads);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.yu.yuaicodemother.monitor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiModelMetricsCollectorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AiModelMetricsCollector collector = new AiModelMetricsCollector();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(collector, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void errorsAreTaggedByExceptionTypeNotMessage() {
+        for (int i = 0; i < 100; i++) {
+            collector.recordError("qwen-plus", new TimeoutException("timeout after " + i + "ms"));
+        }
+        collector.recordError("qwen-plus", new IllegalStateException("boom"));
+
+        assertEquals(100, meterRegistry.get("ai_model_errors_total")
+                .tag("model_name", "qwen-plus").tag("error_type", "TimeoutException").counter().count());
+        assertEquals(2, meterRegistry.get("ai_model_errors_total").counters().size());
+    }
+
+    @Test
+    void modelCardinalityIsBounded() {
+        for (int i = 0; i < 100; i++) {
+            collector.recordRequest("model-" + i, AiModelMetricsCollector.Status.SUCCESS);
+        }
+
+        // 32 个模型单独统计，其余归入 other
+        assertEquals(33, meterRegistry.get("ai_model_requests_total")
+                .tag("status", "success").counters().size());
+        assertEquals(68, meterRegistry.get("ai_model_requests_total")
+                .tag("model_name", "other").tag("status", "success").counter().count());
+    }
+}
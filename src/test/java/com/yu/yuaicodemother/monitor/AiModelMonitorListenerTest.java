@@ -0,0 +1,92 @@
+package com.yu.yuaicodemother.monitor;
+
+import com.yu.yuaicodemother.model.vo.monitor.TokenSpendVO;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiModelMonitorListenerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TokenSpendAccounting tokenSpendAccounting = new TokenSpendAccounting();
+
+    private final AiModelMonitorListener listener = new AiModelMonitorListener();
+
+    @BeforeEach
+    void setUp() {
+        AiModelMetricsCollector collector = new AiModelMetricsCollector();
+        ReflectionTestUtils.setField(collector, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "topK", 10);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "width", 64);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "depth", 2);
+        ReflectionTestUtils.setField(tokenSpendAccounting, "windowHours", 24L);
+        GenerationTracer generationTracer = new GenerationTracer();
+        ReflectionTestUtils.setField(generationTracer, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(generationTracer, "maxSize", 100);
+        ReflectionTestUtils.setField(generationTracer, "retentionMinutes", 60L);
+        generationTracer.init();
+        ReflectionTestUtils.setField(listener, "aiModelMetricsCollector", collector);
+        ReflectionTestUtils.setField(listener, "tokenSpendAccounting", tokenSpendAccounting);
+        ReflectionTestUtils.setField(listener, "generationTracer", generationTracer);
+    }
+
+    @Test
+    void spendIsAttributedFromRequestAttributesOnAnotherThread() throws InterruptedException {
+        MonitorContext context = MonitorContext.builder().userId("7").appId("42").build();
+        Map<Object, Object> attributes = new HashMap<>();
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.scope(context)) {
+            listener.onRequest(new ChatModelRequestContext(chatRequest(), ModelProvider.OTHER, attributes));
+        }
+
+        // 响应回调在没有线程上下文的线程上执行
+        Thread thread = Thread.ofVirtual().start(() -> listener.onResponse(responseContext(attributes)));
+        thread.join();
+
+        TokenSpendVO spend = tokenSpendAccounting.snapshot(10);
+        assertEquals(List.of("7"), spend.getTopUsers().stream().map(TokenSpendVO.Item::getId).toList());
+        assertEquals(List.of("42"), spend.getTopApps().stream().map(TokenSpendVO.Item::getId).toList());
+        assertEquals(15L, spend.getTotalTokens());
+    }
+
+    @Test
+    void callWithoutContextIsNotRankedAsUnknown() {
+        Map<Object, Object> attributes = new HashMap<>();
+        listener.onRequest(new ChatModelRequestContext(chatRequest(), ModelProvider.OTHER, attributes));
+        listener.onResponse(responseContext(attributes));
+
+        TokenSpendVO spend = tokenSpendAccounting.snapshot(10);
+        assertTrue(spend.getTopUsers().isEmpty());
+        assertTrue(spend.getTopApps().isEmpty());
+        assertEquals(15, meterRegistry.get("ai_model_tokens_total").tag("token_type", "total").counter().count());
+    }
+
+    private static ChatRequest chatRequest() {
+        return ChatRequest.builder().messages(UserMessage.from("你好")).modelName("qwen-plus").build();
+    }
+
+    private static ChatModelResponseContext responseContext(Map<Object, Object> attributes) {
+        ChatResponse response = ChatResponse.builder()
+                .aiMessage(AiMessage.from("好的"))
+                .modelName("qwen-plus")
+                .tokenUsage(new TokenUsage(10, 5))
+                .build();
+        return new ChatModelResponseContext(response, chatRequest(), ModelProvider.OTHER, attributes);
+    }
+}
@@ -0,0 +1,49 @@
+package com.yu.yuaicodemother.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinTopKTest {
+
+    @Test
+    void heavyHittersSurviveManySmallKeys() {
+        CountMinTopK sketch = new CountMinTopK(4, 1024, 10);
+        Map<String, Long> actual = new HashMap<>();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 5; i++) {
+                add(sketch, actual, "heavy-" + i, 1000);
+            }
+            for (int i = 0; i < 500; i++) {
+                add(sketch, actual, "user-" + (round * 500 + i), 10);
+            }
+        }
+
+        List<Map.Entry<String, Long>> top = sketch.top(5);
+        assertEquals(5, top.size());
+        for (Map.Entry<String, Long> entry : top) {
+            assertTrue(entry.getKey().startsWith("heavy-"), entry.getKey());
+        }
+        assertTrue(top.get(0).getValue() >= top.get(4).getValue());
+        assertEquals(actual.values().stream().mapToLong(Long::longValue).sum(), sketch.total());
+    }
+
+    @Test
+    void estimateNeverUndercounts() {
+        CountMinTopK sketch = new CountMinTopK(4, 64, 10);
+        Map<String, Long> actual = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            add(sketch, actual, "key-" + (i % 300), i % 7 + 1);
+        }
+        actual.forEach((key, count) -> assertTrue(sketch.estimate(key) >= count, key));
+    }
+
+    private static void add(CountMinTopK sketch, Map<String, Long> actual, String key, long count) {
+        sketch.add(key, count);
+        actual.merge(key, count, Long::sum);
+    }
+}
@@ -0,0 +1,113 @@
+package com.yu.yuaicodemother.monitor;
+
+import com.yu.yuaicodemother.core.generation.AppSideEffectExecutor;
+import com.yu.yuaicodemother.model.vo.monitor.GenerationTraceVO;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationTracerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final GenerationTracer generationTracer = new GenerationTracer();
+
+    @BeforeEach
+    void setUp() {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        ReflectionTestUtils.setField(generationTracer, "observationRegistry", observationRegistry);
+        ReflectionTestUtils.setField(generationTracer, "maxSize", 100);
+        ReflectionTestUtils.setField(generationTracer, "retentionMinutes", 60L);
+        generationTracer.init();
+    }
+
+    @Test
+    void recordsStageBreakdownAndTimers() {
+        GenerationTrace trace = generationTracer.start("g1", GenerationTracer.KIND_GENERATION, 1L, 2L);
+        trace.setCodeGenType("vue_project");
+        generationTracer.observe(trace, "file_process", () -> sleep(5));
+        for (String tool : List.of("writeFile", "readFile")) {
+            generationTracer.stage(trace, "tool_execution", tool).stop();
+        }
+        GenerationTracer.Stage failed = generationTracer.stage(trace, "llm_request", "qwen");
+        failed.stop(new IllegalStateException("boom"));
+        // 重复结束不重复记录
+        failed.stop();
+        generationTracer.finish(trace, null);
+
+        GenerationTraceVO traceVO = generationTracer.toVO(generationTracer.get("g1"));
+        assertEquals("success", traceVO.getStatus());
+        assertEquals(4, traceVO.getStages().size());
+        assertEquals("file_process", traceVO.getStages().get(0).getName());
+        assertTrue(traceVO.getStageTotals().get("file_process") >= 5);
+        assertTrue(traceVO.getStageTotals().containsKey("tool_execution"));
+        assertEquals("IllegalStateException", traceVO.getStages().get(3).getError());
+
+        assertEquals(2, meterRegistry.get("generation.stage")
+                .tag("stage", "tool_execution").tag("code_gen_type", "vue_project").timer().count());
+        assertEquals(1, meterRegistry.get("generation.trace").tag("kind", "generation").timer().count());
+    }
+
+    @Test
+    void propagatesThroughReactorContextAndVirtualThreads() throws Exception {
+        GenerationTrace trace = generationTracer.start("g2", GenerationTracer.KIND_GENERATION, 1L, 2L);
+
+        GenerationTrace fromReactor = Flux.deferContextual(contextView -> Flux.just(generationTracer.current(contextView)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .contextWrite(Context.of(MonitorContext.class, trace.getMonitorContext()))
+                .blockFirst();
+        assertSame(trace, fromReactor);
+
+        CompletableFuture<GenerationTrace> fromThread = new CompletableFuture<>();
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.scope(trace.getMonitorContext());
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.execute(MonitorContextHolder.wrap(() -> fromThread.complete(generationTracer.current())));
+        }
+        assertSame(trace, fromThread.get(5, TimeUnit.SECONDS));
+        // 作用域关闭后恢复原值
+        assertNull(MonitorContextHolder.getContext());
+    }
+
+    @Test
+    void sideEffectsAreRecordedAsStagesOfLatestGeneration() {
+        AppSideEffectExecutor sideEffectExecutor = new AppSideEffectExecutor();
+        ReflectionTestUtils.setField(sideEffectExecutor, "enabled", false);
+        ReflectionTestUtils.setField(sideEffectExecutor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(sideEffectExecutor, "generationTracer", generationTracer);
+        sideEffectExecutor.init();
+
+        generationTracer.start("old", GenerationTracer.KIND_GENERATION, 7L, 2L);
+        GenerationTrace trace = generationTracer.start("new", GenerationTracer.KIND_GENERATION, 7L, 2L);
+        generationTracer.finish(trace, null);
+        GenerationTrace[] seen = new GenerationTrace[1];
+        sideEffectExecutor.execute(7L, "create_version", () -> seen[0] = generationTracer.current());
+
+        assertSame(trace, seen[0]);
+        assertEquals("create_version", trace.getStages().get(0).name());
+        assertTrue(generationTracer.get("old").getStages().isEmpty());
+        assertEquals(List.of("new", "old"), generationTracer.listRecent(7L, 10).stream()
+                .map(GenerationTrace::getGenerationId).toList());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
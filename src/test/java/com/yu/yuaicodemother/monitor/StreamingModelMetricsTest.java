@@ -0,0 +1,74 @@
+package com.yu.yuaicodemother.monitor;
+
+import com.yu.yuaicodemother.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingModelMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final StreamingModelMetrics metrics = new StreamingModelMetrics();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(metrics, "meterRegistry", meterRegistry);
+        metrics.init();
+    }
+
+    @Test
+    void toolRoundsDoNotCountAsInterTokenGaps() throws Exception {
+        StreamingMetricsTracker tracker = metrics.newTracker(CodeGenTypeEnum.VUE_PROJECT);
+        tracker.onChunk(StreamingMetricsTracker.Phase.THINKING);
+        tracker.onChunk(StreamingMetricsTracker.Phase.THINKING);
+        tracker.onChunk(StreamingMetricsTracker.Phase.TOOL_CALL);
+        tracker.beforeToolExecution();
+        Thread.sleep(50);
+        tracker.afterToolExecution();
+        // 新一轮的第一个片段不计入间隔
+        tracker.onChunk(StreamingMetricsTracker.Phase.TEXT);
+        Thread.sleep(5);
+        tracker.onChunk(StreamingMetricsTracker.Phase.TEXT);
+        tracker.onComplete(ChatResponse.builder()
+                .aiMessage(AiMessage.from("done"))
+                .tokenUsage(new TokenUsage(10, 40))
+                .build());
+
+        assertEquals(1, timer("ai_stream_first_token_seconds", null).count());
+        assertEquals(1, timer("ai_stream_inter_token_seconds", "thinking").count());
+        assertEquals(1, timer("ai_stream_inter_token_seconds", "tool_call").count());
+        assertEquals(1, timer("ai_stream_inter_token_seconds", "text").count());
+        assertTrue(timer("ai_stream_tool_execution_seconds", null).totalTime(TimeUnit.MILLISECONDS) >= 50);
+        // 输出时长只包含两轮内的片段间隔，不含 50ms 的工具执行
+        double tokensPerSecond = meterRegistry.get("ai_stream_output_tokens_per_second")
+                .tag("model", "reasoning").summary().max();
+        assertTrue(tokensPerSecond > 40 / 0.05, "tokens/s = " + tokensPerSecond);
+    }
+
+    @Test
+    void metersAreTaggedOnlyByModelAndCodeGenType() {
+        StreamingMetricsTracker tracker = metrics.newTracker(CodeGenTypeEnum.HTML);
+        tracker.onChunk(StreamingMetricsTracker.Phase.TEXT);
+        tracker.onComplete(null);
+
+        assertEquals(1, meterRegistry.get("ai_stream_first_token_seconds")
+                .tag("model", "streaming").tag("code_gen_type", "html").timer().count());
+        assertEquals(0, meterRegistry.get("ai_stream_output_tokens_per_second")
+                .tag("code_gen_type", "html").summary().count());
+    }
+
+    private Timer timer(String name, String phase) {
+        var search = meterRegistry.get(name).tag("code_gen_type", "vue_project");
+        return phase == null ? search.timer() : search.tag("phase", phase).timer();
+    }
+}